@@ -0,0 +1,221 @@
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * AsyncContactService is a non-blocking facade over a ContactService for callers that must not
+ * wait, such as asynchronous request handlers. Every call returns a CompletableFuture at once
+ * and runs on one of several shard threads, each a single-writer executor that owns a fixed set
+ * of the service's lock stripes. Calls for one contact therefore run one at a time in the order
+ * they were made, and the stripe locks a write takes are never contended by another shard.
+ *
+ * Concurrent gets of the same contact are coalesced: a get made while another get of that
+ * contact is still queued shares its future instead of queuing a second read. A write ends the
+ * sharing, so a get made after a write was submitted always sees that write.
+ *
+ * Futures complete on the shard threads; run slow follow-up work with the *Async variants of
+ * CompletableFuture's methods so it does not hold up the shard. Writes report rejections as a
+ * ContactStatus rather than an exception, as the service's try methods do. On a durable service
+ * each write waits for its log record, which holds up its shard until the log is synced.
+ */
+public class AsyncContactService implements Closeable {
+    private final ContactService service;
+    private final ExecutorService[] shards;
+    private final ConcurrentHashMap<String, CompletableFuture<Contact>> pendingGets;
+    private final LongAdder coalesced;
+
+    /**
+     * Constructor creates a facade with one shard per available processor
+     * @param service The service to call
+     * @throws IllegalArgumentException if service is null
+     */
+    public AsyncContactService(ContactService service) {
+        this(service, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor creates a facade with a given number of shard threads
+     * @param service The service to call
+     * @param shardCount The number of shard threads
+     * @throws IllegalArgumentException if service is null or shardCount is not positive
+     */
+    public AsyncContactService(ContactService service, int shardCount) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.service = service;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "contact-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.pendingGets = new ConcurrentHashMap<>();
+        this.coalesced = new LongAdder();
+    }
+
+    /**
+     * Adds a new contact with unique ID
+     * @param contact The contact to add
+     * @return A future for OK, NULL_CONTACT, DUPLICATE_ID or ALREADY_STORED
+     */
+    public CompletableFuture<ContactStatus> addContact(Contact contact) {
+        if (contact == null) {
+            return CompletableFuture.completedFuture(ContactStatus.NULL_CONTACT);
+        }
+        return write(contact.getContactId(), () -> service.tryAdd(contact));
+    }
+
+    /**
+     * Gets a contact by ID, sharing the read with any other get of the contact still queued
+     * @param contactId The ID of the contact to retrieve
+     * @return A future for the contact, or for null if not found
+     */
+    public CompletableFuture<Contact> getContact(String contactId) {
+        if (contactId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Contact> shared = pendingGets.get(contactId);
+        if (shared == null) {
+            CompletableFuture<Contact> future = new CompletableFuture<>();
+            shared = pendingGets.putIfAbsent(contactId, future);
+            if (shared == null) {
+                submit(contactId, future, () -> {
+                    // Later gets queue a read of their own from here on
+                    pendingGets.remove(contactId, future);
+                    future.complete(service.getContact(contactId));
+                });
+                return future;
+            }
+        }
+        coalesced.increment();
+        return shared;
+    }
+
+    /**
+     * Updates contact fields by contact ID, all or nothing
+     * @param contactId The ID of the contact to update
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @return A future for OK, NULL_CONTACT_ID, NOT_FOUND or the status of the first invalid field
+     */
+    public CompletableFuture<ContactStatus> updateContact(String contactId, String firstName, String lastName,
+                                                          String phone, String address) {
+        if (contactId == null) {
+            return CompletableFuture.completedFuture(ContactStatus.NULL_CONTACT_ID);
+        }
+        return write(contactId, () -> service.tryUpdate(contactId, firstName, lastName, phone, address));
+    }
+
+    /**
+     * Deletes a contact by contact ID
+     * @param contactId The ID of the contact to delete
+     * @return A future for OK, NULL_CONTACT_ID or NOT_FOUND
+     */
+    public CompletableFuture<ContactStatus> deleteContact(String contactId) {
+        if (contactId == null) {
+            return CompletableFuture.completedFuture(ContactStatus.NULL_CONTACT_ID);
+        }
+        return write(contactId, () -> service.tryDelete(contactId));
+    }
+
+    /**
+     * Gets all contacts once every call submitted before this one has run. The copy is made on
+     * the shard thread that finishes last, so use paging for large books.
+     * @return A future for the list of all contacts in insertion order
+     */
+    public CompletableFuture<List<Contact>> getAllContacts() {
+        CompletableFuture<?>[] drained = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            CompletableFuture<Void> marker = new CompletableFuture<>();
+            submit(shards[i], marker, () -> marker.complete(null));
+            drained[i] = marker;
+        }
+        return CompletableFuture.allOf(drained).thenApply(ignored -> service.getAllContacts());
+    }
+
+    /**
+     * Gets the number of gets that shared another get's read instead of queuing their own
+     * @return The coalesced get count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets the service behind this facade
+     * @return The service
+     */
+    public ContactService getService() {
+        return service;
+    }
+
+    /**
+     * Stops the shard threads after the calls already submitted have run; the service stays open.
+     * Calls made afterwards complete exceptionally with RejectedExecutionException.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        try {
+            for (ExecutorService shard : shards) {
+                shard.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a write on its contact's shard. Ending the sharing of a pending get and queuing the
+     * write happen in one step under the pending-get map's lock for the ID, so a get made after
+     * this returns cannot join a read queued before the write.
+     */
+    private CompletableFuture<ContactStatus> write(String contactId, Supplier<ContactStatus> operation) {
+        CompletableFuture<ContactStatus> future = new CompletableFuture<>();
+        pendingGets.compute(contactId, (id, pending) -> {
+            submit(contactId, future, () -> future.complete(operation.get()));
+            return null;
+        });
+        return future;
+    }
+
+    private void submit(String contactId, CompletableFuture<?> future, Runnable task) {
+        submit(shards[ContactService.stripeOf(contactId) % shards.length], future, task);
+    }
+
+    /**
+     * Runs a task on a shard, completing its future exceptionally if the task throws or the
+     * shard is closed
+     */
+    private static void submit(ExecutorService shard, CompletableFuture<?> future, Runnable task) {
+        try {
+            shard.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Unit tests for the AsyncContactService class
+ */
+public class AsyncContactServiceTest {
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    @Test
+    @Timeout(10)
+    public void testCallsRunInOrderPerContact() {
+        // Test that calls for one contact run in submission order and report statuses
+        try (AsyncContactService async = new AsyncContactService(new ContactService(), 4)) {
+            List<CompletableFuture<ContactStatus>> adds = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                adds.add(async.addContact(contact(i)));
+            }
+            CompletableFuture<ContactStatus> duplicate = async.addContact(contact(5));
+            CompletableFuture<ContactStatus> update = async.updateContact("5", "Jane", null, null, null);
+            CompletableFuture<Contact> updated = async.getContact("5");
+            CompletableFuture<ContactStatus> delete = async.deleteContact("6");
+            CompletableFuture<Contact> deleted = async.getContact("6");
+            CompletableFuture<ContactStatus> invalid = async.updateContact("7", null, null, "123", null);
+
+            for (CompletableFuture<ContactStatus> add : adds) {
+                assertEquals(ContactStatus.OK, add.join());
+            }
+            assertEquals(ContactStatus.DUPLICATE_ID, duplicate.join());
+            assertEquals(ContactStatus.OK, update.join());
+            assertEquals("Jane", updated.join().getFirstName());
+            assertEquals(ContactStatus.OK, delete.join());
+            assertNull(deleted.join());
+            assertEquals(ContactStatus.INVALID_PHONE, invalid.join());
+            assertEquals(ContactStatus.NOT_FOUND, async.deleteContact("6").join());
+            assertEquals(ContactStatus.NULL_CONTACT, async.addContact(null).join());
+            assertEquals(99, async.getAllContacts().join().size());
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    public void testConcurrentGetsAreCoalesced() throws InterruptedException {
+        // Test that queued gets of one contact share a read, and a write ends the sharing
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // A store whose read of "hold" blocks whichever shard thread runs it
+        HeapContactStore store = new HeapContactStore() {
+            @Override
+            public Contact get(String contactId) {
+                if (contactId.equals("hold")) {
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.get(contactId);
+            }
+        };
+        try (AsyncContactService async = new AsyncContactService(new ContactService(store), 1)) {
+            async.addContact(contact(1)).join();
+            // Hold the only shard so the next calls stay queued
+            CompletableFuture<Contact> held = async.getContact("hold");
+            holding.await();
+
+            CompletableFuture<Contact> first = async.getContact("1");
+            assertSame(first, async.getContact("1"));
+            assertEquals(1, async.getCoalescedCount());
+            async.updateContact("1", "Jane", null, null, null);
+            CompletableFuture<Contact> afterUpdate = async.getContact("1");
+            assertNotSame(first, afterUpdate);
+            release.countDown();
+
+            assertNull(held.join());
+            assertNotNull(first.join());
+            assertEquals("Jane", afterUpdate.join().getFirstName());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * BackpressurePolicy controls what a ContactChangeFeed does when a subscriber falls a full
+ * ring buffer behind the writers.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Never delay writers. A subscriber that falls too far behind loses its place, and its next
+     * poll throws so it can resynchronize, for example from a snapshot.
+     */
+    DROP_SLOW_SUBSCRIBERS,
+
+    /**
+     * Make writers wait until the slowest open subscriber frees a slot. No change is ever lost,
+     * but a stalled subscriber stalls every writer.
+     */
+    BLOCK_WRITERS
+}
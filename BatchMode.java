@@ -0,0 +1,14 @@
+/**
+ * BatchMode controls what ContactService.applyBatch does when some operations are invalid.
+ */
+public enum BatchMode {
+    /**
+     * Apply the batch only if every operation is valid; otherwise change nothing
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Apply every valid operation and report the invalid ones
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,89 @@
+/**
+ * BatchResult reports the outcome of each operation passed to ContactService.applyBatch,
+ * by position in the batch.
+ */
+public final class BatchResult {
+    /**
+     * The outcome of a single operation
+     */
+    public enum Status {
+        /** The operation was applied */
+        APPLIED,
+        /** The operation was invalid and was not applied */
+        REJECTED,
+        /** The operation was valid but was not applied because an all-or-nothing batch was rejected */
+        NOT_APPLIED
+    }
+
+    private final Status[] statuses;
+    private final String[] errors;
+    private final int rejectedCount;
+
+    /**
+     * Creates a result from per-operation errors
+     * @param errors Error message per operation, or null where the operation was valid
+     * @param applied Whether the valid operations were applied
+     */
+    BatchResult(String[] errors, boolean applied) {
+        this.errors = errors;
+        this.statuses = new Status[errors.length];
+        int rejected = 0;
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                statuses[i] = Status.REJECTED;
+                rejected++;
+            } else {
+                statuses[i] = applied ? Status.APPLIED : Status.NOT_APPLIED;
+            }
+        }
+        this.rejectedCount = rejected;
+    }
+
+    /**
+     * Gets the number of operations in the batch
+     * @return The batch size
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * Gets the outcome of one operation
+     * @param index The position of the operation in the batch
+     * @return The operation's status
+     */
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * Gets why an operation was rejected
+     * @param index The position of the operation in the batch
+     * @return The error message, or null if the operation was valid
+     */
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * Gets the number of rejected operations
+     * @return The rejected count
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Gets the number of applied operations
+     * @return The applied count
+     */
+    public int getAppliedCount() {
+        int applied = 0;
+        for (Status status : statuses) {
+            if (status == Status.APPLIED) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,433 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CachingContactStore is a bounded read-through, write-through cache in front of another
+ * ContactStore, so ContactService can run as a hot tier over a slower backend such as a
+ * FileContactStore.
+ *
+ * A get that misses reads the backend and caches the result. Writes go to the backend first
+ * and then refresh or drop the cached copy, so the cache never holds a value the backend has
+ * replaced. The cache is capped by an estimate of the heap bytes its entries use, and the
+ * EvictionPolicy picks what to drop. Counters report hits, misses and evictions.
+ *
+ * Cached entries are guarded by one lock held only for in-memory bookkeeping; backend reads
+ * and writes happen outside it. size, iterator and peek go straight to the backend without
+ * touching the cache, so a full scan or page-through does not evict the working set.
+ */
+public class CachingContactStore implements ContactStore, Closeable {
+    private static final long ENTRY_OVERHEAD_BYTES = 112;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    private final ContactStore backend;
+    private final EvictionPolicy policy;
+    private final long maxBytes;
+    private final long windowMaxBytes;
+    private final long protectedMaxBytes;
+    private final ReentrantLock lock;
+    private final HashMap<String, Node> nodes;
+    private final Segment window;       // The whole cache under LRU
+    private final Segment probation;
+    private final Segment protectedSegment;
+    private final FrequencySketch sketch;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private long writes;                // Guarded by lock; lets a miss detect a write that raced its backend read
+
+    /**
+     * A cached contact, linked into one segment's recency list
+     */
+    private static final class Node {
+        final String contactId;
+        ContactRecord record;
+        long weight;
+        Segment segment;
+        Node prev;
+        Node next;
+
+        Node(String contactId, ContactRecord record, long weight) {
+            this.contactId = contactId;
+            this.record = record;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A recency list, most recently used first, with the bytes of its entries
+     */
+    private static final class Segment {
+        final Node head;
+        long bytes;
+
+        Segment() {
+            head = new Node(null, null, 0);
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addFirst(Node node) {
+            node.segment = this;
+            node.prev = head;
+            node.next = head.next;
+            head.next.prev = node;
+            head.next = node;
+            bytes += node.weight;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.segment = null;
+            bytes -= node.weight;
+        }
+
+        Node last() {
+            return head.prev == head ? null : head.prev;
+        }
+    }
+
+    /**
+     * Constructor for CachingContactStore
+     * @param backend The store to read through and write through to
+     * @param policy How to choose contacts to evict
+     * @param maxBytes The cap on the estimated heap bytes of cached contacts
+     * @throws IllegalArgumentException if backend or policy is null or maxBytes is not positive
+     */
+    public CachingContactStore(ContactStore backend, EvictionPolicy policy, long maxBytes) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend store cannot be null");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Eviction policy cannot be null");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.backend = backend;
+        this.policy = policy;
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = policy == EvictionPolicy.LRU ? maxBytes : Math.max(1, maxBytes / 100);
+        this.protectedMaxBytes = (maxBytes - windowMaxBytes) * 4 / 5;
+        this.lock = new ReentrantLock();
+        this.nodes = new HashMap<>();
+        this.window = new Segment();
+        this.probation = new Segment();
+        this.protectedSegment = new Segment();
+        this.sketch = policy == EvictionPolicy.TINY_LFU ? new FrequencySketch((int) Math.min(maxBytes / 256, 1 << 26)) : null;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        long stamp;
+        lock.lock();
+        try {
+            recordAccess(contactId);
+            Node node = nodes.get(contactId);
+            if (node != null) {
+                hits.increment();
+                onHit(node);
+                return new Contact(node.record);
+            }
+            stamp = writes;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Contact loaded = backend.get(contactId);
+        if (loaded == null) {
+            return null;
+        }
+        ContactRecord record = loaded.toRecord();
+        lock.lock();
+        try {
+            // Skip caching if a write finished since the miss; the backend read may be stale
+            if (writes == stamp && !nodes.containsKey(contactId)) {
+                admit(new Node(contactId, record, weigh(record)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Contact(record);
+    }
+
+    /**
+     * Serves a cached copy without counting a hit, or reads the backend without caching it
+     */
+    @Override
+    public Contact peek(String contactId) {
+        lock.lock();
+        try {
+            Node node = nodes.get(contactId);
+            if (node != null) {
+                return new Contact(node.record);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return backend.peek(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        lock.lock();
+        try {
+            if (nodes.containsKey(contactId)) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return backend.contains(contactId);
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        backend.insert(backend.sharesContacts() ? new Contact(contact.toRecord()) : contact);
+        lock.lock();
+        try {
+            writes++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        ContactRecord before = backend.update(contactId, firstName, lastName, phone, address);
+        ContactRecord after = before.merge(firstName, lastName, phone, address);
+        lock.lock();
+        try {
+            writes++;
+            Node node = nodes.get(contactId);
+            if (node != null) {
+                node.segment.bytes -= node.weight;
+                node.record = after;
+                node.weight = weigh(after);
+                node.segment.bytes += node.weight;
+                trim();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return before;
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        ContactRecord removed = backend.remove(contactId);
+        lock.lock();
+        try {
+            writes++;
+            Node node = nodes.remove(contactId);
+            if (node != null) {
+                node.segment.remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return backend.size();
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        Iterator<Contact> contacts = backend.iterator();
+        if (!backend.sharesContacts()) {
+            return contacts;
+        }
+        return new Iterator<Contact>() {
+            @Override
+            public boolean hasNext() {
+                return contacts.hasNext();
+            }
+
+            @Override
+            public Contact next() {
+                return new Contact(contacts.next().toRecord());
+            }
+        };
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return getCachedBytes() + backend.estimatedBytes();
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return false;
+    }
+
+    /**
+     * Gets the number of reads answered from the cache
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of reads that went to the backend
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of contacts dropped or refused to stay within the byte cap
+     * @return The eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the fraction of reads answered from the cache
+     * @return The hit rate from 0 to 1, or 0 before the first read
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Gets the estimated heap bytes of the cached contacts
+     * @return The estimated bytes, at most the byte cap
+     */
+    public long getCachedBytes() {
+        lock.lock();
+        try {
+            return window.bytes + probation.bytes + protectedSegment.bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached contacts
+     * @return The cached contact count
+     */
+    public int getCachedCount() {
+        lock.lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the backend if it holds resources
+     */
+    @Override
+    public void close() throws IOException {
+        if (backend instanceof Closeable) {
+            ((Closeable) backend).close();
+        }
+    }
+
+    /**
+     * Estimates the heap bytes a cached contact uses: the entry and record objects plus five
+     * compact strings
+     */
+    static long weigh(ContactRecord record) {
+        return ENTRY_OVERHEAD_BYTES + 5 * STRING_OVERHEAD_BYTES
+                + record.getContactId().length() + record.getFirstName().length() + record.getLastName().length()
+                + record.getPhone().length() + record.getAddress().length();
+    }
+
+    private void recordAccess(String contactId) {
+        if (sketch != null) {
+            sketch.increment(contactId.hashCode());
+        }
+    }
+
+    private int frequency(Node node) {
+        return sketch.frequency(node.contactId.hashCode());
+    }
+
+    private void onHit(Node node) {
+        Segment segment = node.segment;
+        segment.remove(node);
+        if (segment == probation) {
+            protectedSegment.addFirst(node);
+            while (protectedSegment.bytes > protectedMaxBytes) {
+                Node demoted = protectedSegment.last();
+                protectedSegment.remove(demoted);
+                probation.addFirst(demoted);
+            }
+        } else {
+            segment.addFirst(node);
+        }
+    }
+
+    /**
+     * Adds a new entry to the window and evicts until the cache fits its cap. Must hold lock.
+     */
+    private void admit(Node node) {
+        if (node.weight > maxBytes) {
+            return;
+        }
+        nodes.put(node.contactId, node);
+        window.addFirst(node);
+        trim();
+    }
+
+    /**
+     * Evicts until every segment fits. Under TINY_LFU an entry leaving the window competes with
+     * the main segment's least recently used entry, and the less frequently used one is dropped.
+     * Must hold lock.
+     */
+    private void trim() {
+        if (policy == EvictionPolicy.LRU) {
+            while (window.bytes > maxBytes) {
+                evict(window.last());
+            }
+            return;
+        }
+        long mainMaxBytes = maxBytes - windowMaxBytes;
+        while (window.bytes > windowMaxBytes) {
+            Node candidate = window.last();
+            window.remove(candidate);
+            while (candidate != null && probation.bytes + protectedSegment.bytes + candidate.weight > mainMaxBytes) {
+                Node victim = probation.last() != null ? probation.last() : protectedSegment.last();
+                if (victim == null || frequency(candidate) <= frequency(victim)) {
+                    nodes.remove(candidate.contactId);
+                    evictions.increment();
+                    candidate = null;
+                } else {
+                    evict(victim);
+                }
+            }
+            if (candidate != null) {
+                probation.addFirst(candidate);
+            }
+        }
+        // An update can grow an entry already in the main segment
+        while (probation.bytes + protectedSegment.bytes > mainMaxBytes) {
+            evict(probation.last() != null ? probation.last() : protectedSegment.last());
+        }
+    }
+
+    private void evict(Node node) {
+        node.segment.remove(node);
+        nodes.remove(node.contactId);
+        evictions.increment();
+    }
+}
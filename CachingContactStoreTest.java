@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Unit tests for the CachingContactStore and FileContactStore classes
+ */
+public class CachingContactStoreTest {
+    @TempDir
+    Path directory;
+
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    private static long entryBytes() {
+        return CachingContactStore.weigh(contact(10).toRecord());
+    }
+
+    @Test
+    public void testReadThroughCountsHitsAndMisses() throws IOException {
+        // Test that the first read misses and later reads hit
+        try (FileContactStore backend = FileContactStore.open(directory.resolve("contacts.dat"))) {
+            CachingContactStore cache = new CachingContactStore(backend, EvictionPolicy.LRU, 1 << 20);
+            ContactService service = new ContactService(cache);
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+
+            assertEquals("John", service.getContact("1").getFirstName());
+            assertEquals("John", service.getContact("1").getFirstName());
+            assertNull(service.getContact("2"));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+            assertEquals(1, cache.getCachedCount());
+            assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testWritesReachBackendAndCache() throws IOException {
+        // Test that updates and deletes change both the cached copy and the backend
+        try (FileContactStore backend = FileContactStore.open(directory.resolve("contacts.dat"))) {
+            CachingContactStore cache = new CachingContactStore(backend, EvictionPolicy.TINY_LFU, 1 << 20);
+            ContactService service = new ContactService(cache);
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            service.addContact(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+            service.getContact("1");
+
+            service.updateContact("1", "Jim", null, null, "9 New St");
+            assertEquals("Jim", service.getContact("1").getFirstName());
+            assertEquals("Jim", backend.get("1").getFirstName());
+            assertEquals("9 New St", backend.get("1").getAddress());
+
+            service.deleteContact("1");
+            assertNull(service.getContact("1"));
+            assertNull(backend.get("1"));
+            assertEquals(1, service.getAllContacts().size());
+            assertEquals(1, service.findByLastName("Smith").size());
+        }
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        // Test that the byte cap holds and the oldest unused contact goes first
+        CachingContactStore cache = new CachingContactStore(new HeapContactStore(), EvictionPolicy.LRU, 3 * entryBytes());
+        ContactService service = new ContactService(cache);
+        for (int i = 10; i < 14; i++) {
+            service.addContact(contact(i));
+        }
+        service.getContact("10");
+        service.getContact("11");
+        service.getContact("12");
+        service.getContact("10");
+        service.getContact("13");
+
+        assertEquals(3, cache.getCachedCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getCachedBytes() <= 3 * entryBytes());
+        long misses = cache.getMissCount();
+        service.getContact("10");
+        assertEquals(misses, cache.getMissCount());
+        service.getContact("11");
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void testTinyLfuResistsScans() {
+        // Test that a one-pass scan does not flush frequently read contacts
+        CachingContactStore cache = new CachingContactStore(new HeapContactStore(), EvictionPolicy.TINY_LFU, 200 * entryBytes());
+        ContactService service = new ContactService(cache);
+        for (int i = 1000; i < 3000; i++) {
+            service.addContact(contact(i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 1000; i < 1100; i++) {
+                service.getContact(Integer.toString(i));
+            }
+        }
+        for (int i = 1100; i < 3000; i++) {
+            service.getContact(Integer.toString(i));
+        }
+
+        long misses = cache.getMissCount();
+        for (int i = 1000; i < 1100; i++) {
+            service.getContact(Integer.toString(i));
+        }
+        assertTrue(cache.getMissCount() - misses < 10);
+        assertTrue(cache.getCachedBytes() <= 200 * entryBytes());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        // Test that a missing backend, policy or size throws exception
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CachingContactStore(null, EvictionPolicy.LRU, 1024);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CachingContactStore(new HeapContactStore(), null, 1024);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CachingContactStore(new HeapContactStore(), EvictionPolicy.LRU, 0);
+        });
+    }
+
+    @Test
+    public void testFileStoreReopens() throws IOException {
+        // Test that reopening the data file restores contacts in insertion order
+        Path file = directory.resolve("contacts.dat");
+        try (ContactService service = new ContactService(FileContactStore.open(file))) {
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            service.addContact(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+            service.addContact(new Contact("3", "Zo\u00eb", "\u5f20", "1112223333", "1 Elm St"));
+            service.updateContact("1", "Jim", null, null, null);
+            service.deleteContact("2");
+        }
+
+        try (ContactService reopened = new ContactService(FileContactStore.open(file))) {
+            List<Contact> all = reopened.getAllContacts();
+            assertEquals(2, all.size());
+            assertEquals("Jim", all.get(0).getFirstName());
+            assertEquals("\u5f20", all.get(1).getLastName());
+            assertNull(reopened.getContact("2"));
+            assertEquals(1, reopened.findByFirstName("Jim").size());
+        }
+    }
+
+    @Test
+    public void testFileStoreDropsTornTail() throws IOException {
+        // Test that a partly written last record is cut off on open
+        Path file = directory.resolve("contacts.dat");
+        long complete;
+        try (FileContactStore store = FileContactStore.open(file)) {
+            store.insert(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            complete = store.fileBytes();
+            store.insert(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(complete + 6);
+        }
+
+        try (FileContactStore store = FileContactStore.open(file)) {
+            assertEquals(1, store.size());
+            assertEquals(complete, store.fileBytes());
+            store.insert(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+            assertEquals("Jane", store.get("2").getFirstName());
+        }
+    }
+}
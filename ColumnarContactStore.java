@@ -0,0 +1,471 @@
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ColumnarContactStore packs every contact into one fixed-width 72-byte row instead of a
+ * Contact object plus five Strings. The field limits make this possible: ID and names are at
+ * most 10 characters, address at most 30, and the 10-digit phone number fits in a long.
+ *
+ * Rows use the ContactRows layout and live in a single ByteBuffer, on the heap or off it
+ * (direct). A contact with any character above U+00FF is kept as a ContactRecord on the side.
+ * The only other per-contact heap cost is an open-addressing ID table, the insertion-order
+ * links and an insertion sequence number, five int slots in all.
+ *
+ * get returns a new Contact built from the row, so changing the returned contact does not
+ * change the store. Writes are serialized by one lock; reads are optimistic and retry under the
+ * read lock only if a write overlapped them. The iterator decodes rows a chunk at a time the
+ * same way, so it never holds the lock for more than one chunk and writers are not blocked
+ * while the caller works through the contacts.
+ */
+public class ColumnarContactStore implements ContactStore {
+    private static final int ROW_BYTES = ContactRows.ROW_BYTES;
+    private static final int NONE = -1;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / ROW_BYTES;
+    private static final long WIDE_RECORD_BYTES = 300;
+    private static final int ITERATOR_CHUNK = 256;
+
+    private final boolean direct;
+    private final StampedLock lock;
+    private final ConcurrentHashMap<Integer, ContactRecord> wide;
+    private volatile Columns columns;
+    private volatile int size;
+    private int used;          // Rows ever handed out; guarded by the write lock
+    private int freeRow;       // Head of the free-row list, chained through next
+    private int head;
+    private int tail;
+    private int sequence;      // Last insertion sequence handed out; 0 marks a free row
+
+    /**
+     * One generation of storage. A resize builds a new generation and publishes it whole, so
+     * readers always see arrays of matching size.
+     */
+    private static final class Columns {
+        final ByteBuffer rows;
+        final int[] next;
+        final int[] prev;
+        final int[] sequence;  // Insertion sequence per row, rising from head to tail
+        final int[] table;     // Row index + 1 per bucket, 0 when empty
+
+        Columns(int capacity, boolean direct) {
+            this.rows = direct ? ByteBuffer.allocateDirect(capacity * ROW_BYTES) : ByteBuffer.allocate(capacity * ROW_BYTES);
+            this.next = new int[capacity];
+            this.prev = new int[capacity];
+            this.sequence = new int[capacity];
+            this.table = new int[Integer.highestOneBit(capacity) * 4];
+        }
+
+        int capacity() {
+            return next.length;
+        }
+    }
+
+    /**
+     * Constructor for a store with rows on the Java heap
+     */
+    public ColumnarContactStore() {
+        this(false);
+    }
+
+    /**
+     * Constructor for ColumnarContactStore
+     * @param direct true to keep rows in off-heap memory, false for a heap ByteBuffer
+     */
+    public ColumnarContactStore(boolean direct) {
+        this.direct = direct;
+        this.lock = new StampedLock();
+        this.wide = new ConcurrentHashMap<>();
+        this.columns = new Columns(1024, direct);
+        this.freeRow = NONE;
+        this.head = NONE;
+        this.tail = NONE;
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        ContactRecord record = read(contactId);
+        return record == null ? null : new Contact(record);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int row = find(columns, contactId);
+                if (lock.validate(stamp)) {
+                    return row != NONE;
+                }
+            } catch (RuntimeException e) {
+                // Overlapped a write; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(columns, contactId) != NONE;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        ContactRecord record = contact.toRecord();
+        long stamp = lock.writeLock();
+        try {
+            int row = allocateRow();
+            Columns c = columns;
+            write(c, row, record);
+            c.prev[row] = tail;
+            c.next[row] = NONE;
+            c.sequence[row] = nextSequence();
+            if (tail == NONE) {
+                head = row;
+            } else {
+                c.next[tail] = row;
+            }
+            tail = row;
+            insertIntoTable(c, row, record.getContactId().hashCode());
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        long stamp = lock.writeLock();
+        try {
+            Columns c = columns;
+            int row = find(c, contactId);
+            ContactRecord before = decode(c, row);
+            write(c, row, before.merge(firstName, lastName, phone, address));
+            return before;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        long stamp = lock.writeLock();
+        try {
+            Columns c = columns;
+            int row = find(c, contactId);
+            ContactRecord removed = decode(c, row);
+            removeFromTable(c, row);
+            int before = c.prev[row];
+            int after = c.next[row];
+            if (before == NONE) {
+                head = after;
+            } else {
+                c.next[before] = after;
+            }
+            if (after == NONE) {
+                tail = before;
+            } else {
+                c.prev[after] = before;
+            }
+            wide.remove(row);
+            c.sequence[row] = 0;
+            c.next[row] = freeRow;
+            freeRow = row;
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        return new RowIterator();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return reservedBytes() + wide.size() * WIDE_RECORD_BYTES;
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return false;
+    }
+
+    /**
+     * Gets the number of bytes reserved for rows, ID table and links
+     * @return The reserved byte count, excluding wide records
+     */
+    public long reservedBytes() {
+        Columns c = columns;
+        return (long) c.capacity() * (ROW_BYTES + 12) + (long) c.table.length * 4;
+    }
+
+    /**
+     * Walks the insertion-order list a chunk of rows at a time. Between chunks it remembers the
+     * last row it read and that row's sequence number; if the contact there has since been
+     * removed, it resumes at the first row inserted after it.
+     */
+    private final class RowIterator implements Iterator<Contact> {
+        private final ContactRecord[] chunk = new ContactRecord[ITERATOR_CHUNK];
+        private int count;
+        private int position;
+        private boolean started;
+        private boolean finished;
+        private int lastRow = NONE;
+        private int lastSequence;
+        private int chunkRow;          // Last row of the chunk being read, kept once the read is valid
+        private int chunkSequence;
+
+        @Override
+        public boolean hasNext() {
+            if (position == count && !finished) {
+                fill();
+            }
+            return position < count;
+        }
+
+        @Override
+        public Contact next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ContactRecord record = chunk[position];
+            chunk[position++] = null;
+            return new Contact(record);
+        }
+
+        private void fill() {
+            int read = -1;
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    int n = readChunk(columns);
+                    if (lock.validate(stamp)) {
+                        read = n;
+                    }
+                } catch (RuntimeException e) {
+                    // Overlapped a write; retry under the read lock
+                }
+            }
+            if (read < 0) {
+                stamp = lock.readLock();
+                try {
+                    read = readChunk(columns);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            started = true;
+            count = read;
+            position = 0;
+            if (read == 0) {
+                finished = true;
+            } else {
+                lastRow = chunkRow;
+                lastSequence = chunkSequence;
+            }
+        }
+
+        /**
+         * Decodes up to a chunk of rows following the last one read, without changing where
+         * the iterator resumes, so a read that overlapped a write can be repeated
+         * @return The number of rows decoded
+         */
+        private int readChunk(Columns c) {
+            int row = started ? resumeRow(c) : head;
+            int n = 0;
+            while (row != NONE && n < ITERATOR_CHUNK) {
+                chunk[n++] = decode(c, row);
+                chunkRow = row;
+                chunkSequence = c.sequence[row];
+                row = c.next[row];
+            }
+            return n;
+        }
+
+        /**
+         * Finds the first row after the last one read
+         */
+        private int resumeRow(Columns c) {
+            if (lastRow == NONE) {
+                return NONE;
+            }
+            if (c.sequence[lastRow] == lastSequence) {
+                return c.next[lastRow];
+            }
+            // The contact was removed; sequences rise toward the tail, so walk back from there
+            int after = NONE;
+            int row = tail;
+            for (int steps = 0; row != NONE && c.sequence[row] - lastSequence > 0 && steps < c.capacity(); steps++) {
+                after = row;
+                row = c.prev[row];
+            }
+            return after;
+        }
+    }
+
+    /**
+     * Hands out the next insertion sequence number, never 0
+     */
+    private int nextSequence() {
+        sequence++;
+        if (sequence == 0) {
+            sequence = 1;
+        }
+        return sequence;
+    }
+
+    private ContactRecord read(String contactId) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Columns c = columns;
+                int row = find(c, contactId);
+                ContactRecord record = row == NONE ? null : decode(c, row);
+                if (lock.validate(stamp)) {
+                    return record;
+                }
+            } catch (RuntimeException e) {
+                // Overlapped a write; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            Columns c = columns;
+            int row = find(c, contactId);
+            return row == NONE ? null : decode(c, row);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the row holding a contact ID
+     * @return The row index, or NONE if the ID is not stored
+     */
+    private int find(Columns c, String contactId) {
+        int[] table = c.table;
+        int mask = table.length - 1;
+        int bucket = ContactRows.spread(contactId.hashCode()) & mask;
+        // Bounded so a read that overlaps a write cannot spin forever
+        for (int probes = 0; probes < table.length; probes++) {
+            int slot = table[bucket];
+            if (slot == 0) {
+                return NONE;
+            }
+            if (idEquals(c, slot - 1, contactId)) {
+                return slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private boolean idEquals(Columns c, int row, String contactId) {
+        int base = row * ROW_BYTES;
+        if (ContactRows.isWide(c.rows, base)) {
+            ContactRecord record = wide.get(row);
+            return record != null && record.getContactId().equals(contactId);
+        }
+        return ContactRows.idEquals(c.rows, base, contactId);
+    }
+
+    private ContactRecord decode(Columns c, int row) {
+        int base = row * ROW_BYTES;
+        return ContactRows.isWide(c.rows, base) ? wide.get(row) : ContactRows.read(c.rows, base);
+    }
+
+    private void write(Columns c, int row, ContactRecord record) {
+        int base = row * ROW_BYTES;
+        if (!ContactRows.fits(record)) {
+            wide.put(row, record);
+            ContactRows.writeWide(c.rows, base, row);
+            return;
+        }
+        wide.remove(row);
+        ContactRows.write(c.rows, base, record);
+    }
+
+    private int allocateRow() {
+        if (freeRow != NONE) {
+            int row = freeRow;
+            freeRow = columns.next[row];
+            return row;
+        }
+        if (used == columns.capacity()) {
+            grow();
+        }
+        return used++;
+    }
+
+    /**
+     * Doubles capacity, copying rows and links and rebuilding the ID table
+     */
+    private void grow() {
+        Columns old = columns;
+        if (old.capacity() == MAX_CAPACITY) {
+            throw new IllegalStateException("Columnar store is full");
+        }
+        Columns grown = new Columns((int) Math.min((long) old.capacity() * 2, MAX_CAPACITY), direct);
+        ByteBuffer source = old.rows.duplicate();
+        source.clear();
+        grown.rows.put(source);
+        System.arraycopy(old.next, 0, grown.next, 0, old.capacity());
+        System.arraycopy(old.prev, 0, grown.prev, 0, old.capacity());
+        System.arraycopy(old.sequence, 0, grown.sequence, 0, old.capacity());
+        for (int row = head; row != NONE; row = old.next[row]) {
+            insertIntoTable(grown, row, rowHash(old, row));
+        }
+        columns = grown;
+    }
+
+    private int rowHash(Columns c, int row) {
+        int base = row * ROW_BYTES;
+        if (ContactRows.isWide(c.rows, base)) {
+            return wide.get(row).getContactId().hashCode();
+        }
+        return ContactRows.idHash(c.rows, base);
+    }
+
+    private static void insertIntoTable(Columns c, int row, int hash) {
+        int mask = c.table.length - 1;
+        int bucket = ContactRows.spread(hash) & mask;
+        while (c.table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        c.table[bucket] = row + 1;
+    }
+
+    /**
+     * Removes a row from the ID table, shifting later entries of its probe run back so lookups
+     * never need tombstones
+     */
+    private void removeFromTable(Columns c, int row) {
+        int[] table = c.table;
+        int mask = table.length - 1;
+        int bucket = ContactRows.spread(rowHash(c, row)) & mask;
+        while (table[bucket] != row + 1) {
+            bucket = (bucket + 1) & mask;
+        }
+        int hole = bucket;
+        int probe = (hole + 1) & mask;
+        while (table[probe] != 0) {
+            int home = ContactRows.spread(rowHash(c, table[probe] - 1)) & mask;
+            // Move the entry back if the hole lies between its home bucket and its current bucket
+            if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+                table[hole] = table[probe];
+                hole = probe;
+            }
+            probe = (probe + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+}
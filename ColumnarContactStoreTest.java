@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Unit tests for the ColumnarContactStore class, driven through ContactService
+ */
+public class ColumnarContactStoreTest {
+    private ContactService contactService;
+    
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new ColumnarContactStore());
+    }
+    
+    @Test
+    public void testAddAndGetRoundTrip() {
+        // Test that every field survives packing into a row
+        contactService.addContact(new Contact("1234567890", "JohnJohnJo", "Doe", "0012345678", "123456789012345678901234567890"));
+        
+        Contact retrieved = contactService.getContact("1234567890");
+        assertEquals("1234567890", retrieved.getContactId());
+        assertEquals("JohnJohnJo", retrieved.getFirstName());
+        assertEquals("Doe", retrieved.getLastName());
+        assertEquals("0012345678", retrieved.getPhone());
+        assertEquals("123456789012345678901234567890", retrieved.getAddress());
+        assertNull(contactService.getContact("999"));
+    }
+    
+    @Test
+    public void testNonLatinCharactersRoundTrip() {
+        // Test that contacts with characters above U+00FF are stored intact
+        contactService.addContact(new Contact("1", "\u0141ukasz", "\u5f20", "1234567890", "1 Main St"));
+        contactService.updateContact("1", "Lukas", "Zhang", null, null);
+        contactService.updateContact("1", null, "\u5f20", null, null);
+        
+        Contact retrieved = contactService.getContact("1");
+        assertEquals("Lukas", retrieved.getFirstName());
+        assertEquals("\u5f20", retrieved.getLastName());
+        assertEquals(1, contactService.findByLastName("\u5f20").size());
+    }
+    
+    @Test
+    public void testUpdateAndDuplicateRules() {
+        // Test that the service rules hold with columnar storage
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.addContact(new Contact("1", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        });
+        contactService.updateContact("1", null, "Smith", "9876543210", null);
+        assertEquals("Smith", contactService.getContact("1").getLastName());
+        assertEquals("9876543210", contactService.getContact("1").getPhone());
+        assertEquals("John", contactService.getContact("1").getFirstName());
+    }
+    
+    @Test
+    public void testReturnedContactIsACopy() {
+        // Test that changing a returned contact does not change the store
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        
+        contactService.getContact("1").setFirstName("Jane");
+        assertEquals("John", contactService.getContact("1").getFirstName());
+    }
+    
+    @Test
+    public void testGrowDeleteAndReuseKeepOrder() {
+        // Test growth past the initial capacity, deletes and row reuse
+        for (int i = 0; i < 5_000; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "Address " + i));
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            contactService.deleteContact(Integer.toString(i));
+        }
+        for (int i = 1; i < 5_000; i += 2) {
+            assertEquals("Address " + i, contactService.getContact(Integer.toString(i)).getAddress());
+        }
+        contactService.addContact(new Contact("new", "First", "Last", "1234567890", "Reused row"));
+        
+        List<Contact> all = contactService.getAllContacts();
+        assertEquals(2_501, all.size());
+        assertEquals("1", all.get(0).getContactId());
+        assertEquals("new", all.get(all.size() - 1).getContactId());
+        assertNull(contactService.getContact("0"));
+    }
+    
+    @Test
+    public void testIteratorResumesAfterRemovedContact() {
+        // Test that iterating in chunks survives removal of the last contact read and reuse of its row
+        ColumnarContactStore store = new ColumnarContactStore();
+        ContactService service = new ContactService(store);
+        for (int i = 0; i < 1_000; i++) {
+            service.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        Iterator<Contact> contacts = store.iterator();
+        List<String> ids = new ArrayList<>();
+        while (ids.size() < 300) {
+            ids.add(contacts.next().getContactId());
+        }
+        // Remove the contacts around the iterator's position, then add contacts that reuse the freed rows
+        for (int i = 250; i < 600; i++) {
+            service.deleteContact(Integer.toString(i));
+        }
+        for (int i = 0; i < 350; i++) {
+            service.addContact(new Contact("new" + i, "John", "Doe", "1234567890", "123 Main St"));
+        }
+        contacts.forEachRemaining(contact -> ids.add(contact.getContactId()));
+
+        // Contacts already decoded into the current chunk are still returned, then 600 onward, then the new contacts
+        int resumed = ids.indexOf("600");
+        assertTrue(resumed >= 300);
+        for (int i = 0; i < resumed; i++) {
+            assertEquals(Integer.toString(i), ids.get(i));
+        }
+        for (int i = 600; i < 1_000; i++) {
+            assertEquals(Integer.toString(i), ids.get(resumed + i - 600));
+        }
+        for (int i = 0; i < 350; i++) {
+            assertEquals("new" + i, ids.get(resumed + 400 + i));
+        }
+        assertEquals(resumed + 750, ids.size());
+        assertThrows(NoSuchElementException.class, contacts::next);
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        // Test that off-heap rows behave like heap rows
+        ContactService offHeap = new ContactService(new ColumnarContactStore(true));
+        offHeap.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        offHeap.deleteContact("1");
+        offHeap.addContact(new Contact("1", "Jane", "Doe", "1234567890", "123 Main St"));
+        
+        assertEquals("Jane", offHeap.getContact("1").getFirstName());
+        assertEquals(1, offHeap.getAllContacts().size());
+    }
+}
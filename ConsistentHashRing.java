@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ConsistentHashRing assigns contact IDs to named shards. Each shard is placed on a 64-bit
+ * ring at many pseudo-random points (virtual nodes), and a contact ID belongs to the shard
+ * owning the first point at or after the ID's hash. Adding a shard only takes over the IDs
+ * that now fall just before its points, and removing one only hands its own IDs to the next
+ * points along, so a change of shards moves about 1/N of the contacts.
+ *
+ * The ring is immutable; add and remove return a new ring, so readers can share one without locking.
+ */
+public final class ConsistentHashRing {
+    /** The number of points each shard takes on the ring */
+    public static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, String> points;
+    private final List<String> shards;
+
+    /**
+     * Constructor creates a ring with no shards
+     */
+    public ConsistentHashRing() {
+        this(new TreeMap<>(), Collections.emptyList());
+    }
+
+    private ConsistentHashRing(TreeMap<Long, String> points, List<String> shards) {
+        this.points = points;
+        this.shards = shards;
+    }
+
+    /**
+     * Creates a ring with one more shard
+     * @param shard The name of the shard to add
+     * @return The new ring
+     * @throws IllegalArgumentException if shard is null or already on the ring
+     */
+    public ConsistentHashRing add(String shard) {
+        if (shard == null || shards.contains(shard)) {
+            throw new IllegalArgumentException("Shard name must be unique");
+        }
+        TreeMap<Long, String> grown = new TreeMap<>(points);
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            // On the rare collision the lower name keeps the point, so the ring does not depend on insertion order
+            grown.merge(hash(shard + "#" + i), shard, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+        List<String> names = new ArrayList<>(shards);
+        names.add(shard);
+        return new ConsistentHashRing(grown, Collections.unmodifiableList(names));
+    }
+
+    /**
+     * Creates a ring without one shard
+     * @param shard The name of the shard to remove
+     * @return The new ring
+     * @throws IllegalArgumentException if shard is not on the ring
+     */
+    public ConsistentHashRing remove(String shard) {
+        if (!shards.contains(shard)) {
+            throw new IllegalArgumentException("Shard not found");
+        }
+        ConsistentHashRing ring = new ConsistentHashRing();
+        for (String name : shards) {
+            if (!name.equals(shard)) {
+                ring = ring.add(name);
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Finds the shard owning a contact ID
+     * @param contactId The contact ID
+     * @return The shard's name
+     * @throws IllegalStateException if the ring has no shards
+     */
+    public String shardFor(String contactId) {
+        if (points.isEmpty()) {
+            throw new IllegalStateException("No shards on the ring");
+        }
+        Map.Entry<Long, String> owner = points.ceilingEntry(hash(contactId));
+        return owner != null ? owner.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * Gets the shards on the ring
+     * @return Shard names in the order they were added
+     */
+    public List<String> shards() {
+        return shards;
+    }
+
+    /**
+     * Hashes a string with 64-bit FNV-1a over its characters, then mixes the bits with
+     * MurmurHash3's finalizer so similar IDs such as "1" and "2" land far apart
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
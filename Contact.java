@@ -1,13 +1,25 @@
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * Contact class represents a contact with unique ID, name, phone, and address.
  * All fields have validation requirements.
+ * The fields are held in an immutable ContactRecord that is swapped atomically on every
+ * change, so concurrent readers never observe a half-applied update. Use toRecord() to
+ * read several fields as one consistent view.
+ * Once a contact is added to a ContactService its setters route through that service, so the
+ * service's indexes see every change.
  */
 public class Contact {
-    private final String contactId;  // Unique, non-null, max 10 chars, not updatable
-    private String firstName;        // Required, non-null, max 10 chars
-    private String lastName;         // Required, non-null, max 10 chars
-    private String phone;           // Required, non-null, exactly 10 digits
-    private String address;         // Required, non-null, max 30 chars
+    private static final AtomicReferenceFieldUpdater<Contact, ContactRecord> RECORD =
+            AtomicReferenceFieldUpdater.newUpdater(Contact.class, ContactRecord.class, "record");
+
+    // contactId: unique, non-null, max 10 chars, not updatable
+    // firstName: required, non-null, max 10 chars
+    // lastName:  required, non-null, max 10 chars
+    // phone:     required, non-null, exactly 10 digits
+    // address:   required, non-null, max 30 chars
+    private volatile ContactRecord record;
+    private ContactService owner;    // Guarded by this; the service currently storing this contact
 
     /**
      * Constructor for Contact class
@@ -18,86 +30,156 @@ public class Contact {
      * @param address Address (max 30 characters)
      */
     public Contact(String contactId, String firstName, String lastName, String phone, String address) {
-        // Validate contactId
-        if (contactId == null || contactId.length() > 10) {
-            throw new IllegalArgumentException("Contact ID cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate firstName
-        if (firstName == null || firstName.length() > 10) {
-            throw new IllegalArgumentException("First name cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate lastName
-        if (lastName == null || lastName.length() > 10) {
-            throw new IllegalArgumentException("Last name cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate phone (exactly 10 digits)
-        if (phone == null || phone.length() != 10 || !phone.matches("\\d{10}")) {
-            throw new IllegalArgumentException("Phone number cannot be null and must be exactly 10 digits");
+        // Validate every field, reporting the first that breaks its rule
+        ContactField invalid = ContactValidator.firstViolation(contactId, firstName, lastName, phone, address);
+        if (invalid != null) {
+            throw new IllegalArgumentException(ContactValidator.reject(invalid));
         }
         
-        // Validate address
-        if (address == null || address.length() > 30) {
-            throw new IllegalArgumentException("Address cannot be null and must be 30 characters or less");
+        this.record = new ContactRecord(contactId, firstName, lastName, phone, address);
+    }
+
+    /**
+     * Creates a contact without throwing, for inputs that are often invalid. A rejected value
+     * is counted as by the constructor, but no exception is created.
+     * @param contactId Unique contact ID (max 10 characters)
+     * @param firstName First name (max 10 characters)
+     * @param lastName Last name (max 10 characters)
+     * @param phone Phone number (exactly 10 digits)
+     * @param address Address (max 30 characters)
+     * @return The contact, or a shared failure naming the first invalid field
+     */
+    public static ContactResult tryCreate(String contactId, String firstName, String lastName, String phone, String address) {
+        ContactField invalid = ContactValidator.firstViolation(contactId, firstName, lastName, phone, address);
+        if (invalid != null) {
+            ContactValidator.reject(invalid);
+            return ContactResult.failure(ContactStatus.invalid(invalid));
         }
-        
-        this.contactId = contactId;
-        this.firstName = firstName;
-        this.lastName = lastName;
-        this.phone = phone;
-        this.address = address;
+        return ContactResult.of(new Contact(new ContactRecord(contactId, firstName, lastName, phone, address)));
+    }
+
+    /**
+     * Creates a contact from an already validated record
+     */
+    Contact(ContactRecord record) {
+        this.record = record;
     }
 
     // Getters
     public String getContactId() {
-        return contactId;
+        return record.getContactId();
     }
 
     public String getFirstName() {
-        return firstName;
+        return record.getFirstName();
     }
 
     public String getLastName() {
-        return lastName;
+        return record.getLastName();
     }
 
     public String getPhone() {
-        return phone;
+        return record.getPhone();
     }
 
     public String getAddress() {
-        return address;
+        return record.getAddress();
+    }
+
+    /**
+     * Gets a consistent snapshot of all fields
+     * @return The current immutable record
+     */
+    public ContactRecord toRecord() {
+        return record;
     }
 
     // Setters (contactId is not updatable)
     public void setFirstName(String firstName) {
-        if (firstName == null || firstName.length() > 10) {
-            throw new IllegalArgumentException("First name cannot be null and must be 10 characters or less");
-        }
-        this.firstName = firstName;
+        ContactValidator.require(ContactField.FIRST_NAME, firstName);
+        change(firstName, null, null, null);
     }
 
     public void setLastName(String lastName) {
-        if (lastName == null || lastName.length() > 10) {
-            throw new IllegalArgumentException("Last name cannot be null and must be 10 characters or less");
-        }
-        this.lastName = lastName;
+        ContactValidator.require(ContactField.LAST_NAME, lastName);
+        change(null, lastName, null, null);
     }
 
     public void setPhone(String phone) {
-        if (phone == null || phone.length() != 10 || !phone.matches("\\d{10}")) {
-            throw new IllegalArgumentException("Phone number cannot be null and must be exactly 10 digits");
-        }
-        this.phone = phone;
+        ContactValidator.require(ContactField.PHONE, phone);
+        change(null, null, phone, null);
     }
 
     public void setAddress(String address) {
-        if (address == null || address.length() > 30) {
-            throw new IllegalArgumentException("Address cannot be null and must be 30 characters or less");
+        ContactValidator.require(ContactField.ADDRESS, address);
+        change(null, null, null, address);
+    }
+
+    /**
+     * Applies validated field changes, through the owning service when there is one
+     */
+    private void change(String firstName, String lastName, String phone, String address) {
+        while (true) {
+            ContactService service;
+            synchronized (this) {
+                service = owner;
+                if (service == null) {
+                    apply(firstName, lastName, phone, address);
+                    return;
+                }
+            }
+            if (service.applyUpdate(this, firstName, lastName, phone, address)) {
+                return;
+            }
+            // The contact was deleted from the service meanwhile; retry as a detached contact
         }
-        this.address = address;
     }
-}
 
+    /**
+     * Marks this contact as stored by a service
+     * @param strings The service's intern table, or null if it does not intern field values
+     * @param version The version the contact starts at in the service
+     * @return The record the service should index
+     * @throws IllegalArgumentException if another service already stores this contact
+     */
+    synchronized ContactRecord attach(ContactService service, InternTable strings, long version) {
+        if (owner != null) {
+            throw new IllegalArgumentException("Contact already belongs to a ContactService");
+        }
+        owner = service;
+        // Detached changes hold this lock, so the record cannot change underneath
+        record = record.versioned(version);
+        if (strings != null) {
+            record = record.interned(strings);
+        }
+        return record;
+    }
+
+    /**
+     * Checks whether a service currently stores this contact
+     */
+    synchronized boolean isAttached() {
+        return owner != null;
+    }
+
+    /**
+     * Marks this contact as no longer stored by a service
+     */
+    synchronized void detach() {
+        owner = null;
+    }
+
+    /**
+     * Atomically replaces every non-null field. Values must already be validated.
+     * @return The record that was replaced
+     */
+    ContactRecord apply(String firstName, String lastName, String phone, String address) {
+        while (true) {
+            ContactRecord current = record;
+            ContactRecord updated = current.merge(firstName, lastName, phone, address);
+            if (RECORD.compareAndSet(this, current, updated)) {
+                return current;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * ContactChange is one event in a ContactChangeFeed: an add, update or delete of a single
+ * contact with its sequence number. Sequence numbers start at 1 and increase by one per change,
+ * and changes to the same contact are numbered in the order they were applied.
+ *
+ * An add carries every field. An update carries only the fields it changed; the others are
+ * null. A delete carries only the contact ID.
+ */
+public final class ContactChange {
+    private final long sequence;
+    private final ContactOperation.Type type;
+    private final String contactId;
+    private final String firstName;
+    private final String lastName;
+    private final String phone;
+    private final String address;
+
+    ContactChange(long sequence, ContactOperation.Type type, String contactId,
+                  String firstName, String lastName, String phone, String address) {
+        this.sequence = sequence;
+        this.type = type;
+        this.contactId = contactId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.address = address;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ContactOperation.Type getType() {
+        return type;
+    }
+
+    public String getContactId() {
+        return contactId;
+    }
+
+    /**
+     * @return The new first name, or null if this change did not set it
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * @return The new last name, or null if this change did not set it
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * @return The new phone number, or null if this change did not set it
+     */
+    public String getPhone() {
+        return phone;
+    }
+
+    /**
+     * @return The new address, or null if this change did not set it
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + contactId;
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ContactChangeFeed publishes every add, update and delete a ContactService applies as an
+ * ordered ContactChange, so downstream systems can follow the contacts without polling
+ * getAllContacts. Get one with ContactService.getChangeFeed().
+ *
+ * Changes go into a fixed-size ring buffer. A writer claims the next sequence number with one
+ * atomic increment and stores the change in its slot; it never waits for subscribers unless
+ * the feed uses BackpressurePolicy.BLOCK_WRITERS. Each subscriber reads the ring at its own
+ * position, so subscribers never contend with each other, and any number can resume from an
+ * earlier sequence number as long as it is still in the ring.
+ *
+ * Updates that change no field produce no change.
+ */
+public class ContactChangeFeed implements ContactIndex {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final AtomicReferenceArray<ContactChange> slots;
+    private final int capacity;
+    private final int mask;
+    private final BackpressurePolicy policy;
+    private final AtomicLong lastSequence;
+    private final CopyOnWriteArrayList<Subscription> subscriptions;
+
+    /**
+     * Constructor for ContactChangeFeed
+     * @param capacity The number of changes kept for subscribers, rounded up to a power of two
+     * @param policy What to do when a subscriber falls a full buffer behind
+     * @throws IllegalArgumentException if capacity is not positive or policy is null
+     */
+    public ContactChangeFeed(int capacity, BackpressurePolicy policy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Backpressure policy cannot be null");
+        }
+        int slotCount = 1;
+        while (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.capacity = slotCount;
+        this.mask = slotCount - 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.policy = policy;
+        this.lastSequence = new AtomicLong();
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public void added(ContactRecord record) {
+        publish(ContactOperation.Type.ADD, record.getContactId(), record.getFirstName(), record.getLastName(),
+                record.getPhone(), record.getAddress());
+    }
+
+    @Override
+    public void updated(ContactRecord before, ContactRecord after) {
+        String firstName = changed(before.getFirstName(), after.getFirstName());
+        String lastName = changed(before.getLastName(), after.getLastName());
+        String phone = changed(before.getPhone(), after.getPhone());
+        String address = changed(before.getAddress(), after.getAddress());
+        if (firstName != null || lastName != null || phone != null || address != null) {
+            publish(ContactOperation.Type.UPDATE, after.getContactId(), firstName, lastName, phone, address);
+        }
+    }
+
+    @Override
+    public void removed(ContactRecord record) {
+        publish(ContactOperation.Type.DELETE, record.getContactId(), null, null, null, null);
+    }
+
+    /**
+     * Subscribes to changes made from now on
+     * @return A subscription starting after the latest change
+     */
+    public Subscription subscribe() {
+        return subscribe(lastSequence.get() + 1);
+    }
+
+    /**
+     * Subscribes starting at an earlier change, such as one after the last change a previous
+     * subscriber processed
+     * @param fromSequence The sequence number of the first change to read
+     * @return A subscription starting at fromSequence
+     * @throws IllegalArgumentException if fromSequence is in the future or no longer in the buffer
+     */
+    public Subscription subscribe(long fromSequence) {
+        long latest = lastSequence.get();
+        if (fromSequence < 1 || fromSequence > latest + 1) {
+            throw new IllegalArgumentException("Sequence number must be between 1 and " + (latest + 1));
+        }
+        Subscription subscription = new Subscription(fromSequence);
+        subscriptions.add(subscription);
+        // Checked after registering, so a blocking feed cannot overwrite the start once this passes
+        if (fromSequence <= lastSequence.get() - capacity) {
+            subscriptions.remove(subscription);
+            throw new IllegalArgumentException("Sequence number " + fromSequence + " is no longer retained");
+        }
+        return subscription;
+    }
+
+    /**
+     * Gets the sequence number of the latest change
+     * @return The latest sequence number, or 0 before the first change
+     */
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * Gets the number of changes the buffer holds
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void publish(ContactOperation.Type type, String contactId, String firstName, String lastName, String phone, String address) {
+        long sequence = lastSequence.incrementAndGet();
+        if (policy == BackpressurePolicy.BLOCK_WRITERS) {
+            awaitSlot(sequence);
+        }
+        store(new ContactChange(sequence, type, contactId, firstName, lastName, phone, address));
+    }
+
+    /**
+     * Stores a change in its slot unless a newer change already holds it. A writer that stalls
+     * between claiming a sequence number and storing the change can be lapped by a full buffer
+     * of newer changes; its change is then lost like any change a full buffer behind, and a
+     * subscriber that needed it sees the newer sequence number and reports the loss.
+     */
+    void store(ContactChange change) {
+        int slot = (int) change.getSequence() & mask;
+        while (true) {
+            ContactChange current = slots.get(slot);
+            if (current != null && current.getSequence() > change.getSequence()) {
+                return;
+            }
+            if (slots.compareAndSet(slot, current, change)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until every open subscriber has read the change this sequence would overwrite
+     */
+    private void awaitSlot(long sequence) {
+        int spins = 0;
+        while (sequence - capacity >= slowestPosition()) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    private long slowestPosition() {
+        long slowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.position);
+        }
+        return slowest;
+    }
+
+    private static String changed(String before, String after) {
+        return before.equals(after) ? null : after;
+    }
+
+    /**
+     * One subscriber's position in the feed. A subscription is meant for a single reading
+     * thread; close it when done so a blocking feed stops waiting for it.
+     */
+    public final class Subscription implements AutoCloseable {
+        private volatile long position;    // Sequence number of the next change to read
+        private volatile boolean closed;
+        private boolean lapped;
+
+        private Subscription(long position) {
+            this.position = position;
+        }
+
+        /**
+         * Reads the changes available now, without waiting
+         * @param maxChanges The most changes to return
+         * @return The next changes in sequence order, possibly none
+         * @throws IllegalArgumentException if maxChanges is not positive
+         * @throws IllegalStateException if the subscription is closed or writers overwrote
+         *         changes it had not read yet; resubscribing cannot recover those changes
+         */
+        public List<ContactChange> poll(int maxChanges) {
+            if (maxChanges <= 0) {
+                throw new IllegalArgumentException("Change count must be positive");
+            }
+            if (lapped) {
+                close();
+                throw new IllegalStateException("Subscriber fell more than " + capacity + " changes behind at sequence " + position);
+            }
+            if (closed) {
+                throw new IllegalStateException("Subscription is closed");
+            }
+            List<ContactChange> changes = new ArrayList<>(Math.min(maxChanges, 256));
+            long next = position;
+            while (changes.size() < maxChanges) {
+                ContactChange change = slots.get((int) next & mask);
+                if (change == null || change.getSequence() < next) {
+                    break;
+                }
+                if (change.getSequence() > next) {
+                    // Report the loss on the next poll so the changes read so far are not dropped
+                    lapped = true;
+                    break;
+                }
+                changes.add(change);
+                next++;
+            }
+            position = next;
+            if (lapped && changes.isEmpty()) {
+                return poll(maxChanges);
+            }
+            return changes;
+        }
+
+        /**
+         * Reads the available changes, waiting up to a timeout for at least one
+         * @param maxChanges The most changes to return
+         * @param timeout How long to wait
+         * @param unit The unit of timeout
+         * @return The next changes in sequence order, or none if the timeout passed
+         * @throws InterruptedException if the thread is interrupted while waiting
+         * @see #poll(int)
+         */
+        public List<ContactChange> poll(int maxChanges, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            int spins = 0;
+            while (!lapped && !isAvailable()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(Math.min(remaining, 50_000));
+                }
+            }
+            return poll(maxChanges);
+        }
+
+        /**
+         * Gets the sequence number of the next change this subscription will return; resume
+         * from it with ContactChangeFeed.subscribe(long)
+         * @return The next sequence number
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Gets how many published changes this subscription has not read yet
+         * @return The lag in changes
+         */
+        public long getLag() {
+            return Math.max(0, lastSequence.get() + 1 - position);
+        }
+
+        /**
+         * Stops the subscription; a blocking feed no longer waits for it
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+
+        private boolean isAvailable() {
+            ContactChange change = slots.get((int) position & mask);
+            return change != null && change.getSequence() >= position;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the ContactChangeFeed class
+ */
+public class ContactChangeFeedTest {
+    private static Contact contact(String id) {
+        return new Contact(id, "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    @Test
+    public void testChangesAreOrderedWithChangedFieldsOnly() {
+        // Test that adds carry every field, updates only changed fields and deletes only the ID
+        ContactService service = new ContactService();
+        service.addContact(contact("0"));
+        ContactChangeFeed.Subscription subscription = service.getChangeFeed().subscribe();
+        service.addContact(contact("1"));
+        service.updateContact("1", "Jane", "Doe", null, null);
+        service.updateContact("1", "Jane", null, null, null);
+        service.getContact("1").setPhone("0987654321");
+        service.deleteContact("1");
+
+        List<ContactChange> changes = subscription.poll(10);
+        assertEquals(4, changes.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), Arrays.asList(changes.get(0).getSequence(),
+                changes.get(1).getSequence(), changes.get(2).getSequence(), changes.get(3).getSequence()));
+        assertEquals(ContactOperation.Type.ADD, changes.get(0).getType());
+        assertEquals("123 Main St", changes.get(0).getAddress());
+        assertEquals(ContactOperation.Type.UPDATE, changes.get(1).getType());
+        assertEquals("Jane", changes.get(1).getFirstName());
+        assertNull(changes.get(1).getLastName());
+        assertNull(changes.get(1).getPhone());
+        assertEquals("0987654321", changes.get(2).getPhone());
+        assertNull(changes.get(2).getFirstName());
+        assertEquals(ContactOperation.Type.DELETE, changes.get(3).getType());
+        assertEquals("1", changes.get(3).getContactId());
+        assertEquals(5, subscription.getPosition());
+        assertEquals(0, subscription.getLag());
+        assertTrue(subscription.poll(10).isEmpty());
+    }
+
+    @Test
+    public void testResumeFromSequence() {
+        // Test that a subscriber can resume at any retained sequence number
+        ContactService service = new ContactService();
+        ContactChangeFeed feed = service.openChangeFeed(8, BackpressurePolicy.DROP_SLOW_SUBSCRIBERS);
+        for (int i = 0; i < 6; i++) {
+            service.addContact(contact(Integer.toString(i)));
+        }
+        List<ContactChange> changes = feed.subscribe(4).poll(2);
+        assertEquals(2, changes.size());
+        assertEquals(4, changes.get(0).getSequence());
+        assertEquals("3", changes.get(0).getContactId());
+        assertEquals(7, feed.subscribe().getPosition());
+        assertTrue(feed.subscribe(7).poll(1).isEmpty());
+
+        for (int i = 6; i < 12; i++) {
+            service.addContact(contact(Integer.toString(i)));
+        }
+        assertEquals(12, feed.getLastSequence());
+        assertEquals(8, feed.subscribe(5).poll(100).size());
+        assertThrows(IllegalArgumentException.class, () -> {
+            feed.subscribe(4);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            feed.subscribe(14);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            feed.subscribe(0);
+        });
+    }
+
+    @Test
+    public void testSlowSubscriberIsDropped() {
+        // Test that writers overwrite unread changes and the lapped subscriber is told on its next poll
+        ContactService service = new ContactService();
+        ContactChangeFeed feed = service.openChangeFeed(4, BackpressurePolicy.DROP_SLOW_SUBSCRIBERS);
+        ContactChangeFeed.Subscription slow = feed.subscribe();
+        service.addContact(contact("1"));
+        service.addContact(contact("2"));
+        assertEquals(2, slow.poll(1).size() + slow.poll(1).size());
+        for (int i = 3; i <= 10; i++) {
+            service.addContact(contact(Integer.toString(i)));
+        }
+        assertThrows(IllegalStateException.class, () -> {
+            slow.poll(10);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            slow.poll(10);
+        });
+    }
+
+    @Test
+    public void testBlockingFeedLosesNothing() throws InterruptedException {
+        // Test that a blocking feed makes writers wait for a subscriber smaller than the burst
+        ContactService service = new ContactService();
+        ContactChangeFeed feed = service.openChangeFeed(2, BackpressurePolicy.BLOCK_WRITERS);
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 50; i++) {
+                service.addContact(contact(Integer.toString(i)));
+            }
+        });
+        writer.start();
+
+        List<ContactChange> changes = new ArrayList<>();
+        while (changes.size() < 50) {
+            changes.addAll(subscription.poll(3, 5, TimeUnit.SECONDS));
+        }
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1, changes.get(i).getSequence());
+            assertEquals(Integer.toString(i), changes.get(i).getContactId());
+        }
+        subscription.close();
+        assertThrows(IllegalStateException.class, () -> {
+            subscription.poll(1);
+        });
+    }
+
+    @Test
+    public void testConcurrentWritersKeepPerContactOrder() throws InterruptedException {
+        // Test that concurrent writers produce a gap-free sequence with each contact's changes in order
+        ContactService service = new ContactService();
+        ContactChangeFeed.Subscription subscription = service.getChangeFeed().subscribe();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int offset = t * 1000;
+            writers[t] = new Thread(() -> {
+                for (int i = offset; i < offset + 1000; i++) {
+                    String id = Integer.toString(i);
+                    service.addContact(contact(id));
+                    service.updateContact(id, "Jane", null, null, null);
+                    service.deleteContact(id);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        List<ContactChange> changes = subscription.poll(100_000);
+        assertEquals(12_000, changes.size());
+        Map<String, ContactOperation.Type> last = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            ContactChange change = changes.get(i);
+            assertEquals(i + 1, change.getSequence());
+            ContactOperation.Type previous = last.put(change.getContactId(), change.getType());
+            ContactOperation.Type expected = previous == null ? ContactOperation.Type.ADD
+                    : previous == ContactOperation.Type.ADD ? ContactOperation.Type.UPDATE : ContactOperation.Type.DELETE;
+            assertEquals(expected, change.getType());
+        }
+    }
+
+    @Test
+    public void testStalledWriterNeverOverwritesNewerChange() throws InterruptedException {
+        // Test that a change stored after a full buffer of newer ones is dropped, not written over them
+        ContactRecord record = contact("1").toRecord();
+        ContactChangeFeed lapped = new ContactChangeFeed(2, BackpressurePolicy.DROP_SLOW_SUBSCRIBERS);
+        for (int i = 0; i < 3; i++) {
+            lapped.added(record);
+        }
+        lapped.store(new ContactChange(1, ContactOperation.Type.DELETE, "1", null, null, null, null));
+        List<ContactChange> latest = lapped.subscribe(2).poll(10);
+        assertEquals(Arrays.asList(2L, 3L), Arrays.asList(latest.get(0).getSequence(), latest.get(1).getSequence()));
+
+        // Many writers on a small buffer must still leave it holding the latest changes
+        for (int round = 0; round < 200; round++) {
+            ContactChangeFeed feed = new ContactChangeFeed(2, BackpressurePolicy.DROP_SLOW_SUBSCRIBERS);
+            Thread[] writers = new Thread[8];
+            for (int t = 0; t < writers.length; t++) {
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        feed.added(record);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            long last = feed.getLastSequence();
+            assertEquals(4000, last);
+            List<ContactChange> changes = feed.subscribe(last - 1).poll(10);
+            assertEquals(2, changes.size(), "round " + round);
+            assertEquals(last, changes.get(1).getSequence());
+        }
+    }
+
+    @Test
+    public void testFeedOpensOnce() {
+        // Test that changes before the feed opens are not published and the feed cannot be reopened
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        ContactChangeFeed feed = service.getChangeFeed();
+        assertEquals(0, feed.getLastSequence());
+        assertSame(feed, service.getChangeFeed());
+        service.addContacts(Arrays.asList(contact("2"), contact("3")));
+        assertEquals(2, feed.getLastSequence());
+        assertThrows(IllegalStateException.class, () -> {
+            service.openChangeFeed(16, BackpressurePolicy.BLOCK_WRITERS);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactChangeFeed(0, BackpressurePolicy.BLOCK_WRITERS);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactChangeFeed(16, null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            feed.subscribe().poll(0);
+        });
+        assertEquals(16, new ContactChangeFeed(9, BackpressurePolicy.BLOCK_WRITERS).getCapacity());
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * ContactCursor walks stored contacts in ascending ID order without copying them.
+ *
+ * The cursor holds only its position, so memory use does not depend on the number of
+ * contacts, and it never blocks writers. Each returned contact is read in one consistent
+ * state. A contact stored for the whole walk is returned exactly once; contacts added or
+ * deleted during the walk may or may not be returned. getPosition can be handed to
+ * ContactService.openCursor later to resume where this cursor stopped.
+ */
+public class ContactCursor implements Iterator<Contact> {
+    private final Iterator<String> ids;
+    private final ContactStore store;
+    private Contact next;
+    private String position;
+
+    /**
+     * Constructor for ContactCursor
+     * @param ids Contact IDs in ascending order
+     * @param store The store to read each contact from
+     */
+    ContactCursor(Iterator<String> ids, ContactStore store) {
+        this.ids = ids;
+        this.store = store;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && ids.hasNext()) {
+            // Skip IDs deleted after the index was read
+            next = store.peek(ids.next());
+        }
+        return next != null;
+    }
+
+    @Override
+    public Contact next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Contact contact = next;
+        next = null;
+        position = contact.getContactId();
+        return contact;
+    }
+
+    /**
+     * Gets the ID of the last contact returned
+     * @return The position to resume after, or null if nothing was returned yet
+     */
+    public String getPosition() {
+        return position;
+    }
+}
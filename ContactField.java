@@ -0,0 +1,25 @@
+/**
+ * ContactField names each validated Contact field together with the message reported when
+ * a value breaks that field's rule.
+ */
+public enum ContactField {
+    CONTACT_ID("Contact ID cannot be null and must be 10 characters or less"),
+    FIRST_NAME("First name cannot be null and must be 10 characters or less"),
+    LAST_NAME("Last name cannot be null and must be 10 characters or less"),
+    PHONE("Phone number cannot be null and must be exactly 10 digits"),
+    ADDRESS("Address cannot be null and must be 30 characters or less");
+
+    private final String message;
+
+    ContactField(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gets the validation message for this field
+     * @return The message used when a value is invalid
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * ContactIdIndex keeps every stored contact ID in sorted order, so contacts can be paged and
+ * streamed by ID without copying the contact list. Reads walk a concurrent skip list and
+ * never block writers.
+ */
+public class ContactIdIndex implements ContactIndex {
+    private static final long ENTRY_BYTES = 40;
+
+    private final ConcurrentSkipListSet<String> ids;
+
+    /**
+     * Constructor initializes an empty index
+     */
+    public ContactIdIndex() {
+        this.ids = new ConcurrentSkipListSet<>();
+    }
+
+    @Override
+    public void added(ContactRecord record) {
+        ids.add(record.getContactId());
+    }
+
+    @Override
+    public void addedAll(List<ContactRecord> records) {
+        String[] sorted = new String[records.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = records.get(i).getContactId();
+        }
+        Arrays.parallelSort(sorted);
+        ids.addAll(Arrays.asList(sorted));
+    }
+
+    @Override
+    public void updated(ContactRecord before, ContactRecord after) {
+        // IDs never change
+    }
+
+    @Override
+    public void removed(ContactRecord record) {
+        ids.remove(record.getContactId());
+    }
+
+    /**
+     * Removes an ID kept after its contact was deleted
+     * @param contactId The ID to remove
+     */
+    void remove(String contactId) {
+        ids.remove(contactId);
+    }
+
+    /**
+     * Gets a live view of the IDs after a position. The view reflects later adds and deletes;
+     * iterating it is weakly consistent and never returns an ID twice.
+     * @param afterContactId The ID to start after, or null to start at the first ID
+     * @return The IDs greater than afterContactId, in ascending order
+     */
+    public NavigableSet<String> after(String afterContactId) {
+        return afterContactId == null ? ids : ids.tailSet(afterContactId, false);
+    }
+
+    /**
+     * Estimates the heap used by the index entries; IDs are shared with the contacts
+     * @return Approximate bytes
+     */
+    public long estimatedBytes() {
+        return ids.size() * ENTRY_BYTES;
+    }
+
+    /**
+     * Gets the number of indexed IDs
+     * @return The ID count
+     */
+    public int size() {
+        return ids.size();
+    }
+}
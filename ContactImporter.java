@@ -0,0 +1,407 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ContactImporter bulk loads a contact export into a ContactService.
+ *
+ * The file is cut into chunks of 16 MB at line boundaries. Worker threads read their chunks
+ * with positional FileChannel reads, then parse and validate the rows in parallel. The calling
+ * thread loads each chunk in file order with ContactService.addContacts, which finds duplicate
+ * IDs against the stored contacts and earlier rows in one pass, so the first row with an ID
+ * wins. Workers stay at most two chunks per thread ahead of the loader, so memory beyond the
+ * contacts themselves stays bounded however large the file is.
+ *
+ * Rejected rows are written to an optional rejects file in line order, as CSV with the columns
+ * line, reason and row. A row is rejected if it is malformed, has a field that breaks its
+ * ContactValidator rule, or repeats an ID. Rows cannot contain line breaks.
+ */
+public class ContactImporter {
+    private static final int CHUNK_BYTES = 16 << 20;
+    private static final int MAX_ROW_BYTES = 1 << 16;
+    private static final int FIELDS = 5;
+
+    private final ContactService service;
+    private final int threads;
+    private final int chunkBytes;
+
+    /**
+     * Constructor for an importer that parses on every available core
+     * @param service The service to add the imported contacts to
+     * @throws IllegalArgumentException if service is null
+     */
+    public ContactImporter(ContactService service) {
+        this(service, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for ContactImporter
+     * @param service The service to add the imported contacts to
+     * @param threads The number of parsing threads
+     * @throws IllegalArgumentException if service is null or threads is not positive
+     */
+    public ContactImporter(ContactService service, int threads) {
+        this(service, threads, CHUNK_BYTES);
+    }
+
+    /**
+     * Constructor with a chunk size, so tests can cut small files into many chunks
+     */
+    ContactImporter(ContactService service, int threads, int chunkBytes) {
+        if (service == null) {
+            throw new IllegalArgumentException("Contact service cannot be null");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.service = service;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports every valid row of a file. Valid rows are added even when others are rejected.
+     * @param input The file to read
+     * @param format The layout of the file
+     * @param rejectsFile The file to create or replace with the rejected rows, or null to only count them
+     * @return The row counts and timing of the import
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if input or format is null
+     */
+    public ImportResult importFile(Path input, ImportFormat format, Path rejectsFile) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Input file cannot be null");
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Import format cannot be null");
+        }
+        long start = System.nanoTime();
+        long rows = 0;
+        long imported = 0;
+        long rejected = 0;
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread worker = new Thread(task, "contact-import");
+            worker.setDaemon(true);
+            return worker;
+        });
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             Writer rejects = rejectsFile == null ? null : Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            if (rejects != null) {
+                rejects.write("line,reason,row\n");
+            }
+            long size = channel.size();
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            long next = 0;         // Offset of the next chunk to parse
+            long firstLine = 1;    // Line number of the first line of the chunk being loaded
+            while (next < size || !pending.isEmpty()) {
+                while (next < size && pending.size() < threads * 2) {
+                    long chunkStart = next;
+                    long chunkEnd = Math.min(size, next + chunkBytes);
+                    pending.add(workers.submit(() -> Chunk.read(channel, chunkStart, chunkEnd, size, format)));
+                    next = chunkEnd;
+                }
+                Chunk chunk = await(pending.poll());
+                BatchResult loaded = service.addContacts(chunk.contacts);
+                rows += chunk.rowCount;
+                imported += loaded.getAppliedCount();
+                rejected += chunk.rejects.size() + loaded.getRejectedCount();
+                if (rejects != null) {
+                    writeRejects(rejects, chunk, loaded, firstLine);
+                }
+                firstLine += chunk.lineCount;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return new ImportResult(rows, imported, rejected, System.nanoTime() - start);
+    }
+
+    private static Chunk await(Future<Chunk> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Contact import interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Contact import failed", cause);
+        }
+    }
+
+    /**
+     * Writes a chunk's parse rejects and load rejects merged in line order
+     */
+    private static void writeRejects(Writer out, Chunk chunk, BatchResult loaded, long firstLine) throws IOException {
+        int parsed = 0;
+        for (int i = 0; i < loaded.size(); i++) {
+            String error = loaded.getError(i);
+            if (error == null) {
+                continue;
+            }
+            int line = chunk.contactLines[i];
+            while (parsed < chunk.rejects.size() && chunk.rejects.get(parsed).line < line) {
+                writeReject(out, chunk, chunk.rejects.get(parsed++), firstLine);
+            }
+            writeReject(out, chunk, new Reject(line, error, chunk.contactRows[2 * i], chunk.contactRows[2 * i + 1]), firstLine);
+        }
+        while (parsed < chunk.rejects.size()) {
+            writeReject(out, chunk, chunk.rejects.get(parsed++), firstLine);
+        }
+    }
+
+    private static void writeReject(Writer out, Chunk chunk, Reject reject, long firstLine) throws IOException {
+        out.write(Long.toString(firstLine + reject.line));
+        out.write(',');
+        writeQuoted(out, reject.reason);
+        out.write(',');
+        writeQuoted(out, new String(chunk.bytes, reject.from, reject.to - reject.from, StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    private static void writeQuoted(Writer out, String value) throws IOException {
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * A row that could not be imported
+     */
+    private static final class Reject {
+        final int line;        // Line index within the chunk
+        final String reason;
+        final int from;        // Row bounds within the chunk's bytes
+        final int to;
+
+        Reject(int line, String reason, int from, int to) {
+            this.line = line;
+            this.reason = reason;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * The rows that start in one byte range of the input, parsed and validated
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final ImportFormat format;
+        final List<Contact> contacts;
+        final List<Reject> rejects;
+        final String[] fields;
+        int[] contactLines;      // Line index of each contact
+        int[] contactRows;       // Row bounds of each contact, as from and to pairs
+        int lineCount;
+        int rowCount;
+        int position;            // Parse position within bytes
+        int end;                 // End of the row being parsed
+
+        private Chunk(byte[] bytes, ImportFormat format) {
+            this.bytes = bytes;
+            this.format = format;
+            this.contacts = new ArrayList<>();
+            this.rejects = new ArrayList<>();
+            this.fields = new String[FIELDS];
+            this.contactLines = new int[1024];
+            this.contactRows = new int[2048];
+        }
+
+        /**
+         * Reads and parses the rows whose first byte lies in [start, end). A row starting near
+         * the end of the range is read past it; a row starting before the range is skipped.
+         */
+        static Chunk read(FileChannel channel, long start, long end, long size, ImportFormat format) throws IOException {
+            long from = start == 0 ? 0 : start - 1;
+            byte[] bytes = new byte[(int) (Math.min(size, end + MAX_ROW_BYTES + 1) - from)];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new EOFException("Input file shrank during import");
+                }
+            }
+            boolean endsFile = from + bytes.length == size;
+            Chunk chunk = new Chunk(bytes, format);
+            int limit = (int) (end - from);
+            int row = 0;
+            if (start > 0) {
+                // The first whole row starts after the first line break
+                int newline = indexOf(bytes, (byte) '\n', 0, bytes.length);
+                row = newline < 0 ? bytes.length : newline + 1;
+            }
+            while (row < limit) {
+                int line = chunk.lineCount++;
+                int newline = indexOf(bytes, (byte) '\n', row, Math.min(bytes.length, row + MAX_ROW_BYTES + 1));
+                if (newline < 0 && !(endsFile && bytes.length - row <= MAX_ROW_BYTES)) {
+                    chunk.rowCount++;
+                    chunk.rejects.add(new Reject(line, "Row is longer than " + MAX_ROW_BYTES + " bytes", row, row + 80));
+                    // If the row ends past the buffer, the next chunk skips the rest of it
+                    newline = indexOf(bytes, (byte) '\n', row + MAX_ROW_BYTES, bytes.length);
+                    row = newline < 0 ? bytes.length : newline + 1;
+                    continue;
+                }
+                int rowEnd = newline < 0 ? bytes.length : newline;
+                chunk.parseRow(line, row, rowEnd > row && bytes[rowEnd - 1] == '\r' ? rowEnd - 1 : rowEnd, start == 0 && line == 0);
+                row = rowEnd + 1;
+            }
+            return chunk;
+        }
+
+        private void parseRow(int line, int from, int to, boolean firstLine) {
+            if (firstLine && to - from >= 3 && bytes[from] == (byte) 0xEF && bytes[from + 1] == (byte) 0xBB && bytes[from + 2] == (byte) 0xBF) {
+                from += 3;    // UTF-8 byte order mark
+            }
+            while (from < to && isSpace(bytes[from])) {
+                from++;
+            }
+            while (to > from && isSpace(bytes[to - 1])) {
+                to--;
+            }
+            if (format == ImportFormat.JSON) {
+                // Accept an array written one object per line
+                if (from < to && bytes[from] == '[') {
+                    from++;
+                }
+                if (to > from && (bytes[to - 1] == ',' || bytes[to - 1] == ']')) {
+                    to--;
+                }
+            } else if (firstLine && isHeader(from, to)) {
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            rowCount++;
+            position = from;
+            end = to;
+            String error = format == ImportFormat.CSV ? parseCsv() : parseJson();
+            if (error == null) {
+                ContactField invalid = ContactValidator.firstViolation(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                if (invalid != null) {
+                    error = ContactValidator.reject(invalid);
+                }
+            }
+            if (error != null) {
+                rejects.add(new Reject(line, error, from, to));
+                return;
+            }
+            int index = contacts.size();
+            if (index == contactLines.length) {
+                contactLines = Arrays.copyOf(contactLines, index * 2);
+                contactRows = Arrays.copyOf(contactRows, index * 4);
+            }
+            contactLines[index] = line;
+            contactRows[2 * index] = from;
+            contactRows[2 * index + 1] = to;
+            contacts.add(new Contact(new ContactRecord(fields[0], fields[1], fields[2], fields[3], fields[4])));
+        }
+
+        private boolean isHeader(int from, int to) {
+            if (from < to && bytes[from] == '"') {
+                from++;
+            }
+            byte[] header = ContactJson.KEYS[0].getBytes(StandardCharsets.US_ASCII);
+            if (to - from < header.length) {
+                return false;
+            }
+            for (int i = 0; i < header.length; i++) {
+                if (Character.toLowerCase(bytes[from + i]) != Character.toLowerCase(header[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Splits a CSV row into fields
+         * @return The error message, or null if the row has exactly five fields
+         */
+        private String parseCsv() {
+            int count = 0;
+            while (true) {
+                if (count == FIELDS) {
+                    return "Row must have " + FIELDS + " fields";
+                }
+                String value;
+                if (position < end && bytes[position] == '"') {
+                    int from = ++position;
+                    boolean escaped = false;
+                    while (true) {
+                        if (position >= end) {
+                            return "Quoted field is not closed";
+                        }
+                        if (bytes[position] == '"') {
+                            if (position + 1 < end && bytes[position + 1] == '"') {
+                                escaped = true;
+                                position += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        position++;
+                    }
+                    value = new String(bytes, from, position - from, StandardCharsets.UTF_8);
+                    if (escaped) {
+                        value = value.replace("\"\"", "\"");
+                    }
+                    position++;
+                    if (position < end && bytes[position] != ',') {
+                        return "Quoted field must be followed by a comma";
+                    }
+                } else {
+                    int comma = indexOf(bytes, (byte) ',', position, end);
+                    int to = comma < 0 ? end : comma;
+                    value = new String(bytes, position, to - position, StandardCharsets.UTF_8);
+                    position = to;
+                }
+                fields[count++] = value;
+                if (position >= end) {
+                    return count == FIELDS ? null : "Row must have " + FIELDS + " fields";
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Reads the contact fields from a JSON object; missing fields are left null
+         * @return The error message, or null if the row is a well-formed object
+         */
+        private String parseJson() {
+            return ContactJson.parseObject(bytes, position, end, fields);
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int indexOf(byte[] bytes, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,157 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the ContactImporter class and ContactService.addContacts
+ */
+public class ContactImporterTest {
+    @TempDir
+    Path directory;
+
+    private Path write(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testCsvImportWritesRejects() throws IOException {
+        // Test that valid rows are added and malformed, invalid and duplicate rows are reported by line
+        Path input = write("contacts.csv", "contactId,firstName,lastName,phone,address\n"
+                + "1,John,Doe,1234567890,123 Main St\n"
+                + "2,\"Jane\",\"O\"\"Hara\",0987654321,\"1 Elm St, Apt 2\"\r\n"
+                + "\n"
+                + "3,Bob,Smith,12345,9 Oak St\n"
+                + "1,Jack,Doe,1234567890,5 Pine St\n"
+                + "4,Too,Few\n"
+                + "5,Ann,Lee,5555555555,7 Ash St");
+        Path rejects = directory.resolve("rejects.csv");
+        ContactService service = new ContactService();
+
+        ImportResult result = new ContactImporter(service).importFile(input, ImportFormat.CSV, rejects);
+
+        assertEquals(6, result.getRowCount());
+        assertEquals(3, result.getImportedCount());
+        assertEquals(3, result.getRejectedCount());
+        assertEquals("O\"Hara", service.getContact("2").getLastName());
+        assertEquals("1 Elm St, Apt 2", service.getContact("2").getAddress());
+        assertEquals("John", service.getContact("1").getFirstName());
+        assertNotNull(service.getContact("5"));
+        assertEquals(Arrays.asList(
+                "line,reason,row",
+                "5,\"Phone number cannot be null and must be exactly 10 digits\",\"3,Bob,Smith,12345,9 Oak St\"",
+                "6,\"Contact ID must be unique\",\"1,Jack,Doe,1234567890,5 Pine St\"",
+                "7,\"Row must have 5 fields\",\"4,Too,Few\""),
+                Files.readAllLines(rejects));
+    }
+
+    @Test
+    public void testJsonImport() throws IOException {
+        // Test that JSON Lines and a one-object-per-line array are both read, with escapes
+        Path lines = write("contacts.jsonl",
+                "{\"contactId\":\"1\",\"firstName\":\"Zo\\u00eb\",\"lastName\":\"Doe\",\"phone\":\"1234567890\",\"address\":\"1 \\\"Main\\\" St\"}\n"
+                + "{\"contactId\": \"2\", \"firstName\": \"Jane\", \"lastName\": \"Doe\", \"phone\": 1234567890, \"address\": \"2 Main St\", \"extra\": true}\n"
+                + "{\"contactId\":\"3\",\"firstName\":\"Bob\",\"lastName\":\"Doe\",\"phone\":\"1234567890\"}\n"
+                + "not json\n");
+        Path array = write("contacts.json", "[\n"
+                + "{\"contactId\":\"4\",\"firstName\":\"Ann\",\"lastName\":\"Lee\",\"phone\":\"5555555555\",\"address\":\"7 Ash St\"},\n"
+                + "{\"contactId\":\"5\",\"firstName\":\"Tom\",\"lastName\":\"Lee\",\"phone\":\"5555555555\",\"address\":\"8 Ash St\"}\n"
+                + "]\n");
+        Path rejects = directory.resolve("rejects.csv");
+        ContactService service = new ContactService();
+        ContactImporter importer = new ContactImporter(service);
+
+        ImportResult result = importer.importFile(lines, ImportFormat.JSON, rejects);
+        assertEquals(4, result.getRowCount());
+        assertEquals(2, result.getImportedCount());
+        assertEquals("Zo\u00eb", service.getContact("1").getFirstName());
+        assertEquals("1 \"Main\" St", service.getContact("1").getAddress());
+        assertEquals("1234567890", service.getContact("2").getPhone());
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(3, rejected.size());
+        assertTrue(rejected.get(1).startsWith("3,\"Address cannot be null"));
+        assertTrue(rejected.get(2).startsWith("4,\"Row must be a JSON object\""));
+
+        result = importer.importFile(array, ImportFormat.JSON, null);
+        assertEquals(2, result.getImportedCount());
+        assertEquals(0, result.getRejectedCount());
+        assertEquals(4, service.getAllContacts().size());
+    }
+
+    @Test
+    public void testChunkBoundariesDoNotLoseOrRepeatRows() throws IOException {
+        // Test that tiny chunks split rows in every possible place and still read each row once
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String id = Integer.toString(i % 450);
+            text.append(id).append(",First").append(i % 7).append(",Last,123456789").append(i % 10).append(",").append(i).append(" Main St\n");
+        }
+        Path input = write("contacts.csv", text.toString());
+        for (int chunkBytes : new int[] {1, 7, 64, 1 << 20}) {
+            ContactService service = new ContactService();
+            Path rejects = directory.resolve("rejects-" + chunkBytes + ".csv");
+            ImportResult result = new ContactImporter(service, 3, chunkBytes).importFile(input, ImportFormat.CSV, rejects);
+
+            assertEquals(500, result.getRowCount());
+            assertEquals(450, result.getImportedCount());
+            assertEquals(50, result.getRejectedCount());
+            assertEquals(450, service.getAllContacts().size());
+            List<String> rejected = Files.readAllLines(rejects);
+            assertEquals(51, rejected.size());
+            assertTrue(rejected.get(1).startsWith("451,\"Contact ID must be unique\",\"0,"));
+            assertTrue(rejected.get(50).startsWith("500,"));
+        }
+    }
+
+    @Test
+    public void testAddContactsFindsDuplicatesAndBuildsIndexesLater() {
+        // Test that a bulk add rejects taken IDs and that searches still see every added contact
+        ContactService service = new ContactService();
+        Contact first = new Contact("1", "John", "Doe", "1234567890", "123 Main St");
+        BatchResult result = service.addContacts(Arrays.asList(
+                first,
+                new Contact("2", "Jane", "Doe", "1234567890", "123 Main St"),
+                new Contact("1", "Jack", "Doe", "1234567890", "123 Main St"),
+                null));
+
+        assertEquals(2, result.getAppliedCount());
+        assertEquals("Contact ID must be unique", result.getError(2));
+        assertEquals("Contact cannot be null", result.getError(3));
+        assertEquals(2, service.findByLastName("Doe").size());
+
+        result = service.addContacts(Arrays.asList(new Contact("3", "Bob", "Doe", "1234567890", "123 Main St"), first));
+        assertEquals(BatchResult.Status.APPLIED, result.getStatus(0));
+        assertEquals("Contact ID must be unique", result.getError(1));
+        assertEquals(3, service.findByLastName("Doe").size());
+        assertEquals(2, service.getMetrics().getCallCount(ContactMetrics.Operation.BULK_ADD));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        // Test that the importer and bulk add reject missing arguments
+        ContactService service = new ContactService();
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactImporter(null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactImporter(service, 0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactImporter(service).importFile(null, ImportFormat.CSV, null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactImporter(service).importFile(directory.resolve("a.csv"), null, null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.addContacts(null);
+        });
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.List;
+
+/**
+ * ContactIndex is notified of every change ContactService makes, so it can keep derived
+ * lookup structures in step with the stored contacts.
+ * Callbacks run while ContactService holds the write lock for the affected contact ID, so
+ * changes to one contact arrive in order. Changes to different contacts may arrive concurrently.
+ */
+public interface ContactIndex {
+    /**
+     * Called after a contact is added
+     * @param record The added contact's fields
+     */
+    void added(ContactRecord record);
+
+    /**
+     * Called with every stored contact when the index is built in bulk, while no other
+     * callback runs; writes made during the build reach the index afterwards as single calls
+     * @param records The contacts' fields, in no particular order
+     */
+    default void addedAll(List<ContactRecord> records) {
+        for (ContactRecord record : records) {
+            added(record);
+        }
+    }
+
+    /**
+     * Called after a contact's fields change
+     * @param before The fields before the update
+     * @param after The fields after the update
+     */
+    void updated(ContactRecord before, ContactRecord after);
+
+    /**
+     * Called after a contact is deleted
+     * @param record The deleted contact's last fields
+     */
+    void removed(ContactRecord record);
+}
@@ -0,0 +1,226 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * ContactJson reads and writes the flat JSON objects that carry contact fields, as in JSON
+ * import files and ContactServer's HTTP bodies: {"contactId": "1", "firstName": "John", ...}.
+ * Values may be strings, numbers, booleans or null; other keys are ignored.
+ */
+final class ContactJson {
+    /** The JSON keys of the contact fields, in ContactField order */
+    static final String[] KEYS = {"contactId", "firstName", "lastName", "phone", "address"};
+
+    private final byte[] bytes;
+    private final String[] fields;
+    private int position;
+    private int end;
+
+    private ContactJson(byte[] bytes, int from, int to, String[] fields) {
+        this.bytes = bytes;
+        this.position = from;
+        this.end = to;
+        this.fields = fields;
+    }
+
+    /**
+     * Reads the contact fields from a JSON object; missing fields are left null
+     * @param bytes UTF-8 text holding the object
+     * @param from The offset of the object
+     * @param to The end of the object
+     * @param fields Receives the value of each key in KEYS
+     * @return The error message, or null if the text is a well-formed object
+     */
+    static String parseObject(byte[] bytes, int from, int to, String[] fields) {
+        return new ContactJson(bytes, from, to, fields).parseObject();
+    }
+
+    /**
+     * Appends a contact as a JSON object
+     * @param out The text to append to
+     * @param record The contact's fields
+     */
+    static void appendContact(StringBuilder out, ContactRecord record) {
+        out.append('{');
+        String[] values = {record.getContactId(), record.getFirstName(), record.getLastName(), record.getPhone(), record.getAddress()};
+        for (int i = 0; i < KEYS.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(KEYS[i]).append("\":");
+            appendString(out, values[i]);
+        }
+        out.append('}');
+    }
+
+    /**
+     * Appends a string as a quoted JSON string, escaping quotes, backslashes and control characters
+     * @param out The text to append to
+     * @param value The string, or null to append null
+     */
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private String parseObject() {
+        Arrays.fill(fields, null);
+        skipSpace();
+        if (!consume('{')) {
+            return "Row must be a JSON object";
+        }
+        skipSpace();
+        if (consume('}')) {
+            skipSpace();
+            return position == end ? null : "Unexpected text after JSON object";
+        }
+        while (true) {
+            skipSpace();
+            if (position >= end || bytes[position] != '"') {
+                return "Malformed JSON object";
+            }
+            String key = parseString();
+            skipSpace();
+            if (key == null || !consume(':')) {
+                return "Malformed JSON object";
+            }
+            skipSpace();
+            String value;
+            if (position < end && bytes[position] == '"') {
+                value = parseString();
+                if (value == null) {
+                    return "Malformed JSON string";
+                }
+            } else {
+                int from = position;
+                while (position < end && bytes[position] != ',' && bytes[position] != '}' && !isSpace(bytes[position])) {
+                    position++;
+                }
+                value = new String(bytes, from, position - from, StandardCharsets.UTF_8);
+                if (value.equals("null")) {
+                    value = null;
+                } else if (!isNumber(value) && !value.equals("true") && !value.equals("false")) {
+                    return "JSON values must be strings, numbers or null";
+                }
+            }
+            for (int i = 0; i < KEYS.length; i++) {
+                if (KEYS[i].equals(key)) {
+                    fields[i] = value;
+                }
+            }
+            skipSpace();
+            if (consume('}')) {
+                skipSpace();
+                return position == end ? null : "Unexpected text after JSON object";
+            }
+            if (!consume(',')) {
+                return "Malformed JSON object";
+            }
+        }
+    }
+
+    /**
+     * Reads a JSON string starting at its opening quote
+     * @return The decoded string, or null if it is malformed
+     */
+    private String parseString() {
+        int from = ++position;
+        while (position < end && bytes[position] != '"' && bytes[position] != '\\') {
+            position++;
+        }
+        if (position >= end) {
+            return null;
+        }
+        if (bytes[position] == '"') {
+            return new String(bytes, from, position++ - from, StandardCharsets.UTF_8);
+        }
+        StringBuilder value = new StringBuilder(new String(bytes, from, position - from, StandardCharsets.UTF_8));
+        while (position < end) {
+            byte b = bytes[position];
+            if (b == '"') {
+                position++;
+                return value.toString();
+            }
+            if (b != '\\') {
+                int run = position;
+                while (position < end && bytes[position] != '"' && bytes[position] != '\\') {
+                    position++;
+                }
+                value.append(new String(bytes, run, position - run, StandardCharsets.UTF_8));
+                continue;
+            }
+            if (position + 1 >= end) {
+                return null;
+            }
+            byte escape = bytes[position + 1];
+            position += 2;
+            switch (escape) {
+                case '"': value.append('"'); break;
+                case '\\': value.append('\\'); break;
+                case '/': value.append('/'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > end) {
+                        return null;
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(bytes[position++], 16);
+                        if (digit < 0) {
+                            return null;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    private boolean consume(char expected) {
+        if (position < end && bytes[position] == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpace() {
+        while (position < end && isSpace(bytes[position])) {
+            position++;
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return !value.isEmpty() && (value.charAt(0) == '-' || Character.isDigit(value.charAt(0)));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactMetrics counts the calls and failures of each ContactService operation and records
+ * their latency. Every ContactService has one; read it with ContactService.getMetrics().
+ *
+ * Recording allocates nothing and is safe from any number of threads: each operation has a
+ * preallocated LatencyHistogram, which also counts the calls, and a striped failure counter.
+ * A recorded call costs two System.nanoTime reads and a handful of atomic increments.
+ */
+public class ContactMetrics {
+    /**
+     * The timed ContactService operations
+     */
+    public enum Operation {
+        ADD, UPDATE, DELETE, GET, GET_ALL, SEARCH, PAGE, BATCH, BULK_ADD
+    }
+
+    private final LongAdder[] failures;
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * Constructor initializes every counter at zero
+     */
+    public ContactMetrics() {
+        int operations = Operation.values().length;
+        this.failures = new LongAdder[operations];
+        this.latencies = new LatencyHistogram[operations];
+        for (int i = 0; i < operations; i++) {
+            failures[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records one finished call
+     * @param operation The operation called
+     * @param startNanos System.nanoTime() when the call started
+     * @param succeeded false if the call threw
+     */
+    void record(Operation operation, long startNanos, boolean succeeded) {
+        int i = operation.ordinal();
+        latencies[i].record(System.nanoTime() - startNanos);
+        if (!succeeded) {
+            failures[i].increment();
+        }
+    }
+
+    /**
+     * Gets the number of calls to an operation
+     * @param operation The operation
+     * @return The call count, including failed calls
+     */
+    public long getCallCount(Operation operation) {
+        return latencies[operation.ordinal()].getCount();
+    }
+
+    /**
+     * Gets the number of calls to an operation that threw
+     * @param operation The operation
+     * @return The failure count
+     */
+    public long getFailureCount(Operation operation) {
+        return failures[operation.ordinal()].sum();
+    }
+
+    /**
+     * Gets the latency histogram of an operation
+     * @param operation The operation
+     * @return The live histogram
+     */
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Locale;
+
+/**
+ * ContactMetricsSnapshot is a point-in-time copy of a ContactService's metrics: call and
+ * failure counts and latency percentiles per operation, validation failures per field, the
+ * contact count and an estimate of the memory the contacts and their indexes use.
+ *
+ * toPrometheusText renders the snapshot in the Prometheus text exposition format so it can be
+ * served from a /metrics endpoint as is.
+ */
+public final class ContactMetricsSnapshot {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final long[] calls;
+    private final long[] failures;
+    private final long[] sumNanos;
+    private final long[] maxNanos;
+    private final long[][] quantileNanos;    // [operation][quantile]
+    private final long[] validationFailures;
+    private final int contactCount;
+    private final long estimatedBytes;
+
+    /**
+     * Constructor copies the current values of a service's metrics
+     * @param metrics The live metrics to copy
+     * @param contactCount The number of stored contacts
+     * @param estimatedBytes The estimated memory used by the contacts and their indexes
+     */
+    public ContactMetricsSnapshot(ContactMetrics metrics, int contactCount, long estimatedBytes) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null");
+        }
+        ContactMetrics.Operation[] operations = ContactMetrics.Operation.values();
+        this.calls = new long[operations.length];
+        this.failures = new long[operations.length];
+        this.sumNanos = new long[operations.length];
+        this.maxNanos = new long[operations.length];
+        this.quantileNanos = new long[operations.length][QUANTILES.length];
+        for (ContactMetrics.Operation operation : operations) {
+            int i = operation.ordinal();
+            LatencyHistogram latency = metrics.getLatency(operation);
+            calls[i] = metrics.getCallCount(operation);
+            failures[i] = metrics.getFailureCount(operation);
+            sumNanos[i] = latency.getSum();
+            maxNanos[i] = latency.getMax();
+            for (int q = 0; q < QUANTILES.length; q++) {
+                quantileNanos[i][q] = latency.getValueAtPercentile(QUANTILES[q] * 100);
+            }
+        }
+        ContactField[] fields = ContactField.values();
+        this.validationFailures = new long[fields.length];
+        for (ContactField field : fields) {
+            validationFailures[field.ordinal()] = ContactValidator.getFailureCount(field);
+        }
+        this.contactCount = contactCount;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Gets the number of calls to an operation
+     * @param operation The operation
+     * @return The call count, including failed calls
+     */
+    public long getCallCount(ContactMetrics.Operation operation) {
+        return calls[operation.ordinal()];
+    }
+
+    /**
+     * Gets the number of calls to an operation that threw
+     * @param operation The operation
+     * @return The failure count
+     */
+    public long getFailureCount(ContactMetrics.Operation operation) {
+        return failures[operation.ordinal()];
+    }
+
+    /**
+     * Gets the mean latency of an operation
+     * @param operation The operation
+     * @return The mean in nanoseconds, or 0 if it was never called
+     */
+    public double getMeanNanos(ContactMetrics.Operation operation) {
+        int i = operation.ordinal();
+        return calls[i] == 0 ? 0 : (double) sumNanos[i] / calls[i];
+    }
+
+    /**
+     * Gets the median latency of an operation
+     * @param operation The operation
+     * @return The 50th percentile in nanoseconds
+     */
+    public long getP50Nanos(ContactMetrics.Operation operation) {
+        return quantileNanos[operation.ordinal()][0];
+    }
+
+    /**
+     * Gets the 90th percentile latency of an operation
+     * @param operation The operation
+     * @return The 90th percentile in nanoseconds
+     */
+    public long getP90Nanos(ContactMetrics.Operation operation) {
+        return quantileNanos[operation.ordinal()][1];
+    }
+
+    /**
+     * Gets the 99th percentile latency of an operation
+     * @param operation The operation
+     * @return The 99th percentile in nanoseconds
+     */
+    public long getP99Nanos(ContactMetrics.Operation operation) {
+        return quantileNanos[operation.ordinal()][2];
+    }
+
+    /**
+     * Gets the 99.9th percentile latency of an operation
+     * @param operation The operation
+     * @return The 99.9th percentile in nanoseconds
+     */
+    public long getP999Nanos(ContactMetrics.Operation operation) {
+        return quantileNanos[operation.ordinal()][3];
+    }
+
+    /**
+     * Gets the slowest call to an operation
+     * @param operation The operation
+     * @return The maximum latency in nanoseconds
+     */
+    public long getMaxNanos(ContactMetrics.Operation operation) {
+        return maxNanos[operation.ordinal()];
+    }
+
+    /**
+     * Gets how many values had been rejected for a field, across the whole process
+     * @param field The field
+     * @return The rejection count
+     */
+    public long getValidationFailureCount(ContactField field) {
+        return validationFailures[field.ordinal()];
+    }
+
+    /**
+     * Gets the number of stored contacts
+     * @return The contact count
+     */
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    /**
+     * Gets the estimated memory used by the contacts and their indexes
+     * @return Approximate bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Renders the snapshot in the Prometheus text exposition format, version 0.0.4
+     * @return The metrics text, one sample per line
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder(4096);
+        ContactMetrics.Operation[] operations = ContactMetrics.Operation.values();
+
+        header(text, "contact_service_operations_total", "Calls to each ContactService operation", "counter");
+        for (ContactMetrics.Operation operation : operations) {
+            sample(text, "contact_service_operations_total", "operation", label(operation), calls[operation.ordinal()]);
+        }
+        header(text, "contact_service_operation_failures_total", "Calls to each ContactService operation that threw", "counter");
+        for (ContactMetrics.Operation operation : operations) {
+            sample(text, "contact_service_operation_failures_total", "operation", label(operation), failures[operation.ordinal()]);
+        }
+
+        header(text, "contact_service_operation_latency_seconds", "Latency of each ContactService operation", "summary");
+        for (ContactMetrics.Operation operation : operations) {
+            int i = operation.ordinal();
+            String name = label(operation);
+            for (int q = 0; q < QUANTILES.length; q++) {
+                text.append("contact_service_operation_latency_seconds{operation=\"").append(name)
+                        .append("\",quantile=\"").append(QUANTILES[q]).append("\"} ")
+                        .append(seconds(quantileNanos[i][q])).append('\n');
+            }
+            sample(text, "contact_service_operation_latency_seconds_sum", "operation", name, seconds(sumNanos[i]));
+            sample(text, "contact_service_operation_latency_seconds_count", "operation", name, calls[i]);
+        }
+
+        header(text, "contact_validation_failures_total", "Values rejected by ContactValidator for each field", "counter");
+        for (ContactField field : ContactField.values()) {
+            sample(text, "contact_validation_failures_total", "field", field.name().toLowerCase(Locale.ROOT), validationFailures[field.ordinal()]);
+        }
+
+        header(text, "contact_service_contacts", "Stored contacts", "gauge");
+        text.append("contact_service_contacts ").append(contactCount).append('\n');
+        header(text, "contact_service_memory_bytes", "Estimated memory used by contacts and their indexes", "gauge");
+        text.append("contact_service_memory_bytes ").append(estimatedBytes).append('\n');
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String labelName, String labelValue, Object value) {
+        text.append(name).append('{').append(labelName).append("=\"").append(labelValue).append("\"} ").append(value).append('\n');
+    }
+
+    private static String label(ContactMetrics.Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
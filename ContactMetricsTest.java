@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactMetrics, ContactMetricsSnapshot and LatencyHistogram classes
+ */
+public class ContactMetricsTest {
+    @Test
+    public void testOperationsAreCountedWithFailures() {
+        // Test that every call is counted and calls that throw also count as failures
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.addContact(new Contact("1", "Jane", "Doe", "1234567890", "123 Main St"));
+        });
+        service.getContact("1");
+        service.updateContact("1", "Jack", null, null, null);
+        service.findByLastName("Doe");
+        service.deleteContact("1");
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.deleteContact("1");
+        });
+
+        ContactMetricsSnapshot metrics = service.getMetrics();
+        assertEquals(2, metrics.getCallCount(ContactMetrics.Operation.ADD));
+        assertEquals(1, metrics.getFailureCount(ContactMetrics.Operation.ADD));
+        assertEquals(1, metrics.getCallCount(ContactMetrics.Operation.GET));
+        assertEquals(1, metrics.getCallCount(ContactMetrics.Operation.UPDATE));
+        assertEquals(1, metrics.getCallCount(ContactMetrics.Operation.SEARCH));
+        assertEquals(2, metrics.getCallCount(ContactMetrics.Operation.DELETE));
+        assertEquals(1, metrics.getFailureCount(ContactMetrics.Operation.DELETE));
+        assertEquals(0, metrics.getFailureCount(ContactMetrics.Operation.GET));
+        assertTrue(metrics.getMaxNanos(ContactMetrics.Operation.ADD) > 0);
+        assertTrue(metrics.getMeanNanos(ContactMetrics.Operation.ADD) > 0);
+    }
+
+    @Test
+    public void testHistogramPercentilesAreAccurate() {
+        // Test that percentiles of 1..100000 ns are within the histogram's 1.6% precision
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(100_000L * 100_001 / 2, histogram.getSum());
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 * 0.016);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 * 0.016);
+        assertEquals(99_900, histogram.getValueAtPercentile(99.9), 99_900 * 0.016);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testHistogramSmallAndHugeValues() {
+        // Test that small values are exact and values past the last bucket report the maximum
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(1));
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testValidationFailuresAreCountedPerField() {
+        // Test that rejected values are counted against the field that broke its rule
+        long phoneBefore = ContactValidator.getFailureCount(ContactField.PHONE);
+        long addressBefore = ContactValidator.getFailureCount(ContactField.ADDRESS);
+        assertThrows(IllegalArgumentException.class, () -> {
+            new Contact("1", "John", "Doe", "12345", "123 Main St");
+        });
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.updateContact("1", null, null, null, "This address is far too long to be valid");
+        });
+
+        ContactMetricsSnapshot metrics = service.getMetrics();
+        assertTrue(metrics.getValidationFailureCount(ContactField.PHONE) >= phoneBefore + 1);
+        assertTrue(metrics.getValidationFailureCount(ContactField.ADDRESS) >= addressBefore + 1);
+    }
+
+    @Test
+    public void testGaugesReportContactsAndMemory() {
+        // Test that the gauges follow the stored contacts
+        ContactService service = new ContactService();
+        assertEquals(0, service.getMetrics().getContactCount());
+        for (int i = 0; i < 100; i++) {
+            service.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        ContactMetricsSnapshot metrics = service.getMetrics();
+        assertEquals(100, metrics.getContactCount());
+        assertTrue(metrics.getEstimatedBytes() > 100 * 100);
+    }
+
+    @Test
+    public void testPrometheusText() {
+        // Test that the export holds counters, the latency summary and gauges in text format
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        service.getContact("1");
+        String text = service.getMetrics().toPrometheusText();
+
+        assertTrue(text.contains("# TYPE contact_service_operations_total counter\n"));
+        assertTrue(text.contains("contact_service_operations_total{operation=\"add\"} 1\n"));
+        assertTrue(text.contains("contact_service_operation_failures_total{operation=\"add\"} 0\n"));
+        assertTrue(text.contains("# TYPE contact_service_operation_latency_seconds summary\n"));
+        assertTrue(text.contains("contact_service_operation_latency_seconds{operation=\"get\",quantile=\"0.99\"} "));
+        assertTrue(text.contains("contact_service_operation_latency_seconds_count{operation=\"get\"} 1\n"));
+        assertTrue(text.contains("contact_validation_failures_total{field=\"phone\"} "));
+        assertTrue(text.contains("contact_service_contacts 1\n"));
+        assertTrue(text.contains("contact_service_memory_bytes "));
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("#") || line.matches("[a-z_]+(\\{[^}]*\\})? [0-9.E-]+"), line);
+        }
+    }
+
+    @Test
+    public void testNullMetricsRejected() {
+        // Test that a snapshot needs metrics to copy
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactMetricsSnapshot(null, 0, 0);
+        });
+    }
+}
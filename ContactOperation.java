@@ -0,0 +1,92 @@
+/**
+ * ContactOperation describes one add, update or delete to run as part of a batch.
+ * Use the static factory methods to create operations.
+ */
+public final class ContactOperation {
+    /**
+     * The kind of change an operation makes
+     */
+    public enum Type {
+        ADD, UPDATE, DELETE
+    }
+
+    private final Type type;
+    private final String contactId;
+    private final Contact contact;
+    private final String firstName;
+    private final String lastName;
+    private final String phone;
+    private final String address;
+
+    private ContactOperation(Type type, String contactId, Contact contact,
+                             String firstName, String lastName, String phone, String address) {
+        this.type = type;
+        this.contactId = contactId;
+        this.contact = contact;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.address = address;
+    }
+
+    /**
+     * Creates an operation that adds a contact
+     * @param contact The contact to add
+     * @return The add operation
+     */
+    public static ContactOperation add(Contact contact) {
+        return new ContactOperation(Type.ADD, contact == null ? null : contact.getContactId(), contact,
+                null, null, null, null);
+    }
+
+    /**
+     * Creates an operation that updates contact fields
+     * @param contactId The ID of the contact to update
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @return The update operation
+     */
+    public static ContactOperation update(String contactId, String firstName, String lastName, String phone, String address) {
+        return new ContactOperation(Type.UPDATE, contactId, null, firstName, lastName, phone, address);
+    }
+
+    /**
+     * Creates an operation that deletes a contact
+     * @param contactId The ID of the contact to delete
+     * @return The delete operation
+     */
+    public static ContactOperation delete(String contactId) {
+        return new ContactOperation(Type.DELETE, contactId, null, null, null, null, null);
+    }
+
+    // Getters
+    public Type getType() {
+        return type;
+    }
+
+    public String getContactId() {
+        return contactId;
+    }
+
+    public Contact getContact() {
+        return contact;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+}
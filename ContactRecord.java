@@ -0,0 +1,148 @@
+/**
+ * ContactRecord is an immutable snapshot of all contact fields.
+ * A Contact publishes its current state as a ContactRecord, so a reader that takes
+ * one record always sees a consistent set of fields. Records can be cached and shared across
+ * threads without copying; the with methods derive changed copies, which
+ * ContactService.updateContact(ContactRecord) stores.
+ */
+public final class ContactRecord {
+    private final String contactId;
+    private final String firstName;
+    private final String lastName;
+    private final String phone;
+    private final String address;
+    private final long version;
+
+    /**
+     * Creates a record from already validated field values
+     */
+    ContactRecord(String contactId, String firstName, String lastName, String phone, String address) {
+        this(contactId, firstName, lastName, phone, address, 0);
+    }
+
+    /**
+     * Creates a record from already validated field values and a version stamp
+     */
+    ContactRecord(String contactId, String firstName, String lastName, String phone, String address, long version) {
+        this.contactId = contactId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.address = address;
+        this.version = version;
+    }
+
+    // Getters
+    public String getContactId() {
+        return contactId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Copies this record with a new first name
+     * @param firstName First name (max 10 characters)
+     * @return The copy
+     * @throws IllegalArgumentException if firstName is invalid
+     */
+    public ContactRecord withFirstName(String firstName) {
+        ContactValidator.require(ContactField.FIRST_NAME, firstName);
+        return new ContactRecord(contactId, firstName, lastName, phone, address, version);
+    }
+
+    /**
+     * Copies this record with a new last name
+     * @param lastName Last name (max 10 characters)
+     * @return The copy
+     * @throws IllegalArgumentException if lastName is invalid
+     */
+    public ContactRecord withLastName(String lastName) {
+        ContactValidator.require(ContactField.LAST_NAME, lastName);
+        return new ContactRecord(contactId, firstName, lastName, phone, address, version);
+    }
+
+    /**
+     * Copies this record with a new phone number
+     * @param phone Phone number (exactly 10 digits)
+     * @return The copy
+     * @throws IllegalArgumentException if phone is invalid
+     */
+    public ContactRecord withPhone(String phone) {
+        ContactValidator.require(ContactField.PHONE, phone);
+        return new ContactRecord(contactId, firstName, lastName, phone, address, version);
+    }
+
+    /**
+     * Copies this record with a new address
+     * @param address Address (max 30 characters)
+     * @return The copy
+     * @throws IllegalArgumentException if address is invalid
+     */
+    public ContactRecord withAddress(String address) {
+        ContactValidator.require(ContactField.ADDRESS, address);
+        return new ContactRecord(contactId, firstName, lastName, phone, address, version);
+    }
+
+    /**
+     * Gets how many updates produced this record; stores that rebuild records from their own
+     * encoding start every record at 0, so use ContactService.getVersion for stored contacts
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns this record with a given version stamp
+     * @param version The version
+     * @return This record if it already has the version, else an equal copy that does
+     */
+    ContactRecord versioned(long version) {
+        return version == this.version ? this : new ContactRecord(contactId, firstName, lastName, phone, address, version);
+    }
+
+    /**
+     * Creates the next version with every non-null field replaced. Values must already be validated.
+     */
+    ContactRecord merge(String firstName, String lastName, String phone, String address) {
+        return new ContactRecord(contactId,
+                firstName != null ? firstName : this.firstName,
+                lastName != null ? lastName : this.lastName,
+                phone != null ? phone : this.phone,
+                address != null ? address : this.address,
+                version + 1);
+    }
+
+    /**
+     * Returns a record whose names and address are the table's canonical instances
+     * @param strings The intern table
+     * @return This record if its strings are already canonical, else an equal copy
+     */
+    ContactRecord interned(InternTable strings) {
+        String first = strings.intern(firstName);
+        String last = strings.intern(lastName);
+        String street = strings.intern(address);
+        if (first == firstName && last == lastName && street == address) {
+            return this;
+        }
+        return new ContactRecord(contactId, first, last, phone, street, version);
+    }
+
+    @Override
+    public String toString() {
+        return "ContactRecord[" + contactId + ", " + firstName + ", " + lastName + ", " + phone + ", " + address + "]";
+    }
+}
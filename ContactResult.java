@@ -0,0 +1,60 @@
+/**
+ * ContactResult holds either a contact created by Contact.tryCreate or the reason it could not
+ * be created. Failures are shared constants, one per status, so a rejected record costs no
+ * allocation and no stack trace.
+ */
+public final class ContactResult {
+    private static final ContactResult[] FAILURES = new ContactResult[ContactStatus.values().length];
+
+    static {
+        for (ContactStatus status : ContactStatus.values()) {
+            FAILURES[status.ordinal()] = new ContactResult(null, status);
+        }
+    }
+
+    private final Contact contact;
+    private final ContactStatus status;
+
+    private ContactResult(Contact contact, ContactStatus status) {
+        this.contact = contact;
+        this.status = status;
+    }
+
+    /**
+     * Wraps a created contact
+     */
+    static ContactResult of(Contact contact) {
+        return new ContactResult(contact, ContactStatus.OK);
+    }
+
+    /**
+     * Gets the shared result for a failure
+     */
+    static ContactResult failure(ContactStatus status) {
+        return FAILURES[status.ordinal()];
+    }
+
+    /**
+     * Checks whether the contact was created
+     * @return true if getContact returns a contact
+     */
+    public boolean isOk() {
+        return contact != null;
+    }
+
+    /**
+     * Gets the created contact
+     * @return The contact, or null if it could not be created
+     */
+    public Contact getContact() {
+        return contact;
+    }
+
+    /**
+     * Gets the outcome
+     * @return OK, or the status naming the first invalid field
+     */
+    public ContactStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,140 @@
+import java.nio.ByteBuffer;
+
+/**
+ * ContactRows encodes contacts as fixed-width 72-byte rows, shared by ColumnarContactStore and
+ * the ContactSnapshotFile format.
+ *
+ * Layout: ID, first name and last name are each a length byte and 10 one-byte characters
+ * (offsets 0, 11, 22); the address is a length byte and 30 characters (offset 33); the phone
+ * number is a long (offset 64). A contact with any character above U+00FF does not fit; its
+ * row is marked WIDE and carries a 4-byte reference at offset 1 that the owner resolves.
+ */
+final class ContactRows {
+    static final int ROW_BYTES = 72;
+    static final byte WIDE = -1;
+
+    private static final int ID = 0;
+    private static final int FIRST_NAME = 11;
+    private static final int LAST_NAME = 22;
+    private static final int ADDRESS = 33;
+    private static final int PHONE = 64;
+
+    private ContactRows() {
+    }
+
+    /**
+     * Checks whether a record can be stored in a row
+     * @return true if every text field uses only one-byte characters
+     */
+    static boolean fits(ContactRecord record) {
+        return isLatin1(record.getContactId()) && isLatin1(record.getFirstName())
+                && isLatin1(record.getLastName()) && isLatin1(record.getAddress());
+    }
+
+    /**
+     * Writes a record that fits into the row at base
+     */
+    static void write(ByteBuffer rows, int base, ContactRecord record) {
+        putText(rows, base + ID, record.getContactId());
+        putText(rows, base + FIRST_NAME, record.getFirstName());
+        putText(rows, base + LAST_NAME, record.getLastName());
+        putText(rows, base + ADDRESS, record.getAddress());
+        String phone = record.getPhone();
+        long digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            digits = digits * 10 + (phone.charAt(i) - '0');
+        }
+        rows.putLong(base + PHONE, digits);
+    }
+
+    /**
+     * Marks the row at base as wide, pointing at a record kept elsewhere
+     */
+    static void writeWide(ByteBuffer rows, int base, int reference) {
+        rows.put(base + ID, WIDE);
+        rows.putInt(base + ID + 1, reference);
+    }
+
+    static boolean isWide(ByteBuffer rows, int base) {
+        return rows.get(base + ID) == WIDE;
+    }
+
+    static int wideReference(ByteBuffer rows, int base) {
+        return rows.getInt(base + ID + 1);
+    }
+
+    /**
+     * Decodes the row at base, which must not be wide
+     */
+    static ContactRecord read(ByteBuffer rows, int base) {
+        long phone = rows.getLong(base + PHONE);
+        char[] digits = new char[ContactValidator.PHONE_LENGTH];
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + phone % 10);
+            phone /= 10;
+        }
+        return new ContactRecord(text(rows, base + ID), text(rows, base + FIRST_NAME),
+                text(rows, base + LAST_NAME), new String(digits), text(rows, base + ADDRESS));
+    }
+
+    /**
+     * Compares the ID in the row at base, which must not be wide, without decoding it
+     */
+    static boolean idEquals(ByteBuffer rows, int base, String contactId) {
+        int length = rows.get(base + ID);
+        if (length != contactId.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((rows.get(base + ID + 1 + i) & 0xFF) != contactId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the ID in the row at base, which must not be wide. Equals String.hashCode of the ID.
+     */
+    static int idHash(ByteBuffer rows, int base) {
+        int length = rows.get(base + ID);
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (rows.get(base + ID + 1 + i) & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes a String hash code for use as an open-addressing table index
+     */
+    static int spread(int hash) {
+        int h = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static String text(ByteBuffer rows, int offset) {
+        int length = rows.get(offset);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (rows.get(offset + 1 + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void putText(ByteBuffer rows, int offset, String value) {
+        rows.put(offset, (byte) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            rows.put(offset + 1 + i, (byte) value.charAt(i));
+        }
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
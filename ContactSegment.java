@@ -0,0 +1,408 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ContactSegment is the cold tier of a TieredContactStore: contacts appended to a segment file,
+ * found through an open-addressing table of primitive arrays instead of per-contact objects.
+ * Each slot holds the record's file position and length, the ID's hash and the contact's last
+ * access time in seconds, 16 bytes in all, so a cold contact costs 21 to 43 bytes of heap
+ * as the table fills between resizes. Lookups compare the stored hash first and read the file only to
+ * confirm a likely match.
+ *
+ * Each record is the last-modified time followed by the five fields as a short UTF-8 byte count
+ * and the bytes. Appends are buffered. Records of contacts taken back out stay in the file until
+ * they outweigh the live ones; the next append then rewrites the live records to a fresh file,
+ * unless an iterator has pinned the current locations. All methods are synchronized.
+ */
+final class ContactSegment implements Closeable {
+    private static final long TOMBSTONE = -1;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final Path file;
+    private final ByteBuffer pending;
+    private FileChannel channel;
+    private long flushedEnd;
+    private long liveBytes;
+    private int pins;           // Open iterators reading from locations
+    private long[] slots;       // 0 if empty, TOMBSTONE if removed, else file offset << 16 | record length
+    private int[] hashes;
+    private int[] accessed;     // Last access, in seconds since the epoch
+    private int count;
+    private int used;           // Live and removed slots
+
+    /**
+     * Creates an empty segment, discarding any previous contents of the file
+     * @param file The segment file
+     * @throws IOException if the file cannot be opened
+     */
+    ContactSegment(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.pending = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Appends a contact that is not in the segment
+     * @param record The contact's fields
+     * @param lastAccessed The last access time in milliseconds
+     * @param lastModified The last change time in milliseconds
+     */
+    synchronized void put(ContactRecord record, long lastAccessed, long lastModified) {
+        if (pins == 0 && fileBytes() - liveBytes > Math.max(liveBytes, WRITE_BUFFER_BYTES)) {
+            compact();
+        }
+        if ((used + 1) * 4L > slots.length * 3L) {
+            // Double when at least half the slots are live, else only clear the removed ones
+            allocate(count * 2 >= slots.length ? slots.length * 2 : slots.length);
+        }
+        byte[][] fields = {
+                record.getContactId().getBytes(StandardCharsets.UTF_8),
+                record.getFirstName().getBytes(StandardCharsets.UTF_8),
+                record.getLastName().getBytes(StandardCharsets.UTF_8),
+                record.getPhone().getBytes(StandardCharsets.UTF_8),
+                record.getAddress().getBytes(StandardCharsets.UTF_8)};
+        int length = 8;
+        for (byte[] field : fields) {
+            length += 2 + field.length;
+        }
+        if (pending.remaining() < length) {
+            flush();
+        }
+        long offset = flushedEnd + pending.position();
+        pending.putLong(lastModified);
+        for (byte[] field : fields) {
+            pending.putShort((short) field.length).put(field);
+        }
+        int hash = record.getContactId().hashCode();
+        int slot = indexFor(hash);
+        while (slots[slot] > 0) {
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        if (slots[slot] == 0) {
+            used++;
+        }
+        slots[slot] = offset << 16 | length;
+        hashes[slot] = hash;
+        accessed[slot] = (int) (lastAccessed / 1000);
+        count++;
+        liveBytes += length;
+    }
+
+    /**
+     * Checks whether a contact is in the segment
+     * @param contactId The contact ID
+     * @return true if the segment holds the contact
+     */
+    synchronized boolean contains(String contactId) {
+        return find(contactId) >= 0;
+    }
+
+    /**
+     * Reads a contact without taking it out of the segment
+     * @param contactId The contact ID
+     * @return The contact's fields, or null if the segment does not hold it
+     */
+    synchronized ContactRecord get(String contactId) {
+        int slot = find(contactId);
+        return slot < 0 ? null : read(readBody(slots[slot]));
+    }
+
+    /**
+     * Removes a contact from the segment
+     * @param contactId The contact ID
+     * @param lastModified Receives the contact's last change time in its first element, if not null
+     * @return The contact's fields, or null if the segment does not hold it
+     */
+    synchronized ContactRecord take(String contactId, long[] lastModified) {
+        int slot = find(contactId);
+        if (slot < 0) {
+            return null;
+        }
+        ByteBuffer body = readBody(slots[slot]);
+        if (lastModified != null) {
+            lastModified[0] = body.getLong(0);
+        }
+        ContactRecord record = read(body);
+        liveBytes -= slots[slot] & 0xFFFF;
+        slots[slot] = TOMBSTONE;
+        count--;
+        return record;
+    }
+
+    /**
+     * Gets when a contact was last read or changed, to the second
+     * @param contactId The contact ID
+     * @return The time in milliseconds, or -1 if the segment does not hold the contact
+     */
+    synchronized long lastAccessed(String contactId) {
+        int slot = find(contactId);
+        return slot < 0 ? -1 : accessed[slot] * 1000L;
+    }
+
+    /**
+     * Gets when a contact was last changed
+     * @param contactId The contact ID
+     * @return The time in milliseconds, or -1 if the segment does not hold the contact
+     */
+    synchronized long lastModified(String contactId) {
+        int slot = find(contactId);
+        return slot < 0 ? -1 : readBody(slots[slot]).getLong(0);
+    }
+
+    /**
+     * Finds contacts not read or changed since a time
+     * @param cutoffMillis The time in milliseconds
+     * @return Their IDs
+     */
+    synchronized List<String> idleSince(long cutoffMillis) {
+        List<String> ids = new ArrayList<>();
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (slots[slot] > 0 && accessed[slot] * 1000L < cutoffMillis) {
+                ids.add(readId(slots[slot]));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Copies the locations of every contact in the segment and pins them: until unpin is called,
+     * the file is not compacted, so the locations stay readable with readAt after the contacts
+     * are taken out.
+     * @return The locations, in table order
+     */
+    synchronized long[] locations() {
+        pins++;
+        long[] locations = new long[count];
+        int n = 0;
+        for (long location : slots) {
+            if (location > 0) {
+                locations[n++] = location;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Releases the locations pinned by one call to locations
+     */
+    synchronized void unpin() {
+        pins--;
+    }
+
+    /**
+     * Reads the contact stored at a location returned by locations
+     * @param location The location
+     * @return The contact's fields as they were when it was written
+     */
+    synchronized ContactRecord readAt(long location) {
+        return read(readBody(location));
+    }
+
+    /**
+     * Gets the number of contacts in the segment
+     * @return The contact count
+     */
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Estimates the heap used by the table; records themselves are on disk
+     * @return Approximate bytes
+     */
+    synchronized long estimatedBytes() {
+        return slots.length * 16L + WRITE_BUFFER_BYTES;
+    }
+
+    /**
+     * Gets the length of the segment file, including records of contacts taken back out and
+     * not yet compacted away
+     * @return The file length in bytes
+     */
+    synchronized long fileBytes() {
+        return flushedEnd + pending.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Rewrites the live records to a fresh file that replaces the segment file. The table is
+     * only changed once the new file is in place, so a failed write leaves the segment as it was.
+     */
+    private void compact() {
+        flush();
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        long[] moved = new long[slots.length];
+        long end = 0;
+        try {
+            FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+                for (int slot = 0; slot < slots.length; slot++) {
+                    if (slots[slot] > 0) {
+                        ByteBuffer body = readBody(slots[slot]);
+                        if (buffer.remaining() < body.remaining()) {
+                            end += write(target, buffer, end);
+                        }
+                        moved[slot] = (end + buffer.position()) << 16 | body.remaining();
+                        buffer.put(body);
+                    }
+                }
+                end += write(target, buffer, end);
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                target.close();
+                throw e;
+            }
+            channel.close();
+            channel = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contact segment compaction failed", e);
+        } finally {
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException e) {
+                // The next compaction truncates it
+            }
+        }
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (slots[slot] > 0) {
+                slots[slot] = moved[slot];
+            }
+        }
+        flushedEnd = end;
+    }
+
+    /**
+     * Writes the filled part of a buffer at a file position and empties the buffer
+     * @return The number of bytes written
+     */
+    private static int write(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer, position + bytes - buffer.remaining());
+        }
+        buffer.clear();
+        return bytes;
+    }
+
+    private int indexFor(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & (slots.length - 1);
+    }
+
+    /**
+     * Probes for a contact's slot
+     * @return The slot, or -1 if the segment does not hold the contact
+     */
+    private int find(String contactId) {
+        int hash = contactId.hashCode();
+        for (int slot = indexFor(hash); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            if (slots[slot] > 0 && hashes[slot] == hash && readId(slots[slot]).equals(contactId)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the table with an empty one of a given capacity and reinserts the live slots
+     */
+    private void allocate(int capacity) {
+        long[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        int[] oldAccessed = accessed;
+        slots = new long[capacity];
+        hashes = new int[capacity];
+        accessed = new int[capacity];
+        used = count;
+        if (oldSlots == null) {
+            return;
+        }
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] > 0) {
+                int slot = indexFor(oldHashes[i]);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                slots[slot] = oldSlots[i];
+                hashes[slot] = oldHashes[i];
+                accessed[slot] = oldAccessed[i];
+            }
+        }
+    }
+
+    private static ContactRecord read(ByteBuffer body) {
+        body.position(8);
+        return new ContactRecord(readString(body), readString(body), readString(body), readString(body), readString(body));
+    }
+
+    private String readId(long location) {
+        ByteBuffer body = readBody(location);
+        body.position(8);
+        return readString(body);
+    }
+
+    /**
+     * Reads a record from the write buffer or the file
+     */
+    private ByteBuffer readBody(long location) {
+        long offset = location >>> 16;
+        int length = (int) (location & 0xFFFF);
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (offset >= flushedEnd) {
+            body.put(pending.array(), (int) (offset - flushedEnd), length).flip();
+            return body;
+        }
+        try {
+            while (body.hasRemaining()) {
+                if (channel.read(body, offset + body.position()) < 0) {
+                    throw new EOFException("Contact segment ends inside a record");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contact segment read failed", e);
+        }
+        body.flip();
+        return body;
+    }
+
+    private void flush() {
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) {
+                channel.write(pending, flushedEnd + pending.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contact segment write failed", e);
+        }
+        flushedEnd += pending.limit();
+        pending.clear();
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getShort();
+        String value = new String(body.array(), body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,756 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ContactServer exposes a ContactService over the network, so many application instances can
+ * share one contact book instead of each embedding its own. One port speaks two protocols,
+ * told apart by the first byte a client sends:
+ *
+ * HTTP/1.1 with JSON bodies (see ContactJson):
+ *   POST /contacts                    adds the contact in the body (201, or 409 for a taken ID)
+ *   GET /contacts/{id}                gets a contact (200, or 404)
+ *   PUT or PATCH /contacts/{id}       updates the fields present in the body (204)
+ *   DELETE /contacts/{id}             deletes a contact (204, or 404)
+ *   GET /contacts?after={id}&limit=n  lists a page of contacts in ID order (200, a JSON array)
+ * Invalid fields give 400 with {"error": message}.
+ *
+ * The binary ContactShardProtocol, so a RemoteContactShard can use the server as a shard.
+ *
+ * Each connection is served by its own thread, on a virtual thread when the JVM has them and a
+ * pooled platform thread otherwise, with plain blocking reads. Clients may pipeline: requests
+ * already received are read together, up to MAX_PIPELINE, and answered in order with one
+ * flush. Consecutive adds, updates and deletes in such a group go to the store as one
+ * ContactService.applyBatch, so a pipelining writer takes each stripe lock once per group.
+ *
+ * The server listens on the loopback address unless given another. Neither protocol
+ * authenticates clients, and the binary one can delete contacts in bulk, so only bind a wider
+ * address on a trusted network.
+ *
+ * Run with: java ContactServer [port] [contacts] [bind address] (port 8080 by default;
+ * contacts preloads that many sample contacts with IDs 0, 1, 2 and so on, for
+ * ContactLoadGenerator; the address is loopback by default, 0.0.0.0 for every interface).
+ */
+public class ContactServer implements Closeable {
+    /** The most pipelined requests read and answered as one group */
+    public static final int MAX_PIPELINE = 256;
+    static final String READY_PREFIX = "LISTENING ";
+
+    private static final int MAX_LINE_BYTES = 8192;
+    private static final int MAX_BODY_BYTES = 1 << 16;
+    private static final int DEFAULT_PAGE = 100;
+    private static final int MAX_PAGE = 1000;
+    private static final String NOT_FOUND = "Contact ID not found";
+    private static final String NOT_UNIQUE = "Contact ID must be unique";
+
+    private final ContactService service;
+    private final ServerSocket serverSocket;
+    private final ExecutorService handlers;
+    private final Set<Socket> connections;
+    private final Thread acceptor;
+
+    /**
+     * What a request asks for, whichever protocol carried it
+     */
+    private enum Kind {
+        ADD, GET, UPDATE, DELETE, LIST, ALL, ADD_ALL, DELETE_ALL, FIND, SIZE
+    }
+
+    /**
+     * One decoded request. A request with an error was rejected while decoding and is not run.
+     */
+    private static final class Request {
+        Kind kind;
+        String contactId;
+        Contact contact;
+        String[] fields;             // First name, last name, phone and address of an update
+        List<Contact> contacts;
+        List<String> contactIds;
+        ContactField field;
+        boolean prefix;
+        int limit;
+        String error;
+        int errorStatus;             // The HTTP status for error
+        boolean keepAlive = true;
+
+        boolean isWrite() {
+            return error == null && (kind == Kind.ADD || kind == Kind.UPDATE || kind == Kind.DELETE);
+        }
+    }
+
+    /**
+     * The result of running one request. Contacts are kept as the records they held when the
+     * request ran, since later writes in the same group may change them before the reply is written.
+     */
+    private static final class Outcome {
+        String error;                // Null when the request succeeded
+        boolean failed;              // The error was not a rejection of the request
+        ContactRecord record;
+        List<ContactRecord> records;
+        int count;
+    }
+
+    /**
+     * Reads requests from and writes responses to one connection in one protocol
+     */
+    private interface Codec {
+        /**
+         * @return The next request, or null at a clean end of stream
+         */
+        Request read() throws IOException;
+
+        void write(Request request, Outcome outcome) throws IOException;
+    }
+
+    /**
+     * Constructor starts serving on the loopback address
+     * @param service The service to expose
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ContactServer(ContactService service, int port) throws IOException {
+        this(service, port, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Constructor starts serving on a given address
+     * @param service The service to expose
+     * @param port The port to listen on, or 0 for any free port
+     * @param bindAddress The local address to listen on, such as the wildcard address for
+     *        every interface
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if bindAddress is null
+     */
+    public ContactServer(ContactService service, int port, InetAddress bindAddress) throws IOException {
+        if (bindAddress == null) {
+            throw new IllegalArgumentException("Bind address cannot be null");
+        }
+        this.service = service;
+        this.serverSocket = new ServerSocket(port, 4096, bindAddress);
+        this.handlers = newThreadPerTaskExecutor();
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.acceptor = new Thread(this::accept, "contact-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int preload = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : 0;
+        InetAddress bindAddress = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        ContactService service = new ContactService();
+        List<Contact> batch = new ArrayList<>();
+        for (int i = 0; i < preload; i++) {
+            batch.add(new Contact(Integer.toString(i), "First", "Last", "1234567890", i + " Main St"));
+            if (batch.size() == 100_000 || i == preload - 1) {
+                service.addContacts(batch);
+                batch.clear();
+            }
+        }
+        ContactServer server = new ContactServer(service, port, bindAddress);
+        System.out.println(READY_PREFIX + server.getPort());
+        System.out.flush();
+        // Serve until standard input closes, as when a parent process ends, or the process is killed
+        while (System.in.read() >= 0) {
+            // Ignore any input
+        }
+        server.close();
+    }
+
+    /**
+     * Gets the port the server listens on
+     * @return The bound port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the local address the server listens on
+     * @return The bound address
+     */
+    public InetAddress getAddress() {
+        return serverSocket.getInetAddress();
+    }
+
+    /**
+     * Stops accepting connections and drops the open ones; the service stays open
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task on JVMs that have them (21 and
+     * later), and otherwise reuses idle daemon platform threads
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread handler = new Thread(task, "contact-server");
+                handler.setDaemon(true);
+                return handler;
+            });
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                handlers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // The server socket was closed
+            } catch (RuntimeException e) {
+                // The executor was shut down while accepting
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+            BufferedOutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            in.mark(1);
+            int first = in.read();
+            if (first < 0) {
+                return;
+            }
+            in.reset();
+            Codec codec = first >= 'A' && first <= 'Z' ? new HttpCodec(in, out) : new BinaryCodec(in, out);
+            List<Request> group = new ArrayList<>();
+            boolean open = true;
+            while (open) {
+                Request request = codec.read();
+                if (request == null) {
+                    return;
+                }
+                group.add(request);
+                // Take whatever the client has already pipelined behind it
+                while (request.keepAlive && group.size() < MAX_PIPELINE && in.available() > 0) {
+                    request = codec.read();
+                    if (request == null) {
+                        open = false;
+                        break;
+                    }
+                    group.add(request);
+                }
+                Outcome[] outcomes = execute(group);
+                for (int i = 0; i < group.size(); i++) {
+                    codec.write(group.get(i), outcomes[i]);
+                    if (!group.get(i).keepAlive) {
+                        open = false;
+                        break;
+                    }
+                }
+                out.flush();
+                group.clear();
+            }
+        } catch (IOException e) {
+            // The client went away, sent something unreadable, or the server is closing
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Runs a group of requests in order, sending each run of consecutive writes as one batch
+     */
+    private Outcome[] execute(List<Request> group) {
+        Outcome[] outcomes = new Outcome[group.size()];
+        int i = 0;
+        while (i < group.size()) {
+            int runEnd = i;
+            while (runEnd < group.size() && group.get(runEnd).isWrite()) {
+                runEnd++;
+            }
+            if (runEnd - i >= 2) {
+                applyBatch(group.subList(i, runEnd), outcomes, i);
+                i = runEnd;
+            } else {
+                outcomes[i] = run(group.get(i));
+                i++;
+            }
+        }
+        return outcomes;
+    }
+
+    private void applyBatch(List<Request> writes, Outcome[] outcomes, int offset) {
+        List<ContactOperation> operations = new ArrayList<>(writes.size());
+        // The added contacts are stored as they are, so later writes in the batch would show in their replies
+        ContactRecord[] added = new ContactRecord[writes.size()];
+        for (int i = 0; i < writes.size(); i++) {
+            Request request = writes.get(i);
+            switch (request.kind) {
+                case ADD:
+                    operations.add(ContactOperation.add(request.contact));
+                    added[i] = request.contact.toRecord();
+                    break;
+                case UPDATE:
+                    operations.add(ContactOperation.update(request.contactId,
+                            request.fields[0], request.fields[1], request.fields[2], request.fields[3]));
+                    break;
+                default:
+                    operations.add(ContactOperation.delete(request.contactId));
+                    break;
+            }
+        }
+        BatchResult result;
+        try {
+            result = service.applyBatch(operations, BatchMode.BEST_EFFORT);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < writes.size(); i++) {
+                outcomes[offset + i] = failed(e);
+            }
+            return;
+        }
+        for (int i = 0; i < writes.size(); i++) {
+            Outcome outcome = new Outcome();
+            outcome.error = result.getError(i);
+            if (outcome.error == null) {
+                outcome.record = added[i];
+            }
+            outcomes[offset + i] = outcome;
+        }
+    }
+
+    private Outcome run(Request request) {
+        Outcome outcome = new Outcome();
+        if (request.error != null) {
+            outcome.error = request.error;
+            return outcome;
+        }
+        try {
+            switch (request.kind) {
+                case ADD:
+                    service.addContact(request.contact);
+                    outcome.record = request.contact.toRecord();
+                    break;
+                case GET:
+                    Contact found = service.getContact(request.contactId);
+                    outcome.record = found == null ? null : found.toRecord();
+                    break;
+                case UPDATE:
+                    service.updateContact(request.contactId, request.fields[0], request.fields[1], request.fields[2], request.fields[3]);
+                    break;
+                case DELETE:
+                    service.deleteContact(request.contactId);
+                    break;
+                case LIST:
+                    outcome.records = records(service.getContactsAfter(request.contactId, request.limit));
+                    break;
+                case ALL:
+                    outcome.records = records(service.getAllContacts());
+                    break;
+                case ADD_ALL:
+                    BatchResult added = service.addContacts(request.contacts);
+                    for (int i = 0; i < added.size() && outcome.error == null; i++) {
+                        outcome.error = added.getError(i);
+                    }
+                    break;
+                case DELETE_ALL:
+                    List<ContactOperation> deletes = new ArrayList<>(request.contactIds.size());
+                    for (String contactId : request.contactIds) {
+                        deletes.add(ContactOperation.delete(contactId));
+                    }
+                    service.applyBatch(deletes, BatchMode.BEST_EFFORT);
+                    break;
+                case FIND:
+                    outcome.records = records(new LocalContactShard("server", service).find(request.field, request.contactId, request.prefix));
+                    break;
+                default:
+                    outcome.count = service.size();
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            outcome.error = e.getMessage();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return outcome;
+    }
+
+    private static List<ContactRecord> records(List<Contact> contacts) {
+        List<ContactRecord> records = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            records.add(contact.toRecord());
+        }
+        return records;
+    }
+
+    private static Outcome failed(RuntimeException e) {
+        Outcome outcome = new Outcome();
+        outcome.error = String.valueOf(e);
+        outcome.failed = true;
+        return outcome;
+    }
+
+    /**
+     * HTTP/1.1 with keep-alive and Content-Length bodies
+     */
+    private static final class HttpCodec implements Codec {
+        private final InputStream in;
+        private final OutputStream out;
+        private final byte[] line;
+        private final String[] fields;
+
+        HttpCodec(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+            this.line = new byte[MAX_LINE_BYTES];
+            this.fields = new String[ContactJson.KEYS.length];
+        }
+
+        @Override
+        public Request read() throws IOException {
+            String requestLine = readLine();
+            while (requestLine != null && requestLine.isEmpty()) {
+                requestLine = readLine();    // Tolerate blank lines between requests
+            }
+            if (requestLine == null) {
+                return null;
+            }
+            Request request = new Request();
+            String[] parts = requestLine.split(" ");
+            int contentLength = 0;
+            boolean chunked = false;
+            boolean http10 = parts.length == 3 && parts[2].equals("HTTP/1.0");
+            request.keepAlive = !http10;
+            for (String header = readLine(); header != null && !header.isEmpty(); header = readLine()) {
+                int colon = header.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(colon + 1).trim();
+                if (name.equals("content-length")) {
+                    try {
+                        contentLength = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        contentLength = -1;
+                    }
+                } else if (name.equals("transfer-encoding")) {
+                    chunked = true;
+                } else if (name.equals("connection")) {
+                    String option = value.toLowerCase(Locale.ROOT);
+                    request.keepAlive = http10 ? option.equals("keep-alive") : !option.equals("close");
+                }
+            }
+            if (parts.length != 3 || !parts[2].startsWith("HTTP/1.") || contentLength < 0 || chunked) {
+                return reject(request, 400, "Malformed request; bodies need a Content-Length", false);
+            }
+            if (contentLength > MAX_BODY_BYTES) {
+                return reject(request, 413, "Request body is too large", false);
+            }
+            byte[] body = new byte[contentLength];
+            new DataInputStream(in).readFully(body);
+            route(request, parts[0], parts[1], body);
+            return request;
+        }
+
+        private void route(Request request, String method, String target, byte[] body) {
+            int query = target.indexOf('?');
+            String path = query < 0 ? target : target.substring(0, query);
+            if (path.equals("/contacts")) {
+                if (method.equals("POST")) {
+                    request.kind = Kind.ADD;
+                    String error = ContactJson.parseObject(body, 0, body.length, fields);
+                    if (error != null) {
+                        reject(request, 400, error, true);
+                        return;
+                    }
+                    try {
+                        request.contact = new Contact(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                    } catch (IllegalArgumentException e) {
+                        reject(request, 400, e.getMessage(), true);
+                    }
+                } else if (method.equals("GET")) {
+                    request.kind = Kind.LIST;
+                    request.limit = DEFAULT_PAGE;
+                    for (String parameter : query < 0 ? new String[0] : target.substring(query + 1).split("&")) {
+                        int equals = parameter.indexOf('=');
+                        String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                        String value = equals < 0 ? "" : decode(parameter.substring(equals + 1));
+                        if (name.equals("after")) {
+                            request.contactId = value;
+                        } else if (name.equals("limit")) {
+                            try {
+                                request.limit = Math.min(MAX_PAGE, Integer.parseInt(value));
+                            } catch (NumberFormatException e) {
+                                request.limit = 0;
+                            }
+                        }
+                    }
+                    if (request.limit <= 0) {
+                        reject(request, 400, "Page size must be positive", true);
+                    }
+                } else {
+                    reject(request, 405, "Method not allowed", true);
+                }
+            } else if (path.startsWith("/contacts/") && path.length() > "/contacts/".length()) {
+                request.contactId = decode(path.substring("/contacts/".length()));
+                if (method.equals("GET")) {
+                    request.kind = Kind.GET;
+                } else if (method.equals("DELETE")) {
+                    request.kind = Kind.DELETE;
+                } else if (method.equals("PUT") || method.equals("PATCH")) {
+                    request.kind = Kind.UPDATE;
+                    String error = ContactJson.parseObject(body, 0, body.length, fields);
+                    if (error != null) {
+                        reject(request, 400, error, true);
+                        return;
+                    }
+                    request.fields = new String[] {fields[1], fields[2], fields[3], fields[4]};
+                } else {
+                    reject(request, 405, "Method not allowed", true);
+                }
+            } else {
+                reject(request, 404, "Not found", true);
+            }
+        }
+
+        @Override
+        public void write(Request request, Outcome outcome) throws IOException {
+            StringBuilder body = new StringBuilder();
+            int status;
+            if (outcome.error != null) {
+                status = request.error != null ? request.errorStatus
+                        : outcome.failed ? 500
+                        : outcome.error.equals(NOT_FOUND) ? 404
+                        : outcome.error.equals(NOT_UNIQUE) ? 409
+                        : 400;
+                body.append("{\"error\":");
+                ContactJson.appendString(body, outcome.error);
+                body.append('}');
+            } else if (request.kind == Kind.GET && outcome.record == null) {
+                status = 404;
+                body.append("{\"error\":\"" + NOT_FOUND + "\"}");
+            } else if (outcome.record != null) {
+                status = request.kind == Kind.ADD ? 201 : 200;
+                ContactJson.appendContact(body, outcome.record);
+            } else if (outcome.records != null) {
+                status = 200;
+                body.append('[');
+                for (int i = 0; i < outcome.records.size(); i++) {
+                    if (i > 0) {
+                        body.append(',');
+                    }
+                    ContactJson.appendContact(body, outcome.records.get(i));
+                }
+                body.append(']');
+            } else {
+                status = 204;
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            StringBuilder head = new StringBuilder(128);
+            head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+            if (bytes.length > 0) {
+                head.append("Content-Type: application/json\r\n");
+            }
+            head.append("Content-Length: ").append(bytes.length).append("\r\n");
+            if (!request.keepAlive) {
+                head.append("Connection: close\r\n");
+            }
+            head.append("\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+        }
+
+        private static Request reject(Request request, int status, String message, boolean keepAlive) {
+            request.error = message;
+            request.errorStatus = status;
+            request.keepAlive &= keepAlive;
+            return request;
+        }
+
+        /**
+         * Reads one CRLF- or LF-terminated line as ISO-8859-1
+         * @return The line without its terminator, or null at end of stream before any byte
+         */
+        private String readLine() throws IOException {
+            int length = 0;
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    if (length == 0) {
+                        return null;
+                    }
+                    throw new EOFException("Connection closed mid-line");
+                }
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    throw new IOException("Request line or header too long");
+                }
+                line[length++] = (byte) b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        private static String decode(String text) {
+            try {
+                return URLDecoder.decode(text, StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return text;
+            }
+        }
+
+        private static String reason(int status) {
+            switch (status) {
+                case 200: return "OK";
+                case 201: return "Created";
+                case 204: return "No Content";
+                case 400: return "Bad Request";
+                case 404: return "Not Found";
+                case 405: return "Method Not Allowed";
+                case 409: return "Conflict";
+                case 413: return "Payload Too Large";
+                default: return "Internal Server Error";
+            }
+        }
+    }
+
+    /**
+     * ContactShardProtocol, as spoken by RemoteContactShard
+     */
+    private static final class BinaryCodec implements Codec {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        BinaryCodec(InputStream in, OutputStream out) {
+            this.in = new DataInputStream(in);
+            this.out = new DataOutputStream(out);
+        }
+
+        @Override
+        public Request read() throws IOException {
+            int opcode = in.read();
+            if (opcode < 0) {
+                return null;
+            }
+            Request request = new Request();
+            switch (opcode) {
+                case ContactShardProtocol.ADD:
+                    request.kind = Kind.ADD;
+                    request.contact = ContactShardProtocol.readContact(in);
+                    request.error = validate(request.contact);
+                    break;
+                case ContactShardProtocol.ADD_ALL:
+                    request.kind = Kind.ADD_ALL;
+                    request.contacts = ContactShardProtocol.readContacts(in, ContactShardProtocol.MAX_BATCH);
+                    for (Contact contact : request.contacts) {
+                        request.error = request.error != null ? request.error : validate(contact);
+                    }
+                    break;
+                case ContactShardProtocol.GET:
+                    request.kind = Kind.GET;
+                    request.contactId = ContactShardProtocol.readString(in);
+                    break;
+                case ContactShardProtocol.UPDATE:
+                    request.kind = Kind.UPDATE;
+                    request.contactId = ContactShardProtocol.readString(in);
+                    request.fields = new String[4];
+                    for (int i = 0; i < request.fields.length; i++) {
+                        request.fields[i] = ContactShardProtocol.readString(in);
+                    }
+                    break;
+                case ContactShardProtocol.DELETE:
+                    request.kind = Kind.DELETE;
+                    request.contactId = ContactShardProtocol.readString(in);
+                    break;
+                case ContactShardProtocol.DELETE_ALL:
+                    request.kind = Kind.DELETE_ALL;
+                    request.contactIds = ContactShardProtocol.readContactIds(in, ContactShardProtocol.MAX_BATCH);
+                    break;
+                case ContactShardProtocol.GET_ALL:
+                    request.kind = Kind.ALL;
+                    break;
+                case ContactShardProtocol.FIND:
+                    request.kind = Kind.FIND;
+                    int ordinal = in.readByte();
+                    if (ordinal < 0 || ordinal >= ContactField.values().length) {
+                        throw new IOException("Unknown field " + ordinal);
+                    }
+                    request.field = ContactField.values()[ordinal];
+                    request.prefix = in.readBoolean();
+                    request.contactId = ContactShardProtocol.readString(in);
+                    break;
+                case ContactShardProtocol.SIZE:
+                    request.kind = Kind.SIZE;
+                    break;
+                default:
+                    throw new IOException("Unknown opcode " + opcode);
+            }
+            return request;
+        }
+
+        @Override
+        public void write(Request request, Outcome outcome) throws IOException {
+            if (outcome.error != null) {
+                out.writeByte(outcome.failed ? ContactShardProtocol.FAILED : ContactShardProtocol.REJECTED);
+                out.writeUTF(outcome.error);
+                return;
+            }
+            out.writeByte(ContactShardProtocol.OK);
+            switch (request.kind) {
+                case GET:
+                    out.writeBoolean(outcome.record != null);
+                    if (outcome.record != null) {
+                        ContactShardProtocol.writeRecord(out, outcome.record);
+                    }
+                    break;
+                case ALL:
+                case FIND:
+                    ContactShardProtocol.writeRecords(out, outcome.records);
+                    break;
+                case SIZE:
+                    out.writeInt(outcome.count);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static String validate(Contact contact) {
+            try {
+                ContactShardProtocol.validate(contact);
+                return null;
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+    }
+}
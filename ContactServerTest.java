@@ -0,0 +1,200 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the ContactServer class over HTTP and the binary protocol
+ */
+public class ContactServerTest {
+    /**
+     * Sends raw HTTP requests on one connection and reads the given number of responses
+     * @return Each response's status line and body
+     */
+    private static List<String> http(int port, String requests, int responses) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(requests.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < responses; i++) {
+                String status = in.readLine();
+                int length = 0;
+                for (String header = in.readLine(); !header.isEmpty(); header = in.readLine()) {
+                    if (header.startsWith("Content-Length:")) {
+                        length = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                char[] body = new char[length];
+                int read = 0;
+                while (read < length) {
+                    read += in.read(body, read, length - read);
+                }
+                result.add(status + " " + new String(body));
+            }
+            return result;
+        }
+    }
+
+    private static String request(String method, String path, String body) {
+        return method + " " + path + " HTTP/1.1\r\nHost: test\r\n"
+                + (body == null ? "" : "Content-Type: application/json\r\nContent-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n")
+                + "\r\n" + (body == null ? "" : body);
+    }
+
+    @Test
+    public void testHttpCrud() throws IOException {
+        // Test add, get, update, delete and their error statuses over HTTP
+        ContactService service = new ContactService();
+        try (ContactServer server = new ContactServer(service, 0)) {
+            String john = "{\"contactId\":\"1\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"phone\":\"1234567890\",\"address\":\"123 Main St\"}";
+            List<String> responses = http(server.getPort(),
+                    request("POST", "/contacts", john)
+                    + request("POST", "/contacts", john)
+                    + request("GET", "/contacts/1", null)
+                    + request("PUT", "/contacts/1", "{\"firstName\":\"Jack\"}")
+                    + request("PATCH", "/contacts/1", "{\"phone\":\"12\"}")
+                    + request("GET", "/contacts/2", null)
+                    + request("DELETE", "/contacts/1", null)
+                    + request("DELETE", "/contacts/1", null)
+                    + request("POST", "/contacts", "{\"contactId\":\"2\"}")
+                    + request("POST", "/contacts", "not json"), 10);
+
+            assertEquals("HTTP/1.1 201 Created " + john, responses.get(0));
+            assertEquals("HTTP/1.1 409 Conflict {\"error\":\"Contact ID must be unique\"}", responses.get(1));
+            assertEquals("HTTP/1.1 200 OK " + john, responses.get(2));
+            assertEquals("HTTP/1.1 204 No Content ", responses.get(3));
+            assertEquals("HTTP/1.1 400 Bad Request {\"error\":\"Phone number cannot be null and must be exactly 10 digits\"}", responses.get(4));
+            assertEquals("HTTP/1.1 404 Not Found {\"error\":\"Contact ID not found\"}", responses.get(5));
+            assertEquals("HTTP/1.1 204 No Content ", responses.get(6));
+            assertEquals("HTTP/1.1 404 Not Found {\"error\":\"Contact ID not found\"}", responses.get(7));
+            assertEquals("HTTP/1.1 400 Bad Request {\"error\":\"First name cannot be null and must be 10 characters or less\"}", responses.get(8));
+            assertTrue(responses.get(9).startsWith("HTTP/1.1 400 Bad Request"));
+            assertNull(service.getContact("1"));
+        }
+    }
+
+    @Test
+    public void testHttpListPages() throws IOException {
+        // Test that GET /contacts pages through contacts in ID order
+        ContactService service = new ContactService();
+        for (String id : Arrays.asList("c", "a", "b", "d")) {
+            service.addContact(new Contact(id, "First", "Last", "1234567890", "1 \"Quoted\" St"));
+        }
+        try (ContactServer server = new ContactServer(service, 0)) {
+            List<String> responses = http(server.getPort(),
+                    request("GET", "/contacts?limit=2", null)
+                    + request("GET", "/contacts?after=b&limit=5", null)
+                    + request("GET", "/contacts?limit=0", null)
+                    + request("GET", "/other", null), 4);
+
+            assertTrue(responses.get(0).startsWith("HTTP/1.1 200 OK [{\"contactId\":\"a\""));
+            assertTrue(responses.get(0).contains("\"address\":\"1 \\\"Quoted\\\" St\""));
+            assertTrue(responses.get(0).contains("{\"contactId\":\"b\""));
+            assertFalse(responses.get(0).contains("\"c\""));
+            assertTrue(responses.get(1).startsWith("HTTP/1.1 200 OK [{\"contactId\":\"c\""));
+            assertTrue(responses.get(1).contains("{\"contactId\":\"d\""));
+            assertTrue(responses.get(2).startsWith("HTTP/1.1 400"));
+            assertTrue(responses.get(3).startsWith("HTTP/1.1 404"));
+        }
+    }
+
+    @Test
+    public void testPipelinedWritesBatchInOrder() throws IOException {
+        // Test that pipelined writes are applied in order, each reporting its own outcome
+        ContactService service = new ContactService();
+        try (ContactServer server = new ContactServer(service, 0)) {
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 50; i++) {
+                requests.append(request("POST", "/contacts", "{\"contactId\":\"" + i + "\",\"firstName\":\"F\",\"lastName\":\"L\",\"phone\":\"1234567890\",\"address\":\"A\"}"));
+            }
+            requests.append(request("PUT", "/contacts/7", "{\"lastName\":\"Changed\"}"));
+            requests.append(request("DELETE", "/contacts/8", null));
+            requests.append(request("DELETE", "/contacts/8", null));
+            requests.append(request("GET", "/contacts/7", null));
+            List<String> responses = http(server.getPort(), requests.toString(), 54);
+
+            for (int i = 0; i < 50; i++) {
+                assertTrue(responses.get(i).startsWith("HTTP/1.1 201"), responses.get(i));
+            }
+            // The reply to an add carries the contact as added, not as later requests changed it
+            assertTrue(responses.get(7).contains("\"lastName\":\"L\""), responses.get(7));
+            assertTrue(responses.get(50).startsWith("HTTP/1.1 204"));
+            assertTrue(responses.get(51).startsWith("HTTP/1.1 204"));
+            assertTrue(responses.get(52).startsWith("HTTP/1.1 404"));
+            assertTrue(responses.get(53).contains("\"lastName\":\"Changed\""));
+            assertEquals(49, service.size());
+        }
+    }
+
+    @Test
+    public void testBinaryProtocolServesRemoteShard() throws IOException {
+        // Test that a RemoteContactShard can use the server's binary protocol
+        ContactService service = new ContactService();
+        try (ContactServer server = new ContactServer(service, 0);
+             RemoteContactShard client = new RemoteContactShard("server", InetAddress.getLoopbackAddress(), server.getPort())) {
+            client.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            client.addContacts(Arrays.asList(new Contact("2", "Jane", "Doe", "5555555555", "1 Elm St"),
+                    new Contact("3", "Jim", "Roe", "5555555556", "2 Elm St")));
+            client.updateContact("2", null, "Smith", null, null);
+
+            assertEquals("Smith", service.getContact("2").getLastName());
+            assertEquals("John", client.getContact("1").getFirstName());
+            assertNull(client.getContact("9"));
+            assertEquals(3, client.size());
+            assertEquals(2, client.find(ContactField.PHONE, "55555", true).size());
+            assertThrows(IllegalArgumentException.class, () -> client.addContact(new Contact("1", "A", "B", "1234567890", "C")));
+            assertThrows(IllegalArgumentException.class, () -> client.updateContact("1", null, null, "bad", null));
+            client.deleteContacts(Arrays.asList("1", "3"));
+            assertEquals(1, client.getAllContacts().size());
+            client.deleteContact("2");
+            assertEquals(0, service.size());
+        }
+    }
+
+    @Test
+    public void testBinaryBatchSizeIsChecked() throws IOException {
+        // Test that a batch count above the limit drops the connection instead of sizing an allocation
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        try (ContactServer server = new ContactServer(service, 0)) {
+            for (int count : new int[] {Integer.MAX_VALUE, -1, ContactShardProtocol.MAX_BATCH + 1}) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeByte(ContactShardProtocol.DELETE_ALL);
+                    out.writeInt(count);
+                    out.flush();
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            try (RemoteContactShard client = new RemoteContactShard("server", InetAddress.getLoopbackAddress(), server.getPort())) {
+                List<Contact> many = new ArrayList<>();
+                for (int i = 0; i < ContactShardProtocol.MAX_BATCH + 10; i++) {
+                    many.add(new Contact("c" + i, "Jane", "Doe", "5555555555", "1 Elm St"));
+                }
+                client.addContacts(many);
+                assertEquals(ContactShardProtocol.MAX_BATCH + 11, client.size());
+            }
+            assertEquals("John", service.getContact("1").getFirstName());
+        }
+    }
+
+    @Test
+    public void testListensOnLoopbackByDefault() throws IOException {
+        // Test that the server binds the loopback address unless given another
+        try (ContactServer server = new ContactServer(new ContactService(), 0)) {
+            assertEquals(InetAddress.getLoopbackAddress(), server.getAddress());
+        }
+    }
+}
@@ -1,18 +1,209 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * ContactService class manages a collection of contacts with add, delete, and update operations.
- * Uses in-memory data structures to store contacts.
+ * Contacts live in a ContactStore. The default HeapContactStore is a concurrent hash table keyed
+ * by contact ID, so uniqueness checks, lookups, updates and deletes run in constant expected time.
+ * Insertion order is preserved. ColumnarContactStore packs contacts into fixed-width rows instead,
+ * and CachingContactStore keeps a bounded hot set in front of a slower store such as FileContactStore.
+ *
+ * The service is thread-safe. Reads never lock. Writes lock one stripe chosen by contact ID,
+ * so writes to different contacts proceed in parallel while writes to the same contact are
+ * serialized. An update replaces all changed fields in a single atomic step.
+ *
+ * Secondary indexes on first name, last name and phone are maintained under the same write
+ * lock and support exact and prefix searches without copying the contact list. A sorted ID
+ * index backs openCursor, getContactsAfter and streamContacts, which walk the contacts in ID
+ * order with constant memory instead of copying them like getAllContacts. A FuzzyIndex over the
+ * words of both names and the address backs fuzzySearch, which ranks contacts for misspelled
+ * or partial queries.
+ *
+ * applyBatch runs many operations with one validation pass and one lock acquisition per stripe,
+ * reporting a result per operation instead of stopping at the first invalid one.
+ * addContacts loads many new contacts the same way for bulk imports; see ContactImporter.
+ *
+ * A service created with open() is durable: every mutation is appended to a
+ * ContactWriteAheadLog before it is applied, and reopening the log rebuilds the contacts.
+ *
+ * Every public operation is counted and timed; getMetrics() reports the results.
+ *
+ * snapshot() gives long-running readers a point-in-time view: writers keep the versions an
+ * open snapshot needs, so the snapshot reads without locking and never sees a later write.
+ *
+ * getChangeFeed() publishes every later add, update and delete as a numbered ContactChange
+ * that subscribers read from a ring buffer at their own pace.
+ *
+ * writeSnapshot saves the contacts to a ContactSnapshotFile in the background, and
+ * openSnapshot maps one back without decoding it. A service over a store that already holds
+ * contacts builds its secondary indexes on the first search rather than at startup.
  */
-public class ContactService {
-    private List<Contact> contacts;
+public class ContactService implements Closeable {
+    private static final int STRIPES = stripeCount();
+    private static final int INDEX_CATCH_UP_UNDER_LOCK = 1024;    // Most backlogged changes ensureIndexed applies with every stripe locked
+    private static final int INDEX_CATCH_UP_ROUNDS = 8;    // Catch-up rounds before the rest is applied under lock anyway
+
+    private final ContactStore store;
+    private final ReentrantLock[] locks;
+    private final FieldIndex firstNameIndex;
+    private final FieldIndex lastNameIndex;
+    private final PhoneIndex phoneIndex;
+    private final ContactIdIndex idIndex;
+    private final FuzzyIndex fuzzyIndex;
+    private final ContactIndex[] indexes;
+    private final ContactMetrics metrics;
+    private final ContactVersions versions;
+    private volatile boolean indexed;    // False until the secondary indexes cover the stored contacts
+    private final ReentrantLock indexBuild;    // Held while ensureIndexed builds the indexes
+    private volatile Map<String, Optional<ContactRecord>> indexBacklog;    // While indexes build: each contact changed since, with its fields before the first change
+    private volatile ContactChangeFeed changeFeed;    // Null until first requested
+    private ContactWriteAheadLog log;    // Null for an in-memory service; set once by open()
+    private final InternTable strings;    // Null unless names and addresses are interned
+    private final ConcurrentHashMap<String, Long> versionStamps;    // Nonzero versions by ID; null when the store keeps Contact objects, whose records carry them
+    private final AtomicLong deletions;    // A contact added after n deletes starts at version n << 32, so a re-added ID never repeats a version
 
     /**
-     * Constructor initializes the contact list
+     * Constructor initializes an empty in-memory contact store
      */
     public ContactService() {
-        this.contacts = new ArrayList<>();
+        this(new HeapContactStore());
+    }
+
+    /**
+     * Constructor for a service backed by a specific storage engine
+     * @param store A contact store, empty or already holding contacts
+     * @throws IllegalArgumentException if store is null
+     */
+    public ContactService(ContactStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Constructor for a service that stores one shared instance of each distinct first name,
+     * last name and address. Getters return equal strings either way; interning trades a table
+     * lookup per write for less heap when values repeat across contacts.
+     * @param store A contact store, empty or already holding contacts
+     * @param strings The intern table, such as InternTable.shared(), or null not to intern
+     * @throws IllegalArgumentException if store is null
+     */
+    public ContactService(ContactStore store, InternTable strings) {
+        if (store == null) {
+            throw new IllegalArgumentException("Contact store cannot be null");
+        }
+        this.store = store;
+        this.locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.firstNameIndex = new FieldIndex(ContactRecord::getFirstName);
+        this.lastNameIndex = new FieldIndex(ContactRecord::getLastName);
+        this.phoneIndex = new PhoneIndex();
+        this.idIndex = new ContactIdIndex();
+        this.fuzzyIndex = new FuzzyIndex();
+        this.indexes = new ContactIndex[] {firstNameIndex, lastNameIndex, phoneIndex, idIndex, fuzzyIndex};
+        this.indexed = store.size() == 0;
+        this.indexBuild = new ReentrantLock();
+        this.metrics = new ContactMetrics();
+        this.versions = new ContactVersions();
+        this.strings = strings;
+        this.versionStamps = store.sharesContacts() ? null : new ConcurrentHashMap<>();
+        this.deletions = new AtomicLong();
+    }
+
+    /**
+     * Opens an in-memory service over a snapshot written by writeSnapshot. The file is mapped,
+     * not read, so startup time does not depend on the number of contacts.
+     * @param snapshotFile The snapshot file
+     * @return The service; changes are kept in memory and do not modify the file
+     * @throws IOException if the file cannot be mapped or is not a contact snapshot
+     */
+    public static ContactService openSnapshot(Path snapshotFile) throws IOException {
+        return new ContactService(MappedContactStore.open(snapshotFile));
+    }
+
+    /**
+     * Writes every contact to a snapshot file on a background thread. Writers are not blocked;
+     * each contact is captured in a consistent state and written once, but changes made while
+     * the snapshot runs may or may not be included.
+     * @param snapshotFile The snapshot file to create or replace
+     * @return Completes with the number of contacts written, or exceptionally if writing fails
+     * @throws IllegalArgumentException if snapshotFile is null
+     */
+    public CompletableFuture<Integer> writeSnapshot(Path snapshotFile) {
+        if (snapshotFile == null) {
+            throw new IllegalArgumentException("Snapshot file cannot be null");
+        }
+        CompletableFuture<Integer> written = new CompletableFuture<>();
+        Thread writer = new Thread(() -> {
+            try {
+                written.complete(ContactSnapshotFile.write(store.iterator(), snapshotFile));
+            } catch (Throwable e) {
+                written.completeExceptionally(e);
+            }
+        }, "contact-snapshot");
+        writer.setDaemon(true);
+        writer.start();
+        return written;
+    }
+
+    /**
+     * Opens a durable in-memory service backed by a write-ahead log
+     * @see #open(ContactStore, Path, FsyncPolicy)
+     */
+    public static ContactService open(Path logFile, FsyncPolicy policy) throws IOException {
+        return open(new HeapContactStore(), logFile, policy);
+    }
+
+    /**
+     * Opens a durable service. The log is replayed into the store to rebuild the contacts as
+     * of the last intact record, then every later mutation is logged before it is applied.
+     * A mutation returns once its log record is durable under the given policy.
+     * @param store A contact store holding the state the log starts from, usually empty
+     * @param logFile The write-ahead log file, created if missing
+     * @param policy When log records are forced to disk
+     * @return The recovered service; close it to release the log
+     * @throws IOException if the log cannot be opened
+     */
+    public static ContactService open(ContactStore store, Path logFile, FsyncPolicy policy) throws IOException {
+        ContactService service = new ContactService(store);
+        service.log = ContactWriteAheadLog.open(logFile, policy, service::replay);
+        return service;
+    }
+
+    /**
+     * Closes the write-ahead log, if any, after forcing it to disk, then the store if it holds resources
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } finally {
+            if (store instanceof Closeable) {
+                ((Closeable) store).close();
+            }
+        }
     }
 
     /**
@@ -21,18 +212,89 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID already exists
      */
     public void addContact(Contact contact) {
-        if (contact == null) {
-            throw new IllegalArgumentException("Contact cannot be null");
+        tryAdd(contact).throwIfFailed();
+    }
+
+    /**
+     * Adds a new contact with unique ID, reporting a rejection as a status instead of an
+     * exception, for workloads where rejections are common
+     * @param contact The contact to add
+     * @return OK, NULL_CONTACT, DUPLICATE_ID or ALREADY_STORED
+     */
+    public ContactStatus tryAdd(Contact contact) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (contact == null) {
+                return ContactStatus.NULL_CONTACT;
+            }
+            
+            String contactId = contact.getContactId();
+            long position;
+            ReentrantLock lock = lockFor(contactId);
+            lock.lock();
+            try {
+                ContactStatus status = checkAdd(contact, store.contains(contactId));
+                if (status != ContactStatus.OK) {
+                    return status;
+                }
+                position = addLocked(contact);
+            } finally {
+                lock.unlock();
+            }
+            awaitLog(position);
+            succeeded = true;
+            return ContactStatus.OK;
+        } finally {
+            metrics.record(ContactMetrics.Operation.ADD, start, succeeded);
         }
-        
-        // Check for unique ID
-        for (Contact existingContact : contacts) {
-            if (existingContact.getContactId().equals(contact.getContactId())) {
-                throw new IllegalArgumentException("Contact ID must be unique");
+    }
+
+    /**
+     * Adds many new contacts in one step, for bulk imports. Every stripe lock is taken once for
+     * the whole call, and each contact is checked against the stored contacts and the earlier
+     * contacts in the list as it is added, so duplicate IDs are found in a single pass. When the
+     * service is empty, secondary index maintenance is skipped and the indexes are built on the
+     * first search or page instead, as for a service opened over existing contacts.
+     * @param contacts The contacts to add, in order
+     * @return The outcome of each contact; a contact whose ID is already taken is rejected and the rest are added
+     * @throws IllegalArgumentException if contacts is null
+     */
+    public BatchResult addContacts(List<Contact> contacts) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (contacts == null) {
+                throw new IllegalArgumentException("Contacts cannot be null");
             }
+            String[] errors = new String[contacts.size()];
+            long position = 0;
+            lockAll();
+            try {
+                if (store.size() == 0 && !versions.isTracking()) {
+                    // The indexes are empty too, so ensureIndexed can rebuild them from the store later
+                    indexed = false;
+                }
+                int i = 0;
+                for (Contact contact : contacts) {
+                    ContactStatus status = contact == null ? ContactStatus.NULL_CONTACT
+                            : checkAdd(contact, store.contains(contact.getContactId()));
+                    if (status == ContactStatus.OK) {
+                        position = addLocked(contact);
+                    } else {
+                        errors[i] = status.getMessage();
+                    }
+                    i++;
+                }
+            } finally {
+                unlockAll();
+            }
+            awaitLog(position);
+            succeeded = true;
+            return new BatchResult(errors, true);
+        } finally {
+            metrics.record(ContactMetrics.Operation.BULK_ADD, start, succeeded);
         }
-        
-        contacts.add(contact);
     }
 
     /**
@@ -41,27 +303,44 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID is not found
      */
     public void deleteContact(String contactId) {
-        if (contactId == null) {
-            throw new IllegalArgumentException("Contact ID cannot be null");
-        }
-        
-        Contact contactToRemove = null;
-        for (Contact contact : contacts) {
-            if (contact.getContactId().equals(contactId)) {
-                contactToRemove = contact;
-                break;
+        tryDelete(contactId).throwIfFailed();
+    }
+
+    /**
+     * Deletes a contact by contact ID, reporting a rejection as a status instead of an exception
+     * @param contactId The ID of the contact to delete
+     * @return OK, NULL_CONTACT_ID or NOT_FOUND
+     */
+    public ContactStatus tryDelete(String contactId) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (contactId == null) {
+                return ContactStatus.NULL_CONTACT_ID;
             }
+            
+            long position;
+            ReentrantLock lock = lockFor(contactId);
+            lock.lock();
+            try {
+                if (!store.contains(contactId)) {
+                    return ContactStatus.NOT_FOUND;
+                }
+                position = deleteLocked(contactId);
+            } finally {
+                lock.unlock();
+            }
+            awaitLog(position);
+            succeeded = true;
+            return ContactStatus.OK;
+        } finally {
+            metrics.record(ContactMetrics.Operation.DELETE, start, succeeded);
         }
-        
-        if (contactToRemove == null) {
-            throw new IllegalArgumentException("Contact ID not found");
-        }
-        
-        contacts.remove(contactToRemove);
     }
 
     /**
-     * Updates contact fields by contact ID
+     * Updates contact fields by contact ID. All provided fields are validated first and then
+     * applied together, so either every field changes or none does.
      * @param contactId The ID of the contact to update
      * @param firstName New first name (can be null to skip update)
      * @param lastName New last name (can be null to skip update)
@@ -70,34 +349,514 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID is not found
      */
     public void updateContact(String contactId, String firstName, String lastName, String phone, String address) {
-        if (contactId == null) {
-            throw new IllegalArgumentException("Contact ID cannot be null");
+        tryUpdate(contactId, firstName, lastName, phone, address).throwIfFailed();
+    }
+
+    /**
+     * Stores every field of a record, such as one read by getRecord and changed with its with
+     * methods, as the new state of the contact with the record's ID
+     * @param record The contact's new fields
+     * @throws IllegalArgumentException if record is null or no contact has its ID
+     */
+    public void updateContact(ContactRecord record) {
+        if (record == null) {
+            throw new IllegalArgumentException("Contact cannot be null");
         }
-        
-        Contact contactToUpdate = null;
-        for (Contact contact : contacts) {
-            if (contact.getContactId().equals(contactId)) {
-                contactToUpdate = contact;
-                break;
+        tryUpdate(record.getContactId(), record.getFirstName(), record.getLastName(), record.getPhone(), record.getAddress())
+                .throwIfFailed();
+    }
+
+    /**
+     * Updates contact fields by contact ID as updateContact does, reporting a rejection as a
+     * status instead of an exception, for workloads where rejections are common
+     * @param contactId The ID of the contact to update
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @return OK, NULL_CONTACT_ID, NOT_FOUND or the status of the first invalid field
+     */
+    public ContactStatus tryUpdate(String contactId, String firstName, String lastName, String phone, String address) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (contactId == null) {
+                return ContactStatus.NULL_CONTACT_ID;
+            }
+            
+            long position;
+            ReentrantLock lock = lockFor(contactId);
+            lock.lock();
+            try {
+                if (!store.contains(contactId)) {
+                    return ContactStatus.NOT_FOUND;
+                }
+            
+                // Validate every provided field before changing anything (null values skip the update)
+                ContactField invalid = ContactValidator.firstUpdateViolation(firstName, lastName, phone, address);
+                if (invalid != null) {
+                    ContactValidator.reject(invalid);
+                    return ContactStatus.invalid(invalid);
+                }
+            
+                position = applyLocked(contactId, firstName, lastName, phone, address);
+            } finally {
+                lock.unlock();
             }
+            awaitLog(position);
+            succeeded = true;
+            return ContactStatus.OK;
+        } finally {
+            metrics.record(ContactMetrics.Operation.UPDATE, start, succeeded);
+        }
+    }
+
+    /**
+     * Gets a stored contact's version, which every update of the contact increments. Pass it to
+     * updateIfVersion to update only if no other update has happened since it was read. A
+     * contact deleted and added again starts above every version it had before, so a version
+     * read before the delete never matches the new contact.
+     * @param contactId The contact ID
+     * @return The version, or -1 if no contact has the ID
+     */
+    public long getVersion(String contactId) {
+        Contact contact = contactId == null ? null : store.get(contactId);
+        return contact == null ? -1 : versionOf(contactId, contact.toRecord());
+    }
+
+    /**
+     * Updates contact fields as tryUpdate does, but only if the contact is still at an expected
+     * version, so concurrent editors can detect lost updates and retry instead of overwriting
+     * each other. The version check and the update are one atomic step; a stale version is
+     * detected without taking any lock, and a current one costs the same as a plain update.
+     * @param contactId The ID of the contact to update
+     * @param expectedVersion The version read by getVersion before computing the new values
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @return OK, CONFLICT if the contact changed since expectedVersion, NULL_CONTACT_ID,
+     *         NOT_FOUND or the status of the first invalid field
+     */
+    public ContactStatus updateIfVersion(String contactId, long expectedVersion,
+                                         String firstName, String lastName, String phone, String address) {
+        return conditionalUpdate(contactId, (id, record) -> versionOf(id, record) == expectedVersion,
+                firstName, lastName, phone, address);
+    }
+
+    /**
+     * Sets one field only if it still holds an expected value, atomically with respect to every
+     * other update of the contact
+     * @param contactId The ID of the contact to update
+     * @param field The field to set; the contact ID cannot be changed
+     * @param expected The value the field must hold
+     * @param update The new value
+     * @return OK, CONFLICT if the field does not hold expected, NULL_CONTACT_ID, NOT_FOUND or
+     *         the status of an invalid update
+     * @throws IllegalArgumentException if field is null or CONTACT_ID
+     */
+    public ContactStatus compareAndSet(String contactId, ContactField field, String expected, String update) {
+        if (field == null || field == ContactField.CONTACT_ID) {
+            throw new IllegalArgumentException("Only first name, last name, phone and address can be set");
+        }
+        if (update == null) {
+            ContactValidator.reject(field);
+            return ContactStatus.invalid(field);
+        }
+        return conditionalUpdate(contactId, (id, record) -> Objects.equals(fieldOf(record, field), expected),
+                field == ContactField.FIRST_NAME ? update : null,
+                field == ContactField.LAST_NAME ? update : null,
+                field == ContactField.PHONE ? update : null,
+                field == ContactField.ADDRESS ? update : null);
+    }
+
+    /**
+     * Applies an update if the contact's current fields pass a check. The check runs first
+     * without a lock so failures never contend, then again under the stripe lock, where it and
+     * the update are atomic.
+     */
+    private ContactStatus conditionalUpdate(String contactId, BiPredicate<String, ContactRecord> check,
+                                            String firstName, String lastName, String phone, String address) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (contactId == null) {
+                return ContactStatus.NULL_CONTACT_ID;
+            }
+            ContactField invalid = ContactValidator.firstUpdateViolation(firstName, lastName, phone, address);
+            if (invalid != null) {
+                ContactValidator.reject(invalid);
+                return ContactStatus.invalid(invalid);
+            }
+            Contact current = store.get(contactId);
+            if (current == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            if (!check.test(contactId, current.toRecord())) {
+                return ContactStatus.CONFLICT;
+            }
+
+            long position;
+            ReentrantLock lock = lockFor(contactId);
+            lock.lock();
+            try {
+                current = store.get(contactId);
+                if (current == null) {
+                    return ContactStatus.NOT_FOUND;
+                }
+                if (!check.test(contactId, current.toRecord())) {
+                    return ContactStatus.CONFLICT;
+                }
+                position = applyLocked(contactId, firstName, lastName, phone, address);
+            } finally {
+                lock.unlock();
+            }
+            awaitLog(position);
+            succeeded = true;
+            return ContactStatus.OK;
+        } finally {
+            metrics.record(ContactMetrics.Operation.UPDATE, start, succeeded);
+        }
+    }
+
+    /**
+     * Gets a stored contact's version from its record or, for stores that rebuild records, the stamps
+     */
+    private long versionOf(String contactId, ContactRecord record) {
+        return versionStamps == null ? record.getVersion() : versionStamps.getOrDefault(contactId, 0L);
+    }
+
+    private static String fieldOf(ContactRecord record, ContactField field) {
+        switch (field) {
+            case FIRST_NAME:
+                return record.getFirstName();
+            case LAST_NAME:
+                return record.getLastName();
+            case PHONE:
+                return record.getPhone();
+            case ADDRESS:
+                return record.getAddress();
+            default:
+                return record.getContactId();
+        }
+    }
+
+    /**
+     * Applies validated changes made through a stored contact's own setters
+     * @return false if the contact is no longer stored by this service
+     */
+    boolean applyUpdate(Contact contact, String firstName, String lastName, String phone, String address) {
+        long start = System.nanoTime();
+        String contactId = contact.getContactId();
+        long position;
+        ReentrantLock lock = lockFor(contactId);
+        lock.lock();
+        try {
+            if (store.get(contactId) != contact) {
+                return false;
+            }
+            position = applyLocked(contactId, firstName, lastName, phone, address);
+        } finally {
+            lock.unlock();
+        }
+        awaitLog(position);
+        metrics.record(ContactMetrics.Operation.UPDATE, start, true);
+        return true;
+    }
+
+    /**
+     * Applies a batch of operations in order. Every operation is validated up front against the
+     * stored contacts and the effects of earlier operations in the same batch, then all valid
+     * operations are applied in one pass. The batch holds the write locks of every stripe it
+     * touches while it runs, so concurrent writers never see it partially applied.
+     * @param operations The operations to run, in order
+     * @param mode Whether to apply nothing (ALL_OR_NOTHING) or only the valid operations (BEST_EFFORT)
+     *             when some operations are invalid
+     * @return The outcome of each operation
+     * @throws IllegalArgumentException if operations or mode is null
+     */
+    public BatchResult applyBatch(List<ContactOperation> operations, BatchMode mode) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            BatchResult result = runBatch(operations, mode);
+            succeeded = true;
+            return result;
+        } finally {
+            metrics.record(ContactMetrics.Operation.BATCH, start, succeeded);
+        }
+    }
+
+    private BatchResult runBatch(List<ContactOperation> operations, BatchMode mode) {
+        if (operations == null) {
+            throw new IllegalArgumentException("Operations cannot be null");
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("Batch mode cannot be null");
         }
         
-        if (contactToUpdate == null) {
-            throw new IllegalArgumentException("Contact ID not found");
+        ContactOperation[] batch = operations.toArray(new ContactOperation[0]);
+        String[] errors = new String[batch.length];
+        boolean[] stripes = new boolean[STRIPES];
+        for (int i = 0; i < batch.length; i++) {
+            errors[i] = checkOperation(batch[i]);
+            if (errors[i] == null) {
+                stripes[stripeOf(batch[i].getContactId())] = true;
+            }
         }
         
-        // Update fields if provided (null values skip the update)
-        if (firstName != null) {
-            contactToUpdate.setFirstName(firstName);
+        long position = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            if (stripes[i]) {
+                locks[i].lock();
+            }
         }
-        if (lastName != null) {
-            contactToUpdate.setLastName(lastName);
+        try {
+            // Track existence changes made by earlier operations in this batch
+            Map<String, Boolean> present = new HashMap<>();
+            boolean rejected = false;
+            for (int i = 0; i < batch.length; i++) {
+                if (errors[i] == null) {
+                    errors[i] = checkExistence(batch[i], present);
+                }
+                rejected |= errors[i] != null;
+            }
+            if (rejected && mode == BatchMode.ALL_OR_NOTHING) {
+                return new BatchResult(errors, false);
+            }
+            
+            for (int i = 0; i < batch.length; i++) {
+                if (errors[i] == null) {
+                    ContactOperation operation = batch[i];
+                    switch (operation.getType()) {
+                        case ADD:
+                            position = addLocked(operation.getContact());
+                            break;
+                        case UPDATE:
+                            position = applyLocked(operation.getContactId(), operation.getFirstName(),
+                                    operation.getLastName(), operation.getPhone(), operation.getAddress());
+                            break;
+                        default:
+                            position = deleteLocked(operation.getContactId());
+                            break;
+                    }
+                }
+            }
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                if (stripes[i]) {
+                    locks[i].unlock();
+                }
+            }
+        }
+        awaitLog(position);
+        return new BatchResult(errors, true);
+    }
+
+    /**
+     * Checks the parts of an operation that do not depend on stored contacts
+     * @return The error message, or null if the operation is well formed
+     */
+    private static String checkOperation(ContactOperation operation) {
+        if (operation == null) {
+            return "Operation cannot be null";
         }
-        if (phone != null) {
-            contactToUpdate.setPhone(phone);
+        if (operation.getType() == ContactOperation.Type.ADD) {
+            return operation.getContact() == null ? "Contact cannot be null" : null;
         }
-        if (address != null) {
-            contactToUpdate.setAddress(address);
+        if (operation.getContactId() == null) {
+            return "Contact ID cannot be null";
+        }
+        if (operation.getType() == ContactOperation.Type.UPDATE) {
+            ContactField invalid = ContactValidator.firstUpdateViolation(operation.getFirstName(),
+                    operation.getLastName(), operation.getPhone(), operation.getAddress());
+            return invalid == null ? null : ContactValidator.reject(invalid);
+        }
+        return null;
+    }
+
+    /**
+     * Checks an operation against stored contacts and earlier operations in the batch. Must hold the stripe lock.
+     * @return The error message, or null if the operation can be applied
+     */
+    private String checkExistence(ContactOperation operation, Map<String, Boolean> present) {
+        String contactId = operation.getContactId();
+        Boolean known = present.get(contactId);
+        boolean exists = known != null ? known : store.contains(contactId);
+        switch (operation.getType()) {
+            case ADD:
+                ContactStatus status = checkAdd(operation.getContact(), exists);
+                if (status != ContactStatus.OK) {
+                    return status.getMessage();
+                }
+                present.put(contactId, Boolean.TRUE);
+                return null;
+            case UPDATE:
+                return exists ? null : "Contact ID not found";
+            default:
+                if (!exists) {
+                    return "Contact ID not found";
+                }
+                present.put(contactId, Boolean.FALSE);
+                return null;
+        }
+    }
+
+    /**
+     * Checks whether a contact can be added, the same way on every add path and for every store.
+     * A contact another service stores is rejected even when this service would only copy it.
+     * @param exists Whether the contact's ID is already taken
+     * @return OK, DUPLICATE_ID or ALREADY_STORED
+     */
+    private static ContactStatus checkAdd(Contact contact, boolean exists) {
+        if (exists) {
+            return ContactStatus.DUPLICATE_ID;
+        }
+        if (contact.isAttached()) {
+            return ContactStatus.ALREADY_STORED;
+        }
+        return ContactStatus.OK;
+    }
+
+    /**
+     * Stores a contact whose ID is known to be free. Must hold the stripe lock.
+     * @return The log position to wait for
+     */
+    private long addLocked(Contact contact) {
+        long firstVersion = deletions.get() << 32;
+        ContactRecord record;
+        if (store.sharesContacts()) {
+            record = contact.attach(this, strings, firstVersion);
+        } else {
+            record = strings == null ? contact.toRecord() : contact.toRecord().interned(strings);
+        }
+        long position;
+        try {
+            position = log == null ? 0 : log.appendAdd(record);
+        } catch (RuntimeException e) {
+            if (store.sharesContacts()) {
+                contact.detach();
+            }
+            throw e;
+        }
+        if (versions.isTracking()) {
+            versions.saveVersion(record.getContactId(), null);
+        }
+        if (versionStamps != null && firstVersion != 0) {
+            versionStamps.put(record.getContactId(), firstVersion);
+        }
+        store.insert(contact);
+        if (indexed) {
+            for (ContactIndex index : indexes) {
+                index.added(record);
+            }
+        } else {
+            noteIndexChange(record.getContactId(), null);
+        }
+        ContactChangeFeed feed = changeFeed;
+        if (feed != null) {
+            feed.added(record);
+        }
+        return position;
+    }
+
+    /**
+     * Removes a contact known to be stored. Must hold the stripe lock.
+     * @return The log position to wait for
+     */
+    private long deleteLocked(String contactId) {
+        long position = log == null ? 0 : log.appendDelete(contactId);
+        boolean tracking = versions.isTracking();
+        if (tracking) {
+            versions.retire(contactId, versions.saveVersion(contactId, store.get(contactId).toRecord()));
+        }
+        Contact stored = store.sharesContacts() ? store.get(contactId) : null;
+        ContactRecord record = store.remove(contactId);
+        if (versionStamps != null) {
+            versionStamps.remove(contactId);
+        }
+        deletions.incrementAndGet();
+        if (stored != null) {
+            stored.detach();
+        }
+        if (indexed) {
+            for (ContactIndex index : indexes) {
+                // Open snapshots walk the ID index, so a deleted ID stays until none needs it
+                if (index != idIndex || !tracking) {
+                    index.removed(record);
+                }
+            }
+        } else {
+            noteIndexChange(contactId, record);
+        }
+        ContactChangeFeed feed = changeFeed;
+        if (feed != null) {
+            feed.removed(record);
+        }
+        return position;
+    }
+
+    /**
+     * Updates a stored contact with validated values. Must hold the stripe lock.
+     * @return The log position to wait for
+     */
+    private long applyLocked(String contactId, String firstName, String lastName, String phone, String address) {
+        if (strings != null) {
+            firstName = strings.intern(firstName);
+            lastName = strings.intern(lastName);
+            address = strings.intern(address);
+        }
+        long position = log == null ? 0 : log.appendUpdate(contactId, firstName, lastName, phone, address);
+        if (versions.isTracking()) {
+            versions.saveVersion(contactId, store.get(contactId).toRecord());
+        }
+        ContactRecord before = store.update(contactId, firstName, lastName, phone, address);
+        if (versionStamps != null) {
+            versionStamps.merge(contactId, 1L, Long::sum);
+        }
+        if (!indexed) {
+            noteIndexChange(contactId, before);
+        }
+        ContactChangeFeed feed = changeFeed;
+        if (indexed || feed != null) {
+            ContactRecord after = before.merge(firstName, lastName, phone, address);
+            if (indexed) {
+                for (ContactIndex index : indexes) {
+                    index.updated(before, after);
+                }
+            }
+            if (feed != null) {
+                feed.updated(before, after);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Applies one logged operation while the log is being replayed
+     */
+    private void replay(ContactOperation operation) {
+        switch (operation.getType()) {
+            case ADD:
+                addLocked(operation.getContact());
+                break;
+            case UPDATE:
+                applyLocked(operation.getContactId(), operation.getFirstName(), operation.getLastName(),
+                        operation.getPhone(), operation.getAddress());
+                break;
+            default:
+                deleteLocked(operation.getContactId());
+                break;
+        }
+    }
+
+    /**
+     * Waits for a logged mutation to become durable. Called after releasing the stripe lock so
+     * other writers can join the same group commit.
+     */
+    private void awaitLog(long position) {
+        if (log != null && position > 0) {
+            log.await(position);
         }
     }
 
@@ -107,24 +866,519 @@ public class ContactService {
      * @return The contact with the specified ID, or null if not found
      */
     public Contact getContact(String contactId) {
-        if (contactId == null) {
-            return null;
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Contact contact = contactId == null ? null : store.get(contactId);
+            succeeded = true;
+            return contact;
+        } finally {
+            metrics.record(ContactMetrics.Operation.GET, start, succeeded);
         }
-        
-        for (Contact contact : contacts) {
-            if (contact.getContactId().equals(contactId)) {
-                return contact;
-            }
+    }
+
+    /**
+     * Gets a contact's current fields as an immutable record. Unlike the Contact returned by
+     * getContact, the record never changes, so it can be cached or shared across threads
+     * without a defensive copy; later updates publish new records instead.
+     * @param contactId The contact ID
+     * @return The contact's fields, or null if not found
+     */
+    public ContactRecord getRecord(String contactId) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Contact contact = contactId == null ? null : store.get(contactId);
+            succeeded = true;
+            return contact == null ? null : contact.toRecord();
+        } finally {
+            metrics.record(ContactMetrics.Operation.GET, start, succeeded);
         }
-        return null;
     }
 
     /**
-     * Gets all contacts
-     * @return List of all contacts
+     * Gets all contacts. Copies every contact; use openCursor or streamContacts to walk large books.
+     * @return List of all contacts in insertion order
      */
     public List<Contact> getAllContacts() {
-        return new ArrayList<>(contacts);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            List<Contact> all = new ArrayList<>(store.size());
+            for (Iterator<Contact> it = store.iterator(); it.hasNext(); ) {
+                all.add(it.next());
+            }
+            succeeded = true;
+            return all;
+        } finally {
+            metrics.record(ContactMetrics.Operation.GET_ALL, start, succeeded);
+        }
+    }
+
+    /**
+     * Gets the number of stored contacts without copying them
+     * @return The contact count
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Takes a snapshot of this service's metrics: call counts, failures and latency percentiles
+     * per operation, validation failures per field, and the contact count and estimated memory
+     * @return The metrics as of now; call toPrometheusText() on it to export them
+     */
+    public ContactMetricsSnapshot getMetrics() {
+        long indexBytes = firstNameIndex.estimatedBytes() + lastNameIndex.estimatedBytes()
+                + phoneIndex.estimatedBytes() + idIndex.estimatedBytes() + fuzzyIndex.estimatedBytes();
+        return new ContactMetricsSnapshot(metrics, store.size(), store.estimatedBytes() + indexBytes);
+    }
+
+    /**
+     * Opens a cursor over contacts in ascending ID order
+     * @param afterContactId The ID to start after, such as a previous cursor's position, or null to start at the first contact
+     * @return A cursor that reads contacts as it advances
+     */
+    public ContactCursor openCursor(String afterContactId) {
+        ensureIndexed();
+        return new ContactCursor(idIndex.after(afterContactId).iterator(), store);
+    }
+
+    /**
+     * Gets one page of contacts in ascending ID order (keyset pagination). Pass the ID of the
+     * last contact on a page to get the next page; a page costs O(log n + limit) however deep it is.
+     * @param afterContactId The ID to start after, or null for the first page
+     * @param limit The maximum number of contacts to return
+     * @return Up to limit contacts with IDs greater than afterContactId
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public List<Contact> getContactsAfter(String afterContactId, int limit) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Page size must be positive");
+            }
+            ContactCursor cursor = openCursor(afterContactId);
+            List<Contact> page = new ArrayList<>(Math.min(limit, 1024));
+            while (page.size() < limit && cursor.hasNext()) {
+                page.add(cursor.next());
+            }
+            succeeded = true;
+            return page;
+        } finally {
+            metrics.record(ContactMetrics.Operation.PAGE, start, succeeded);
+        }
+    }
+
+    /**
+     * Streams contacts in ascending ID order without copying them. The stream can be made
+     * parallel; it splits by ID range. Like a ContactCursor, it never blocks writers and returns
+     * each contact stored for the whole walk exactly once.
+     * @return A stream of the stored contacts
+     */
+    public Stream<Contact> streamContacts() {
+        ensureIndexed();
+        return idIndex.after(null).stream().map(store::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Finds contacts by exact first name
+     * @param firstName The first name to match
+     * @return Matching contacts ordered by ID, or an empty list if firstName is null
+     */
+    public List<Contact> findByFirstName(String firstName) {
+        return search(firstName, firstNameIndex::findEqual);
+    }
+
+    /**
+     * Finds contacts whose first name starts with a prefix
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by first name, or an empty list if prefix is null
+     */
+    public List<Contact> findByFirstNamePrefix(String prefix) {
+        return search(prefix, firstNameIndex::findPrefix);
+    }
+
+    /**
+     * Finds contacts by exact last name
+     * @param lastName The last name to match
+     * @return Matching contacts ordered by ID, or an empty list if lastName is null
+     */
+    public List<Contact> findByLastName(String lastName) {
+        return search(lastName, lastNameIndex::findEqual);
+    }
+
+    /**
+     * Finds contacts whose last name starts with a prefix
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by last name, or an empty list if prefix is null
+     */
+    public List<Contact> findByLastNamePrefix(String prefix) {
+        return search(prefix, lastNameIndex::findPrefix);
+    }
+
+    /**
+     * Finds contacts by exact phone number
+     * @param phone The phone number to match
+     * @return Matching contacts ordered by ID, or an empty list if phone is null
+     */
+    public List<Contact> findByPhone(String phone) {
+        return search(phone, phoneIndex::findEqual);
+    }
+
+    /**
+     * Finds contacts whose phone number starts with a prefix
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by phone number, or an empty list if prefix is null
+     */
+    public List<Contact> findByPhonePrefix(String prefix) {
+        return search(prefix, phoneIndex::findPrefix);
+    }
+
+    /**
+     * Counts contacts whose phone number starts with a prefix, such as an area code "415" or
+     * an area code and exchange "415555", without reading the contacts
+     * @param prefix Up to 10 digits
+     * @return The number of matching contacts; 0 if prefix is null, not all digits or too long
+     */
+    public int countByPhonePrefix(String prefix) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            int count = 0;
+            if (prefix != null) {
+                ensureIndexed();
+                count = phoneIndex.countPrefix(prefix);
+            }
+            succeeded = true;
+            return count;
+        } finally {
+            metrics.record(ContactMetrics.Operation.SEARCH, start, succeeded);
+        }
+    }
+
+    /**
+     * Finds phone numbers shared by more than one contact
+     * @return Each shared number mapped to its contacts ordered by ID, in phone number order
+     */
+    public Map<String, List<Contact>> findDuplicatePhones() {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            ensureIndexed();
+            Map<String, List<Contact>> found = new LinkedHashMap<>();
+            for (String phone : phoneIndex.findDuplicates()) {
+                List<Contact> holders = resolve(phoneIndex.findEqual(phone));
+                if (holders.size() > 1) {
+                    found.put(phone, holders);
+                }
+            }
+            succeeded = true;
+            return found;
+        } finally {
+            metrics.record(ContactMetrics.Operation.SEARCH, start, succeeded);
+        }
+    }
+
+    /**
+     * Finds contacts by partial or misspelled words from their names and address, such as
+     * "Jon Smth" or "123 Main". Each query word matches stored words within a small edit
+     * distance or beginning with it, and contacts matching more words more closely rank first;
+     * see FuzzyIndex.search for the scoring.
+     * @param query The words to look for
+     * @param limit The most contacts to return
+     * @return The best matches, best first and then by ID, or an empty list if query is null
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public List<Contact> fuzzySearch(String query, int limit) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Result limit must be positive");
+            }
+            List<Contact> found = Collections.emptyList();
+            if (query != null) {
+                ensureIndexed();
+                found = resolve(fuzzyIndex.search(query, limit));
+            }
+            succeeded = true;
+            return found;
+        } finally {
+            metrics.record(ContactMetrics.Operation.SEARCH, start, succeeded);
+        }
+    }
+
+    /**
+     * Searches a secondary index, building the indexes first if needed
+     */
+    private List<Contact> search(String value, Function<String, List<String>> lookup) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            List<Contact> found = Collections.emptyList();
+            if (value != null) {
+                ensureIndexed();
+                found = resolve(lookup.apply(value));
+            }
+            succeeded = true;
+            return found;
+        } finally {
+            metrics.record(ContactMetrics.Operation.SEARCH, start, succeeded);
+        }
+    }
+
+    /**
+     * Builds the secondary indexes from the stored contacts if they were skipped at startup.
+     * The store is read and the indexes built without any stripe lock while writes note the
+     * contacts they change. Those notes are applied a contact at a time under its stripe lock,
+     * and every stripe lock is held only for the last few and to publish the indexes, so writers
+     * wait for a short final catch-up rather than the whole build.
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        indexBuild.lock();
+        try {
+            if (indexed) {
+                return;
+            }
+            Map<String, Optional<ContactRecord>> backlog = new ConcurrentHashMap<>();
+            lockAll();
+            try {
+                indexBacklog = backlog;
+            } finally {
+                unlockAll();
+            }
+            List<ContactRecord> records = new ArrayList<>(store.size());
+            for (Iterator<Contact> it = store.iterator(); it.hasNext(); ) {
+                records.add(it.next().toRecord());
+            }
+            // A contact changed while the store was read may have been read before or after the
+            // change, so it is left out here and indexed from the store during the catch-up
+            Set<String> changedDuringRead;
+            lockAll();
+            try {
+                changedDuringRead = new HashSet<>(backlog.keySet());
+            } finally {
+                unlockAll();
+            }
+            if (!changedDuringRead.isEmpty()) {
+                records.removeIf(record -> changedDuringRead.contains(record.getContactId()));
+            }
+            Arrays.stream(indexes).parallel().forEach(index -> index.addedAll(records));
+
+            // Catch up one contact at a time under its own stripe lock while writes go on, until
+            // few enough changes are left to apply with every stripe locked
+            for (int round = 0; ; round++) {
+                lockAll();
+                try {
+                    if (backlog.size() <= INDEX_CATCH_UP_UNDER_LOCK || round == INDEX_CATCH_UP_ROUNDS) {
+                        for (Map.Entry<String, Optional<ContactRecord>> entry : backlog.entrySet()) {
+                            catchUpIndexes(entry.getKey(), built(entry, changedDuringRead));
+                        }
+                        indexBacklog = null;
+                        indexed = true;
+                        return;
+                    }
+                    indexBacklog = new ConcurrentHashMap<>();
+                } finally {
+                    unlockAll();
+                }
+                Map<String, Optional<ContactRecord>> next = indexBacklog;
+                for (Map.Entry<String, Optional<ContactRecord>> entry : backlog.entrySet()) {
+                    ReentrantLock lock = lockFor(entry.getKey());
+                    lock.lock();
+                    try {
+                        catchUpIndexes(entry.getKey(), built(entry, changedDuringRead));
+                        // The indexes now hold the contact as stored, so later changes start from here
+                        next.remove(entry.getKey());
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                changedDuringRead.clear();
+                backlog = next;
+            }
+        } finally {
+            indexBuild.unlock();
+        }
+    }
+
+    /**
+     * Gets the fields the indexes hold for a contact in the index backlog
+     * @return The fields, or null if the indexes do not hold the contact
+     */
+    private static ContactRecord built(Map.Entry<String, Optional<ContactRecord>> entry, Set<String> changedDuringRead) {
+        // Any contact not changed while the store was read was read before its first change
+        return changedDuringRead.contains(entry.getKey()) ? null : entry.getValue().orElse(null);
+    }
+
+    /**
+     * Brings the indexes from the fields they hold for a contact to the stored ones. Must hold
+     * the stripe lock.
+     * @param built The fields the indexes hold, or null if none
+     */
+    private void catchUpIndexes(String contactId, ContactRecord built) {
+        Contact stored = store.get(contactId);
+        ContactRecord current = stored == null ? null : stored.toRecord();
+        for (ContactIndex index : indexes) {
+            if (built == null && current != null) {
+                index.added(current);
+            } else if (built != null && current == null) {
+                index.removed(built);
+            } else if (built != null) {
+                index.updated(built, current);
+            }
+        }
     }
-}
 
+    /**
+     * Notes a change to a contact for the index build in progress, if any. Must hold the
+     * stripe lock, so the note and the change are seen together by ensureIndexed.
+     * @param before The contact's fields before the change, or null if it was just added
+     */
+    private void noteIndexChange(String contactId, ContactRecord before) {
+        Map<String, Optional<ContactRecord>> backlog = indexBacklog;
+        if (backlog != null) {
+            backlog.putIfAbsent(contactId, Optional.ofNullable(before));
+        }
+    }
+
+    /**
+     * Maps index hits back to contacts, skipping any deleted since the index was read
+     */
+    private List<Contact> resolve(List<String> contactIds) {
+        List<Contact> result = new ArrayList<>(contactIds.size());
+        for (String contactId : contactIds) {
+            Contact contact = store.peek(contactId);
+            if (contact != null) {
+                result.add(contact);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes a point-in-time view of the contacts. Taking it waits for writes in progress to
+     * finish; after that, reading the snapshot never blocks writers and writers never block it.
+     * @return The snapshot; close it when done so old versions can be dropped
+     */
+    public ContactSnapshot snapshot() {
+        ensureIndexed();
+        long version;
+        lockAll();
+        try {
+            version = versions.open();
+        } finally {
+            unlockAll();
+        }
+        return new ContactSnapshot(store, idIndex, versions, version, () -> releaseSnapshot(version));
+    }
+
+    /**
+     * Gets the number of old contact versions kept for open snapshots
+     */
+    int savedVersionCount() {
+        return versions.savedVersionCount();
+    }
+
+    /**
+     * Releases a snapshot and removes deleted IDs from the ID index once no snapshot can list them
+     */
+    private void releaseSnapshot(long version) {
+        for (ContactVersions.Retired retired : versions.close(version)) {
+            ReentrantLock lock = lockFor(retired.contactId);
+            lock.lock();
+            try {
+                if (!store.contains(retired.contactId) && !versions.isRetained(retired.contactId)) {
+                    idIndex.remove(retired.contactId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the change feed, opening one that keeps the last ContactChangeFeed.DEFAULT_CAPACITY
+     * changes and never delays writers on first use. Changes made before the feed opens are
+     * not published.
+     * @return The service's change feed
+     */
+    public ContactChangeFeed getChangeFeed() {
+        ContactChangeFeed feed = changeFeed;
+        return feed != null ? feed : openChangeFeed(new ContactChangeFeed(ContactChangeFeed.DEFAULT_CAPACITY,
+                BackpressurePolicy.DROP_SLOW_SUBSCRIBERS), false);
+    }
+
+    /**
+     * Opens the change feed with a specific buffer size and backpressure policy
+     * @param capacity The number of changes kept for subscribers
+     * @param policy What to do when a subscriber falls a full buffer behind
+     * @return The new change feed
+     * @throws IllegalArgumentException if capacity is not positive or policy is null
+     * @throws IllegalStateException if the feed is already open
+     */
+    public ContactChangeFeed openChangeFeed(int capacity, BackpressurePolicy policy) {
+        return openChangeFeed(new ContactChangeFeed(capacity, policy), true);
+    }
+
+    /**
+     * Installs a feed while every stripe is locked, so no write straddles the feed's first change
+     */
+    private ContactChangeFeed openChangeFeed(ContactChangeFeed feed, boolean failIfOpen) {
+        lockAll();
+        try {
+            if (changeFeed != null) {
+                if (failIfOpen) {
+                    throw new IllegalStateException("Change feed is already open");
+                }
+                return changeFeed;
+            }
+            changeFeed = feed;
+            return feed;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String contactId) {
+        return locks[stripeOf(contactId)];
+    }
+
+    /**
+     * Gets the lock stripe of a contact ID; AsyncContactService routes by it so each stripe
+     * is written from one thread
+     */
+    static int stripeOf(String contactId) {
+        int h = contactId.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Uses a power of two comfortably above the core count so unrelated writers rarely share a stripe
+     */
+    private static int stripeCount() {
+        int target = Runtime.getRuntime().availableProcessors() * 4;
+        int stripes = 16;
+        while (stripes < target) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -1,13 +1,32 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
 /**
  * Unit tests for the ContactService class
  */
 public class ContactServiceTest {
     private ContactService contactService;
     
+    @TempDir
+    Path directory;
+    
     @BeforeEach
     public void setUp() {
         contactService = new ContactService();
@@ -271,5 +290,608 @@ public class ContactServiceTest {
         
         assertEquals(2, contactService.getAllContacts().size());
     }
-}
+    
+    @Test
+    public void testGetAllContactsPreservesInsertionOrder() {
+        // Test that contacts are returned in the order they were added
+        contactService.addContact(new Contact("9", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.addContact(new Contact("1", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        contactService.addContact(new Contact("5", "Jim", "Brown", "5555555555", "789 Pine Rd"));
+        contactService.deleteContact("1");
+        contactService.addContact(new Contact("1", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        
+        List<Contact> all = contactService.getAllContacts();
+        assertEquals(3, all.size());
+        assertEquals("9", all.get(0).getContactId());
+        assertEquals("5", all.get(1).getContactId());
+        assertEquals("1", all.get(2).getContactId());
+    }
+    
+    @Test
+    public void testConcurrentAddsOfDistinctIds() throws Exception {
+        // Test that parallel writers to different IDs all succeed
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int base = t * perThread;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        contactService.addContact(new Contact(Integer.toString(base + i), "John", "Doe", "1234567890", "123 Main St"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        assertEquals(threads * perThread, contactService.getAllContacts().size());
+        assertNotNull(contactService.getContact("0"));
+        assertNotNull(contactService.getContact(Integer.toString(threads * perThread - 1)));
+    }
+    
+    @Test
+    public void testConcurrentAddsOfSameIdAcceptExactlyOne() throws Exception {
+        // Test that racing adds of one ID let exactly one writer win
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        try {
+                            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+                            accepted.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // Another thread added this ID first
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        assertEquals(500, accepted.get());
+        assertEquals(500, contactService.getAllContacts().size());
+    }
+    
+    @Test
+    public void testConcurrentUpdatesAreNeverTorn() throws Exception {
+        // Test that readers only ever see complete updates while writers alternate between two states
+        contactService.addContact(new Contact("123", "Alice", "Adams", "1111111111", "1 A St"));
+        Contact contact = contactService.getContact("123");
+        AtomicInteger torn = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < 2; w++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        if (i % 2 == 0) {
+                            contactService.updateContact("123", "Bob", "Brown", "2222222222", "2 B St");
+                        } else {
+                            contactService.updateContact("123", "Alice", "Adams", "1111111111", "1 A St");
+                        }
+                    }
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        ContactRecord record = contact.toRecord();
+                        boolean alice = record.getFirstName().equals("Alice") && record.getLastName().equals("Adams")
+                                && record.getPhone().equals("1111111111") && record.getAddress().equals("1 A St");
+                        boolean bob = record.getFirstName().equals("Bob") && record.getLastName().equals("Brown")
+                                && record.getPhone().equals("2222222222") && record.getAddress().equals("2 B St");
+                        if (!alice && !bob) {
+                            torn.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        assertEquals(0, torn.get());
+    }
+    
+    @Test
+    public void testUpdateContactInvalidFieldChangesNothing() {
+        // Test that a failed update leaves every field unchanged
+        Contact contact = new Contact("123", "John", "Doe", "1234567890", "123 Main St");
+        contactService.addContact(contact);
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.updateContact("123", "Jane", null, "123", null);
+        });
+        assertEquals("John", contactService.getContact("123").getFirstName());
+    }
+    
+    @Test
+    public void testFindByNameExactAndPrefix() {
+        // Test exact and prefix searches on the name indexes
+        contactService.addContact(new Contact("1", "John", "Smith", "4155550001", "1 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "Smythe", "4155550002", "2 Main St"));
+        contactService.addContact(new Contact("3", "Jim", "Brown", "2125550003", "3 Main St"));
+        
+        assertEquals(1, contactService.findByLastName("Smith").size());
+        assertEquals("1", contactService.findByLastName("Smith").get(0).getContactId());
+        assertEquals(2, contactService.findByLastNamePrefix("Sm").size());
+        assertEquals(3, contactService.findByFirstNamePrefix("J").size());
+        assertEquals(1, contactService.findByFirstName("Jim").size());
+        assertEquals(0, contactService.findByLastName("Jones").size());
+        assertEquals(0, contactService.findByLastNamePrefix(null).size());
+    }
+    
+    @Test
+    public void testFindByPhoneExactAndPrefix() {
+        // Test exact and prefix searches on the phone index
+        contactService.addContact(new Contact("1", "John", "Smith", "4155550001", "1 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "Smythe", "4155550002", "2 Main St"));
+        contactService.addContact(new Contact("3", "Jim", "Brown", "2125550003", "3 Main St"));
+        
+        assertEquals(2, contactService.findByPhonePrefix("415").size());
+        assertEquals("3", contactService.findByPhone("2125550003").get(0).getContactId());
+    }
+    
+    @Test
+    public void testIndexesFollowUpdateAndDelete() {
+        // Test that the indexes stay consistent through updates and deletes
+        contactService.addContact(new Contact("1", "John", "Smith", "4155550001", "1 Main St"));
+        
+        contactService.updateContact("1", null, "Jones", "2125550001", null);
+        assertEquals(0, contactService.findByLastName("Smith").size());
+        assertEquals(1, contactService.findByLastName("Jones").size());
+        assertEquals(0, contactService.findByPhonePrefix("415").size());
+        assertEquals(1, contactService.findByPhonePrefix("212").size());
+        
+        contactService.deleteContact("1");
+        assertEquals(0, contactService.findByLastName("Jones").size());
+        assertEquals(0, contactService.findByFirstName("John").size());
+    }
+    
+    @Test
+    public void testIndexesFollowSettersOnStoredContact() {
+        // Test that setters on a stored contact keep the indexes current
+        Contact contact = new Contact("1", "John", "Smith", "4155550001", "1 Main St");
+        contactService.addContact(contact);
+        
+        contact.setLastName("Jones");
+        assertEquals(0, contactService.findByLastName("Smith").size());
+        assertEquals(1, contactService.findByLastName("Jones").size());
+        
+        contactService.deleteContact("1");
+        contact.setLastName("Brown");
+        assertEquals("Brown", contact.getLastName());
+        assertEquals(0, contactService.findByLastName("Brown").size());
+    }
+    
+    @Test
+    public void testAddContactOwnedByAnotherService() {
+        // Test that a contact cannot be stored by two services at once
+        Contact contact = new Contact("1", "John", "Smith", "4155550001", "1 Main St");
+        contactService.addContact(contact);
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactService().addContact(contact);
+        });
+    }
+    
+    @Test
+    public void testIndexBuildKeepsWritesMadeDuringIt() throws InterruptedException {
+        // Test that contacts changed while the first search builds the indexes are indexed as they end up
+        for (ContactService service : Arrays.asList(contactService, new ContactService(new ColumnarContactStore()))) {
+            List<Contact> contacts = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                contacts.add(new Contact(Integer.toString(i), "John", "Smith", String.format("%010d", i), "1 Main St"));
+            }
+            service.addContacts(contacts);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 20_000; i += 2) {
+                    if (i % 4 == 0) {
+                        service.updateContact(Integer.toString(i), null, "Jones", null, null);
+                    } else {
+                        service.deleteContact(Integer.toString(i));
+                    }
+                    service.addContact(new Contact("n" + i, "Jane", "Jones", "5555555555", "2 Main St"));
+                }
+            });
+            writer.start();
+            service.findByLastName("Smith");
+            writer.join();
 
+            for (String lastName : Arrays.asList("Smith", "Jones")) {
+                Set<String> expected = service.getAllContacts().stream()
+                        .filter(contact -> contact.getLastName().equals(lastName))
+                        .map(Contact::getContactId).collect(Collectors.toSet());
+                Set<String> found = service.findByLastName(lastName).stream().map(Contact::getContactId).collect(Collectors.toSet());
+                assertEquals(expected, found);
+            }
+            assertEquals(10_000, service.findByLastName("Smith").size());
+            assertEquals(15_000, service.findByLastName("Jones").size());
+            assertEquals(10_000, service.findByFirstName("Jane").size());
+            assertEquals(0, service.findByPhone("0000000002").size());
+            assertEquals(1, service.findByPhone("0000000004").size());
+            assertEquals(25_000, service.getContactsAfter(null, 30_000).size());
+        }
+    }
+    
+    @Test
+    public void testApplyBatchAllValid() {
+        // Test a batch whose operations depend on each other
+        BatchResult result = contactService.applyBatch(Arrays.asList(
+                ContactOperation.add(new Contact("1", "John", "Doe", "1234567890", "123 Main St")),
+                ContactOperation.add(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave")),
+                ContactOperation.update("1", "Jim", null, null, null),
+                ContactOperation.delete("2")), BatchMode.ALL_OR_NOTHING);
+        
+        assertEquals(4, result.getAppliedCount());
+        assertEquals(0, result.getRejectedCount());
+        assertEquals("Jim", contactService.getContact("1").getFirstName());
+        assertNull(contactService.getContact("2"));
+    }
+    
+    @Test
+    public void testApplyBatchBestEffortReportsEachFailure() {
+        // Test that best-effort batches apply valid operations and report invalid ones
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        
+        BatchResult result = contactService.applyBatch(Arrays.asList(
+                ContactOperation.add(new Contact("1", "Jane", "Smith", "9876543210", "456 Oak Ave")),
+                ContactOperation.update("1", null, null, "123", null),
+                ContactOperation.delete("999"),
+                ContactOperation.add(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave")),
+                null), BatchMode.BEST_EFFORT);
+        
+        assertEquals(BatchResult.Status.REJECTED, result.getStatus(0));
+        assertEquals("Contact ID must be unique", result.getError(0));
+        assertEquals(BatchResult.Status.REJECTED, result.getStatus(1));
+        assertEquals(BatchResult.Status.REJECTED, result.getStatus(2));
+        assertEquals("Contact ID not found", result.getError(2));
+        assertEquals(BatchResult.Status.APPLIED, result.getStatus(3));
+        assertNull(result.getError(3));
+        assertEquals(BatchResult.Status.REJECTED, result.getStatus(4));
+        assertEquals(4, result.getRejectedCount());
+        assertEquals("1234567890", contactService.getContact("1").getPhone());
+        assertNotNull(contactService.getContact("2"));
+    }
+    
+    @Test
+    public void testApplyBatchAllOrNothingChangesNothingOnFailure() {
+        // Test that one invalid operation rolls back an all-or-nothing batch
+        BatchResult result = contactService.applyBatch(Arrays.asList(
+                ContactOperation.add(new Contact("1", "John", "Doe", "1234567890", "123 Main St")),
+                ContactOperation.update("2", "Jane", null, null, null)), BatchMode.ALL_OR_NOTHING);
+        
+        assertEquals(BatchResult.Status.NOT_APPLIED, result.getStatus(0));
+        assertEquals(BatchResult.Status.REJECTED, result.getStatus(1));
+        assertEquals(0, result.getAppliedCount());
+        assertEquals(0, contactService.getAllContacts().size());
+    }
+    
+    @Test
+    public void testApplyBatchNullArguments() {
+        // Test that a null batch or mode throws exception
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.applyBatch(null, BatchMode.BEST_EFFORT);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.applyBatch(new ArrayList<>(), null);
+        });
+    }
+    
+    @Test
+    public void testGetContactsAfterPagesById() {
+        // Test keyset pagination through every contact in ID order
+        for (String id : new String[] {"5", "1", "4", "2", "3"}) {
+            contactService.addContact(new Contact(id, "John", "Doe", "1234567890", "123 Main St"));
+        }
+        
+        List<Contact> first = contactService.getContactsAfter(null, 2);
+        assertEquals(Arrays.asList("1", "2"), first.stream().map(Contact::getContactId).collect(Collectors.toList()));
+        List<Contact> second = contactService.getContactsAfter("2", 2);
+        assertEquals(Arrays.asList("3", "4"), second.stream().map(Contact::getContactId).collect(Collectors.toList()));
+        contactService.deleteContact("5");
+        assertTrue(contactService.getContactsAfter("4", 2).isEmpty());
+        assertEquals(1, contactService.getContactsAfter("0", 1).size());
+    }
+    
+    @Test
+    public void testGetContactsAfterInvalidLimit() {
+        // Test that a page size below one throws exception
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.getContactsAfter(null, 0);
+        });
+    }
+    
+    @Test
+    public void testCursorResumesFromPosition() {
+        // Test that a cursor position continues a walk in a new cursor
+        for (int i = 0; i < 10; i++) {
+            contactService.addContact(new Contact("id" + i, "John", "Doe", "1234567890", "123 Main St"));
+        }
+        
+        ContactCursor cursor = contactService.openCursor(null);
+        assertNull(cursor.getPosition());
+        for (int i = 0; i < 4; i++) {
+            cursor.next();
+        }
+        assertEquals("id3", cursor.getPosition());
+        
+        ContactCursor resumed = contactService.openCursor(cursor.getPosition());
+        int remaining = 0;
+        while (resumed.hasNext()) {
+            assertTrue(resumed.next().getContactId().compareTo("id3") > 0);
+            remaining++;
+        }
+        assertEquals(6, remaining);
+    }
+    
+    @Test
+    public void testParallelStreamSeesEveryContactOnce() {
+        // Test that a parallel stream visits each contact exactly once
+        for (int i = 0; i < 5000; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        
+        List<String> ids = contactService.streamContacts().parallel().map(Contact::getContactId).collect(Collectors.toList());
+        assertEquals(5000, ids.size());
+        assertEquals(5000, new HashSet<>(ids).size());
+    }
+    
+    @Test
+    public void testCursorDuringConcurrentWrites() throws Exception {
+        // Test that a walk returns stable contacts once each while other threads write
+        for (int i = 0; i < 2000; i++) {
+            contactService.addContact(new Contact("s" + (10000 + i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                contactService.addContact(new Contact("t" + (10000 + i), "Jane", "Doe", "1234567890", "123 Main St"));
+                contactService.updateContact("s" + (10000 + i), "Jim", null, null, null);
+                contactService.deleteContact("t" + (10000 + i));
+            }
+        });
+        writer.start();
+        
+        Set<String> seen = new HashSet<>();
+        int stable = 0;
+        ContactCursor cursor = contactService.openCursor(null);
+        while (cursor.hasNext()) {
+            String contactId = cursor.next().getContactId();
+            assertTrue(seen.add(contactId));
+            if (contactId.startsWith("s")) {
+                stable++;
+            }
+        }
+        writer.join();
+        assertEquals(2000, stable);
+    }
+    
+    @Test
+    public void testInternedFieldsShareInstances() {
+        // Test that an interning service stores one instance per distinct name and address
+        ContactService interning = new ContactService(new HeapContactStore(), new InternTable());
+        interning.addContact(new Contact("1", new String("John"), "Doe", "1234567890", new String("123 Main St")));
+        interning.addContact(new Contact("2", new String("John"), "Roe", "1234567890", "1 Elm St"));
+        interning.updateContact("2", null, null, null, new String("123 Main St"));
+        
+        Contact first = interning.getContact("1");
+        Contact second = interning.getContact("2");
+        assertEquals("John", second.getFirstName());
+        assertSame(first.getFirstName(), second.getFirstName());
+        assertSame(first.getAddress(), second.getAddress());
+        assertEquals(2, interning.findByFirstName("John").size());
+    }
+    
+    @Test
+    public void testPhonePrefixCountsAndDuplicates() {
+        // Test area-code counts and duplicate phone detection through the service
+        contactService.addContact(new Contact("1", "John", "Doe", "4155550100", "123 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "Doe", "4155550100", "123 Main St"));
+        contactService.addContact(new Contact("3", "Jim", "Roe", "2125550100", "1 Elm St"));
+        
+        assertEquals(2, contactService.countByPhonePrefix("415"));
+        assertEquals(1, contactService.countByPhonePrefix("212555"));
+        assertEquals(0, contactService.countByPhonePrefix(null));
+        assertEquals(Arrays.asList("4155550100"), new ArrayList<>(contactService.findDuplicatePhones().keySet()));
+        
+        contactService.updateContact("2", null, null, "2125550101", null);
+        assertTrue(contactService.findDuplicatePhones().isEmpty());
+        assertEquals(2, contactService.countByPhonePrefix("212"));
+        contactService.deleteContact("3");
+        assertEquals(1, contactService.countByPhonePrefix("212"));
+    }
+    
+    @Test
+    public void testTryVariantsReportStatusWithoutThrowing() {
+        // Test that tryAdd, tryUpdate and tryDelete report each rejection as a status
+        Contact contact = new Contact("1", "John", "Doe", "1234567890", "123 Main St");
+        assertEquals(ContactStatus.OK, contactService.tryAdd(contact));
+        assertEquals(ContactStatus.DUPLICATE_ID, contactService.tryAdd(new Contact("1", "Jane", "Doe", "1234567890", "1 Elm St")));
+        assertEquals(ContactStatus.NULL_CONTACT, contactService.tryAdd(null));
+        assertEquals(ContactStatus.ALREADY_STORED, new ContactService().tryAdd(contact));
+        
+        assertEquals(ContactStatus.INVALID_PHONE, contactService.tryUpdate("1", "Jack", null, "12", null));
+        assertEquals("John", contactService.getContact("1").getFirstName());
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryUpdate("2", "Jack", null, null, null));
+        assertEquals(ContactStatus.OK, contactService.tryUpdate("1", "Jack", null, null, null));
+        assertEquals("Jack", contactService.getContact("1").getFirstName());
+        
+        assertEquals(ContactStatus.NULL_CONTACT_ID, contactService.tryDelete(null));
+        assertEquals(ContactStatus.OK, contactService.tryDelete("1"));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryDelete("1"));
+        assertEquals("Contact ID not found", ContactStatus.NOT_FOUND.getMessage());
+    }
+    
+    @Test
+    public void testUpdateIfVersionDetectsLostUpdates() {
+        // Test that a conditional update succeeds only at the current version, on every store
+        for (ContactService service : Arrays.asList(contactService, new ContactService(new ColumnarContactStore()))) {
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            long version = service.getVersion("1");
+            assertEquals(0, version);
+            assertEquals(ContactStatus.OK, service.updateIfVersion("1", version, "Jack", null, null, null));
+            assertEquals(ContactStatus.CONFLICT, service.updateIfVersion("1", version, "Jim", null, null, null));
+            assertEquals("Jack", service.getContact("1").getFirstName());
+            assertEquals(1, service.getVersion("1"));
+            
+            service.updateContact("1", null, "Roe", null, null);
+            assertEquals(2, service.getVersion("1"));
+            assertEquals(ContactStatus.INVALID_PHONE, service.updateIfVersion("1", 2, null, null, "12", null));
+            assertEquals(ContactStatus.NOT_FOUND, service.updateIfVersion("2", 0, "Jim", null, null, null));
+            assertEquals(-1, service.getVersion("2"));
+        }
+    }
+
+    @Test
+    public void testReaddedContactRejectsStaleVersion() {
+        // Test that a version read before a delete never matches the contact added again, on every store
+        for (ContactService service : Arrays.asList(contactService, new ContactService(new ColumnarContactStore()))) {
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            long stale = service.getVersion("1");
+            service.deleteContact("1");
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            assertTrue(service.getVersion("1") > stale);
+            assertEquals(ContactStatus.CONFLICT, service.updateIfVersion("1", stale, "Jim", null, null, null));
+
+            // Updates before the delete must not let the old version catch up with the new one
+            service.updateContact("1", "Jack", null, null, null);
+            stale = service.getVersion("1");
+            service.deleteContact("1");
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            assertEquals(ContactStatus.CONFLICT, service.updateIfVersion("1", stale, "Jim", null, null, null));
+            long version = service.getVersion("1");
+            assertEquals(ContactStatus.OK, service.updateIfVersion("1", version, "Jim", null, null, null));
+            assertEquals(version + 1, service.getVersion("1"));
+            assertEquals("Jim", service.getContact("1").getFirstName());
+        }
+    }
+
+    @Test
+    public void testCompareAndSetField() {
+        // Test that a field is set only while it holds the expected value
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        assertEquals(ContactStatus.OK, contactService.compareAndSet("1", ContactField.PHONE, "1234567890", "5555555555"));
+        assertEquals(ContactStatus.CONFLICT, contactService.compareAndSet("1", ContactField.PHONE, "1234567890", "9999999999"));
+        assertEquals(ContactStatus.INVALID_ADDRESS, contactService.compareAndSet("1", ContactField.ADDRESS, "123 Main St", null));
+        assertEquals("5555555555", contactService.getContact("1").getPhone());
+        assertEquals(1, contactService.findByPhone("5555555555").size());
+        assertThrows(IllegalArgumentException.class, () -> contactService.compareAndSet("1", ContactField.CONTACT_ID, "1", "2"));
+    }
+    
+    @Test
+    public void testConcurrentVersionedIncrementsAreNotLost() throws Exception {
+        // Test that read-modify-write loops over updateIfVersion never lose an increment
+        contactService.addContact(new Contact("1", "0", "Doe", "1234567890", "123 Main St"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    while (true) {
+                        long version = contactService.getVersion("1");
+                        int value = Integer.parseInt(contactService.getContact("1").getFirstName());
+                        if (contactService.updateIfVersion("1", version, Integer.toString(value + 1), null, null, null).isOk()) {
+                            break;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals("2000", contactService.getContact("1").getFirstName());
+        assertEquals(2000, contactService.getVersion("1"));
+    }
+    
+    @Test
+    public void testRecordsAreStableSnapshots() {
+        // Test that a record read from the service is unaffected by later updates
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        ContactRecord before = contactService.getRecord("1");
+        
+        contactService.updateContact(before.withLastName("Roe").withAddress("1 Elm St"));
+        ContactRecord after = contactService.getRecord("1");
+        
+        assertEquals("Doe", before.getLastName());
+        assertEquals("Roe", after.getLastName());
+        assertEquals("1 Elm St", contactService.getContact("1").getAddress());
+        assertEquals(1, contactService.findByLastName("Roe").size());
+        assertTrue(contactService.findByLastName("Doe").isEmpty());
+        assertNull(contactService.getRecord("2"));
+        assertThrows(IllegalArgumentException.class,
+                () -> contactService.updateContact(new Contact("2", "A", "B", "1234567890", "C").toRecord()));
+    }
+    
+    /**
+     * Checks that every add path rejects a contact another service stores
+     */
+    private void assertRejectsStoredContact(ContactStore store) throws IOException {
+        Contact contact = new Contact("1", "John", "Doe", "1234567890", "123 Main St");
+        contactService.addContact(contact);
+        try (ContactService service = new ContactService(store)) {
+            assertEquals(ContactStatus.ALREADY_STORED, service.tryAdd(contact));
+            assertEquals(ContactStatus.ALREADY_STORED.getMessage(), service.addContacts(Arrays.asList(contact)).getError(0));
+            BatchResult result = service.applyBatch(Arrays.asList(ContactOperation.add(contact)), BatchMode.BEST_EFFORT);
+            assertEquals(ContactStatus.ALREADY_STORED.getMessage(), result.getError(0));
+            assertEquals(0, service.size());
+            
+            contactService.deleteContact("1");
+            assertEquals(ContactStatus.OK, service.tryAdd(contact));
+        }
+    }
+    
+    @Test
+    public void testHeapStoreRejectsStoredContact() throws IOException {
+        // Test that a service over a heap store rejects a contact another service stores on every add path
+        assertRejectsStoredContact(new HeapContactStore());
+    }
+    
+    @Test
+    public void testColumnarStoreRejectsStoredContact() throws IOException {
+        // Test that a service over a columnar store rejects a contact another service stores on every add path
+        assertRejectsStoredContact(new ColumnarContactStore());
+    }
+    
+    @Test
+    public void testMappedStoreRejectsStoredContact() throws IOException {
+        // Test that a service over a memory-mapped store rejects a contact another service stores on every add path
+        Path file = directory.resolve("contacts.snap");
+        ContactSnapshotFile.write(new ArrayList<Contact>().iterator(), file);
+        assertRejectsStoredContact(MappedContactStore.open(file));
+    }
+    
+    @Test
+    public void testFileStoreRejectsStoredContact() throws IOException {
+        // Test that a service over a file store rejects a contact another service stores on every add path
+        assertRejectsStoredContact(FileContactStore.open(directory.resolve("contacts.dat")));
+    }
+    
+    @Test
+    public void testTieredStoreRejectsStoredContact() throws IOException {
+        // Test that a service over a tiered store rejects a contact another service stores on every add path
+        assertRejectsStoredContact(TieredContactStore.open(directory.resolve("cold.seg"), 100));
+    }
+}
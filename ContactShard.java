@@ -0,0 +1,85 @@
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * ContactShard is one partition of a ShardedContactService: the transport that carries the
+ * facade's calls to a ContactService. LocalContactShard calls a service in the same JVM, and
+ * RemoteContactShard sends each call to a ContactShardServer in another process.
+ *
+ * Validation errors from the shard's service surface as IllegalArgumentException with the
+ * service's message. A shard that cannot be reached throws UncheckedIOException.
+ */
+public interface ContactShard extends Closeable {
+    /**
+     * Gets the shard's name, which places it on the hash ring
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Adds a new contact with unique ID
+     * @param contact The contact to add
+     * @throws IllegalArgumentException if the contact is invalid or its ID already exists
+     */
+    void addContact(Contact contact);
+
+    /**
+     * Adds many contacts whose IDs are not stored on this shard, as a rebalance moves them in
+     * @param contacts The contacts to add
+     * @throws IllegalArgumentException if a contact's ID already exists
+     */
+    void addContacts(List<Contact> contacts);
+
+    /**
+     * Gets a contact by ID
+     * @param contactId The ID of the contact to retrieve
+     * @return The contact, or null if not found
+     */
+    Contact getContact(String contactId);
+
+    /**
+     * Updates contact fields by contact ID, all or nothing
+     * @param contactId The ID of the contact to update
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @throws IllegalArgumentException if contact ID is not found or a field is invalid
+     */
+    void updateContact(String contactId, String firstName, String lastName, String phone, String address);
+
+    /**
+     * Deletes a contact by contact ID
+     * @param contactId The ID of the contact to delete
+     * @throws IllegalArgumentException if contact ID is not found
+     */
+    void deleteContact(String contactId);
+
+    /**
+     * Deletes many contacts, as a rebalance moves them out; IDs that are not stored are skipped
+     * @param contactIds The IDs of the contacts to delete
+     */
+    void deleteContacts(List<String> contactIds);
+
+    /**
+     * Gets all contacts on this shard
+     * @return List of the shard's contacts in insertion order
+     */
+    List<Contact> getAllContacts();
+
+    /**
+     * Finds contacts by one field's exact value or prefix, using the shard's secondary indexes
+     * @param field FIRST_NAME, LAST_NAME or PHONE
+     * @param value The value or prefix to match
+     * @param prefix Whether to match values starting with value instead of equal to it
+     * @return Matching contacts ordered by ID
+     * @throws IllegalArgumentException if the field is not indexed
+     */
+    List<Contact> find(ContactField field, String value, boolean prefix);
+
+    /**
+     * Gets the number of contacts on this shard
+     * @return The contact count
+     */
+    int size();
+}
@@ -0,0 +1,141 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ContactShardProtocol is the binary request/response format between RemoteContactShard and
+ * ContactShardServer. A request is an opcode byte followed by its arguments; a response is a
+ * status byte followed by the result, or by an error message when the status is not OK.
+ * Strings are written with writeUTF, each preceded by a presence flag where null is allowed.
+ * Calls on one connection are answered in order. A request carries at most MAX_BATCH contacts
+ * or IDs; clients split larger batches, and servers drop a connection that sends more.
+ */
+final class ContactShardProtocol {
+    static final byte ADD = 1;
+    static final byte ADD_ALL = 2;
+    static final byte GET = 3;
+    static final byte UPDATE = 4;
+    static final byte DELETE = 5;
+    static final byte DELETE_ALL = 6;
+    static final byte GET_ALL = 7;
+    static final byte FIND = 8;
+    static final byte SIZE = 9;
+
+    /** The most contacts or IDs one request may carry */
+    static final int MAX_BATCH = 1 << 16;
+
+    static final byte OK = 0;
+    /** The shard rejected the call with IllegalArgumentException */
+    static final byte REJECTED = 1;
+    /** The call failed on the server for another reason */
+    static final byte FAILED = 2;
+
+    private ContactShardProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeContact(DataOutputStream out, Contact contact) throws IOException {
+        writeRecord(out, contact.toRecord());
+    }
+
+    static void writeRecord(DataOutputStream out, ContactRecord record) throws IOException {
+        out.writeUTF(record.getContactId());
+        out.writeUTF(record.getFirstName());
+        out.writeUTF(record.getLastName());
+        out.writeUTF(record.getPhone());
+        out.writeUTF(record.getAddress());
+    }
+
+    /**
+     * Reads a contact's fields without validating them
+     */
+    static Contact readContact(DataInputStream in) throws IOException {
+        return new Contact(new ContactRecord(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+    }
+
+    static void writeContacts(DataOutputStream out, List<Contact> contacts) throws IOException {
+        out.writeInt(contacts.size());
+        for (Contact contact : contacts) {
+            writeContact(out, contact);
+        }
+    }
+
+    static void writeRecords(DataOutputStream out, List<ContactRecord> records) throws IOException {
+        out.writeInt(records.size());
+        for (ContactRecord record : records) {
+            writeRecord(out, record);
+        }
+    }
+
+    static List<Contact> readContacts(DataInputStream in) throws IOException {
+        return readContacts(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a list of contacts, such as a client's batch, holding at most maxCount
+     * @throws IOException if the stream ends early or the count is negative or above maxCount
+     */
+    static List<Contact> readContacts(DataInputStream in, int maxCount) throws IOException {
+        int count = readCount(in, maxCount);
+        // Grown as contacts arrive rather than sized by the count, which the sender controls
+        List<Contact> contacts = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            contacts.add(readContact(in));
+        }
+        return contacts;
+    }
+
+    static void writeContactIds(DataOutputStream out, List<String> contactIds) throws IOException {
+        out.writeInt(contactIds.size());
+        for (String contactId : contactIds) {
+            out.writeUTF(contactId);
+        }
+    }
+
+    /**
+     * Reads a list of contact IDs holding at most maxCount
+     * @throws IOException if the stream ends early or the count is negative or above maxCount
+     */
+    static List<String> readContactIds(DataInputStream in, int maxCount) throws IOException {
+        int count = readCount(in, maxCount);
+        List<String> contactIds = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            contactIds.add(in.readUTF());
+        }
+        return contactIds;
+    }
+
+    private static int readCount(DataInputStream in, int maxCount) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > maxCount) {
+            throw new IOException("List of " + count + " entries is outside 0 to " + maxCount);
+        }
+        return count;
+    }
+
+    /**
+     * Checks a contact read from a client the way the Contact constructor would, once the
+     * whole request has been read so a rejection leaves the connection usable
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    static void validate(Contact contact) {
+        ContactRecord record = contact.toRecord();
+        ContactField invalid = ContactValidator.firstViolation(record.getContactId(), record.getFirstName(),
+                record.getLastName(), record.getPhone(), record.getAddress());
+        if (invalid != null) {
+            throw new IllegalArgumentException(ContactValidator.reject(invalid));
+        }
+    }
+}
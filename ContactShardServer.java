@@ -0,0 +1,222 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ContactShardServer serves one ContactShard to RemoteContactShard clients over TCP, so a
+ * ShardedContactService can keep its shards in separate processes. Each connection gets its
+ * own thread, which reads a request, calls the shard and writes the response before reading
+ * the next, following ContactShardProtocol.
+ *
+ * Run with: java ContactShardServer [name] [port] (port 0, the default, picks a free port).
+ * The server listens on the loopback address and prints "LISTENING port" once it accepts calls.
+ */
+public class ContactShardServer implements Closeable {
+    static final String READY_PREFIX = "LISTENING ";
+
+    private final ContactShard shard;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections;
+    private final Thread acceptor;
+
+    /**
+     * Constructor starts serving a shard on the loopback address
+     * @param shard The shard to serve
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ContactShardServer(ContactShard shard, int port) throws IOException {
+        this.shard = shard;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.acceptor = new Thread(this::accept, "contact-shard-" + shard.getName());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String name = args.length > 0 ? args[0] : "shard";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        ContactShardServer server = new ContactShardServer(new LocalContactShard(name), port);
+        System.out.println(READY_PREFIX + server.getPort());
+        System.out.flush();
+        // Serve until the parent closes our standard input or kills the process
+        while (System.in.read() >= 0) {
+            // Ignore any input
+        }
+        server.close();
+    }
+
+    /**
+     * Gets the port the server listens on
+     * @return The bound port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting calls, drops open connections and closes the shard
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        shard.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), acceptor.getName() + "-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // The server socket was closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte opcode;
+                try {
+                    opcode = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(opcode, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away or the server is closing
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Reads one request's arguments, calls the shard and writes the response
+     */
+    private void handle(byte opcode, DataInputStream in, DataOutputStream out) throws IOException {
+        Contact contact = null;
+        List<Contact> contacts = null;
+        String contactId = null;
+        String[] fields = null;
+        List<String> contactIds = null;
+        ContactField field = null;
+        boolean prefix = false;
+        switch (opcode) {
+            case ContactShardProtocol.ADD:
+                contact = ContactShardProtocol.readContact(in);
+                break;
+            case ContactShardProtocol.ADD_ALL:
+                contacts = ContactShardProtocol.readContacts(in, ContactShardProtocol.MAX_BATCH);
+                break;
+            case ContactShardProtocol.GET:
+            case ContactShardProtocol.DELETE:
+                contactId = ContactShardProtocol.readString(in);
+                break;
+            case ContactShardProtocol.UPDATE:
+                contactId = ContactShardProtocol.readString(in);
+                fields = new String[4];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = ContactShardProtocol.readString(in);
+                }
+                break;
+            case ContactShardProtocol.DELETE_ALL:
+                contactIds = ContactShardProtocol.readContactIds(in, ContactShardProtocol.MAX_BATCH);
+                break;
+            case ContactShardProtocol.FIND:
+                int ordinal = in.readByte();
+                if (ordinal < 0 || ordinal >= ContactField.values().length) {
+                    throw new IOException("Unknown field " + ordinal);
+                }
+                field = ContactField.values()[ordinal];
+                prefix = in.readBoolean();
+                contactId = ContactShardProtocol.readString(in);
+                break;
+            case ContactShardProtocol.GET_ALL:
+            case ContactShardProtocol.SIZE:
+                break;
+            default:
+                throw new IOException("Unknown opcode " + opcode);
+        }
+
+        try {
+            switch (opcode) {
+                case ContactShardProtocol.ADD:
+                    ContactShardProtocol.validate(contact);
+                    shard.addContact(contact);
+                    out.writeByte(ContactShardProtocol.OK);
+                    break;
+                case ContactShardProtocol.ADD_ALL:
+                    for (Contact each : contacts) {
+                        ContactShardProtocol.validate(each);
+                    }
+                    shard.addContacts(contacts);
+                    out.writeByte(ContactShardProtocol.OK);
+                    break;
+                case ContactShardProtocol.GET:
+                    Contact found = shard.getContact(contactId);
+                    out.writeByte(ContactShardProtocol.OK);
+                    out.writeBoolean(found != null);
+                    if (found != null) {
+                        ContactShardProtocol.writeContact(out, found);
+                    }
+                    break;
+                case ContactShardProtocol.UPDATE:
+                    shard.updateContact(contactId, fields[0], fields[1], fields[2], fields[3]);
+                    out.writeByte(ContactShardProtocol.OK);
+                    break;
+                case ContactShardProtocol.DELETE:
+                    shard.deleteContact(contactId);
+                    out.writeByte(ContactShardProtocol.OK);
+                    break;
+                case ContactShardProtocol.DELETE_ALL:
+                    shard.deleteContacts(contactIds);
+                    out.writeByte(ContactShardProtocol.OK);
+                    break;
+                case ContactShardProtocol.GET_ALL:
+                    List<Contact> all = shard.getAllContacts();
+                    out.writeByte(ContactShardProtocol.OK);
+                    ContactShardProtocol.writeContacts(out, all);
+                    break;
+                case ContactShardProtocol.FIND:
+                    List<Contact> matches = shard.find(field, contactId, prefix);
+                    out.writeByte(ContactShardProtocol.OK);
+                    ContactShardProtocol.writeContacts(out, matches);
+                    break;
+                default:
+                    int size = shard.size();
+                    out.writeByte(ContactShardProtocol.OK);
+                    out.writeInt(size);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            out.writeByte(ContactShardProtocol.REJECTED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        } catch (RuntimeException e) {
+            out.writeByte(ContactShardProtocol.FAILED);
+            out.writeUTF(String.valueOf(e));
+        }
+    }
+}
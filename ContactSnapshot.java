@@ -0,0 +1,126 @@
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ContactSnapshot is a point-in-time view of a ContactService, taken by
+ * ContactService.snapshot(). Every read sees the contacts exactly as they were when the
+ * snapshot was taken, however long the reader runs and whatever writers do meanwhile, and
+ * returns immutable ContactRecords, so no field can change under the reader.
+ *
+ * Reading never locks: writers keep the versions an open snapshot needs, and the snapshot
+ * reads the current state and walks back to its version. Close the snapshot when done so the
+ * old versions can be dropped; a snapshot that is garbage collected unclosed is released too.
+ * A snapshot can be read from several threads at once.
+ */
+public final class ContactSnapshot implements AutoCloseable, Iterable<ContactRecord> {
+    private final ContactStore store;
+    private final ContactIdIndex ids;
+    private final ContactVersions versions;
+    private final long version;
+    private final AtomicBoolean closed;
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * Creates a view at an open version; release runs once when the snapshot is closed or collected
+     */
+    ContactSnapshot(ContactStore store, ContactIdIndex ids, ContactVersions versions, long version, Runnable release) {
+        this.store = store;
+        this.ids = ids;
+        this.versions = versions;
+        this.version = version;
+        AtomicBoolean released = new AtomicBoolean();
+        this.closed = released;
+        // The action must not refer to this snapshot, or it would never become unreachable
+        this.cleanable = ContactVersions.register(this, () -> {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        });
+    }
+
+    /**
+     * Gets the version this snapshot was taken at. Later snapshots have equal or higher versions.
+     * @return The snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets a contact as of the snapshot
+     * @param contactId The ID of the contact
+     * @return The contact's fields when the snapshot was taken, or null if it did not exist then
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public ContactRecord get(String contactId) {
+        checkOpen();
+        return contactId == null ? null : versions.read(store, contactId, version);
+    }
+
+    /**
+     * Iterates the contacts as of the snapshot in ascending ID order
+     * @return An iterator that reads each contact as it advances; hasNext and next throw
+     *         IllegalStateException once the snapshot is closed
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    @Override
+    public Iterator<ContactRecord> iterator() {
+        checkOpen();
+        Iterator<String> contactIds = ids.after(null).iterator();
+        return new Iterator<ContactRecord>() {
+            private ContactRecord next;
+
+            @Override
+            public boolean hasNext() {
+                checkOpen();
+                while (next == null && contactIds.hasNext()) {
+                    // IDs added after the snapshot read as null and are skipped
+                    next = versions.read(store, contactIds.next(), version);
+                    // Checked again after the read, as closing drops the versions it relies on
+                    checkOpen();
+                }
+                return next != null;
+            }
+
+            @Override
+            public ContactRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ContactRecord record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Streams the contacts as of the snapshot in ascending ID order
+     * @return A sequential stream of the contacts
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public Stream<ContactRecord> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Releases the snapshot so the versions only it needed can be dropped
+     */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    private void checkOpen() {
+        if (closed.get()) {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * ContactSnapshotFile writes the versioned binary snapshot format that MappedContactStore opens.
+ *
+ * Layout, big-endian:
+ * <pre>
+ *   header   32 bytes: magic "CSNP", version, row size, row count, ID table length,
+ *            wide section offset (long), reserved
+ *   rows     row count x 72 bytes in ContactRows layout, in insertion order
+ *   table    ID table length x int: open-addressing table of row + 1, 0 for empty
+ *   wide     records of contacts that do not fit a row: five strings, each a short UTF-8
+ *            byte count and the bytes; a wide row's reference is its offset in this section
+ * </pre>
+ * The ID table is stored so a mapped snapshot can serve getContact without building anything.
+ * A snapshot is written to a temporary file and moved into place, so readers never see a
+ * partial file.
+ */
+public final class ContactSnapshotFile {
+    static final int MAGIC = 0x43534E50;    // "CSNP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int ROWS_PER_WRITE = 4096;
+
+    private ContactSnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot of contacts in iteration order. An iterator over a store that is still
+     * being written may return a contact twice, when it is deleted and added again behind the
+     * iterator; such a contact is written once, at its first position with its last fields.
+     * @param contacts The contacts to write; each is read once through toRecord()
+     * @param file The snapshot file to create or replace
+     * @return The number of contacts written
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(Iterator<Contact> contacts, Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            int count = 0;
+            int[] hashes = new int[1024];
+            int[] table = new int[tableLength(0)];
+            Map<Integer, String> wideIds = new HashMap<>();    // Row to ID of the wide rows
+            ByteArrayOutputStream wideBytes = new ByteArrayOutputStream();
+            DataOutputStream wide = new DataOutputStream(wideBytes);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocate(ROWS_PER_WRITE * ContactRows.ROW_BYTES);
+                ByteBuffer single = ByteBuffer.allocate(ContactRows.ROW_BYTES);
+                long position = HEADER_BYTES;
+                int chunkStart = 0;    // The row at the start of the chunk; earlier rows are in the file
+                while (contacts.hasNext()) {
+                    ContactRecord record = contacts.next().toRecord();
+                    String contactId = record.getContactId();
+                    int hash = contactId.hashCode();
+                    int mask = table.length - 1;
+                    int bucket = ContactRows.spread(hash) & mask;
+                    int row = -1;
+                    while (table[bucket] != 0) {
+                        int written = table[bucket] - 1;
+                        if (hashes[written] == hash && idEquals(channel, chunk, single, chunkStart, wideIds, written, contactId)) {
+                            row = written;
+                            break;
+                        }
+                        bucket = (bucket + 1) & mask;
+                    }
+                    boolean added = row < 0;
+                    if (added) {
+                        row = count;
+                        if (count == hashes.length) {
+                            hashes = Arrays.copyOf(hashes, count * 2);
+                        }
+                        hashes[count++] = hash;
+                        table[bucket] = row + 1;
+                        if (tableLength(count) != table.length) {
+                            table = buildTable(hashes, count);
+                        }
+                    }
+
+                    ByteBuffer target = row >= chunkStart ? chunk : single;
+                    int base = row >= chunkStart ? (row - chunkStart) * ContactRows.ROW_BYTES : 0;
+                    if (ContactRows.fits(record)) {
+                        ContactRows.write(target, base, record);
+                        wideIds.remove(row);
+                    } else {
+                        ContactRows.writeWide(target, base, wide.size());
+                        writeWide(wide, record);
+                        wideIds.put(row, contactId);
+                    }
+                    if (target == single) {
+                        // The contact's earlier row is already in the file; replace it there
+                        drain(channel, single.position(ContactRows.ROW_BYTES), HEADER_BYTES + (long) row * ContactRows.ROW_BYTES);
+                    } else if (added) {
+                        chunk.position(base + ContactRows.ROW_BYTES);
+                        if (!chunk.hasRemaining()) {
+                            position += drain(channel, chunk, position);
+                            chunkStart = count;
+                        }
+                    }
+                }
+                position += drain(channel, chunk, position);
+
+                ByteBuffer tableBytes = ByteBuffer.allocate(table.length * 4);
+                tableBytes.asIntBuffer().put(table);
+                position += drain(channel, tableBytes.position(tableBytes.capacity()), position);
+
+                long wideOffset = position;
+                wide.flush();
+                drain(channel, ByteBuffer.wrap(wideBytes.toByteArray()).position(wideBytes.size()), position);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(ContactRows.ROW_BYTES).putInt(count)
+                        .putInt(table.length).putLong(wideOffset).putInt(0);
+                drain(channel, header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Builds the ID table for the first count rows, from their ID hashes
+     */
+    private static int[] buildTable(int[] hashes, int count) {
+        int[] table = new int[tableLength(count)];
+        int mask = table.length - 1;
+        for (int row = 0; row < count; row++) {
+            int bucket = ContactRows.spread(hashes[row]) & mask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = row + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Compares the ID of a row already written, reading it back from the chunk or the file
+     */
+    private static boolean idEquals(FileChannel channel, ByteBuffer chunk, ByteBuffer single, int chunkStart,
+            Map<Integer, String> wideIds, int row, String contactId) throws IOException {
+        String wideId = wideIds.get(row);
+        if (wideId != null) {
+            return wideId.equals(contactId);
+        }
+        if (row >= chunkStart) {
+            return ContactRows.idEquals(chunk, (row - chunkStart) * ContactRows.ROW_BYTES, contactId);
+        }
+        single.clear();
+        long at = HEADER_BYTES + (long) row * ContactRows.ROW_BYTES;
+        while (single.hasRemaining()) {
+            if (channel.read(single, at + single.position()) < 0) {
+                throw new IOException("Snapshot row " + row + " is missing from the temporary file");
+            }
+        }
+        single.clear();
+        return ContactRows.idEquals(single, 0, contactId);
+    }
+
+    /**
+     * Gets the ID table length for a row count: a power of two at least twice the count
+     */
+    static int tableLength(int count) {
+        return Integer.highestOneBit(Math.max(count, 1)) * 4;
+    }
+
+    /**
+     * Writes the filled part of a buffer at a file position and empties the buffer
+     * @return The number of bytes written
+     */
+    private static int drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + bytes - buffer.remaining());
+        }
+        buffer.clear();
+        return bytes;
+    }
+
+    private static void writeWide(DataOutputStream wide, ContactRecord record) throws IOException {
+        for (String value : new String[] {record.getContactId(), record.getFirstName(), record.getLastName(),
+                record.getPhone(), record.getAddress()}) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            wide.writeShort(bytes.length);
+            wide.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Unit tests for the ContactSnapshotFile format and MappedContactStore
+ */
+public class ContactSnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    private ContactService sampleService() {
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        service.addContact(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        service.addContact(new Contact("3", "Zo\u00eb", "\u5f20", "1112223333", "1 Elm St"));
+        service.addContact(new Contact("4", "Jim", "Doe", "5555555555", "789 Pine Rd"));
+        return service;
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        // Test that a mapped snapshot holds every contact in insertion order
+        Path file = directory.resolve("contacts.snap");
+        assertEquals(4, sampleService().writeSnapshot(file).get());
+
+        ContactService restored = ContactService.openSnapshot(file);
+        List<Contact> all = restored.getAllContacts();
+        assertEquals(4, all.size());
+        assertEquals("1", all.get(0).getContactId());
+        assertEquals("4", all.get(3).getContactId());
+        assertEquals("Jane", restored.getContact("2").getFirstName());
+        assertEquals("456 Oak Ave", restored.getContact("2").getAddress());
+        assertEquals("\u5f20", restored.getContact("3").getLastName());
+        assertNull(restored.getContact("5"));
+    }
+
+    @Test
+    public void testEmptySnapshot() throws Exception {
+        // Test that a snapshot of no contacts opens empty
+        Path file = directory.resolve("contacts.snap");
+        assertEquals(0, new ContactService().writeSnapshot(file).get());
+
+        ContactService restored = ContactService.openSnapshot(file);
+        assertTrue(restored.getAllContacts().isEmpty());
+        assertNull(restored.getContact("1"));
+    }
+
+    @Test
+    public void testChangesAfterOpening() throws Exception {
+        // Test that writes go to the overlay and never change the file
+        Path file = directory.resolve("contacts.snap");
+        sampleService().writeSnapshot(file).get();
+        byte[] before = Files.readAllBytes(file);
+
+        ContactService restored = ContactService.openSnapshot(file);
+        restored.updateContact("1", "Jack", null, null, null);
+        restored.deleteContact("2");
+        restored.addContact(new Contact("5", "Amy", "Lee", "2223334444", "5 Oak St"));
+        restored.deleteContact("4");
+        restored.addContact(new Contact("4", "Jim", "Doe", "5555555555", "9 New St"));
+
+        assertEquals("Jack", restored.getContact("1").getFirstName());
+        assertNull(restored.getContact("2"));
+        assertThrows(IllegalArgumentException.class, () -> {
+            restored.deleteContact("2");
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            restored.addContact(new Contact("3", "Ann", "Ray", "1231231234", "3 Elm St"));
+        });
+        List<Contact> all = restored.getAllContacts();
+        assertEquals(4, all.size());
+        assertEquals("1", all.get(0).getContactId());
+        assertEquals("3", all.get(1).getContactId());
+        assertEquals("5", all.get(2).getContactId());
+        assertEquals("9 New St", all.get(3).getAddress());
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testSearchBuildsIndexesOnFirstUse() throws Exception {
+        // Test that searches see snapshot contacts and later changes
+        Path file = directory.resolve("contacts.snap");
+        sampleService().writeSnapshot(file).get();
+
+        ContactService restored = ContactService.openSnapshot(file);
+        restored.updateContact("4", null, "Brown", null, null);
+        assertEquals(1, restored.findByLastName("Doe").size());
+        assertEquals(1, restored.findByLastName("Brown").size());
+        assertEquals(3, restored.findByFirstNamePrefix("J").size());
+
+        restored.deleteContact("1");
+        restored.addContact(new Contact("6", "Tom", "Doe", "1234500000", "6 Elm St"));
+        List<Contact> found = restored.findByLastName("Doe");
+        assertEquals(1, found.size());
+        assertEquals("6", found.get(0).getContactId());
+        assertEquals(1, restored.findByPhonePrefix("12345").size());
+    }
+
+    @Test
+    public void testSnapshotOfColumnarStore() throws Exception {
+        // Test that any store can be snapshotted
+        ContactService service = new ContactService(new ColumnarContactStore());
+        for (int i = 0; i < 3000; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First" + (i % 7), "Last", "1234567890", "Address " + i));
+        }
+        Path file = directory.resolve("contacts.snap");
+        assertEquals(3000, service.writeSnapshot(file).get());
+
+        ContactService restored = ContactService.openSnapshot(file);
+        assertEquals(3000, restored.getAllContacts().size());
+        for (int i = 0; i < 3000; i++) {
+            assertEquals("Address " + i, restored.getContact(Integer.toString(i)).getAddress());
+        }
+    }
+
+    @Test
+    public void testContactReaddedDuringWriteIsWrittenOnce() throws Exception {
+        // Test that a contact deleted and added again behind the iterator keeps one row, with its last fields
+        HeapContactStore store = new HeapContactStore();
+        ContactService service = new ContactService(store);
+        for (int i = 0; i < 10000; i++) {
+            service.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "Address " + i));
+        }
+        Iterator<Contact> contacts = store.iterator();
+        Iterator<Contact> changing = new Iterator<Contact>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return contacts.hasNext();
+            }
+
+            @Override
+            public Contact next() {
+                if (++read == 6000) {
+                    // "0" is already in the file, "5000" still in the write buffer
+                    for (String contactId : new String[] {"0", "1", "5000"}) {
+                        service.deleteContact(contactId);
+                    }
+                    service.addContact(new Contact("0", "Jim", "Roe", "5555555555", "1 Elm St"));
+                    service.addContact(new Contact("1", "Zo\u00eb", "\u5f20", "5555555555", "2 Elm St"));
+                    service.addContact(new Contact("5000", "Jane", "Roe", "5555555555", "3 Elm St"));
+                }
+                return contacts.next();
+            }
+        };
+        Path file = directory.resolve("contacts.snap");
+        assertEquals(10000, ContactSnapshotFile.write(changing, file));
+
+        ContactService restored = new ContactService(MappedContactStore.open(file));
+        assertEquals(10000, restored.size());
+        assertEquals(10000, restored.getAllContacts().size());
+        assertEquals("Jim", restored.getContact("0").getFirstName());
+        assertEquals("\u5f20", restored.getContact("1").getLastName());
+        assertEquals("Jane", restored.getContact("5000").getFirstName());
+        assertEquals("Address 9999", restored.getContact("9999").getAddress());
+        restored.deleteContact("0");
+        assertEquals(9999, restored.size());
+        assertEquals(9999, restored.getAllContacts().size());
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        // Test that a file without the snapshot header is refused
+        Path file = directory.resolve("contacts.snap");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> {
+            ContactService.openSnapshot(file);
+        });
+        Files.write(file, new byte[3]);
+        assertThrows(IOException.class, () -> {
+            ContactService.openSnapshot(file);
+        });
+    }
+
+    @Test
+    public void testNullSnapshotFile() {
+        // Test that writing to a null path is rejected
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ContactService().writeSnapshot(null);
+        });
+    }
+}
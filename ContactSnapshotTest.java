@@ -0,0 +1,211 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for the ContactSnapshot class
+ */
+public class ContactSnapshotTest {
+    private static Contact contact(String id) {
+        return new Contact(id, "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    @Test
+    public void testSnapshotIgnoresLaterWrites() {
+        // Test that updates, deletes and adds after the snapshot are invisible to it
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        service.addContact(contact("2"));
+        try (ContactSnapshot snapshot = service.snapshot()) {
+            service.updateContact("1", "Jane", null, null, null);
+            service.updateContact("1", null, "Smith", null, null);
+            service.getContact("1").setPhone("0987654321");
+            service.deleteContact("2");
+            service.addContact(contact("3"));
+
+            ContactRecord first = snapshot.get("1");
+            assertEquals("John", first.getFirstName());
+            assertEquals("Doe", first.getLastName());
+            assertEquals("1234567890", first.getPhone());
+            assertEquals("Doe", snapshot.get("2").getLastName());
+            assertNull(snapshot.get("3"));
+            assertNull(snapshot.get(null));
+            List<String> ids = snapshot.stream().map(ContactRecord::getContactId).collect(Collectors.toList());
+            assertEquals(List.of("1", "2"), ids);
+
+            assertEquals("Jane", service.getContact("1").getFirstName());
+            assertNull(service.getContact("2"));
+        }
+    }
+
+    @Test
+    public void testSnapshotsSeeTheirOwnVersions() {
+        // Test that snapshots taken at different times each see their own state of a contact
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        try (ContactSnapshot before = service.snapshot()) {
+            service.deleteContact("1");
+            try (ContactSnapshot deleted = service.snapshot()) {
+                service.addContact(new Contact("1", "Jane", "Roe", "1112223333", "9 Elm St"));
+                try (ContactSnapshot readded = service.snapshot()) {
+                    service.deleteContact("1");
+                    assertTrue(before.getVersion() <= deleted.getVersion());
+                    assertEquals("John", before.get("1").getFirstName());
+                    assertNull(deleted.get("1"));
+                    assertEquals("Jane", readded.get("1").getFirstName());
+                    assertEquals(1, before.stream().count());
+                    assertEquals(0, deleted.stream().count());
+                    assertEquals(1, readded.stream().count());
+                }
+                assertEquals("John", before.get("1").getFirstName());
+            }
+        }
+    }
+
+    @Test
+    public void testIterationIsConsistentUnderConcurrentWriters() throws InterruptedException {
+        // Test that a snapshot read during heavy writes always sees the same contacts in ID order
+        ContactService service = new ContactService();
+        for (int i = 0; i < 2000; i++) {
+            service.addContact(contact(String.format("%05d", i)));
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] writers = new Thread[3];
+        for (int t = 0; t < writers.length; t++) {
+            int offset = t;
+            writers[t] = new Thread(() -> {
+                for (int i = offset; !stop.get(); i = (i + writers.length) % 4000) {
+                    String id = String.format("%05d", i);
+                    if (service.getContact(id) == null) {
+                        service.addContact(contact(id));
+                    } else if (i % 2 == 0) {
+                        service.deleteContact(id);
+                    } else {
+                        service.updateContact(id, "Jane", "Smith", null, null);
+                    }
+                }
+            });
+        }
+
+        try (ContactSnapshot snapshot = service.snapshot()) {
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            List<ContactRecord> expected = new ArrayList<>();
+            snapshot.forEach(expected::add);
+            for (int pass = 0; pass < 5; pass++) {
+                List<ContactRecord> records = new ArrayList<>();
+                snapshot.forEach(records::add);
+                assertEquals(2000, records.size());
+                for (int i = 0; i < records.size(); i++) {
+                    ContactRecord record = records.get(i);
+                    assertEquals(String.format("%05d", i), record.getContactId());
+                    // Both names are written by one update, so seeing only one would be a torn read
+                    assertEquals("John", record.getFirstName());
+                    assertEquals("Doe", record.getLastName());
+                    assertEquals(expected.get(i).getContactId(), record.getContactId());
+                }
+            }
+        } finally {
+            stop.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+
+    @Test
+    public void testClosingReclaimsVersions() {
+        // Test that closing the last snapshot drops every saved version and deleted ID
+        ContactService service = new ContactService();
+        for (int i = 0; i < 10; i++) {
+            service.addContact(contact(Integer.toString(i)));
+        }
+        ContactSnapshot older = service.snapshot();
+        service.updateContact("1", "Jane", null, null, null);
+        service.deleteContact("2");
+        ContactSnapshot newer = service.snapshot();
+        service.updateContact("1", "Janet", null, null, null);
+        service.deleteContact("3");
+        assertEquals(4, service.savedVersionCount());
+
+        older.close();
+        older.close();
+        assertEquals(2, service.savedVersionCount());
+        assertEquals("Jane", newer.get("1").getFirstName());
+        assertEquals("John", newer.get("3").getFirstName());
+        assertNull(newer.get("2"));
+        newer.close();
+        assertEquals(0, service.savedVersionCount());
+
+        service.updateContact("1", "Joan", null, null, null);
+        assertEquals(0, service.savedVersionCount());
+        // Deleted IDs must not linger in the ID index for paging
+        assertEquals(8, service.getAllContacts().size());
+        assertEquals(8, service.getContactsAfter(null, 100).size());
+    }
+
+    @Test
+    public void testDeletedIdsStayWhileANewerSnapshotNeedsThem() {
+        // Test that closing an older snapshot keeps a deleted ID that a newer snapshot still lists
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        ContactSnapshot older = service.snapshot();
+        service.deleteContact("1");
+        service.addContact(contact("1"));
+        ContactSnapshot newer = service.snapshot();
+        service.deleteContact("1");
+        older.close();
+        assertEquals(1, newer.stream().count());
+        newer.close();
+        assertEquals(0, service.getContactsAfter(null, 10).size());
+    }
+
+    @Test
+    public void testClosedSnapshotRejectsReads() {
+        // Test that a closed snapshot cannot be read
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        ContactSnapshot snapshot = service.snapshot();
+        snapshot.close();
+        assertThrows(IllegalStateException.class, () -> {
+            snapshot.get("1");
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            snapshot.iterator();
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            snapshot.stream();
+        });
+    }
+
+    @Test
+    public void testClosingSnapshotStopsOpenIterators() {
+        // Test that an iterator taken before close cannot read on after it
+        ContactService service = new ContactService();
+        service.addContact(contact("1"));
+        service.addContact(contact("2"));
+        service.addContact(contact("3"));
+        ContactSnapshot snapshot = service.snapshot();
+        Iterator<ContactRecord> iterator = snapshot.iterator();
+        Iterator<ContactRecord> streamed = snapshot.stream().iterator();
+        assertEquals("1", iterator.next().getContactId());
+        assertEquals("1", streamed.next().getContactId());
+        service.updateContact("2", "Changed", null, null, null);
+        snapshot.close();
+        assertThrows(IllegalStateException.class, () -> {
+            iterator.next();
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            iterator.hasNext();
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            streamed.next();
+        });
+    }
+}
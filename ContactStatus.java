@@ -0,0 +1,71 @@
+/**
+ * ContactStatus is the outcome of a non-throwing ContactService call such as tryAdd, with the
+ * message the throwing variant reports for the same failure. The values are shared constants,
+ * so reporting a failure allocates nothing and fills in no stack trace.
+ */
+public enum ContactStatus {
+    OK(null),
+    NULL_CONTACT("Contact cannot be null"),
+    NULL_CONTACT_ID("Contact ID cannot be null"),
+    DUPLICATE_ID("Contact ID must be unique"),
+    NOT_FOUND("Contact ID not found"),
+    ALREADY_STORED("Contact already belongs to a ContactService"),
+    CONFLICT("Contact was changed by another update"),
+    INVALID_CONTACT_ID(ContactField.CONTACT_ID.getMessage()),
+    INVALID_FIRST_NAME(ContactField.FIRST_NAME.getMessage()),
+    INVALID_LAST_NAME(ContactField.LAST_NAME.getMessage()),
+    INVALID_PHONE(ContactField.PHONE.getMessage()),
+    INVALID_ADDRESS(ContactField.ADDRESS.getMessage());
+
+    private final String message;
+
+    ContactStatus(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gets the status for a value that breaks a field's rule
+     * @param field The invalid field
+     * @return The field's INVALID_ status
+     */
+    public static ContactStatus invalid(ContactField field) {
+        switch (field) {
+            case CONTACT_ID:
+                return INVALID_CONTACT_ID;
+            case FIRST_NAME:
+                return INVALID_FIRST_NAME;
+            case LAST_NAME:
+                return INVALID_LAST_NAME;
+            case PHONE:
+                return INVALID_PHONE;
+            default:
+                return INVALID_ADDRESS;
+        }
+    }
+
+    /**
+     * Checks whether the call succeeded
+     * @return true for OK
+     */
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    /**
+     * Gets the failure message
+     * @return The message of the exception the throwing variant raises, or null for OK
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Throws the exception the throwing variant raises for this status
+     * @throws IllegalArgumentException with this status's message unless it is OK
+     */
+    void throwIfFailed() {
+        if (this != OK) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Iterator;
+
+/**
+ * ContactStore is the storage engine behind ContactService.
+ * ContactService validates every change and holds the write lock for the contact ID before
+ * calling insert, update or remove, so a store only needs to make reads safe against
+ * concurrent writes to other contacts.
+ */
+public interface ContactStore {
+    /**
+     * Gets a contact by ID
+     * @param contactId The ID of the contact to retrieve
+     * @return The contact, or null if not found
+     */
+    Contact get(String contactId);
+
+    /**
+     * Gets a contact for a scan, page or search result rather than a lookup by the caller. A
+     * store that moves or caches contacts by use leaves them where they are, so walking the
+     * whole book does not disturb the working set.
+     * @param contactId The ID of the contact to retrieve
+     * @return The contact, or null if not found
+     */
+    default Contact peek(String contactId) {
+        return get(contactId);
+    }
+
+    /**
+     * Checks whether a contact ID is stored
+     * @param contactId The ID to check
+     * @return true if a contact with the ID is stored
+     */
+    boolean contains(String contactId);
+
+    /**
+     * Stores a new contact whose ID is not yet stored
+     * @param contact The contact to store
+     */
+    void insert(Contact contact);
+
+    /**
+     * Replaces every non-null field of a stored contact
+     * @param contactId The ID of a stored contact
+     * @param firstName New first name (null to keep)
+     * @param lastName New last name (null to keep)
+     * @param phone New phone number (null to keep)
+     * @param address New address (null to keep)
+     * @return The fields before the update
+     */
+    ContactRecord update(String contactId, String firstName, String lastName, String phone, String address);
+
+    /**
+     * Removes a stored contact
+     * @param contactId The ID of a stored contact
+     * @return The fields of the removed contact
+     */
+    ContactRecord remove(String contactId);
+
+    /**
+     * Gets the number of stored contacts
+     * @return The contact count
+     */
+    int size();
+
+    /**
+     * Iterates over the stored contacts in insertion order
+     * @return An iterator that tolerates concurrent changes
+     */
+    Iterator<Contact> iterator();
+
+    /**
+     * Estimates the memory this store holds, for monitoring
+     * @return Approximate bytes of heap, off-heap and mapped memory used for the stored contacts
+     */
+    long estimatedBytes();
+
+    /**
+     * Tells whether get returns the stored Contact instance itself. When it does, ContactService
+     * routes that instance's setters through the service; otherwise get returns a copy and
+     * changing the copy does not change the store.
+     * @return true if stored instances are shared with callers
+     */
+    boolean sharesContacts();
+}
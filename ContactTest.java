@@ -253,5 +253,47 @@ public class ContactTest {
             contact.setAddress("123 Main Street, Apartment 456, City");
         });
     }
+    
+    @Test
+    public void testToRecordReflectsUpdates() {
+        // Test that the record snapshot is immutable and setters publish a new one
+        Contact contact = new Contact("123", "John", "Doe", "1234567890", "123 Main St");
+        ContactRecord before = contact.toRecord();
+        
+        contact.setPhone("9876543210");
+        
+        assertEquals("1234567890", before.getPhone());
+        assertEquals("9876543210", contact.toRecord().getPhone());
+        assertEquals("123", contact.toRecord().getContactId());
+    }
+    
+    @Test
+    public void testTryCreate() {
+        // Test that tryCreate returns the contact or a shared failure for the first invalid field
+        ContactResult created = Contact.tryCreate("1", "John", "Doe", "1234567890", "123 Main St");
+        assertTrue(created.isOk());
+        assertEquals("John", created.getContact().getFirstName());
+        
+        ContactResult rejected = Contact.tryCreate("1", "John", null, "12", "123 Main St");
+        assertFalse(rejected.isOk());
+        assertNull(rejected.getContact());
+        assertEquals(ContactStatus.INVALID_LAST_NAME, rejected.getStatus());
+        assertSame(rejected, Contact.tryCreate("2", "Jane", null, "1234567890", "1 Elm St"));
+        assertEquals(ContactStatus.INVALID_PHONE, Contact.tryCreate("1", "John", "Doe", "12", "123 Main St").getStatus());
+    }
+    
+    @Test
+    public void testRecordWithMethodsCopy() {
+        // Test that with methods return validated copies and leave the original unchanged
+        ContactRecord record = new Contact("1", "John", "Doe", "1234567890", "123 Main St").toRecord();
+        ContactRecord changed = record.withFirstName("Jack").withPhone("5555555555");
+        
+        assertEquals("John", record.getFirstName());
+        assertEquals("Jack", changed.getFirstName());
+        assertEquals("5555555555", changed.getPhone());
+        assertEquals("Doe", changed.getLastName());
+        assertEquals("1", changed.getContactId());
+        assertThrows(IllegalArgumentException.class, () -> record.withAddress(null));
+        assertThrows(IllegalArgumentException.class, () -> record.withLastName("TooLongLastName"));
+    }
 }
-
@@ -0,0 +1,101 @@
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactTiering is the background task behind a TieredContactStore. On every run it moves
+ * contacts idle for longer than the hot period to disk and, when a time to live is set, deletes
+ * contacts idle for longer than that through the ContactService, so the deletes reach the
+ * indexes, the log and the change feed like any other.
+ * A contact read between the idle check and its delete is still deleted.
+ */
+public final class ContactTiering implements Closeable {
+    private final ContactService service;
+    private final TieredContactStore store;
+    private final long hotMillis;
+    private final long ttlMillis;
+    private final ScheduledExecutorService timer;
+    private final LongAdder demoted;
+    private final LongAdder expired;
+
+    /**
+     * Starts tiering a service's contacts
+     * @param service The service, which must be backed by store
+     * @param store The service's store
+     * @param hotMillis How long a contact stays on the heap after its last access
+     * @param ttlMillis How long after its last access a contact is deleted, or 0 to keep contacts forever
+     * @param periodMillis How often to run
+     * @throws IllegalArgumentException if service or store is null or a time is out of range
+     */
+    public ContactTiering(ContactService service, TieredContactStore store, long hotMillis, long ttlMillis, long periodMillis) {
+        if (service == null || store == null) {
+            throw new IllegalArgumentException("Service and store cannot be null");
+        }
+        if (hotMillis < 0 || ttlMillis < 0 || periodMillis <= 0) {
+            throw new IllegalArgumentException("Tiering times must not be negative and the period must be positive");
+        }
+        this.service = service;
+        this.store = store;
+        this.hotMillis = hotMillis;
+        this.ttlMillis = ttlMillis;
+        this.demoted = new LongAdder();
+        this.expired = new LongAdder();
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "contact-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::runSafely, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one pass now: expires contacts past their time to live, then demotes idle ones
+     */
+    public void runOnce() {
+        long now = System.currentTimeMillis();
+        if (ttlMillis > 0) {
+            long cutoff = now - ttlMillis;
+            for (String contactId : store.idleSince(cutoff)) {
+                // Skip contacts read since they were listed
+                if (store.getLastAccessed(contactId) < cutoff && service.tryDelete(contactId).isOk()) {
+                    expired.increment();
+                }
+            }
+        }
+        demoted.add(store.demoteIdle(now - hotMillis));
+    }
+
+    /**
+     * Gets the number of contacts moved to disk by this task
+     * @return The demoted count
+     */
+    public long getDemotedCount() {
+        return demoted.sum();
+    }
+
+    /**
+     * Gets the number of contacts deleted for outliving their time to live
+     * @return The expired count
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Stops the task; the service and store stay open
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ContactValidationException reports every invalid field of a contact at once.
+ * It extends IllegalArgumentException so existing callers keep working.
+ */
+public class ContactValidationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<ContactField> violations;
+
+    /**
+     * Constructor for ContactValidationException
+     * @param violations The invalid fields, in declaration order
+     */
+    public ContactValidationException(List<ContactField> violations) {
+        super(describe(violations));
+        this.violations = Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * Gets the invalid fields
+     * @return The invalid fields in declaration order
+     */
+    public List<ContactField> getViolations() {
+        return violations;
+    }
+
+    private static String describe(List<ContactField> violations) {
+        StringBuilder message = new StringBuilder();
+        for (ContactField field : violations) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(field.getMessage());
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactValidator holds the field rules shared by Contact and ContactService.
+ * Checks are plain length and character comparisons, so validating a valid value allocates nothing.
+ * Every rejected value is counted per field for the whole process; see getFailureCount.
+ */
+public final class ContactValidator {
+    public static final int MAX_ID_LENGTH = 10;
+    public static final int MAX_NAME_LENGTH = 10;
+    public static final int PHONE_LENGTH = 10;
+    public static final int MAX_ADDRESS_LENGTH = 30;
+
+    private static final LongAdder[] FAILURES = new LongAdder[ContactField.values().length];
+
+    static {
+        for (int i = 0; i < FAILURES.length; i++) {
+            FAILURES[i] = new LongAdder();
+        }
+    }
+
+    private ContactValidator() {
+    }
+
+    /**
+     * Checks a value against one field's rule
+     * @param field The field the value is for
+     * @param value The value to check
+     * @return true if the value is valid for the field
+     */
+    public static boolean isValid(ContactField field, String value) {
+        if (value == null) {
+            return false;
+        }
+        switch (field) {
+            case CONTACT_ID:
+                return value.length() <= MAX_ID_LENGTH;
+            case FIRST_NAME:
+            case LAST_NAME:
+                return value.length() <= MAX_NAME_LENGTH;
+            case PHONE:
+                return isPhone(value);
+            default:
+                return value.length() <= MAX_ADDRESS_LENGTH;
+        }
+    }
+
+    /**
+     * Requires a value to be valid for a field
+     * @param field The field the value is for
+     * @param value The value to check
+     * @throws IllegalArgumentException with the field's message if the value is invalid
+     */
+    public static void require(ContactField field, String value) {
+        if (!isValid(field, value)) {
+            throw new IllegalArgumentException(reject(field));
+        }
+    }
+
+    /**
+     * Counts a rejected value for a field
+     * @param field The field whose rule was broken
+     * @return The field's message, for the exception or error being reported
+     */
+    static String reject(ContactField field) {
+        FAILURES[field.ordinal()].increment();
+        return field.getMessage();
+    }
+
+    /**
+     * Gets how many values have been rejected for a field since the process started, by Contact
+     * and by ContactService
+     * @param field The field
+     * @return The rejection count
+     */
+    public static long getFailureCount(ContactField field) {
+        return FAILURES[field.ordinal()].sum();
+    }
+
+    /**
+     * Finds the first invalid field of a complete contact
+     * @return The first invalid field in declaration order, or null if all fields are valid
+     */
+    public static ContactField firstViolation(String contactId, String firstName, String lastName, String phone, String address) {
+        if (!isValid(ContactField.CONTACT_ID, contactId)) {
+            return ContactField.CONTACT_ID;
+        }
+        if (!isValid(ContactField.FIRST_NAME, firstName)) {
+            return ContactField.FIRST_NAME;
+        }
+        if (!isValid(ContactField.LAST_NAME, lastName)) {
+            return ContactField.LAST_NAME;
+        }
+        if (!isValid(ContactField.PHONE, phone)) {
+            return ContactField.PHONE;
+        }
+        if (!isValid(ContactField.ADDRESS, address)) {
+            return ContactField.ADDRESS;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first invalid field of a partial update, where null values skip the update
+     * @return The first invalid field in declaration order, or null if all provided fields are valid
+     */
+    public static ContactField firstUpdateViolation(String firstName, String lastName, String phone, String address) {
+        if (firstName != null && !isValid(ContactField.FIRST_NAME, firstName)) {
+            return ContactField.FIRST_NAME;
+        }
+        if (lastName != null && !isValid(ContactField.LAST_NAME, lastName)) {
+            return ContactField.LAST_NAME;
+        }
+        if (phone != null && !isValid(ContactField.PHONE, phone)) {
+            return ContactField.PHONE;
+        }
+        if (address != null && !isValid(ContactField.ADDRESS, address)) {
+            return ContactField.ADDRESS;
+        }
+        return null;
+    }
+
+    /**
+     * Reports every invalid field of a complete contact at once
+     * @return The invalid fields in declaration order; an empty list if all fields are valid
+     */
+    public static List<ContactField> validateAll(String contactId, String firstName, String lastName, String phone, String address) {
+        if (firstViolation(contactId, firstName, lastName, phone, address) == null) {
+            return Collections.emptyList();
+        }
+        List<ContactField> violations = new ArrayList<>(ContactField.values().length);
+        addIfInvalid(violations, ContactField.CONTACT_ID, contactId);
+        addIfInvalid(violations, ContactField.FIRST_NAME, firstName);
+        addIfInvalid(violations, ContactField.LAST_NAME, lastName);
+        addIfInvalid(violations, ContactField.PHONE, phone);
+        addIfInvalid(violations, ContactField.ADDRESS, address);
+        return violations;
+    }
+
+    /**
+     * Requires every field of a complete contact to be valid, reporting all failures together
+     * @throws ContactValidationException listing every invalid field
+     */
+    public static void requireAll(String contactId, String firstName, String lastName, String phone, String address) {
+        List<ContactField> violations = validateAll(contactId, firstName, lastName, phone, address);
+        if (!violations.isEmpty()) {
+            for (ContactField field : violations) {
+                reject(field);
+            }
+            throw new ContactValidationException(violations);
+        }
+    }
+
+    private static void addIfInvalid(List<ContactField> violations, ContactField field, String value) {
+        if (!isValid(field, value)) {
+            violations.add(field);
+        }
+    }
+
+    private static boolean isPhone(String phone) {
+        if (phone.length() != PHONE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PHONE_LENGTH; i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the ContactValidator class
+ */
+public class ContactValidatorTest {
+    
+    @Test
+    public void testPhoneDigitsOnly() {
+        // Test the phone rule without regular expressions
+        assertTrue(ContactValidator.isValid(ContactField.PHONE, "0123456789"));
+        assertFalse(ContactValidator.isValid(ContactField.PHONE, "012345678a"));
+        assertFalse(ContactValidator.isValid(ContactField.PHONE, "012-456789"));
+        assertFalse(ContactValidator.isValid(ContactField.PHONE, "012345678"));
+        assertFalse(ContactValidator.isValid(ContactField.PHONE, null));
+    }
+    
+    @Test
+    public void testPhoneRejectsNonAsciiDigits() {
+        // Test that only ASCII digits count, matching the previous \\d pattern
+        assertFalse(ContactValidator.isValid(ContactField.PHONE, "\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669\u0660"));
+    }
+    
+    @Test
+    public void testLengthBoundaries() {
+        // Test the maximum length of each text field
+        assertTrue(ContactValidator.isValid(ContactField.CONTACT_ID, "1234567890"));
+        assertFalse(ContactValidator.isValid(ContactField.CONTACT_ID, "12345678901"));
+        assertTrue(ContactValidator.isValid(ContactField.FIRST_NAME, "JohnJohnJo"));
+        assertFalse(ContactValidator.isValid(ContactField.LAST_NAME, "SmithSmithS"));
+        assertTrue(ContactValidator.isValid(ContactField.ADDRESS, "123456789012345678901234567890"));
+        assertFalse(ContactValidator.isValid(ContactField.ADDRESS, "1234567890123456789012345678901"));
+    }
+    
+    @Test
+    public void testFirstViolationValid() {
+        // Test that a valid contact has no violation
+        assertNull(ContactValidator.firstViolation("123", "John", "Doe", "1234567890", "123 Main St"));
+    }
+    
+    @Test
+    public void testFirstUpdateViolationSkipsNulls() {
+        // Test that null update fields are skipped
+        assertNull(ContactValidator.firstUpdateViolation(null, null, null, null));
+        assertEquals(ContactField.PHONE, ContactValidator.firstUpdateViolation("Jane", null, "123", null));
+    }
+    
+    @Test
+    public void testValidateAllReportsEveryViolation() {
+        // Test that all invalid fields are reported together
+        List<ContactField> violations = ContactValidator.validateAll(null, "John", "SmithSmithSmith", "123", null);
+        assertEquals(Arrays.asList(ContactField.CONTACT_ID, ContactField.LAST_NAME, ContactField.PHONE, ContactField.ADDRESS),
+                violations);
+        assertTrue(ContactValidator.validateAll("123", "John", "Doe", "1234567890", "123 Main St").isEmpty());
+    }
+    
+    @Test
+    public void testRequireAllThrowsWithEveryViolation() {
+        // Test that requireAll reports all failures in one exception
+        ContactValidationException e = assertThrows(ContactValidationException.class, () -> {
+            ContactValidator.requireAll("123", null, "Doe", "12345", "123 Main St");
+        });
+        assertEquals(Arrays.asList(ContactField.FIRST_NAME, ContactField.PHONE), e.getViolations());
+        assertTrue(e.getMessage().contains(ContactField.PHONE.getMessage()));
+    }
+}
@@ -0,0 +1,201 @@
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ContactVersions keeps the old versions of contacts that open ContactSnapshots still need.
+ *
+ * Each snapshot is taken at a version number. While any snapshot is open, every write gets the
+ * next version number and first saves the contact's previous state, or its absence for an
+ * add, as a Version valid until that write. Versions of one contact form a list from newest to
+ * oldest, so a snapshot at version v reads the current state and then walks back past every
+ * version that was replaced after v. When the oldest open snapshot closes or is garbage
+ * collected, versions no open snapshot can see are dropped. With no snapshot open, writes skip
+ * all of this and cost one volatile read.
+ *
+ * Writers call in under the contact's stripe lock; open must run while no write is in
+ * progress.
+ */
+final class ContactVersions {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final AtomicLong clock;
+    private final ConcurrentHashMap<String, Version> history;
+    private final ConcurrentLinkedQueue<Retired> retired;
+    private final TreeMap<Long, Integer> open;    // Guarded by this; snapshot version to open count
+    private volatile int openCount;
+    private volatile long oldestOpen;
+
+    /**
+     * A replaced state of one contact
+     */
+    private static final class Version {
+        final ContactRecord record;     // Null if the contact did not exist
+        final long validUntil;          // The version of the write that replaced it
+        volatile Version older;
+
+        Version(ContactRecord record, long validUntil, Version older) {
+            this.record = record;
+            this.validUntil = validUntil;
+            this.older = older;
+        }
+    }
+
+    /**
+     * A deleted contact ID kept in the ID index because an open snapshot may still list it
+     */
+    static final class Retired {
+        final String contactId;
+        final long version;
+
+        Retired(String contactId, long version) {
+            this.contactId = contactId;
+            this.version = version;
+        }
+    }
+
+    ContactVersions() {
+        this.clock = new AtomicLong();
+        this.history = new ConcurrentHashMap<>();
+        this.retired = new ConcurrentLinkedQueue<>();
+        this.open = new TreeMap<>();
+    }
+
+    /**
+     * Tells whether writes must save the versions they replace
+     */
+    boolean isTracking() {
+        return openCount > 0;
+    }
+
+    /**
+     * Saves a contact's state before a write. Must hold the contact's stripe lock.
+     * @param previous The state being replaced, or null if the contact does not exist yet
+     * @return The version of the write
+     */
+    long saveVersion(String contactId, ContactRecord previous) {
+        long version = clock.incrementAndGet();
+        Version older = history.get(contactId);
+        trim(older);
+        if (older != null && older.validUntil <= oldestOpen) {
+            older = null;
+        }
+        history.put(contactId, new Version(previous, version, older));
+        return version;
+    }
+
+    /**
+     * Records that a deleted contact's ID stays in the ID index until no snapshot needs it
+     */
+    void retire(String contactId, long version) {
+        retired.add(new Retired(contactId, version));
+    }
+
+    /**
+     * Reads a contact as of a version. Reads the store before the saved versions, so a write
+     * racing the read is either not seen at all or seen together with its saved version.
+     */
+    ContactRecord read(ContactStore store, String contactId, long version) {
+        Contact current = store.peek(contactId);
+        ContactRecord record = current == null ? null : current.toRecord();
+        for (Version saved = history.get(contactId); saved != null && saved.validUntil > version; saved = saved.older) {
+            record = saved.record;
+        }
+        return record;
+    }
+
+    /**
+     * Registers a snapshot at the current version. Must run while no write is in progress.
+     * @return The snapshot version
+     */
+    synchronized long open() {
+        long version = clock.get();
+        open.merge(version, 1, Integer::sum);
+        oldestOpen = open.firstKey();
+        openCount++;
+        return version;
+    }
+
+    /**
+     * Releases a snapshot and drops the versions no remaining snapshot can see
+     * @return Retired IDs that no snapshot needs any more, to remove from the ID index
+     */
+    List<Retired> close(long version) {
+        long oldest;
+        synchronized (this) {
+            if (open.merge(version, -1, Integer::sum) == 0) {
+                open.remove(version);
+            }
+            openCount--;
+            // A snapshot opened later sees every write so far, so this bound stays safe
+            oldest = open.isEmpty() ? clock.get() : open.firstKey();
+            oldestOpen = oldest;
+        }
+        for (Map.Entry<String, Version> entry : history.entrySet()) {
+            Version newest = entry.getValue();
+            if (newest.validUntil <= oldest) {
+                history.remove(entry.getKey(), newest);
+            } else {
+                trim(newest);
+            }
+        }
+        List<Retired> released = new ArrayList<>();
+        for (Iterator<Retired> it = retired.iterator(); it.hasNext(); ) {
+            Retired id = it.next();
+            if (id.version <= oldest) {
+                released.add(id);
+                it.remove();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Tells whether an open snapshot may still need a contact's saved versions
+     */
+    boolean isRetained(String contactId) {
+        Version newest = history.get(contactId);
+        return newest != null && newest.validUntil > oldestOpen;
+    }
+
+    /**
+     * Gets the number of saved versions, for tests and monitoring
+     */
+    int savedVersionCount() {
+        int count = 0;
+        for (Version newest : history.values()) {
+            for (Version saved = newest; saved != null; saved = saved.older) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Registers an action to release a snapshot, or another view that pins resources, that is
+     * garbage collected without being closed
+     */
+    static Cleaner.Cleanable register(Object view, Runnable release) {
+        return CLEANER.register(view, release);
+    }
+
+    /**
+     * Cuts off the versions older than every open snapshot
+     */
+    private void trim(Version newest) {
+        long oldest = oldestOpen;
+        for (Version saved = newest; saved != null; saved = saved.older) {
+            Version older = saved.older;
+            if (older != null && older.validUntil <= oldest) {
+                saved.older = null;
+                return;
+            }
+        }
+    }
+}
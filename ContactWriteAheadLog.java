@@ -0,0 +1,383 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * ContactWriteAheadLog is an append-only binary log of ContactService mutations.
+ *
+ * The file starts with an 8-byte header (magic and version). Each record is its body length,
+ * a CRC-32 of the body, and the body: an operation type byte followed by the operation's
+ * strings, each a signed short UTF-8 byte count (-1 for null) and the bytes.
+ *
+ * Appends only copy the record into a memory buffer. A mutation then waits for its position
+ * in the log to be written (and forced, under FsyncPolicy.ALWAYS). Whichever waiting thread
+ * gets the flush lock writes everything appended so far, so concurrent mutations share one
+ * write and one force (group commit).
+ *
+ * Opening a log replays every intact record. A torn or corrupt tail, left by a crash in the
+ * middle of a write, is cut off at the last intact record.
+ */
+public class ContactWriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x4357414C;    // "CWAL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_BODY_BYTES = 1 << 16;
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final ReentrantLock appendLock;   // Guards pending and appended
+    private final ReentrantLock flushLock;    // Held by the thread writing to the file
+    private final ScheduledExecutorService forcer;
+    private ByteBuffer pending;               // Appended records not yet handed to a writer
+    private ByteBuffer spare;                 // Guarded by flushLock
+    private long appended;
+    private volatile long written;
+    private volatile long forced;
+    private volatile IOException failure;
+
+    private ContactWriteAheadLog(FileChannel channel, FsyncPolicy policy, long intervalMillis, long end) {
+        this.channel = channel;
+        this.policy = policy;
+        this.appendLock = new ReentrantLock();
+        this.flushLock = new ReentrantLock();
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.spare = ByteBuffer.allocate(64 * 1024);
+        this.appended = end;
+        this.written = end;
+        this.forced = end;
+        if (policy == FsyncPolicy.INTERVAL) {
+            this.forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "contact-log-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forcer.scheduleWithFixedDelay(this::forceQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.forcer = null;
+        }
+    }
+
+    /**
+     * Opens a log with a 100 ms interval for FsyncPolicy.INTERVAL, replaying its records
+     * @see #open(Path, FsyncPolicy, long, Consumer)
+     */
+    public static ContactWriteAheadLog open(Path file, FsyncPolicy policy, Consumer<ContactOperation> replay) throws IOException {
+        return open(file, policy, 100, replay);
+    }
+
+    /**
+     * Opens or creates a log, replays its intact records in order and cuts off any torn tail
+     * @param file The log file
+     * @param policy When appended records are forced to disk
+     * @param intervalMillis How often to force the log under FsyncPolicy.INTERVAL
+     * @param replay Receives each logged operation in order
+     * @return The log, positioned for appending
+     * @throws IOException if the file cannot be read or is not a contact log
+     */
+    public static ContactWriteAheadLog open(Path file, FsyncPolicy policy, long intervalMillis,
+                                            Consumer<ContactOperation> replay) throws IOException {
+        if (policy == null) {
+            throw new IllegalArgumentException("Fsync policy cannot be null");
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Fsync interval must be positive");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end;
+            if (channel.size() < HEADER_BYTES) {
+                // New file, or a crash before the header was complete
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+                end = HEADER_BYTES;
+            } else {
+                end = replay(file, replay);
+                if (channel.size() > end) {
+                    channel.truncate(end);
+                    channel.force(true);
+                }
+            }
+            channel.position(end);
+            return new ContactWriteAheadLog(channel, policy, intervalMillis, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads intact records from the start of a log
+     * @return The offset just past the last intact record
+     */
+    private static long replay(Path file, Consumer<ContactOperation> replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a contact log: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported contact log version " + version + ": " + file);
+            }
+            long end = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[MAX_BODY_BYTES];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 1 || length > MAX_BODY_BYTES) {
+                        return end;
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    return end;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return end;
+                }
+                ContactOperation operation;
+                try {
+                    operation = decode(ByteBuffer.wrap(body, 0, length));
+                } catch (RuntimeException e) {
+                    return end;
+                }
+                replay.accept(operation);
+                end += RECORD_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    /**
+     * Appends an add record
+     * @return The log position to wait for
+     */
+    long appendAdd(ContactRecord record) {
+        return append(ADD, record.getContactId(), record.getFirstName(), record.getLastName(), record.getPhone(), record.getAddress());
+    }
+
+    /**
+     * Appends an update record; null fields were not changed
+     * @return The log position to wait for
+     */
+    long appendUpdate(String contactId, String firstName, String lastName, String phone, String address) {
+        return append(UPDATE, contactId, firstName, lastName, phone, address);
+    }
+
+    /**
+     * Appends a delete record
+     * @return The log position to wait for
+     */
+    long appendDelete(String contactId) {
+        return append(DELETE, contactId, null, null, null, null);
+    }
+
+    private long append(byte type, String... fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int length = 1;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+                length += encoded[i].length;
+            }
+            length += 2;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.put(type);
+        for (byte[] field : encoded) {
+            if (field == null) {
+                body.putShort((short) -1);
+            } else {
+                body.putShort((short) field.length);
+                body.put(field);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+
+        appendLock.lock();
+        try {
+            checkFailure();
+            if (pending.remaining() < RECORD_HEADER_BYTES + length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + RECORD_HEADER_BYTES + length));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.putInt(length).putInt((int) crc.getValue()).put(body.array(), 0, length);
+            appended += RECORD_HEADER_BYTES + length;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a log position is durable under this log's policy
+     * @param position A position returned by an append
+     * @throws UncheckedIOException if the log could not be written
+     */
+    void await(long position) {
+        if (position <= durable()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (position > durable()) {
+                flush(policy == FsyncPolicy.ALWAYS);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Contact log write failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces everything appended so far
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void sync() {
+        flushLock.lock();
+        try {
+            flush(true);
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Contact log write failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every appended record to the file. Must hold flushLock.
+     */
+    private void flush(boolean force) throws IOException {
+        checkFailure();
+        ByteBuffer batch;
+        long end;
+        appendLock.lock();
+        try {
+            batch = pending;
+            pending = spare;
+            end = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+        spare = batch;
+        written = end;
+        if (force && forced < end) {
+            channel.force(false);
+            forced = end;
+        }
+    }
+
+    private long durable() {
+        return policy == FsyncPolicy.ALWAYS ? forced : written;
+    }
+
+    private void forceQuietly() {
+        flushLock.lock();
+        try {
+            long end = written;
+            if (forced < end && failure == null) {
+                channel.force(false);
+                forced = end;
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Contact log failed earlier; no further writes are accepted", failure);
+        }
+    }
+
+    private static ContactOperation decode(ByteBuffer body) {
+        byte type = body.get();
+        String contactId = readString(body);
+        String firstName = readString(body);
+        String lastName = readString(body);
+        String phone = readString(body);
+        String address = readString(body);
+        if (body.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes in log record");
+        }
+        switch (type) {
+            case ADD:
+                return ContactOperation.add(new Contact(contactId, firstName, lastName, phone, address));
+            case UPDATE:
+                return ContactOperation.update(contactId, firstName, lastName, phone, address);
+            case DELETE:
+                return ContactOperation.delete(contactId);
+            default:
+                throw new IllegalArgumentException("Unknown log record type " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer body) {
+        short length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    /**
+     * Writes and forces any appended records, then closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (forcer != null) {
+            forcer.shutdownNow();
+        }
+        try {
+            if (failure == null) {
+                sync();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+}
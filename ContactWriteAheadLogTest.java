@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the ContactWriteAheadLog class and durable ContactService recovery
+ */
+public class ContactWriteAheadLogTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    public void testReopenReplaysEveryMutation() throws IOException {
+        // Test that reopening the log rebuilds the contacts
+        Path logFile = directory.resolve("contacts.log");
+        try (ContactService service = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            service.addContact(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+            service.updateContact("1", "Jim", null, "5555555555", null);
+            service.getContact("2").setAddress("789 Pine Rd");
+            service.deleteContact("2");
+            service.addContact(new Contact("3", "Zo\u00eb", "Brown", "1112223333", "1 Elm St"));
+        }
+        
+        try (ContactService recovered = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            assertEquals(2, recovered.getAllContacts().size());
+            assertEquals("Jim", recovered.getContact("1").getFirstName());
+            assertEquals("5555555555", recovered.getContact("1").getPhone());
+            assertNull(recovered.getContact("2"));
+            assertEquals("Zo\u00eb", recovered.getContact("3").getFirstName());
+            assertEquals(1, recovered.findByLastName("Brown").size());
+        }
+    }
+    
+    @Test
+    public void testBatchIsLogged() throws IOException {
+        // Test that batch operations are replayed too
+        Path logFile = directory.resolve("contacts.log");
+        try (ContactService service = ContactService.open(logFile, FsyncPolicy.NEVER)) {
+            service.applyBatch(Arrays.asList(
+                    ContactOperation.add(new Contact("1", "John", "Doe", "1234567890", "123 Main St")),
+                    ContactOperation.update("1", null, "Smith", null, null),
+                    ContactOperation.delete("missing")), BatchMode.BEST_EFFORT);
+        }
+        
+        try (ContactService recovered = ContactService.open(logFile, FsyncPolicy.NEVER)) {
+            assertEquals("Smith", recovered.getContact("1").getLastName());
+        }
+    }
+    
+    @Test
+    public void testTruncatedTailRecoversEveryPrefix() throws IOException {
+        // Test a crash after every possible number of written bytes
+        Path logFile = directory.resolve("contacts.log");
+        try (ContactService service = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 5; i++) {
+                service.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+            }
+        }
+        byte[] full = Files.readAllBytes(logFile);
+        int recordBytes = (full.length - 8) / 5;
+        
+        for (int length = 0; length < full.length; length++) {
+            Path crashed = directory.resolve("crashed-" + length + ".log");
+            Files.write(crashed, Arrays.copyOf(full, length));
+            try (ContactService recovered = ContactService.open(crashed, FsyncPolicy.NEVER)) {
+                int expected = Math.max(0, length - 8) / recordBytes;
+                assertEquals(expected, recovered.getAllContacts().size(), "log cut at " + length + " bytes");
+                
+                // The torn tail is cut off, so new records follow the last intact one
+                recovered.addContact(new Contact("new", "Jane", "Doe", "1234567890", "123 Main St"));
+            }
+            try (ContactService reopened = ContactService.open(crashed, FsyncPolicy.NEVER)) {
+                assertNotNull(reopened.getContact("new"));
+            }
+        }
+    }
+    
+    @Test
+    public void testCorruptTailIsDiscarded() throws IOException {
+        // Test that a torn write with garbage bytes ends recovery at the last good record
+        Path logFile = directory.resolve("contacts.log");
+        try (ContactService service = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            service.addContact(new Contact("2", "Jane", "Smith", "9876543210", "456 Oak Ave"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            // Flip a byte inside the last record's body
+            file.seek(file.length() - 3);
+            int b = file.read();
+            file.seek(file.length() - 3);
+            file.write(b ^ 0xFF);
+        }
+        
+        try (ContactService recovered = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            assertNotNull(recovered.getContact("1"));
+            assertNull(recovered.getContact("2"));
+        }
+    }
+    
+    @Test
+    public void testRejectsForeignFile() throws IOException {
+        // Test that a file that is not a contact log is refused rather than overwritten
+        Path logFile = directory.resolve("other.txt");
+        Files.write(logFile, "hello world, not a log".getBytes());
+        
+        assertThrows(IOException.class, () -> ContactService.open(logFile, FsyncPolicy.NEVER));
+    }
+    
+    @Test
+    public void testConcurrentWritersShareGroupCommit() throws Exception {
+        // Test that concurrent durable writers all make it into the log
+        Path logFile = directory.resolve("contacts.log");
+        try (ContactService service = ContactService.open(logFile, FsyncPolicy.ALWAYS)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int base = t * 100;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        service.addContact(new Contact(Integer.toString(base + i), "John", "Doe", "1234567890", "123 Main St"));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        
+        try (ContactService recovered = ContactService.open(logFile, FsyncPolicy.INTERVAL)) {
+            assertEquals(400, recovered.getAllContacts().size());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * EvictionPolicy chooses which contacts a CachingContactStore drops when it is full
+ */
+public enum EvictionPolicy {
+    /** Drop the least recently used contact */
+    LRU,
+    /**
+     * Window TinyLFU: new contacts enter a small LRU window and only move into the main
+     * segmented LRU if they are used more often than the contact they would displace,
+     * so one-off reads and scans do not flush frequently used contacts
+     */
+    TINY_LFU
+}
@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * FieldIndex is a sorted secondary index over one contact field.
+ * Entries are ordered by field value and then by contact ID, so exact and prefix queries are
+ * a single range scan costing O(log n + matches). Queries never block writers.
+ */
+public class FieldIndex implements ContactIndex {
+    private static final long ENTRY_BYTES = 64;
+
+    private final Function<ContactRecord, String> field;
+    private final ConcurrentSkipListSet<Key> entries;
+
+    /**
+     * An index entry: one field value paired with the ID of the contact holding it
+     */
+    private static final class Key implements Comparable<Key> {
+        final String value;
+        final String contactId;
+
+        Key(String value, String contactId) {
+            this.value = value;
+            this.contactId = contactId;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = value.compareTo(other.value);
+            return result != 0 ? result : contactId.compareTo(other.contactId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && compareTo((Key) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * value.hashCode() + contactId.hashCode();
+        }
+    }
+
+    /**
+     * Constructor for FieldIndex
+     * @param field Extracts the indexed value from a contact
+     */
+    public FieldIndex(Function<ContactRecord, String> field) {
+        this.field = field;
+        this.entries = new ConcurrentSkipListSet<>();
+    }
+
+    @Override
+    public void added(ContactRecord record) {
+        entries.add(new Key(field.apply(record), record.getContactId()));
+    }
+
+    /**
+     * Sorts the entries first; inserting in ascending order is several times faster than in
+     * random order because each insert follows the previous one's path through the skip list
+     */
+    @Override
+    public void addedAll(List<ContactRecord> records) {
+        Key[] keys = new Key[records.size()];
+        for (int i = 0; i < keys.length; i++) {
+            ContactRecord record = records.get(i);
+            keys[i] = new Key(field.apply(record), record.getContactId());
+        }
+        Arrays.parallelSort(keys);
+        entries.addAll(Arrays.asList(keys));
+    }
+
+    @Override
+    public void updated(ContactRecord before, ContactRecord after) {
+        String oldValue = field.apply(before);
+        String newValue = field.apply(after);
+        if (!oldValue.equals(newValue)) {
+            entries.add(new Key(newValue, after.getContactId()));
+            entries.remove(new Key(oldValue, before.getContactId()));
+        }
+    }
+
+    @Override
+    public void removed(ContactRecord record) {
+        entries.remove(new Key(field.apply(record), record.getContactId()));
+    }
+
+    /**
+     * Finds contacts whose field equals a value
+     * @param value The value to match
+     * @return IDs of matching contacts, ordered by ID
+     */
+    public List<String> findEqual(String value) {
+        List<String> ids = new ArrayList<>();
+        for (Key key : entries.tailSet(new Key(value, ""))) {
+            if (!key.value.equals(value)) {
+                break;
+            }
+            ids.add(key.contactId);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds contacts whose field starts with a prefix
+     * @param prefix The prefix to match
+     * @return IDs of matching contacts, ordered by field value and then ID
+     */
+    public List<String> findPrefix(String prefix) {
+        List<String> ids = new ArrayList<>();
+        for (Key key : entries.tailSet(new Key(prefix, ""))) {
+            if (!key.value.startsWith(prefix)) {
+                break;
+            }
+            ids.add(key.contactId);
+        }
+        return ids;
+    }
+
+    /**
+     * Estimates the heap used by the index entries; field values are shared with the contacts
+     * @return Approximate bytes
+     */
+    public long estimatedBytes() {
+        return entries.size() * ENTRY_BYTES;
+    }
+
+    /**
+     * Gets the number of indexed entries
+     * @return The entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FileContactStore keeps contacts in an append-only data file and only their file locations
+ * in memory. Every get reads the contact from the file, so it stands in for a slower backend
+ * such as an embedded database behind a CachingContactStore.
+ *
+ * Each write appends a record: its body length, then a type byte and, for a put, the five
+ * fields as a short UTF-8 byte count and the bytes, or for a delete only the contact ID.
+ * Opening an existing file replays the records to rebuild the locations and drops a torn tail.
+ * Records are not forced to disk; pair the store with a write-ahead log for durability.
+ * Old versions of updated or deleted contacts stay in the file.
+ */
+public class FileContactStore implements ContactStore, Closeable {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int MAX_BODY_BYTES = 1 << 16;
+    private static final long LOCATION_BYTES = 150;
+
+    private final FileChannel channel;
+    private final ConcurrentHashMap<String, Location> locations;
+    private final ConcurrentSkipListMap<Long, String> insertionOrder;
+    private final AtomicLong nextSequence;
+    private final AtomicLong end;
+
+    /**
+     * Where the current version of a contact is stored
+     */
+    private static final class Location {
+        final long offset;     // Offset of the record body
+        final int length;
+        final long sequence;   // Position in insertion order
+
+        Location(long offset, int length, long sequence) {
+            this.offset = offset;
+            this.length = length;
+            this.sequence = sequence;
+        }
+    }
+
+    private FileContactStore(FileChannel channel) {
+        this.channel = channel;
+        this.locations = new ConcurrentHashMap<>();
+        this.insertionOrder = new ConcurrentSkipListMap<>();
+        this.nextSequence = new AtomicLong();
+        this.end = new AtomicLong();
+    }
+
+    /**
+     * Opens or creates a data file, rebuilding the contact locations from its records
+     * @param file The data file
+     * @return The store; close it to release the file
+     * @throws IOException if the file cannot be opened or read
+     */
+    public static FileContactStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileContactStore store = new FileContactStore(channel);
+            long valid = store.load(file);
+            if (channel.size() > valid) {
+                channel.truncate(valid);
+            }
+            store.end.set(valid);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replays the records of an existing file
+     * @return The offset just past the last complete record
+     */
+    private long load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            long offset = 0;
+            byte[] body = new byte[MAX_BODY_BYTES];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length < 1 || length > MAX_BODY_BYTES) {
+                        return offset;
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    return offset;
+                }
+                ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+                String contactId;
+                try {
+                    byte type = record.get();
+                    contactId = readString(record);
+                    if (type == DELETE) {
+                        Location removed = locations.remove(contactId);
+                        if (removed != null) {
+                            insertionOrder.remove(removed.sequence);
+                        }
+                        offset += 4 + length;
+                        continue;
+                    }
+                } catch (RuntimeException e) {
+                    return offset;
+                }
+                Location previous = locations.get(contactId);
+                long sequence = previous != null ? previous.sequence : nextSequence.incrementAndGet();
+                locations.put(contactId, new Location(offset + 4, length, sequence));
+                insertionOrder.put(sequence, contactId);
+                offset += 4 + length;
+            }
+        }
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        Location location = locations.get(contactId);
+        return location == null ? null : new Contact(read(location));
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return locations.containsKey(contactId);
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        ContactRecord record = contact.toRecord();
+        long sequence = nextSequence.incrementAndGet();
+        Location location = appendPut(record, sequence);
+        insertionOrder.put(sequence, record.getContactId());
+        locations.put(record.getContactId(), location);
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        Location location = locations.get(contactId);
+        ContactRecord before = read(location);
+        locations.put(contactId, appendPut(before.merge(firstName, lastName, phone, address), location.sequence));
+        return before;
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        Location location = locations.get(contactId);
+        ContactRecord removed = read(location);
+        byte[] id = contactId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 2 + id.length);
+        record.putInt(1 + 2 + id.length).put(DELETE).putShort((short) id.length).put(id);
+        append(record);
+        locations.remove(contactId);
+        insertionOrder.remove(location.sequence);
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return locations.size();
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        Iterator<String> ids = insertionOrder.values().iterator();
+        return new Iterator<Contact>() {
+            private Contact next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && ids.hasNext()) {
+                    // Skip contacts deleted after the ID was read
+                    next = get(ids.next());
+                }
+                return next != null;
+            }
+
+            @Override
+            public Contact next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Contact contact = next;
+                next = null;
+                return contact;
+            }
+        };
+    }
+
+    /**
+     * Counts only the in-memory locations; the data file itself is not held in memory
+     */
+    @Override
+    public long estimatedBytes() {
+        return locations.size() * LOCATION_BYTES;
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return false;
+    }
+
+    /**
+     * Gets the size of the data file, including old versions of changed contacts
+     * @return The file length in bytes
+     */
+    public long fileBytes() {
+        return end.get();
+    }
+
+    /**
+     * Closes the data file
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Location appendPut(ContactRecord record, long sequence) {
+        byte[][] fields = {
+                record.getContactId().getBytes(StandardCharsets.UTF_8),
+                record.getFirstName().getBytes(StandardCharsets.UTF_8),
+                record.getLastName().getBytes(StandardCharsets.UTF_8),
+                record.getPhone().getBytes(StandardCharsets.UTF_8),
+                record.getAddress().getBytes(StandardCharsets.UTF_8)};
+        int length = 1;
+        for (byte[] field : fields) {
+            length += 2 + field.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length).put(PUT);
+        for (byte[] field : fields) {
+            buffer.putShort((short) field.length).put(field);
+        }
+        long offset = append(buffer);
+        return new Location(offset + 4, length, sequence);
+    }
+
+    /**
+     * Writes a filled buffer at the end of the file
+     * @return The offset the buffer was written at
+     */
+    private long append(ByteBuffer buffer) {
+        buffer.flip();
+        long offset = end.getAndAdd(buffer.remaining());
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contact data file write failed", e);
+        }
+        return offset;
+    }
+
+    private ContactRecord read(Location location) {
+        ByteBuffer body = ByteBuffer.allocate(location.length);
+        try {
+            while (body.hasRemaining()) {
+                if (channel.read(body, location.offset + body.position()) < 0) {
+                    throw new EOFException("Contact data file ends inside a record");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contact data file read failed", e);
+        }
+        body.flip();
+        body.get();
+        return new ContactRecord(readString(body), readString(body), readString(body), readString(body), readString(body));
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getShort();
+        if (length < 0 || length > body.remaining()) {
+            throw new IllegalArgumentException("Corrupt contact data record");
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+}
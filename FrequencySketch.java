@@ -0,0 +1,82 @@
+/**
+ * FrequencySketch estimates how often each key was seen recently, in a fixed amount of memory.
+ * It is a count-min sketch of 4-bit counters, four per key, packed sixteen to a long. Once the
+ * number of recorded keys reaches ten times the table size every counter is halved, so old
+ * popularity fades. Not thread-safe; CachingContactStore calls it under its lock.
+ */
+final class FrequencySketch {
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Constructor for FrequencySketch
+     * @param expectedKeys Roughly how many keys the cache holds
+     */
+    FrequencySketch(int expectedKeys) {
+        int length = Integer.highestOneBit(Math.max(expectedKeys, 64) - 1) << 1;
+        this.table = new long[Math.max(length / 4, 16)];
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * Records one use of a key
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(index(hash, i), counter(hash, i));
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estimates how often a key was used
+     * @return A count from 0 to 15
+     */
+    int frequency(int hash) {
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int shift = counter(hash, i) << 2;
+            frequency = Math.min(frequency, (int) ((table[index(hash, i)] >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    private int index(int hash, int i) {
+        int h = (hash + SEEDS[i]) * SEEDS[(i + 1) & 3];
+        return (h ^ (h >>> 16)) & (table.length - 1);
+    }
+
+    /**
+     * Picks one of the sixteen counters in a table slot
+     */
+    private static int counter(int hash, int i) {
+        return (hash >>> (i << 3)) & 0xF;
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+}
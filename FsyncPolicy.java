@@ -0,0 +1,21 @@
+/**
+ * FsyncPolicy controls when ContactWriteAheadLog forces appended records to stable storage.
+ * Under every policy a mutation returns only after its record has been written to the
+ * operating system, so the log survives a process crash; the policies differ on power loss.
+ */
+public enum FsyncPolicy {
+    /**
+     * Force the log before every mutation returns. Concurrent mutations share one force (group commit).
+     */
+    ALWAYS,
+
+    /**
+     * Force the log from a background thread at a fixed interval
+     */
+    INTERVAL,
+
+    /**
+     * Never force the log; the operating system decides when to flush it
+     */
+    NEVER
+}
@@ -0,0 +1,876 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FuzzyIndex finds contacts by partial or misspelled words from their first name, last name
+ * and address, ranked by how closely they match.
+ *
+ * Fields are split into lower-case words. Each distinct word keeps a sorted list of the
+ * contacts holding it, and every word is indexed by its letter pairs (bigrams, with the start
+ * and end of the word marked). A query word finds candidate words through shared bigrams,
+ * keeps those within a small edit distance of it or starting with it, and merges their contact
+ * lists. Because names and street words repeat, the vocabulary is far smaller than the number
+ * of contacts, and a query costs time in proportion to the contacts matching its words.
+ *
+ * Queries never block writers. A word's contact list is an immutable sorted array plus small
+ * sorted arrays of recent additions and removals; a write replaces them whole, and folds them
+ * together once the recent changes grow, so each write copies a bounded amount.
+ * Words stay in the vocabulary after their last contact goes.
+ */
+public class FuzzyIndex implements ContactIndex {
+    /** The largest edit distance between a query word and a matching stored word */
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int[] NO_ORDINALS = new int[0];
+    private static final long CONTACT_BYTES = 72;
+    private static final long WORD_BYTES = 160;
+
+    private final ConcurrentHashMap<String, Word> words;
+    private final ConcurrentHashMap<String, Set<Word>> bigrams;
+    private final ConcurrentHashMap<String, Integer> ordinals;    // Contact ID to its number in the contact lists
+    private volatile String[] contactIds;    // Ordinal to contact ID; written while holding this
+    private int[] freeOrdinals;    // Guarded by this
+    private int freeCount;
+    private int nextOrdinal;
+
+    /**
+     * The contacts holding one word: base plus added, less removed, all sorted ordinals
+     */
+    private static final class Postings {
+        static final Postings EMPTY = new Postings(NO_ORDINALS, NO_ORDINALS, NO_ORDINALS);
+
+        final int[] base;
+        final int[] added;
+        final int[] removed;
+
+        Postings(int[] base, int[] added, int[] removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        int size() {
+            return base.length + added.length - removed.length;
+        }
+
+        int[] toArray() {
+            if (added.length == 0 && removed.length == 0) {
+                return base;
+            }
+            int[] merged = new int[size()];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            int n = 0;
+            while (i < base.length || j < added.length) {
+                int next = j == added.length || (i < base.length && base[i] < added[j]) ? base[i++] : added[j++];
+                while (k < removed.length && removed[k] < next) {
+                    k++;
+                }
+                if (k < removed.length && removed[k] == next) {
+                    k++;
+                } else {
+                    merged[n++] = next;
+                }
+            }
+            return n == merged.length ? merged : Arrays.copyOf(merged, n);
+        }
+
+        /**
+         * Folds the recent changes into the base once they outgrow a small share of it
+         */
+        Postings compacted() {
+            int limit = Math.max(16, Math.min(1024, base.length >> 4));
+            return added.length + removed.length > limit ? new Postings(toArray(), NO_ORDINALS, NO_ORDINALS) : this;
+        }
+    }
+
+    /**
+     * A distinct word and the contacts holding it; changes to the list are serialized on the word
+     */
+    private static final class Word {
+        final String text;
+        volatile Postings postings;
+
+        Word(String text) {
+            this.text = text;
+            this.postings = Postings.EMPTY;
+        }
+
+        synchronized void add(int ordinal) {
+            Postings current = postings;
+            int removed = Arrays.binarySearch(current.removed, ordinal);
+            postings = (removed >= 0
+                    ? new Postings(current.base, current.added, without(current.removed, removed))
+                    : new Postings(current.base, with(current.added, ordinal), current.removed)).compacted();
+        }
+
+        synchronized void addAll(int[] sortedOrdinals) {
+            Postings current = postings;
+            int[] base = current.size() == 0 ? sortedOrdinals : union(current.toArray(), sortedOrdinals);
+            postings = new Postings(base, NO_ORDINALS, NO_ORDINALS);
+        }
+
+        synchronized void remove(int ordinal) {
+            Postings current = postings;
+            int added = Arrays.binarySearch(current.added, ordinal);
+            postings = (added >= 0
+                    ? new Postings(current.base, without(current.added, added), current.removed)
+                    : new Postings(current.base, current.added, with(current.removed, ordinal))).compacted();
+        }
+    }
+
+    /**
+     * Contacts found by a query: sorted ordinals with a score each
+     */
+    private static final class Hits {
+        final int[] ordinals;
+        final int[] scores;
+        final int size;
+
+        Hits(int[] ordinals, int[] scores, int size) {
+            this.ordinals = ordinals;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    /**
+     * One word of a query with the stored words it matches; reads each contact list once
+     */
+    private static final class QueryWord {
+        final int[][] lists;
+        final int[] weights;
+        final long estimate;
+        final int maxWeight;
+        final int minWeight;
+        private Hits hits;
+
+        QueryWord(List<Word> matched, List<Integer> matchedWeights) {
+            this.lists = new int[matched.size()][];
+            this.weights = new int[matched.size()];
+            long total = 0;
+            int max = 0;
+            int min = MAX_DISTANCE + 1;
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = matched.get(i).postings.toArray();
+                weights[i] = matchedWeights.get(i);
+                total += lists[i].length;
+                max = Math.max(max, weights[i]);
+                min = Math.min(min, weights[i]);
+            }
+            this.estimate = total;
+            this.maxWeight = max;
+            this.minWeight = min;
+        }
+
+        /**
+         * Merges the matched lists, keeping each contact's best weight
+         */
+        Hits hits() {
+            if (hits == null) {
+                hits = hits(minWeight, maxWeight);
+            }
+            return hits;
+        }
+
+        /**
+         * Merges the matched lists weighing from min to max, keeping each contact's best weight
+         * among them
+         */
+        Hits hits(int min, int max) {
+            List<Hits> each = new ArrayList<>(lists.length);
+            for (int i = 0; i < lists.length; i++) {
+                if (weights[i] >= min && weights[i] <= max) {
+                    int[] scores = new int[lists[i].length];
+                    Arrays.fill(scores, weights[i]);
+                    each.add(new Hits(lists[i], scores, lists[i].length));
+                }
+            }
+            return reduce(each, false);
+        }
+
+        /**
+         * Counts the entries of the matched lists weighing from min to max
+         */
+        long entries(int min, int max) {
+            long total = 0;
+            for (int i = 0; i < lists.length; i++) {
+                if (weights[i] >= min && weights[i] <= max) {
+                    total += lists[i].length;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Gets the highest weight of a matched list below a weight
+         * @return The weight, or 0 if no list weighs less
+         */
+        int weightBelow(int floor) {
+            int below = 0;
+            for (int weight : weights) {
+                if (weight < floor) {
+                    below = Math.max(below, weight);
+                }
+            }
+            return below;
+        }
+
+        /**
+         * Adds this word's best weight for each candidate. Lists are walked best weight first,
+         * skipping through whichever of a list and the candidates is longer. After each weight,
+         * candidates that could no longer reach the limit-th best score are dropped, so the
+         * lower-weight lists are only checked against the contacts that can still rank.
+         * @param later The most points the query words still to be scored can add
+         */
+        Hits score(Hits candidates, int later, int limit, int maxScore) {
+            int size = candidates.size;
+            int[] ordinals = candidates.ordinals;
+            int[] scores = Arrays.copyOf(candidates.scores, size);
+            int[] best = new int[size];
+            for (int weight = maxWeight; weight > 0; weight = weightBelow(weight)) {
+                for (int i = 0; i < lists.length; i++) {
+                    if (weights[i] == weight) {
+                        mark(lists[i], weight, ordinals, size, best);
+                    }
+                }
+                int below = weightBelow(weight);
+                if (below == 0) {
+                    break;
+                }
+                for (int c = 0; c < size; c++) {
+                    scores[c] += best[c];
+                }
+                int threshold = lowestTopScore(new Hits(ordinals, scores, size), maxScore, limit);
+                int kept = 0;
+                int[] keptOrdinals = new int[size];
+                int[] keptScores = new int[size];
+                int[] keptBest = new int[size];
+                for (int c = 0; c < size; c++) {
+                    // A contact already found here gets nothing more from this word
+                    if (scores[c] + (best[c] > 0 ? 0 : below) + later >= threshold) {
+                        keptOrdinals[kept] = ordinals[c];
+                        keptScores[kept] = scores[c] - best[c];
+                        keptBest[kept++] = best[c];
+                    }
+                }
+                ordinals = keptOrdinals;
+                scores = keptScores;
+                best = keptBest;
+                size = kept;
+            }
+            for (int c = 0; c < size; c++) {
+                scores[c] += best[c];
+            }
+            return new Hits(ordinals, scores, size);
+        }
+
+        /**
+         * Records a weight for each candidate in a list that has no weight yet
+         */
+        private static void mark(int[] list, int weight, int[] ordinals, int size, int[] best) {
+            if (list.length < size) {
+                int c = 0;
+                for (int at = 0; at < list.length && c < size; at++) {
+                    c = seek(ordinals, size, c, list[at]);
+                    if (c < size && ordinals[c] == list[at] && best[c] == 0) {
+                        best[c] = weight;
+                    }
+                }
+                return;
+            }
+            int at = 0;
+            for (int c = 0; c < size && at < list.length; c++) {
+                at = seek(list, list.length, at, ordinals[c]);
+                if (at < list.length && list[at] == ordinals[c] && best[c] == 0) {
+                    best[c] = weight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor initializes an empty index
+     */
+    public FuzzyIndex() {
+        this.words = new ConcurrentHashMap<>();
+        this.bigrams = new ConcurrentHashMap<>();
+        this.ordinals = new ConcurrentHashMap<>();
+        this.contactIds = new String[16];
+        this.freeOrdinals = new int[16];
+    }
+
+    @Override
+    public void added(ContactRecord record) {
+        int ordinal = assign(record.getContactId());
+        for (String text : words(record)) {
+            word(text).add(ordinal);
+        }
+    }
+
+    /**
+     * Numbers the contacts in order, so each word's list is built already sorted
+     */
+    @Override
+    public void addedAll(List<ContactRecord> records) {
+        Map<String, int[]> lists = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        for (ContactRecord record : records) {
+            int ordinal = assign(record.getContactId());
+            for (String text : words(record)) {
+                int size = sizes.merge(text, 1, Integer::sum);
+                int[] list = lists.get(text);
+                if (list == null || list.length < size) {
+                    list = list == null ? new int[4] : Arrays.copyOf(list, list.length * 2);
+                    lists.put(text, list);
+                }
+                list[size - 1] = ordinal;
+            }
+        }
+        for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+            int[] list = entry.getValue();
+            int size = sizes.get(entry.getKey());
+            word(entry.getKey()).addAll(size == list.length ? list : Arrays.copyOf(list, size));
+        }
+    }
+
+    @Override
+    public void updated(ContactRecord before, ContactRecord after) {
+        List<String> oldWords = words(before);
+        List<String> newWords = words(after);
+        if (oldWords.equals(newWords)) {
+            return;
+        }
+        int ordinal = ordinals.get(after.getContactId());
+        for (String text : newWords) {
+            if (!oldWords.contains(text)) {
+                word(text).add(ordinal);
+            }
+        }
+        for (String text : oldWords) {
+            if (!newWords.contains(text)) {
+                words.get(text).remove(ordinal);
+            }
+        }
+    }
+
+    @Override
+    public void removed(ContactRecord record) {
+        Integer ordinal = ordinals.remove(record.getContactId());
+        if (ordinal == null) {
+            return;
+        }
+        for (String text : words(record)) {
+            words.get(text).remove(ordinal);
+        }
+        release(ordinal);
+    }
+
+    /**
+     * Finds the contacts that best match a free-text query. Each query word matches stored
+     * words within its edit distance (none for one or two letters, one up to four letters and
+     * MAX_DISTANCE beyond) and, from three letters on, stored words it begins. A contact scores
+     * MAX_DISTANCE + 1 points for an exact match of a query word, one less per edit, and as for
+     * one edit when the word only begins a stored word; its score is the sum over the query
+     * words. A query word matching more than a quarter of the contacts is skipped if the query
+     * has rarer words, as a search engine skips stop words.
+     *
+     * Contact lists are merged starting from the rarest query word, and that word's lists from
+     * its closest matches down, so a common misspelling does not pull in every contact near it.
+     * The contacts found so far are scored against the commoner words by skipping through their
+     * lists. A contact outside the closest matches can then only rank with enough points from
+     * the other words, so the rest are found through whichever word's qualifying lists are
+     * shortest; only when no word narrows them down are the commoner lists merged in whole.
+     * @param query The words to look for, such as "Jon Smth" or "123 Main"
+     * @param limit The most contacts to return
+     * @return IDs of the best matches, highest score first and then by ID
+     */
+    public List<String> search(String query, int limit) {
+        List<String> texts = new ArrayList<>();
+        split(query, texts);
+        List<QueryWord> queryWords = new ArrayList<>();
+        for (String text : texts) {
+            QueryWord queryWord = match(text);
+            if (queryWord.estimate > 0) {
+                queryWords.add(queryWord);
+            }
+        }
+        long common = Math.max(1, ordinals.size() / 4);
+        if (queryWords.stream().anyMatch(queryWord -> queryWord.estimate <= common)) {
+            queryWords.removeIf(queryWord -> queryWord.estimate > common);
+        }
+        if (queryWords.isEmpty()) {
+            return Collections.emptyList();
+        }
+        queryWords.sort((a, b) -> Long.compare(a.estimate, b.estimate));
+        int maxScore = queryWords.size() * (MAX_DISTANCE + 1);
+
+        // Rank the contacts closest to the rarest word first; anything else must reach the
+        // limit-th best score among them to rank
+        QueryWord rarest = queryWords.get(0);
+        List<QueryWord> others = queryWords.subList(1, queryWords.size());
+        Hits candidates = scoreWith(rarest.hits(rarest.maxWeight, rarest.maxWeight), others, limit, maxScore);
+        int threshold = lowestTopScore(candidates, maxScore, limit);
+        int below = rarest.weightBelow(rarest.maxWeight);
+        int othersMax = 0;
+        for (QueryWord queryWord : others) {
+            othersMax += queryWord.maxWeight;
+        }
+        if (threshold > below + othersMax) {
+            return top(candidates, maxScore, limit);
+        }
+        // Any other contact gets at most below from the rarest word, so it needs the rest from
+        // the other words; find those contacts through whichever word's qualifying lists are shortest
+        QueryWord source = null;
+        int need = 0;
+        long cost = Long.MAX_VALUE;
+        if (threshold > othersMax) {
+            source = rarest;
+            need = threshold - othersMax;
+            cost = rarest.entries(need, below);
+        }
+        for (QueryWord queryWord : others) {
+            int needed = threshold - below - (othersMax - queryWord.maxWeight);
+            if (needed > 0 && queryWord.entries(needed, queryWord.maxWeight) < cost) {
+                source = queryWord;
+                need = needed;
+                cost = queryWord.entries(needed, queryWord.maxWeight);
+            }
+        }
+        if (source == null) {
+            return top(mergeAll(queryWords, limit, maxScore), maxScore, limit);
+        }
+        Hits more;
+        if (source == rarest) {
+            more = scoreWith(rarest.hits(need, below), others, limit, maxScore);
+        } else {
+            List<QueryWord> rest = new ArrayList<>(queryWords);
+            rest.remove(source);
+            more = scoreWith(source.hits(need, source.maxWeight), rest, limit, maxScore);
+        }
+        return top(merge(candidates, more, false), maxScore, limit);
+    }
+
+    /**
+     * Ranks every contact in the query words' lists. Lists are merged starting from the rarest
+     * word, and the commoner lists are only merged in when a contact missing from the rarer ones
+     * could still rank.
+     */
+    private static Hits mergeAll(List<QueryWord> queryWords, int limit, int maxScore) {
+        Hits candidates = null;
+        for (int merged = 1; merged <= queryWords.size(); merged++) {
+            List<Hits> lists = new ArrayList<>();
+            for (QueryWord queryWord : queryWords.subList(0, merged)) {
+                lists.add(queryWord.hits());
+            }
+            candidates = reduce(lists, true);
+            if (merged == queryWords.size()) {
+                break;
+            }
+            List<QueryWord> rest = queryWords.subList(merged, queryWords.size());
+            candidates = scoreWith(candidates, rest, limit, maxScore);
+            // A contact in none of the merged lists scores at most this from the other words
+            int outsideMax = 0;
+            for (QueryWord queryWord : rest) {
+                outsideMax += queryWord.maxWeight;
+            }
+            if (lowestTopScore(candidates, maxScore, limit) > outsideMax) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds the query words' weights to each candidate's score, dropping candidates that can no
+     * longer rank
+     */
+    private static Hits scoreWith(Hits candidates, List<QueryWord> queryWords, int limit, int maxScore) {
+        int later = 0;
+        for (QueryWord queryWord : queryWords) {
+            later += queryWord.maxWeight;
+        }
+        for (QueryWord queryWord : queryWords) {
+            later -= queryWord.maxWeight;
+            candidates = queryWord.score(candidates, later, limit, maxScore);
+        }
+        return candidates;
+    }
+
+    /**
+     * Estimates the heap used by the index; words are counted once however many contacts share them
+     * @return Approximate bytes
+     */
+    public long estimatedBytes() {
+        long bytes = ordinals.size() * CONTACT_BYTES;
+        for (Word word : words.values()) {
+            Postings postings = word.postings;
+            bytes += WORD_BYTES + 4L * (postings.base.length + postings.added.length + postings.removed.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of indexed contacts
+     * @return The contact count
+     */
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * Gets the number of distinct words indexed
+     * @return The vocabulary size
+     */
+    public int vocabularySize() {
+        return words.size();
+    }
+
+    /**
+     * Finds the stored words matching one query word and their weights
+     */
+    private QueryWord match(String queryWord) {
+        List<Word> matched = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int maxDistance = queryWord.length() <= 2 ? 0 : queryWord.length() <= 4 ? 1 : MAX_DISTANCE;
+        if (maxDistance == 0) {
+            Word word = words.get(queryWord);
+            if (word != null) {
+                matched.add(word);
+                weights.add(MAX_DISTANCE + 1);
+            }
+            return new QueryWord(matched, weights);
+        }
+        // Each edit changes at most three distinct bigrams, so a close word shares the rest
+        List<String> queryBigrams = bigrams(queryWord);
+        int minShared = Math.max(1, queryBigrams.size() - 3 * maxDistance);
+        Map<Word, Integer> shared = new HashMap<>();
+        for (String bigram : queryBigrams) {
+            Set<Word> holders = bigrams.get(bigram);
+            if (holders != null) {
+                for (Word word : holders) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        for (Map.Entry<Word, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() < minShared) {
+                continue;
+            }
+            String text = entry.getKey().text;
+            int cost = distance(queryWord, text, maxDistance);
+            if (cost > 1 && text.startsWith(queryWord)) {
+                cost = 1;
+            }
+            if (cost <= maxDistance) {
+                matched.add(entry.getKey());
+                weights.add(MAX_DISTANCE + 1 - cost);
+            }
+        }
+        return new QueryWord(matched, weights);
+    }
+
+    /**
+     * Gets the score of the limit-th best hit, or 0 if there are fewer hits
+     */
+    private static int lowestTopScore(Hits hits, int maxScore, int limit) {
+        int[] histogram = new int[maxScore + 1];
+        for (int i = 0; i < hits.size; i++) {
+            histogram[hits.scores[i]]++;
+        }
+        int count = 0;
+        for (int score = maxScore; score > 0; score--) {
+            count += histogram[score];
+            if (count >= limit) {
+                return score;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Picks the highest-scoring hits, breaking ties by contact ID
+     */
+    private List<String> top(Hits hits, int maxScore, int limit) {
+        String[] ids = contactIds;
+        int[] histogram = new int[maxScore + 1];
+        for (int i = 0; i < hits.size; i++) {
+            histogram[hits.scores[i]]++;
+        }
+        // Everything scoring above the threshold fits; the lowest IDs at the threshold fill the rest
+        int threshold = maxScore;
+        int above = 0;
+        while (threshold > 0 && above + histogram[threshold] < limit) {
+            above += histogram[threshold];
+            threshold--;
+        }
+        List<List<String>> byScore = new ArrayList<>();
+        for (int score = 0; score <= maxScore; score++) {
+            byScore.add(new ArrayList<>());
+        }
+        PriorityQueue<String> lowest = new PriorityQueue<>(Collections.reverseOrder());
+        int room = limit - above;
+        for (int i = 0; i < hits.size; i++) {
+            int score = hits.scores[i];
+            String contactId = ids[hits.ordinals[i]];
+            if (score < threshold || contactId == null) {
+                continue;
+            }
+            if (score > threshold) {
+                byScore.get(score).add(contactId);
+            } else if (lowest.size() < room) {
+                lowest.add(contactId);
+            } else if (contactId.compareTo(lowest.peek()) < 0) {
+                lowest.poll();
+                lowest.add(contactId);
+            }
+        }
+        if (threshold > 0) {
+            byScore.get(threshold).addAll(lowest);
+        }
+        List<String> result = new ArrayList<>(Math.min(limit, hits.size));
+        for (int score = maxScore; score > 0 && result.size() < limit; score--) {
+            List<String> tied = byScore.get(score);
+            Collections.sort(tied);
+            result.addAll(tied.subList(0, Math.min(tied.size(), limit - result.size())));
+        }
+        return result;
+    }
+
+    private Word word(String text) {
+        return words.computeIfAbsent(text, key -> {
+            Word word = new Word(key);
+            for (String bigram : bigrams(key)) {
+                bigrams.computeIfAbsent(bigram, unused -> ConcurrentHashMap.newKeySet()).add(word);
+            }
+            return word;
+        });
+    }
+
+    private synchronized int assign(String contactId) {
+        int ordinal = freeCount > 0 ? freeOrdinals[--freeCount] : nextOrdinal++;
+        String[] ids = contactIds;
+        if (ordinal == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[ordinal] = contactId;
+        contactIds = ids;
+        ordinals.put(contactId, ordinal);
+        return ordinal;
+    }
+
+    private synchronized void release(int ordinal) {
+        contactIds[ordinal] = null;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+
+    /**
+     * Gets the distinct lower-case words of a contact's names and address
+     */
+    private static List<String> words(ContactRecord record) {
+        List<String> found = new ArrayList<>(8);
+        split(record.getFirstName(), found);
+        split(record.getLastName(), found);
+        split(record.getAddress(), found);
+        return found;
+    }
+
+    /**
+     * Adds the distinct lower-case runs of letters and digits in text to found
+     */
+    private static void split(String text, List<String> found) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!found.contains(word)) {
+                    found.add(word);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Gets the distinct bigrams of a word, with ^ and $ marking its start and end
+     */
+    private static List<String> bigrams(String word) {
+        String marked = "^" + word + "$";
+        List<String> found = new ArrayList<>(marked.length() - 1);
+        for (int i = 0; i + 2 <= marked.length(); i++) {
+            String bigram = marked.substring(i, i + 2);
+            if (!found.contains(bigram)) {
+                found.add(bigram);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Computes the edit distance with adjacent transpositions counted as one edit, stopping
+     * early once it must exceed max
+     * @return The distance, or max + 1 if it is larger than max
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    best = Math.min(best, twoBack[j - 2] + 1);
+                }
+                current[j] = best;
+                rowMin = Math.min(rowMin, best);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] spare = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = spare;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Merges hit lists pairwise until one is left, keeping the best score of each contact or,
+     * when sum is true, adding its scores up
+     */
+    private static Hits reduce(List<Hits> lists, boolean sum) {
+        if (lists.isEmpty()) {
+            return new Hits(NO_ORDINALS, NO_ORDINALS, 0);
+        }
+        while (lists.size() > 1) {
+            List<Hits> merged = new ArrayList<>((lists.size() + 1) / 2);
+            for (int i = 0; i + 1 < lists.size(); i += 2) {
+                merged.add(merge(lists.get(i), lists.get(i + 1), sum));
+            }
+            if (lists.size() % 2 == 1) {
+                merged.add(lists.get(lists.size() - 1));
+            }
+            lists = merged;
+        }
+        return lists.get(0);
+    }
+
+    private static Hits merge(Hits a, Hits b, boolean sum) {
+        int[] ordinals = new int[a.size + b.size];
+        int[] scores = new int[a.size + b.size];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.size && j < b.size) {
+            int left = a.ordinals[i];
+            int right = b.ordinals[j];
+            if (left < right) {
+                ordinals[n] = left;
+                scores[n++] = a.scores[i++];
+            } else if (right < left) {
+                ordinals[n] = right;
+                scores[n++] = b.scores[j++];
+            } else {
+                ordinals[n] = left;
+                scores[n++] = sum ? a.scores[i++] + b.scores[j++] : Math.max(a.scores[i++], b.scores[j++]);
+            }
+        }
+        while (i < a.size) {
+            ordinals[n] = a.ordinals[i];
+            scores[n++] = a.scores[i++];
+        }
+        while (j < b.size) {
+            ordinals[n] = b.ordinals[j];
+            scores[n++] = b.scores[j++];
+        }
+        return new Hits(ordinals, scores, n);
+    }
+
+    /**
+     * Finds the first index at or after from, among the first length values of a sorted list,
+     * holding a value of at least target, by galloping
+     */
+    private static int seek(int[] list, int length, int from, int target) {
+        if (from >= length || list[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < length && list[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, length);
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                merged[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    private static int[] with(int[] sorted, int value) {
+        int at = -Arrays.binarySearch(sorted, value) - 1;
+        int[] grown = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(sorted, at, grown, at + 1, sorted.length - at);
+        return grown;
+    }
+
+    private static int[] without(int[] sorted, int index) {
+        int[] shrunk = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, shrunk, 0, index);
+        System.arraycopy(sorted, index + 1, shrunk, index, shrunk.length - index);
+        return shrunk;
+    }
+}
@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for the FuzzyIndex class and ContactService.fuzzySearch
+ */
+public class FuzzyIndexTest {
+    private static List<String> ids(List<Contact> contacts) {
+        return contacts.stream().map(Contact::getContactId).collect(Collectors.toList());
+    }
+
+    private static ContactService sampleService() {
+        ContactService service = new ContactService();
+        service.addContact(new Contact("1", "John", "Smith", "1234567890", "123 Main St"));
+        service.addContact(new Contact("2", "Joan", "Smithers", "1234567891", "123 Maine Rd"));
+        service.addContact(new Contact("3", "Mary", "Brown", "1234567892", "9 Elm St"));
+        service.addContact(new Contact("4", "Alice", "Brown", "1234567893", "77 Mainway Blvd"));
+        service.addContact(new Contact("5", "Jon", "Smyth", "1234567894", "45 Oak Ave"));
+        return service;
+    }
+
+    @Test
+    public void testMisspelledNamesRankClosestFirst() {
+        // Test that contacts matching more query words with fewer edits rank first
+        ContactService service = sampleService();
+        assertEquals(Arrays.asList("5", "1", "2"), ids(service.fuzzySearch("Jon Smth", 10)));
+        assertEquals(Arrays.asList("1"), ids(service.fuzzySearch("Jhon Smiht", 1)));
+        assertEquals(Arrays.asList("1", "5"), ids(service.fuzzySearch("JHON SMIHT", 2)));
+    }
+
+    @Test
+    public void testPartialAddress() {
+        // Test that partial address words match by prefix and exact words rank above prefixes
+        ContactService service = sampleService();
+        assertEquals(Arrays.asList("1", "2", "4"), ids(service.fuzzySearch("123 Main", 10)));
+        assertEquals(Arrays.asList("1", "2", "4"), ids(service.fuzzySearch("main", 10)));
+        assertEquals(Arrays.asList("1", "3"), ids(service.fuzzySearch("St", 10)));
+        assertTrue(service.fuzzySearch("Zzyzx", 10).isEmpty());
+        assertTrue(service.fuzzySearch("  ", 10).isEmpty());
+        assertTrue(service.fuzzySearch(null, 10).isEmpty());
+    }
+
+    @Test
+    public void testIndexFollowsWrites() {
+        // Test that adds, updates, field setters and deletes are reflected in later searches
+        ContactService service = sampleService();
+        service.updateContact("3", null, "Smith", null, null);
+        assertTrue(ids(service.fuzzySearch("Smith", 10)).contains("3"));
+        service.getContact("3").setLastName("Brown");
+        assertFalse(ids(service.fuzzySearch("Smith", 10)).contains("3"));
+        service.deleteContact("1");
+        assertFalse(ids(service.fuzzySearch("John Smith", 10)).contains("1"));
+        service.addContact(new Contact("1", "Zelda", "Quill", "1234567890", "1 Pine Ct"));
+        assertEquals(Arrays.asList("1"), ids(service.fuzzySearch("Zelda", 10)));
+        assertTrue(service.fuzzySearch("Johnny", 10).stream().noneMatch(c -> c.getContactId().equals("1")));
+    }
+
+    @Test
+    public void testTiesOrderedByIdUpToLimit() {
+        // Test that equally good matches come back in ID order and the limit is respected
+        ContactService service = new ContactService();
+        for (int i = 20; i >= 0; i--) {
+            service.addContact(new Contact(String.format("%03d", i), "Sam", "Lee", "1234567890", "1 Elm St"));
+        }
+        service.addContact(new Contact("999", "Samuel", "Lee", "1234567890", "1 Elm St"));
+        List<String> found = ids(service.fuzzySearch("sam lee", 5));
+        assertEquals(Arrays.asList("000", "001", "002", "003", "004"), found);
+        assertEquals("999", ids(service.fuzzySearch("samuel", 1)).get(0));
+        assertEquals(22, service.fuzzySearch("sam", 100).size());
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.fuzzySearch("sam", 0);
+        });
+    }
+
+    @Test
+    public void testBulkBuildMatchesIncremental() {
+        // Test that an index built in bulk from existing contacts answers like one built a contact at a time
+        List<Contact> contacts = new ArrayList<>();
+        ContactService incremental = new ContactService();
+        String[] first = {"John", "Jane", "Jon", "Joanna", "Bob"};
+        String[] last = {"Smith", "Smyth", "Brown", "Braun", "Jones"};
+        for (int i = 0; i < 500; i++) {
+            String id = Integer.toString(i);
+            String address = (i % 50) + " " + (i % 2 == 0 ? "Main St" : "Oak Ave");
+            contacts.add(new Contact(id, first[i % 5], last[i / 5 % 5], "1234567890", address));
+            incremental.addContact(new Contact(id, first[i % 5], last[i / 5 % 5], "1234567890", address));
+        }
+        ContactService bulk = new ContactService();
+        bulk.addContacts(contacts);
+        for (String query : Arrays.asList("Jon Smith", "jane brwn", "12 main", "joana", "oak")) {
+            assertEquals(ids(incremental.fuzzySearch(query, 25)), ids(bulk.fuzzySearch(query, 25)), query);
+        }
+        for (int i = 0; i < 500; i += 3) {
+            bulk.deleteContact(Integer.toString(i));
+            incremental.deleteContact(Integer.toString(i));
+        }
+        assertEquals(ids(incremental.fuzzySearch("Jon Smith", 500)), ids(bulk.fuzzySearch("Jon Smith", 500)));
+    }
+
+    @Test
+    public void testEarlyStopMatchesFullRanking() {
+        // Test that the top few results equal the head of a ranking of every match
+        String[] syllables = {"ja", "jo", "mi", "ka", "ro", "li", "an", "el"};
+        Random random = new Random(7);
+        ContactService service = new ContactService();
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String first = syllables[random.nextInt(8)] + syllables[random.nextInt(8)];
+            String last = syllables[random.nextInt(8)] + syllables[random.nextInt(8)] + syllables[random.nextInt(8)];
+            service.addContact(new Contact(Integer.toString(i), first, last, "1234567890", (i % 90) + " Main St"));
+            if (i % 100 == 0) {
+                // One typo in the last name, and sometimes in the first name as well
+                queries.add((i % 200 == 0 ? first.substring(1) : first) + " " + last.charAt(0) + last.substring(2));
+            }
+        }
+        for (String query : queries) {
+            List<String> all = ids(service.fuzzySearch(query, 5_000));
+            assertEquals(all.subList(0, Math.min(10, all.size())), ids(service.fuzzySearch(query, 10)), query);
+        }
+    }
+
+    @Test
+    public void testEditDistance() {
+        // Test the bounded edit distance, counting an adjacent transposition as one edit
+        assertEquals(0, FuzzyIndex.distance("smith", "smith", 2));
+        assertEquals(1, FuzzyIndex.distance("smth", "smith", 2));
+        assertEquals(1, FuzzyIndex.distance("jhon", "john", 2));
+        assertEquals(2, FuzzyIndex.distance("smiht", "smyth", 2));
+        assertEquals(3, FuzzyIndex.distance("abc", "xyz", 2));
+        assertEquals(2, FuzzyIndex.distance("a", "abcdef", 1));
+    }
+}
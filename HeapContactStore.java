@@ -0,0 +1,91 @@
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HeapContactStore keeps Contact objects on the heap in a concurrent hash table keyed by
+ * contact ID, so lookups run in constant expected time. A skip list keyed by an insertion
+ * sequence keeps iteration in insertion order. Reads never lock.
+ */
+public class HeapContactStore implements ContactStore {
+    // Average heap cost of a typical contact here, measured by ContactStorageBenchmark
+    private static final long BYTES_PER_CONTACT = 435;
+
+    private final ConcurrentMap<String, Entry> contacts;
+    private final ConcurrentSkipListMap<Long, Contact> insertionOrder;
+    private final AtomicLong nextSequence;
+
+    /**
+     * A stored contact plus its position in insertion order
+     */
+    private static final class Entry {
+        final Contact contact;
+        final long sequence;
+
+        Entry(Contact contact, long sequence) {
+            this.contact = contact;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Constructor initializes an empty store
+     */
+    public HeapContactStore() {
+        this.contacts = new ConcurrentHashMap<>();
+        this.insertionOrder = new ConcurrentSkipListMap<>();
+        this.nextSequence = new AtomicLong();
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        Entry entry = contacts.get(contactId);
+        return entry == null ? null : entry.contact;
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return contacts.containsKey(contactId);
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        long sequence = nextSequence.incrementAndGet();
+        insertionOrder.put(sequence, contact);
+        contacts.put(contact.getContactId(), new Entry(contact, sequence));
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        return contacts.get(contactId).contact.apply(firstName, lastName, phone, address);
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        Entry removed = contacts.remove(contactId);
+        insertionOrder.remove(removed.sequence);
+        return removed.contact.toRecord();
+    }
+
+    @Override
+    public int size() {
+        return contacts.size();
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        return insertionOrder.values().iterator();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return contacts.size() * BYTES_PER_CONTACT;
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return true;
+    }
+}
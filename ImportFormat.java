@@ -0,0 +1,17 @@
+/**
+ * ImportFormat names the file layouts ContactImporter reads. Both hold one contact per line.
+ */
+public enum ImportFormat {
+    /**
+     * Comma-separated values in the order contactId, firstName, lastName, phone, address.
+     * Fields may be double-quoted, with "" for a quote inside a quoted field. A first line
+     * starting with contactId is taken as a header and skipped.
+     */
+    CSV,
+
+    /**
+     * JSON Lines: one object per line with string fields named contactId, firstName, lastName,
+     * phone and address. A JSON array written one object per line is read the same way.
+     */
+    JSON
+}
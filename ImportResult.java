@@ -0,0 +1,63 @@
+/**
+ * ImportResult reports what ContactImporter did with one input file.
+ */
+public final class ImportResult {
+    private final long rowCount;
+    private final long importedCount;
+    private final long rejectedCount;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a result from the importer's counts
+     * @param rowCount Non-blank data rows read, excluding any header
+     * @param importedCount Rows added to the service
+     * @param rejectedCount Rows written to the rejects file
+     * @param elapsedNanos Wall-clock time of the whole import
+     */
+    ImportResult(long rowCount, long importedCount, long rejectedCount, long elapsedNanos) {
+        this.rowCount = rowCount;
+        this.importedCount = importedCount;
+        this.rejectedCount = rejectedCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of data rows read
+     * @return The row count, excluding blank lines and any header
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of rows added as contacts
+     * @return The imported count
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Gets the number of rows rejected as malformed, invalid or duplicate
+     * @return The rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Gets how long the import took
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the import throughput
+     * @return Rows read per second of elapsed time
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowCount * 1e9 / elapsedNanos;
+    }
+}
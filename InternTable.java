@@ -0,0 +1,107 @@
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * InternTable maps equal strings to one canonical instance, so contacts that share a first
+ * name, last name or address can share one String instead of each holding a copy.
+ * Entries are weakly referenced: a value no stored contact uses any more is reclaimed by the
+ * garbage collector and dropped from the table. Safe for concurrent use without locking.
+ */
+public final class InternTable {
+    private static final InternTable SHARED = new InternTable();
+
+    private final ConcurrentHashMap<Entry, Entry> entries;
+    private final ReferenceQueue<String> cleared;
+
+    /**
+     * A weakly held string. Lookups compare the referents; a cleared entry equals only itself.
+     */
+    private static final class Entry extends WeakReference<String> {
+        private final int hash;
+
+        Entry(String value, ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Entry) || ((Entry) other).hash != hash) {
+                return false;
+            }
+            String value = get();
+            return value != null && value.equals(((Entry) other).get());
+        }
+    }
+
+    /**
+     * Constructor initializes an empty table
+     */
+    public InternTable() {
+        this.entries = new ConcurrentHashMap<>();
+        this.cleared = new ReferenceQueue<>();
+    }
+
+    /**
+     * The table shared by every service that does not bring its own
+     */
+    public static InternTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical instance of a string, making it canonical if it is the first seen
+     * @param value The string, or null
+     * @return A string equal to value, the same instance for every equal value; null for null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        expunge();
+        Entry probe = new Entry(value, cleared);
+        while (true) {
+            Entry existing = entries.get(probe);
+            if (existing == null) {
+                existing = entries.putIfAbsent(probe, probe);
+                if (existing == null) {
+                    return value;
+                }
+            }
+            String canonical = existing.get();
+            if (canonical != null) {
+                probe.clear();
+                return canonical;
+            }
+            // The canonical value was collected after the lookup matched; drop it and retry
+            entries.remove(existing, existing);
+        }
+    }
+
+    /**
+     * The number of canonical strings held, including ones collected but not yet dropped
+     */
+    public int size() {
+        expunge();
+        return entries.size();
+    }
+
+    /**
+     * Drops entries whose strings have been garbage collected
+     */
+    private void expunge() {
+        for (Reference<? extends String> entry = cleared.poll(); entry != null; entry = cleared.poll()) {
+            entries.remove(entry, entry);
+        }
+    }
+}
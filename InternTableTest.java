@@ -0,0 +1,33 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the InternTable class
+ */
+public class InternTableTest {
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        // Test that equal strings map to the first instance seen
+        InternTable table = new InternTable();
+        String john = new String("John");
+        assertSame(john, table.intern(john));
+        assertSame(john, table.intern(new String("John")));
+        assertNotSame(john, table.intern(new String("Jane")));
+        assertNull(table.intern(null));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testUnusedValuesAreReclaimed() throws InterruptedException {
+        // Test that values no longer referenced elsewhere are dropped from the table
+        InternTable table = new InternTable();
+        for (int i = 0; i < 1000; i++) {
+            table.intern(Integer.toString(i + 100_000));
+        }
+        for (int attempt = 0; attempt < 50 && table.size() > 0; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LocalContactShard is a ContactShard backed by a ContactService in the same JVM.
+ * Contacts moved in by addContacts are stored as copies, so an instance can leave the shard
+ * it was stored in and join another.
+ */
+public class LocalContactShard implements ContactShard {
+    private final String name;
+    private final ContactService service;
+
+    /**
+     * Constructor creates a shard over a new, empty ContactService
+     * @param name The shard's name
+     */
+    public LocalContactShard(String name) {
+        this(name, new ContactService());
+    }
+
+    /**
+     * Constructor creates a shard over an existing service
+     * @param name The shard's name
+     * @param service The service holding the shard's contacts
+     */
+    public LocalContactShard(String name, ContactService service) {
+        this.name = name;
+        this.service = service;
+    }
+
+    /**
+     * Gets the service behind this shard
+     * @return The service
+     */
+    public ContactService getService() {
+        return service;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void addContact(Contact contact) {
+        service.addContact(contact);
+    }
+
+    @Override
+    public void addContacts(List<Contact> contacts) {
+        List<Contact> copies = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            copies.add(new Contact(contact.toRecord()));
+        }
+        BatchResult result = service.addContacts(copies);
+        if (result.getRejectedCount() > 0) {
+            for (int i = 0; i < result.size(); i++) {
+                if (result.getError(i) != null) {
+                    throw new IllegalArgumentException(result.getError(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Contact getContact(String contactId) {
+        return service.getContact(contactId);
+    }
+
+    @Override
+    public void updateContact(String contactId, String firstName, String lastName, String phone, String address) {
+        service.updateContact(contactId, firstName, lastName, phone, address);
+    }
+
+    @Override
+    public void deleteContact(String contactId) {
+        service.deleteContact(contactId);
+    }
+
+    @Override
+    public void deleteContacts(List<String> contactIds) {
+        List<ContactOperation> operations = new ArrayList<>(contactIds.size());
+        for (String contactId : contactIds) {
+            operations.add(ContactOperation.delete(contactId));
+        }
+        service.applyBatch(operations, BatchMode.BEST_EFFORT);
+    }
+
+    @Override
+    public List<Contact> getAllContacts() {
+        return service.getAllContacts();
+    }
+
+    @Override
+    public List<Contact> find(ContactField field, String value, boolean prefix) {
+        switch (field) {
+            case FIRST_NAME:
+                return prefix ? service.findByFirstNamePrefix(value) : service.findByFirstName(value);
+            case LAST_NAME:
+                return prefix ? service.findByLastNamePrefix(value) : service.findByLastName(value);
+            case PHONE:
+                return prefix ? service.findByPhonePrefix(value) : service.findByPhone(value);
+            default:
+                throw new IllegalArgumentException("Field is not indexed: " + field);
+        }
+    }
+
+    @Override
+    public int size() {
+        return service.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+}
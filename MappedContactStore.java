@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MappedContactStore serves contacts straight out of a memory-mapped ContactSnapshotFile.
+ * Opening costs one header read and an mmap call regardless of the number of contacts; rows
+ * are decoded into Contact objects only when read, and pages are loaded by the OS on first touch.
+ *
+ * The snapshot itself is never modified. Adds, updates and deletes go to an in-memory overlay
+ * that shadows the mapped rows, so the store behaves like any other ContactStore. Contacts that
+ * keep their snapshot position iterate first, followed by contacts added after opening.
+ */
+public class MappedContactStore implements ContactStore {
+    private static final long CHANGE_BYTES = 300;
+
+    private final ByteBuffer rows;
+    private final IntBuffer table;
+    private final ByteBuffer wide;
+    private final int rowCount;
+    private final long mappedBytes;
+    private final ConcurrentHashMap<String, Change> overlay;
+    private final ConcurrentSkipListMap<Long, String> appended;
+    private final AtomicLong nextSequence;
+    private final AtomicInteger size;
+
+    /**
+     * The current state of a contact changed since the snapshot
+     */
+    private static final class Change {
+        final ContactRecord record;    // null if deleted
+        final long sequence;           // Position among added contacts, or 0 to keep the snapshot position
+
+        Change(ContactRecord record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+    }
+
+    private MappedContactStore(ByteBuffer file, int rowCount, int tableLength, long wideOffset) {
+        this.mappedBytes = file.capacity();
+        int rowsEnd = ContactSnapshotFile.HEADER_BYTES + rowCount * ContactRows.ROW_BYTES;
+        this.rows = file.duplicate().position(ContactSnapshotFile.HEADER_BYTES).limit(rowsEnd).slice();
+        this.table = file.duplicate().position(rowsEnd).limit(rowsEnd + tableLength * 4).slice().asIntBuffer();
+        this.wide = file.duplicate().position((int) wideOffset).slice();
+        this.rowCount = rowCount;
+        this.overlay = new ConcurrentHashMap<>();
+        this.appended = new ConcurrentSkipListMap<>();
+        this.nextSequence = new AtomicLong();
+        this.size = new AtomicInteger(rowCount);
+    }
+
+    /**
+     * Maps a snapshot file
+     * @param file A file written by ContactSnapshotFile
+     * @return The store, ready to serve reads
+     * @throws IOException if the file cannot be mapped or is not a supported snapshot
+     */
+    public static MappedContactStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map in one buffer: " + file);
+            }
+            if (length < ContactSnapshotFile.HEADER_BYTES) {
+                throw new IOException("Not a contact snapshot: " + file);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (mapped.getInt(0) != ContactSnapshotFile.MAGIC) {
+                throw new IOException("Not a contact snapshot: " + file);
+            }
+            int version = mapped.getInt(4);
+            if (version != ContactSnapshotFile.VERSION || mapped.getInt(8) != ContactRows.ROW_BYTES) {
+                throw new IOException("Unsupported contact snapshot version " + version + ": " + file);
+            }
+            int rowCount = mapped.getInt(12);
+            int tableLength = mapped.getInt(16);
+            long wideOffset = mapped.getLong(20);
+            long expectedMinimum = ContactSnapshotFile.HEADER_BYTES + (long) rowCount * ContactRows.ROW_BYTES + tableLength * 4L;
+            if (rowCount < 0 || Integer.bitCount(tableLength) != 1 || wideOffset != expectedMinimum || wideOffset > length) {
+                throw new IOException("Corrupt contact snapshot header: " + file);
+            }
+            return new MappedContactStore(mapped, rowCount, tableLength, wideOffset);
+        }
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        ContactRecord record = current(contactId);
+        return record == null ? null : new Contact(record);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        Change change = overlay.get(contactId);
+        if (change != null) {
+            return change.record != null;
+        }
+        return findRow(contactId) >= 0;
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        ContactRecord record = contact.toRecord();
+        long sequence = nextSequence.incrementAndGet();
+        appended.put(sequence, record.getContactId());
+        overlay.put(record.getContactId(), new Change(record, sequence));
+        size.incrementAndGet();
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        Change change = overlay.get(contactId);
+        ContactRecord before = change != null ? change.record : readRow(findRow(contactId));
+        long sequence = change != null ? change.sequence : 0;
+        overlay.put(contactId, new Change(before.merge(firstName, lastName, phone, address), sequence));
+        return before;
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        Change change = overlay.get(contactId);
+        ContactRecord removed;
+        if (change != null) {
+            removed = change.record;
+            if (change.sequence != 0) {
+                appended.remove(change.sequence);
+            }
+        } else {
+            removed = readRow(findRow(contactId));
+        }
+        if (findRow(contactId) >= 0) {
+            // Shadow the snapshot row
+            overlay.put(contactId, new Change(null, 0));
+        } else {
+            overlay.remove(contactId);
+        }
+        size.decrementAndGet();
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        return new Iterator<Contact>() {
+            private int row;
+            private final Iterator<Map.Entry<Long, String>> added = appended.entrySet().iterator();
+            private ContactRecord next = advance();
+
+            private ContactRecord advance() {
+                while (row < rowCount) {
+                    ContactRecord record = readRow(row++);
+                    Change change = overlay.isEmpty() ? null : overlay.get(record.getContactId());
+                    if (change == null) {
+                        return record;
+                    }
+                    if (change.record != null && change.sequence == 0) {
+                        return change.record;
+                    }
+                }
+                while (added.hasNext()) {
+                    Map.Entry<Long, String> entry = added.next();
+                    Change change = overlay.get(entry.getValue());
+                    if (change != null && change.record != null && change.sequence == entry.getKey()) {
+                        return change.record;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Contact next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Contact contact = new Contact(next);
+                next = advance();
+                return contact;
+            }
+        };
+    }
+
+    /**
+     * Counts the whole mapped file plus the overlay; the OS pages the file in and out as needed
+     */
+    @Override
+    public long estimatedBytes() {
+        return mappedBytes + overlay.size() * CHANGE_BYTES;
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return false;
+    }
+
+    /**
+     * Gets the number of contacts in the mapped snapshot, ignoring later changes
+     * @return The snapshot row count
+     */
+    public int snapshotSize() {
+        return rowCount;
+    }
+
+    private ContactRecord current(String contactId) {
+        Change change = overlay.get(contactId);
+        if (change != null) {
+            return change.record;
+        }
+        int row = findRow(contactId);
+        return row < 0 ? null : readRow(row);
+    }
+
+    /**
+     * Looks a contact ID up in the snapshot's ID table
+     * @return The row index, or -1 if the snapshot does not hold the ID
+     */
+    private int findRow(String contactId) {
+        int mask = table.capacity() - 1;
+        int bucket = ContactRows.spread(contactId.hashCode()) & mask;
+        while (true) {
+            int slot = table.get(bucket);
+            if (slot == 0) {
+                return -1;
+            }
+            int base = (slot - 1) * ContactRows.ROW_BYTES;
+            boolean matches = ContactRows.isWide(rows, base)
+                    ? readWide(ContactRows.wideReference(rows, base)).getContactId().equals(contactId)
+                    : ContactRows.idEquals(rows, base, contactId);
+            if (matches) {
+                return slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    private ContactRecord readRow(int row) {
+        int base = row * ContactRows.ROW_BYTES;
+        return ContactRows.isWide(rows, base)
+                ? readWide(ContactRows.wideReference(rows, base))
+                : ContactRows.read(rows, base);
+    }
+
+    private ContactRecord readWide(int offset) {
+        String[] fields = new String[5];
+        for (int i = 0; i < fields.length; i++) {
+            int length = wide.getShort(offset);
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = wide.get(offset + 2 + j);
+            }
+            fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            offset += 2 + length;
+        }
+        return new ContactRecord(fields[0], fields[1], fields[2], fields[3], fields[4]);
+    }
+}
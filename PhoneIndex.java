@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * PhoneIndex is a digit trie over the 10-digit phone numbers, for area-code and exchange
+ * queries such as "415" or "415555". The first six digits are trie levels that each keep a
+ * count of the contacts below them, so counting a prefix of up to six digits costs O(prefix)
+ * and listing one costs O(prefix + matches). Each exchange node keeps its last four digits
+ * and contact IDs in a sorted set. Phones held by more than one contact are tracked as they
+ * are added and removed.
+ * Queries never block writers; writers to the same exchange take that node's lock.
+ * Trie nodes left empty by deletes are kept for reuse, so there are at most about 1.1M.
+ */
+public class PhoneIndex implements ContactIndex {
+    private static final int TRIE_DIGITS = 6;
+    private static final int LINE_DIGITS = 4;
+    private static final long ENTRY_BYTES = 56;
+    private static final long NODE_BYTES = 96;
+
+    private final Node root;
+    private final ConcurrentSkipListSet<Long> duplicates;
+    private final AtomicInteger nodes;
+
+    /**
+     * A trie node: ten children above the exchange level, sorted line entries at it
+     */
+    private static final class Node {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReferenceArray<Node> children;
+        final ConcurrentSkipListSet<Entry> lines;
+
+        Node(int depth) {
+            this.children = depth < TRIE_DIGITS ? new AtomicReferenceArray<>(10) : null;
+            this.lines = depth < TRIE_DIGITS ? null : new ConcurrentSkipListSet<>();
+        }
+    }
+
+    /**
+     * An exchange entry: the last four digits paired with the ID of the contact holding them
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final int line;
+        final String contactId;
+
+        Entry(int line, String contactId) {
+            this.line = line;
+            this.contactId = contactId;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Integer.compare(line, other.line);
+            return result != 0 ? result : contactId.compareTo(other.contactId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && compareTo((Entry) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * line + contactId.hashCode();
+        }
+    }
+
+    /**
+     * Constructor initializes an empty index
+     */
+    public PhoneIndex() {
+        this.root = new Node(0);
+        this.duplicates = new ConcurrentSkipListSet<>();
+        this.nodes = new AtomicInteger(1);
+    }
+
+    @Override
+    public void added(ContactRecord record) {
+        String phone = record.getPhone();
+        Node[] path = new Node[TRIE_DIGITS + 1];
+        path[0] = root;
+        for (int depth = 0; depth < TRIE_DIGITS; depth++) {
+            int digit = phone.charAt(depth) - '0';
+            Node child = path[depth].children.get(digit);
+            if (child == null) {
+                Node created = new Node(depth + 1);
+                if (path[depth].children.compareAndSet(digit, null, created)) {
+                    nodes.incrementAndGet();
+                }
+                child = path[depth].children.get(digit);
+            }
+            path[depth + 1] = child;
+        }
+        Node exchange = path[TRIE_DIGITS];
+        int line = Integer.parseInt(phone.substring(TRIE_DIGITS));
+        synchronized (exchange) {
+            if (exchange.lines.add(new Entry(line, record.getContactId()))) {
+                for (Node node : path) {
+                    node.count.incrementAndGet();
+                }
+                if (isShared(exchange, line)) {
+                    duplicates.add(Long.parseLong(phone));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updated(ContactRecord before, ContactRecord after) {
+        if (!before.getPhone().equals(after.getPhone())) {
+            added(after);
+            removed(before);
+        }
+    }
+
+    @Override
+    public void removed(ContactRecord record) {
+        String phone = record.getPhone();
+        Node[] path = new Node[TRIE_DIGITS + 1];
+        path[0] = root;
+        for (int depth = 0; depth < TRIE_DIGITS; depth++) {
+            path[depth + 1] = path[depth].children.get(phone.charAt(depth) - '0');
+            if (path[depth + 1] == null) {
+                return;
+            }
+        }
+        Node exchange = path[TRIE_DIGITS];
+        int line = Integer.parseInt(phone.substring(TRIE_DIGITS));
+        synchronized (exchange) {
+            if (exchange.lines.remove(new Entry(line, record.getContactId()))) {
+                for (Node node : path) {
+                    node.count.decrementAndGet();
+                }
+                if (!isShared(exchange, line)) {
+                    duplicates.remove(Long.parseLong(phone));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether more than one contact in an exchange holds a line number, in O(log n)
+     */
+    private static boolean isShared(Node exchange, int line) {
+        Entry first = exchange.lines.ceiling(new Entry(line, ""));
+        if (first == null || first.line != line) {
+            return false;
+        }
+        Entry second = exchange.lines.higher(first);
+        return second != null && second.line == line;
+    }
+
+    /**
+     * Counts contacts whose phone number starts with a prefix
+     * @param prefix Up to 10 digits
+     * @return The number of matching contacts; 0 if prefix is not all digits or is too long
+     */
+    public int countPrefix(String prefix) {
+        Node node = find(prefix);
+        if (node == null) {
+            return 0;
+        }
+        if (prefix.length() <= TRIE_DIGITS) {
+            return node.count.get();
+        }
+        int[] range = lineRange(prefix);
+        return node.lines.subSet(new Entry(range[0], ""), new Entry(range[1], "")).size();
+    }
+
+    /**
+     * Finds contacts whose phone number equals a value
+     * @param phone The phone number to match
+     * @return IDs of matching contacts, ordered by ID
+     */
+    public List<String> findEqual(String phone) {
+        return phone.length() == TRIE_DIGITS + LINE_DIGITS ? findPrefix(phone) : new ArrayList<>();
+    }
+
+    /**
+     * Finds contacts whose phone number starts with a prefix
+     * @param prefix Up to 10 digits
+     * @return IDs of matching contacts, ordered by phone number and then ID
+     */
+    public List<String> findPrefix(String prefix) {
+        List<String> ids = new ArrayList<>();
+        Node node = find(prefix);
+        if (node == null) {
+            return ids;
+        }
+        if (prefix.length() <= TRIE_DIGITS) {
+            collect(node, ids);
+        } else {
+            int[] range = lineRange(prefix);
+            for (Entry entry : node.lines.subSet(new Entry(range[0], ""), new Entry(range[1], ""))) {
+                ids.add(entry.contactId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Lists the phone numbers held by more than one contact
+     * @return The numbers in ascending order
+     */
+    public List<String> findDuplicates() {
+        List<String> phones = new ArrayList<>();
+        for (long phone : duplicates) {
+            phones.add(String.format("%010d", phone));
+        }
+        return phones;
+    }
+
+    /**
+     * Walks the trie to the node for the first six digits of a prefix
+     * @return The node, or null if no contact matches or the prefix is not up to 10 digits
+     */
+    private Node find(String prefix) {
+        if (prefix.length() > TRIE_DIGITS + LINE_DIGITS) {
+            return null;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (prefix.charAt(i) < '0' || prefix.charAt(i) > '9') {
+                return null;
+            }
+        }
+        Node node = root;
+        for (int depth = 0; depth < Math.min(prefix.length(), TRIE_DIGITS) && node != null; depth++) {
+            node = node.children.get(prefix.charAt(depth) - '0');
+        }
+        return node;
+    }
+
+    /**
+     * The line numbers matching the digits of a prefix past the exchange, as a half-open range
+     */
+    private static int[] lineRange(String prefix) {
+        int digits = prefix.length() - TRIE_DIGITS;
+        int scale = 1;
+        for (int i = digits; i < LINE_DIGITS; i++) {
+            scale *= 10;
+        }
+        int from = Integer.parseInt(prefix.substring(TRIE_DIGITS)) * scale;
+        return new int[] {from, from + scale};
+    }
+
+    /**
+     * Appends every contact ID below a node in phone order, skipping emptied subtrees
+     */
+    private static void collect(Node node, List<String> ids) {
+        if (node.lines != null) {
+            for (Entry entry : node.lines) {
+                ids.add(entry.contactId);
+            }
+            return;
+        }
+        for (int digit = 0; digit < 10; digit++) {
+            Node child = node.children.get(digit);
+            if (child != null && child.count.get() > 0) {
+                collect(child, ids);
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap used by the trie and its entries; contact IDs are shared with the contacts
+     * @return Approximate bytes
+     */
+    public long estimatedBytes() {
+        return size() * ENTRY_BYTES + nodes.get() * NODE_BYTES;
+    }
+
+    /**
+     * Gets the number of indexed entries
+     * @return The entry count
+     */
+    public int size() {
+        return root.count.get();
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit tests for the PhoneIndex class
+ */
+public class PhoneIndexTest {
+    private static ContactRecord record(String contactId, String phone) {
+        return new ContactRecord(contactId, "First", "Last", phone, "1 Main St");
+    }
+
+    @Test
+    public void testPrefixCountsAndRanges() {
+        // Test counting and listing by area code, exchange and longer prefixes
+        PhoneIndex index = new PhoneIndex();
+        index.added(record("a", "4155550100"));
+        index.added(record("b", "4155550199"));
+        index.added(record("c", "4155551234"));
+        index.added(record("d", "4156660000"));
+        index.added(record("e", "2125550100"));
+
+        assertEquals(5, index.countPrefix(""));
+        assertEquals(4, index.countPrefix("415"));
+        assertEquals(3, index.countPrefix("415555"));
+        assertEquals(2, index.countPrefix("41555501"));
+        assertEquals(1, index.countPrefix("4155550199"));
+        assertEquals(0, index.countPrefix("999"));
+        assertEquals(0, index.countPrefix("41a"));
+        assertEquals(0, index.countPrefix("41555501991"));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), index.findPrefix("415"));
+        assertEquals(Arrays.asList("a", "b"), index.findPrefix("4155550"));
+        assertEquals(Collections.singletonList("e"), index.findEqual("2125550100"));
+        assertEquals(Collections.emptyList(), index.findEqual("212555"));
+    }
+
+    @Test
+    public void testMaintainedOnUpdateAndRemove() {
+        // Test that counts and duplicates follow updates and deletes
+        PhoneIndex index = new PhoneIndex();
+        index.added(record("a", "4155550100"));
+        index.added(record("b", "4155550100"));
+        index.added(record("c", "2125550100"));
+        assertEquals(Collections.singletonList("4155550100"), index.findDuplicates());
+        assertEquals(Arrays.asList("a", "b"), index.findEqual("4155550100"));
+
+        index.updated(record("c", "2125550100"), record("c", "4155550100"));
+        assertEquals(0, index.countPrefix("212"));
+        assertEquals(3, index.countPrefix("415"));
+
+        index.removed(record("a", "4155550100"));
+        index.updated(record("b", "4155550100"), record("b", "6505550100"));
+        assertTrue(index.findDuplicates().isEmpty());
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList("b"), index.findPrefix("650"));
+        assertEquals(Arrays.asList("c", "b"), index.findPrefix(""));
+        assertEquals(Collections.emptyList(), index.findPrefix("212"));
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RemoteContactShard is a ContactShard whose contacts live in a ContactShardServer, usually in
+ * another process on the same machine. Each call borrows a pooled connection, so concurrent
+ * callers use separate connections and a connection carries one call at a time.
+ *
+ * Contacts returned by getContact, getAllContacts and find are copies: their setters do not
+ * change the stored contact. Use updateContact instead.
+ */
+public class RemoteContactShard implements ContactShard {
+    private final String name;
+    private final InetAddress host;
+    private final int port;
+    private final ConcurrentLinkedQueue<Connection> idle;
+    private final Process process;    // The server process this shard started, or null
+    private volatile boolean closed;
+
+    /**
+     * One socket with its buffered streams
+     */
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetAddress host, int port) throws IOException {
+            this.socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    /**
+     * Writes a call's arguments
+     */
+    private interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads a successful call's result
+     */
+    private interface Response<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Constructor connects to a server that is already running
+     * @param name The shard's name
+     * @param host The server's address
+     * @param port The server's port
+     */
+    public RemoteContactShard(String name, InetAddress host, int port) {
+        this(name, host, port, null);
+    }
+
+    private RemoteContactShard(String name, InetAddress host, int port, Process process) {
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.process = process;
+    }
+
+    /**
+     * Starts a ContactShardServer in a new JVM with this JVM's class path and options, and
+     * connects to it. Closing the shard stops the process.
+     * @param name The shard's name
+     * @return A shard backed by the new process
+     * @throws IOException if the process could not be started or did not start listening
+     */
+    public static RemoteContactShard launch(String name) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ContactShardServer.class.getName());
+        command.add(name);
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        if (line == null || !line.startsWith(ContactShardServer.READY_PREFIX)) {
+            process.destroyForcibly();
+            throw new IOException("Shard process " + name + " did not start: " + line);
+        }
+        int port = Integer.parseInt(line.substring(ContactShardServer.READY_PREFIX.length()).trim());
+        return new RemoteContactShard(name, InetAddress.getLoopbackAddress(), port, process);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void addContact(Contact contact) {
+        if (contact == null) {
+            throw new IllegalArgumentException("Contact cannot be null");
+        }
+        call(ContactShardProtocol.ADD, out -> ContactShardProtocol.writeContact(out, contact), in -> null);
+    }
+
+    /**
+     * Sends the contacts in requests of at most ContactShardProtocol.MAX_BATCH; if one is
+     * rejected, the earlier requests stay applied
+     */
+    @Override
+    public void addContacts(List<Contact> contacts) {
+        for (int from = 0; from < contacts.size(); from += ContactShardProtocol.MAX_BATCH) {
+            List<Contact> batch = contacts.subList(from, Math.min(from + ContactShardProtocol.MAX_BATCH, contacts.size()));
+            call(ContactShardProtocol.ADD_ALL, out -> ContactShardProtocol.writeContacts(out, batch), in -> null);
+        }
+    }
+
+    @Override
+    public Contact getContact(String contactId) {
+        if (contactId == null) {
+            return null;
+        }
+        return call(ContactShardProtocol.GET, out -> ContactShardProtocol.writeString(out, contactId),
+                in -> in.readBoolean() ? ContactShardProtocol.readContact(in) : null);
+    }
+
+    @Override
+    public void updateContact(String contactId, String firstName, String lastName, String phone, String address) {
+        call(ContactShardProtocol.UPDATE, out -> {
+            ContactShardProtocol.writeString(out, contactId);
+            ContactShardProtocol.writeString(out, firstName);
+            ContactShardProtocol.writeString(out, lastName);
+            ContactShardProtocol.writeString(out, phone);
+            ContactShardProtocol.writeString(out, address);
+        }, in -> null);
+    }
+
+    @Override
+    public void deleteContact(String contactId) {
+        call(ContactShardProtocol.DELETE, out -> ContactShardProtocol.writeString(out, contactId), in -> null);
+    }
+
+    /**
+     * Sends the IDs in requests of at most ContactShardProtocol.MAX_BATCH
+     */
+    @Override
+    public void deleteContacts(List<String> contactIds) {
+        for (int from = 0; from < contactIds.size(); from += ContactShardProtocol.MAX_BATCH) {
+            List<String> batch = contactIds.subList(from, Math.min(from + ContactShardProtocol.MAX_BATCH, contactIds.size()));
+            call(ContactShardProtocol.DELETE_ALL, out -> ContactShardProtocol.writeContactIds(out, batch), in -> null);
+        }
+    }
+
+    @Override
+    public List<Contact> getAllContacts() {
+        return call(ContactShardProtocol.GET_ALL, out -> { }, ContactShardProtocol::readContacts);
+    }
+
+    @Override
+    public List<Contact> find(ContactField field, String value, boolean prefix) {
+        return call(ContactShardProtocol.FIND, out -> {
+            out.writeByte(field.ordinal());
+            out.writeBoolean(prefix);
+            ContactShardProtocol.writeString(out, value);
+        }, ContactShardProtocol::readContacts);
+    }
+
+    @Override
+    public int size() {
+        return call(ContactShardProtocol.SIZE, out -> { }, DataInputStream::readInt);
+    }
+
+    /**
+     * Closes the pooled connections and stops the server process if this shard started it
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Connection connection; (connection = idle.poll()) != null; ) {
+            connection.socket.close();
+        }
+        if (process != null) {
+            process.getOutputStream().close();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Sends one request on a pooled connection and reads its response
+     */
+    private <T> T call(byte opcode, Request request, Response<T> response) {
+        if (closed) {
+            throw new IllegalStateException("Shard is closed");
+        }
+        Connection connection = idle.poll();
+        try {
+            if (connection == null) {
+                connection = new Connection(host, port);
+            }
+            connection.out.writeByte(opcode);
+            request.write(connection.out);
+            connection.out.flush();
+            byte status = connection.in.readByte();
+            T result = null;
+            String error = null;
+            if (status == ContactShardProtocol.OK) {
+                result = response.read(connection.in);
+            } else {
+                error = connection.in.readUTF();
+            }
+            idle.add(connection);
+            connection = null;
+            if (status == ContactShardProtocol.REJECTED) {
+                throw new IllegalArgumentException(error);
+            } else if (status != ContactShardProtocol.OK) {
+                throw new IllegalStateException("Shard " + name + " failed: " + error);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard " + name + " unreachable", e);
+        } finally {
+            if (connection != null) {
+                // The connection may be partway through a call, so it cannot be reused
+                try {
+                    connection.socket.close();
+                } catch (IOException e) {
+                    // Already failing
+                }
+            }
+        }
+    }
+}
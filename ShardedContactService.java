@@ -0,0 +1,422 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * ShardedContactService spreads contacts over several ContactShards, each with its own
+ * ContactService, so a contact book can outgrow one JVM's heap and cores. A contact's shard is
+ * chosen by consistent hashing of its ID (see ConsistentHashRing); calls for one contact go to
+ * that shard alone, while getAllContacts and the searches ask every shard in parallel and
+ * merge the answers (scatter-gather).
+ *
+ * Shards are pluggable: LocalContactShard keeps a service in this JVM, and RemoteContactShard
+ * reaches a ContactShardServer in another process. addShard and removeShard rebalance by
+ * moving only the contacts whose owner changes. A rebalance blocks other calls while it runs;
+ * every other call only takes a shared lock, so calls proceed in parallel otherwise.
+ */
+public class ShardedContactService implements Closeable {
+    private final Map<String, ContactShard> shards;    // Guarded by topology
+    private final ReentrantReadWriteLock topology;
+    private final ExecutorService scatter;
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * Constructor creates a service over shardCount new LocalContactShards named shard-0, shard-1 and so on
+     * @param shardCount The number of shards
+     * @throws IllegalArgumentException if shardCount is not positive
+     */
+    public ShardedContactService(int shardCount) {
+        this(localShards(shardCount));
+    }
+
+    /**
+     * Constructor creates a service over existing shards, which must hold no contacts yet
+     * @param shards The shards, each with a unique name
+     * @throws IllegalArgumentException if there are no shards or two share a name
+     */
+    public ShardedContactService(List<? extends ContactShard> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = new LinkedHashMap<>();
+        this.topology = new ReentrantReadWriteLock();
+        this.scatter = Executors.newCachedThreadPool(task -> {
+            Thread worker = new Thread(task, "contact-scatter");
+            worker.setDaemon(true);
+            return worker;
+        });
+        ConsistentHashRing built = new ConsistentHashRing();
+        for (ContactShard shard : shards) {
+            built = built.add(shard.getName());
+            this.shards.put(shard.getName(), shard);
+        }
+        this.ring = built;
+    }
+
+    private static List<ContactShard> localShards(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        List<ContactShard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new LocalContactShard("shard-" + i));
+        }
+        return shards;
+    }
+
+    /**
+     * Adds a new contact with unique ID to its shard
+     * @param contact The contact to add
+     * @throws IllegalArgumentException if contact is null or its ID already exists
+     */
+    public void addContact(Contact contact) {
+        if (contact == null) {
+            throw new IllegalArgumentException("Contact cannot be null");
+        }
+        topology.readLock().lock();
+        try {
+            shardFor(contact.getContactId()).addContact(contact);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a contact by ID from its shard
+     * @param contactId The ID of the contact to retrieve
+     * @return The contact with the specified ID, or null if not found
+     */
+    public Contact getContact(String contactId) {
+        if (contactId == null) {
+            return null;
+        }
+        topology.readLock().lock();
+        try {
+            return shardFor(contactId).getContact(contactId);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates contact fields by contact ID on its shard, all or nothing
+     * @param contactId The ID of the contact to update
+     * @param firstName New first name (can be null to skip update)
+     * @param lastName New last name (can be null to skip update)
+     * @param phone New phone number (can be null to skip update)
+     * @param address New address (can be null to skip update)
+     * @throws IllegalArgumentException if contact ID is not found or a field is invalid
+     */
+    public void updateContact(String contactId, String firstName, String lastName, String phone, String address) {
+        if (contactId == null) {
+            throw new IllegalArgumentException("Contact ID cannot be null");
+        }
+        topology.readLock().lock();
+        try {
+            shardFor(contactId).updateContact(contactId, firstName, lastName, phone, address);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes a contact by contact ID from its shard
+     * @param contactId The ID of the contact to delete
+     * @throws IllegalArgumentException if contact ID is not found
+     */
+    public void deleteContact(String contactId) {
+        if (contactId == null) {
+            throw new IllegalArgumentException("Contact ID cannot be null");
+        }
+        topology.readLock().lock();
+        try {
+            shardFor(contactId).deleteContact(contactId);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets all contacts from every shard
+     * @return List of all contacts, grouped by shard and in insertion order within a shard
+     */
+    public List<Contact> getAllContacts() {
+        List<Contact> all = new ArrayList<>();
+        for (List<Contact> part : gather(ContactShard::getAllContacts)) {
+            all.addAll(part);
+        }
+        return all;
+    }
+
+    /**
+     * Gets the number of contacts on all shards
+     * @return The contact count
+     */
+    public int size() {
+        int size = 0;
+        for (int part : gather(ContactShard::size)) {
+            size += part;
+        }
+        return size;
+    }
+
+    /**
+     * Finds contacts by exact first name on every shard
+     * @param firstName The first name to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByFirstName(String firstName) {
+        return find(ContactField.FIRST_NAME, firstName, false);
+    }
+
+    /**
+     * Finds contacts whose first name starts with a prefix on every shard
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByFirstNamePrefix(String prefix) {
+        return find(ContactField.FIRST_NAME, prefix, true);
+    }
+
+    /**
+     * Finds contacts by exact last name on every shard
+     * @param lastName The last name to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByLastName(String lastName) {
+        return find(ContactField.LAST_NAME, lastName, false);
+    }
+
+    /**
+     * Finds contacts whose last name starts with a prefix on every shard
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByLastNamePrefix(String prefix) {
+        return find(ContactField.LAST_NAME, prefix, true);
+    }
+
+    /**
+     * Finds contacts by exact phone number on every shard
+     * @param phone The phone number to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByPhone(String phone) {
+        return find(ContactField.PHONE, phone, false);
+    }
+
+    /**
+     * Finds contacts whose phone number starts with a prefix on every shard
+     * @param prefix The prefix to match
+     * @return Matching contacts ordered by ID
+     */
+    public List<Contact> findByPhonePrefix(String prefix) {
+        return find(ContactField.PHONE, prefix, true);
+    }
+
+    /**
+     * Gets the names of the shards
+     * @return Shard names in the order they were added
+     */
+    public List<String> getShardNames() {
+        return ring.shards();
+    }
+
+    /**
+     * Adds a shard and moves to it the contacts it now owns, about 1/N of them; contacts
+     * that keep their owner are not touched. The contacts are copied to the new shard first and
+     * only deleted from their old owners once every copy succeeded, so if a copy fails the
+     * copies made so far are deleted again and the service is left as it was.
+     * @param shard The new shard, holding no contacts, with a name no other shard uses
+     * @return The number of contacts moved
+     * @throws IllegalArgumentException if shard is null or its name is taken
+     */
+    public int addShard(ContactShard shard) {
+        if (shard == null) {
+            throw new IllegalArgumentException("Shard cannot be null");
+        }
+        topology.writeLock().lock();
+        try {
+            ConsistentHashRing grown = ring.add(shard.getName());
+            Map<ContactShard, List<String>> leaving = new LinkedHashMap<>();
+            List<String> copied = new ArrayList<>();
+            try {
+                for (ContactShard source : shards.values()) {
+                    List<Contact> moving = new ArrayList<>();
+                    List<String> movingIds = new ArrayList<>();
+                    for (Contact contact : source.getAllContacts()) {
+                        if (grown.shardFor(contact.getContactId()).equals(shard.getName())) {
+                            moving.add(contact);
+                            movingIds.add(contact.getContactId());
+                        }
+                    }
+                    if (!moving.isEmpty()) {
+                        // Noted first, since a failed batch may have been partly added
+                        copied.addAll(movingIds);
+                        shard.addContacts(moving);
+                        leaving.put(source, movingIds);
+                    }
+                }
+            } catch (RuntimeException e) {
+                try {
+                    shard.deleteContacts(copied);
+                } catch (RuntimeException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                throw e;
+            }
+            shards.put(shard.getName(), shard);
+            ring = grown;
+            for (Map.Entry<ContactShard, List<String>> source : leaving.entrySet()) {
+                source.getKey().deleteContacts(source.getValue());
+            }
+            return copied.size();
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a shard, hands each of its contacts to the shard now owning it and closes it;
+     * contacts on the other shards are not touched
+     * @param name The name of the shard to remove
+     * @return The number of contacts moved
+     * @throws IllegalArgumentException if no shard has the name or it is the only shard
+     */
+    public int removeShard(String name) {
+        topology.writeLock().lock();
+        try {
+            ContactShard removed = shards.get(name);
+            if (removed == null) {
+                throw new IllegalArgumentException("Shard not found");
+            }
+            if (shards.size() == 1) {
+                throw new IllegalArgumentException("Cannot remove the last shard");
+            }
+            ConsistentHashRing shrunk = ring.remove(name);
+            int moved = move(removed, shrunk);
+            shards.remove(name);
+            ring = shrunk;
+            closeQuietly(removed);
+            return moved;
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes every shard and stops the scatter threads
+     */
+    @Override
+    public void close() throws IOException {
+        topology.writeLock().lock();
+        try {
+            scatter.shutdownNow();
+            IOException failure = null;
+            for (ContactShard shard : shards.values()) {
+                try {
+                    shard.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the shard owning a contact ID; called holding the topology lock
+     */
+    private ContactShard shardFor(String contactId) {
+        return shards.get(ring.shardFor(contactId));
+    }
+
+    /**
+     * Hands every contact of a shard being removed to its owner in the new ring, in one batch
+     * per destination; called holding the write lock
+     */
+    private int move(ContactShard source, ConsistentHashRing newRing) {
+        Map<String, List<Contact>> leaving = new HashMap<>();
+        int moved = 0;
+        for (Contact contact : source.getAllContacts()) {
+            leaving.computeIfAbsent(newRing.shardFor(contact.getContactId()), key -> new ArrayList<>()).add(contact);
+            moved++;
+        }
+        for (Map.Entry<String, List<Contact>> batch : leaving.entrySet()) {
+            shards.get(batch.getKey()).addContacts(batch.getValue());
+        }
+        return moved;
+    }
+
+    /**
+     * Calls every shard in parallel, the last on this thread, and collects the answers in shard order
+     */
+    private <T> List<T> gather(Function<ContactShard, T> call) {
+        topology.readLock().lock();
+        try {
+            List<ContactShard> targets = new ArrayList<>(shards.values());
+            List<Future<T>> pending = new ArrayList<>(targets.size() - 1);
+            for (ContactShard shard : targets.subList(0, targets.size() - 1)) {
+                pending.add(scatter.submit(() -> call.apply(shard)));
+            }
+            T last = call.apply(targets.get(targets.size() - 1));
+            List<T> results = new ArrayList<>(targets.size());
+            for (Future<T> future : pending) {
+                results.add(await(future));
+            }
+            results.add(last);
+            return results;
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    private List<Contact> find(ContactField field, String value, boolean prefix) {
+        if (value == null) {
+            return new ArrayList<>();
+        }
+        List<Contact> found = new ArrayList<>();
+        for (List<Contact> part : gather(shard -> shard.find(field, value, prefix))) {
+            found.addAll(part);
+        }
+        found.sort(Comparator.comparing(Contact::getContactId));
+        return found;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Shard call failed", e.getCause());
+        }
+    }
+
+    private static void closeQuietly(ContactShard shard) {
+        try {
+            shard.close();
+        } catch (IOException e) {
+            // The shard's contacts have already moved
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for the ShardedContactService class, ConsistentHashRing and the shard transports
+ */
+public class ShardedContactServiceTest {
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i), "First" + (i % 3), "Last", String.format("555%07d", i), i + " Main St");
+    }
+
+    private static List<String> ids(List<Contact> contacts) {
+        return contacts.stream().map(Contact::getContactId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRoutesCallsToOwningShard() throws IOException {
+        // Test that each contact lives on exactly the shard the ring assigns it
+        try (ShardedContactService service = new ShardedContactService(4)) {
+            for (int i = 0; i < 200; i++) {
+                service.addContact(contact(i));
+            }
+            assertEquals(200, service.size());
+            assertEquals("First1", service.getContact("7").getFirstName());
+            service.updateContact("7", "Jane", null, null, null);
+            assertEquals("Jane", service.getContact("7").getFirstName());
+            service.deleteContact("8");
+            assertNull(service.getContact("8"));
+            assertEquals(199, service.getAllContacts().size());
+
+            assertThrows(IllegalArgumentException.class, () -> service.addContact(contact(7)));
+            assertThrows(IllegalArgumentException.class, () -> service.deleteContact("8"));
+            assertThrows(IllegalArgumentException.class, () -> service.updateContact("7", null, null, "123", null));
+        }
+    }
+
+    @Test
+    public void testSearchesGatherFromAllShards() throws IOException {
+        // Test that searches merge every shard's matches in ID order
+        try (ShardedContactService service = new ShardedContactService(3)) {
+            for (int i = 0; i < 30; i++) {
+                service.addContact(contact(i));
+            }
+            List<String> expected = Arrays.asList("0", "12", "15", "18", "21", "24", "27", "3", "6", "9");
+            assertEquals(expected, ids(service.findByFirstName("First0")));
+            assertEquals(30, service.findByFirstNamePrefix("First").size());
+            assertEquals(30, service.findByLastName("Last").size());
+            assertEquals(Arrays.asList("10", "11", "12", "13", "14", "15", "16", "17", "18", "19"),
+                    ids(service.findByPhonePrefix("555000001")));
+            assertEquals(Arrays.asList("5"), ids(service.findByPhone("5550000005")));
+            assertTrue(service.findByLastNamePrefix(null).isEmpty());
+        }
+    }
+
+    @Test
+    public void testAddShardMovesOnlyReassignedContacts() throws IOException {
+        // Test that a new shard takes only the contacts the grown ring gives it
+        LocalContactShard a = new LocalContactShard("a");
+        LocalContactShard b = new LocalContactShard("b");
+        try (ShardedContactService service = new ShardedContactService(Arrays.asList(a, b))) {
+            for (int i = 0; i < 3000; i++) {
+                service.addContact(contact(i));
+            }
+            Map<String, Contact> before = new HashMap<>();
+            for (Contact stored : service.getAllContacts()) {
+                before.put(stored.getContactId(), stored);
+            }
+
+            LocalContactShard c = new LocalContactShard("c");
+            int moved = service.addShard(c);
+
+            assertEquals(c.size(), moved);
+            assertTrue(moved > 600 && moved < 1400, "moved " + moved);
+            assertEquals(3000, service.size());
+            ConsistentHashRing ring = new ConsistentHashRing().add("a").add("b").add("c");
+            for (int i = 0; i < 3000; i++) {
+                String id = Integer.toString(i);
+                Contact stored = service.getContact(id);
+                assertEquals(contact(i).getAddress(), stored.getAddress());
+                if (ring.shardFor(id).equals("c")) {
+                    assertNotNull(c.getContact(id));
+                } else {
+                    // Contacts that kept their shard were not touched
+                    assertSame(before.get(id), stored);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveShardHandsContactsToRemainingShards() throws IOException {
+        // Test that removing a shard moves only its own contacts
+        try (ShardedContactService service = new ShardedContactService(3)) {
+            for (int i = 0; i < 1000; i++) {
+                service.addContact(contact(i));
+            }
+            int sizeBefore = service.getAllContacts().size();
+            int moved = service.removeShard("shard-1");
+
+            assertEquals(Arrays.asList("shard-0", "shard-2"), service.getShardNames());
+            assertEquals(sizeBefore, service.size());
+            assertTrue(moved > 0 && moved < 1000);
+            for (int i = 0; i < 1000; i++) {
+                assertNotNull(service.getContact(Integer.toString(i)));
+            }
+            service.updateContact("5", null, "Moved", null, null);
+            assertEquals("Moved", service.getContact("5").getLastName());
+            assertThrows(IllegalArgumentException.class, () -> service.removeShard("shard-1"));
+        }
+    }
+
+    @Test
+    public void testRemoteShardOverServer() throws IOException {
+        // Test a shard served over TCP, including rejected calls and a rebalance through it
+        LocalContactShard served = new LocalContactShard("remote");
+        try (ContactShardServer server = new ContactShardServer(served, 0);
+             ShardedContactService service = new ShardedContactService(Arrays.asList(new LocalContactShard("local")))) {
+            RemoteContactShard remote = new RemoteContactShard("remote", InetAddress.getLoopbackAddress(), server.getPort());
+            for (int i = 0; i < 500; i++) {
+                service.addContact(contact(i));
+            }
+            int moved = service.addShard(remote);
+
+            assertEquals(moved, served.size());
+            assertEquals(moved, remote.size());
+            assertEquals(500, service.size());
+            String remoteId = served.getAllContacts().get(0).getContactId();
+            assertEquals(remoteId, service.getContact(remoteId).getContactId());
+            service.updateContact(remoteId, "Remote", null, null, null);
+            assertEquals("Remote", served.getContact(remoteId).getFirstName());
+            assertThrows(IllegalArgumentException.class, () -> service.updateContact(remoteId, null, null, "bad", null));
+            assertThrows(IllegalArgumentException.class, () -> remote.addContact(contact(Integer.parseInt(remoteId))));
+            assertNull(remote.getContact("missing"));
+            assertEquals(ids(service.findByFirstName("First2")).size(), 500 / 3);
+            service.deleteContact(remoteId);
+            assertNull(service.getContact(remoteId));
+        }
+    }
+
+    @Test
+    public void testFailedAddShardLeavesServiceAsItWas() throws IOException {
+        // Test that a shard failing partway through the move is not registered and keeps no copies
+        LocalContactShard failing = new LocalContactShard("failing") {
+            @Override
+            public void addContacts(List<Contact> contacts) {
+                super.addContacts(contacts.subList(0, contacts.size() / 2));
+                throw new UncheckedIOException(new IOException("Shard became unreachable"));
+            }
+        };
+        try (ShardedContactService service = new ShardedContactService(Arrays.asList(
+                new LocalContactShard("shard-0"), new LocalContactShard("shard-1")))) {
+            for (int i = 0; i < 500; i++) {
+                service.addContact(contact(i));
+            }
+            assertThrows(UncheckedIOException.class, () -> service.addShard(failing));
+
+            assertEquals(0, failing.size());
+            assertEquals(Arrays.asList("shard-0", "shard-1"), service.getShardNames());
+            assertEquals(500, service.size());
+            assertEquals(500, service.getAllContacts().size());
+            assertThrows(IllegalArgumentException.class, () -> service.removeShard("failing"));
+            assertTrue(service.addShard(new LocalContactShard("shard-2")) > 0);
+            assertEquals(500, service.getAllContacts().size());
+        }
+    }
+
+    @Test
+    public void testShardServerChecksBatchSize() throws IOException {
+        // Test that the shard server drops a connection sending a batch count above the limit
+        LocalContactShard served = new LocalContactShard("remote");
+        try (ContactShardServer server = new ContactShardServer(served, 0)) {
+            for (byte opcode : new byte[] {ContactShardProtocol.ADD_ALL, ContactShardProtocol.DELETE_ALL}) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeByte(opcode);
+                    out.writeInt(Integer.MAX_VALUE);
+                    out.flush();
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            try (RemoteContactShard remote = new RemoteContactShard("remote", InetAddress.getLoopbackAddress(), server.getPort())) {
+                remote.addContact(contact(1));
+            }
+            assertEquals(1, served.size());
+        }
+    }
+
+    @Test
+    public void testRingSpreadsKeysEvenly() {
+        // Test that virtual nodes give each shard a fair share of keys
+        ConsistentHashRing ring = new ConsistentHashRing().add("shard-0").add("shard-1").add("shard-2").add("shard-3");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            counts.merge(ring.shardFor(Integer.toString(i)), 1, Integer::sum);
+        }
+        for (int count : counts.values()) {
+            assertTrue(count > 20_000 && count < 30_000, "count " + count);
+        }
+        assertEquals(ring.shardFor("42"), ring.remove("shard-3").add("shard-3").shardFor("42"));
+        assertThrows(IllegalArgumentException.class, () -> ring.add("shard-0"));
+    }
+}
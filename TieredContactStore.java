@@ -0,0 +1,415 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TieredContactStore keeps recently used contacts on the heap and the rest in a ContactSegment
+ * on disk, so heap use follows the working set rather than the size of the book. Every contact
+ * stays reachable: a get or update of a cold contact promotes it back to the hot tier.
+ *
+ * Each contact carries its last-access and last-modified times. The hot tier is capped at a
+ * number of contacts; when it outgrows the cap by a tenth, the writer that pushed it over
+ * demotes the least recently accessed contacts until it fits, so the cost is amortized over
+ * the inserts and promotions that caused it. demoteIdle moves contacts untouched for a while,
+ * and idleSince lists candidates for expiry; ContactTiering runs both in the background.
+ *
+ * Moves between tiers happen inside the hot map's per-key lock, so a contact is never in both
+ * tiers or in neither as seen by a get, a contains check or a write. The iterator returns hot
+ * contacts, then cold ones, from a consistent cut of the two tiers rather than in insertion
+ * order. The segment file is scratch space, emptied on open; pair the store with a write-ahead
+ * log for durability. Records left behind by promoted contacts are reclaimed by compacting
+ * the segment once they outweigh the live ones.
+ *
+ * Scans, pages and search results read contacts through peek, which leaves them in their tier;
+ * only get and update promote. Only the store is tiered: once a ContactService search builds
+ * its indexes, they hold every contact's fields on the heap whichever tier the contact is in,
+ * so heap use is then O(all contacts) again.
+ */
+public class TieredContactStore implements ContactStore, Closeable {
+    private final ConcurrentHashMap<String, Hot> hot;
+    private final ContactSegment cold;
+    private final int maxHot;
+    private final ReentrantReadWriteLock moves;    // Read-held by every change, write-held to cut an iterator snapshot
+    private final ReentrantLock trimming;
+
+    /**
+     * A contact in the hot tier with its access and change times
+     */
+    private static final class Hot {
+        volatile ContactRecord record;
+        volatile long lastAccessed;
+        volatile long lastModified;
+        volatile long recency;    // System.nanoTime() of the last access, finer than lastAccessed for ordering
+
+        Hot(ContactRecord record, long lastAccessed, long lastModified) {
+            this.record = record;
+            this.lastAccessed = lastAccessed;
+            this.lastModified = lastModified;
+            this.recency = System.nanoTime();
+        }
+    }
+
+    private TieredContactStore(ContactSegment cold, int maxHot) {
+        this.hot = new ConcurrentHashMap<>();
+        this.cold = cold;
+        this.maxHot = maxHot;
+        this.moves = new ReentrantReadWriteLock();
+        this.trimming = new ReentrantLock();
+    }
+
+    /**
+     * Creates an empty store with its cold tier in a segment file
+     * @param segmentFile The file for cold contacts; existing contents are discarded
+     * @param maxHot The most contacts to keep on the heap
+     * @return The store; close it to release the file
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if maxHot is not positive
+     */
+    public static TieredContactStore open(Path segmentFile, int maxHot) throws IOException {
+        if (maxHot <= 0) {
+            throw new IllegalArgumentException("Hot tier size must be positive");
+        }
+        return new TieredContactStore(new ContactSegment(segmentFile), maxHot);
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        long now = System.currentTimeMillis();
+        Hot entry = hot.get(contactId);
+        if (entry == null) {
+            entry = promote(contactId, now);
+            if (entry == null) {
+                return null;
+            }
+        } else {
+            entry.recency = System.nanoTime();
+            if (entry.lastAccessed != now) {
+                entry.lastAccessed = now;
+            }
+        }
+        return new Contact(entry.record);
+    }
+
+    /**
+     * Reads a contact where it is: a cold contact stays cold and a hot one keeps its recency,
+     * so scans and pages do not churn the tiers
+     */
+    @Override
+    public Contact peek(String contactId) {
+        Hot entry = hot.get(contactId);
+        if (entry != null) {
+            return new Contact(entry.record);
+        }
+        // As in contains, read the segment inside the key's lock so a promotion cannot hide it
+        ContactRecord[] found = new ContactRecord[1];
+        hot.compute(contactId, (id, current) -> {
+            found[0] = current != null ? current.record : cold.get(id);
+            return current;
+        });
+        return found[0] == null ? null : new Contact(found[0]);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        if (hot.containsKey(contactId)) {
+            return true;
+        }
+        // A promotion takes the contact from the segment before its hot entry is published, so
+        // check both tiers inside the key's lock, which the promotion holds throughout
+        boolean[] found = new boolean[1];
+        hot.compute(contactId, (id, entry) -> {
+            found[0] = entry != null || cold.contains(id);
+            return entry;
+        });
+        return found[0];
+    }
+
+    @Override
+    public void insert(Contact contact) {
+        long now = System.currentTimeMillis();
+        moves.readLock().lock();
+        try {
+            hot.put(contact.getContactId(), new Hot(contact.toRecord(), now, now));
+        } finally {
+            moves.readLock().unlock();
+        }
+        trimIfFull();
+    }
+
+    @Override
+    public ContactRecord update(String contactId, String firstName, String lastName, String phone, String address) {
+        long now = System.currentTimeMillis();
+        ContactRecord[] before = new ContactRecord[1];
+        moves.readLock().lock();
+        try {
+            hot.compute(contactId, (id, entry) -> {
+                if (entry == null) {
+                    entry = new Hot(cold.take(id, null), now, now);
+                }
+                before[0] = entry.record;
+                entry.record = before[0].merge(firstName, lastName, phone, address);
+                entry.lastAccessed = now;
+                entry.lastModified = now;
+                entry.recency = System.nanoTime();
+                return entry;
+            });
+        } finally {
+            moves.readLock().unlock();
+        }
+        trimIfFull();
+        return before[0];
+    }
+
+    @Override
+    public ContactRecord remove(String contactId) {
+        ContactRecord[] removed = new ContactRecord[1];
+        moves.readLock().lock();
+        try {
+            hot.compute(contactId, (id, entry) -> {
+                removed[0] = entry != null ? entry.record : cold.take(id, null);
+                return null;
+            });
+        } finally {
+            moves.readLock().unlock();
+        }
+        return removed[0];
+    }
+
+    @Override
+    public int size() {
+        return hot.size() + cold.size();
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        List<ContactRecord> hotRecords = new ArrayList<>(hot.size());
+        long[] coldLocations;
+        moves.writeLock().lock();
+        try {
+            for (Hot entry : hot.values()) {
+                hotRecords.add(entry.record);
+            }
+            coldLocations = cold.locations();
+        } finally {
+            moves.writeLock().unlock();
+        }
+        Cleaner.Cleanable[] unpin = new Cleaner.Cleanable[1];
+        Iterator<Contact> iterator = new Iterator<Contact>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                boolean more = position < hotRecords.size() + coldLocations.length;
+                if (!more) {
+                    unpin[0].clean();
+                }
+                return more;
+            }
+
+            @Override
+            public Contact next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int index = position++;
+                return new Contact(index < hotRecords.size() ? hotRecords.get(index)
+                        : cold.readAt(coldLocations[index - hotRecords.size()]));
+            }
+        };
+        // The segment is not compacted while the locations are in use; an abandoned iterator
+        // releases them when it is collected
+        ContactSegment segment = cold;
+        unpin[0] = ContactVersions.register(iterator, segment::unpin);
+        return iterator;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = cold.estimatedBytes();
+        for (Hot entry : hot.values()) {
+            bytes += CachingContactStore.weigh(entry.record);
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean sharesContacts() {
+        return false;
+    }
+
+    /**
+     * Gets when a contact was last read or changed; cold contacts keep this to the second
+     * @param contactId The contact ID
+     * @return The time in milliseconds, or -1 if no contact has the ID
+     */
+    public long getLastAccessed(String contactId) {
+        Hot entry = hot.get(contactId);
+        return entry != null ? entry.lastAccessed : cold.lastAccessed(contactId);
+    }
+
+    /**
+     * Gets when a contact was last added or changed
+     * @param contactId The contact ID
+     * @return The time in milliseconds, or -1 if no contact has the ID
+     */
+    public long getLastModified(String contactId) {
+        Hot entry = hot.get(contactId);
+        return entry != null ? entry.lastModified : cold.lastModified(contactId);
+    }
+
+    /**
+     * Moves every hot contact not read or changed since a time to the cold tier
+     * @param cutoffMillis The time in milliseconds
+     * @return The number of contacts moved
+     */
+    public int demoteIdle(long cutoffMillis) {
+        return demote(cutoffMillis, false);
+    }
+
+    /**
+     * Lists contacts in either tier not read or changed since a time
+     * @param cutoffMillis The time in milliseconds
+     * @return Their IDs
+     */
+    public List<String> idleSince(long cutoffMillis) {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Hot> entry : hot.entrySet()) {
+            if (entry.getValue().lastAccessed < cutoffMillis) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.addAll(cold.idleSince(cutoffMillis));
+        return ids;
+    }
+
+    /**
+     * Gets the number of contacts on the heap
+     * @return The hot contact count
+     */
+    public int getHotCount() {
+        return hot.size();
+    }
+
+    /**
+     * Gets the number of contacts on disk
+     * @return The cold contact count
+     */
+    public int getColdCount() {
+        return cold.size();
+    }
+
+    /**
+     * Gets the length of the segment file, including records of contacts promoted since the
+     * last compaction
+     * @return The file length in bytes
+     */
+    public long getSegmentBytes() {
+        return cold.fileBytes();
+    }
+
+    /**
+     * Closes the segment file
+     */
+    @Override
+    public void close() throws IOException {
+        cold.close();
+    }
+
+    /**
+     * Moves a cold contact to the hot tier
+     * @return The hot entry, or null if no contact has the ID
+     */
+    private Hot promote(String contactId, long now) {
+        Hot entry;
+        moves.readLock().lock();
+        try {
+            entry = hot.computeIfAbsent(contactId, id -> {
+                long[] lastModified = new long[1];
+                ContactRecord record = cold.take(id, lastModified);
+                return record == null ? null : new Hot(record, now, lastModified[0]);
+            });
+        } finally {
+            moves.readLock().unlock();
+        }
+        if (entry != null) {
+            trimIfFull();
+        }
+        return entry;
+    }
+
+    /**
+     * Moves hot contacts last accessed before a time to the cold tier
+     * @param cutoff The time, in milliseconds or, by recency, System.nanoTime() units
+     * @return The number of contacts moved
+     */
+    private int demote(long cutoff, boolean byRecency) {
+        int demoted = 0;
+        for (Map.Entry<String, Hot> entry : hot.entrySet()) {
+            Hot value = entry.getValue();
+            if ((byRecency ? value.recency : value.lastAccessed) < cutoff && demote(entry.getKey(), cutoff, byRecency)) {
+                demoted++;
+            }
+        }
+        return demoted;
+    }
+
+    /**
+     * Moves a hot contact to the cold tier unless it was accessed since a time
+     * @return true if the contact was moved
+     */
+    private boolean demote(String contactId, long cutoff, boolean byRecency) {
+        boolean[] moved = new boolean[1];
+        moves.readLock().lock();
+        try {
+            hot.computeIfPresent(contactId, (id, entry) -> {
+                if ((byRecency ? entry.recency : entry.lastAccessed) >= cutoff) {
+                    return entry;
+                }
+                cold.put(entry.record, entry.lastAccessed, entry.lastModified);
+                moved[0] = true;
+                return null;
+            });
+        } finally {
+            moves.readLock().unlock();
+        }
+        return moved[0];
+    }
+
+    /**
+     * Demotes the least recently accessed hot contacts once the hot tier outgrows its cap by a
+     * tenth. Only one thread trims at a time; others carry on.
+     */
+    private void trimIfFull() {
+        if (hot.size() <= maxHot + maxHot / 10 || !trimming.tryLock()) {
+            return;
+        }
+        try {
+            long[] times = new long[hot.size() + 16];
+            int n = 0;
+            for (Hot entry : hot.values()) {
+                if (n == times.length) {
+                    break;
+                }
+                times[n++] = entry.recency;
+            }
+            if (n <= maxHot) {
+                return;
+            }
+            Arrays.sort(times, 0, n);
+            // Contacts last accessed before the cutoff are the oldest n - maxHot
+            demote(times[n - maxHot], true);
+        } finally {
+            trimming.unlock();
+        }
+    }
+}
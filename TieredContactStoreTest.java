@@ -0,0 +1,194 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unit tests for the TieredContactStore, ContactSegment and ContactTiering classes
+ */
+public class TieredContactStoreTest {
+    @TempDir
+    Path directory;
+
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i), "John", "Doe" + (i % 3), "1234567890", "123 Main St");
+    }
+
+    @Test
+    public void testColdContactsStayReachable() throws IOException {
+        // Test that demoted contacts are promoted back by get and update and can be deleted
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 1000)) {
+            ContactService service = new ContactService(store);
+            for (int i = 0; i < 10; i++) {
+                service.addContact(contact(i));
+            }
+            assertEquals(10, store.demoteIdle(Long.MAX_VALUE));
+            assertEquals(0, store.getHotCount());
+            assertEquals(10, store.getColdCount());
+
+            assertEquals("Doe1", service.getContact("1").getLastName());
+            assertEquals(1, store.getHotCount());
+            service.updateContact("2", "Jim", null, null, null);
+            assertEquals("Jim", service.getContact("2").getFirstName());
+            service.deleteContact("3");
+            assertFalse(store.contains("3"));
+            assertNull(service.getContact("3"));
+            assertThrows(IllegalArgumentException.class, () -> service.addContact(contact(4)));
+
+            assertEquals(9, service.size());
+            assertEquals(3, service.findByLastName("Doe1").size());
+            Set<String> ids = new HashSet<>();
+            for (Contact stored : service.getAllContacts()) {
+                assertTrue(ids.add(stored.getContactId()));
+            }
+            assertEquals(9, ids.size());
+        }
+    }
+
+    @Test
+    public void testAddNeverSeesContactMidPromotion() throws IOException, InterruptedException {
+        // Test that adding an existing ID is rejected while another thread moves it between tiers
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 1000)) {
+            ContactService service = new ContactService(store);
+            for (int i = 0; i < 100; i++) {
+                service.addContact(contact(i));
+            }
+            AtomicBoolean stop = new AtomicBoolean();
+            Thread mover = new Thread(() -> {
+                while (!stop.get()) {
+                    store.demoteIdle(Long.MAX_VALUE);
+                    for (int i = 0; i < 100; i++) {
+                        service.getContact(Integer.toString(i));
+                    }
+                }
+            });
+            mover.start();
+            try {
+                for (int round = 0; round < 200; round++) {
+                    for (int i = 0; i < 100; i++) {
+                        Contact duplicate = new Contact(Integer.toString(i), "Jim", "Roe", "5555555555", "1 Elm St");
+                        assertEquals(ContactStatus.DUPLICATE_ID, service.tryAdd(duplicate));
+                        assertEquals(ContactStatus.OK, service.tryUpdate(Integer.toString(i), null, null, null, "123 Main St"));
+                    }
+                }
+            } finally {
+                stop.set(true);
+                mover.join();
+            }
+            assertEquals(100, store.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("John", service.getContact(Integer.toString(i)).getFirstName());
+            }
+        }
+    }
+
+    @Test
+    public void testHotTierStaysBounded() throws IOException {
+        // Test that inserts beyond the cap demote the least recently used contacts
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 100)) {
+            ContactService service = new ContactService(store);
+            service.addContact(contact(0));
+            for (int i = 1; i < 5000; i++) {
+                service.addContact(contact(i));
+                if (i % 50 == 0) {
+                    service.getContact("0");
+                }
+            }
+            assertTrue(store.getHotCount() <= 110, "hot count " + store.getHotCount());
+            assertEquals(5000, store.size());
+            assertEquals(5000, store.getHotCount() + store.getColdCount());
+            assertTrue(store.getLastAccessed("0") >= store.getLastModified("0"));
+            assertEquals("John", service.getContact("4321").getFirstName());
+            assertTrue(store.getSegmentBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testScansLeaveContactsInTheirTier() throws IOException {
+        // Test that paging, cursors and searches read cold contacts without promoting them
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 100)) {
+            ContactService service = new ContactService(store);
+            for (int i = 0; i < 20000; i++) {
+                service.addContact(contact(i));
+            }
+            long segmentBytes = store.getSegmentBytes();
+            for (int pass = 0; pass < 3; pass++) {
+                int seen = 0;
+                String after = null;
+                for (List<Contact> page; !(page = service.getContactsAfter(after, 500)).isEmpty(); ) {
+                    seen += page.size();
+                    after = page.get(page.size() - 1).getContactId();
+                }
+                assertEquals(20000, seen);
+            }
+            ContactCursor cursor = service.openCursor(null);
+            while (cursor.hasNext()) {
+                cursor.next();
+            }
+            assertEquals(6667, service.findByLastName("Doe1").size());
+            assertTrue(store.getHotCount() <= 110, "hot count " + store.getHotCount());
+            assertEquals(segmentBytes, store.getSegmentBytes());
+        }
+    }
+
+    @Test
+    public void testSegmentIsCompacted() throws IOException {
+        // Test that records left by promotions are reclaimed, without moving those an iterator reads
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 100)) {
+            ContactService service = new ContactService(store);
+            for (int i = 0; i < 20000; i++) {
+                service.addContact(contact(i));
+            }
+            long loaded = store.getSegmentBytes();
+            Iterator<Contact> pinned = store.iterator();
+            for (int i = 0; i < 20000; i++) {
+                service.getContact(Integer.toString(i));
+            }
+            assertTrue(store.getSegmentBytes() > loaded * 3 / 2, "segment " + store.getSegmentBytes());
+            Set<String> ids = new HashSet<>();
+            while (pinned.hasNext()) {
+                Contact next = pinned.next();
+                assertEquals("John", next.getFirstName());
+                assertTrue(ids.add(next.getContactId()));
+            }
+            assertEquals(20000, ids.size());
+
+            for (int pass = 0; pass < 5; pass++) {
+                for (int i = 0; i < 20000; i++) {
+                    service.getContact(Integer.toString(i));
+                }
+            }
+            assertTrue(store.getSegmentBytes() < loaded * 5 / 2, "segment " + store.getSegmentBytes() + " of " + loaded);
+            for (int i = 0; i < 20000; i++) {
+                assertEquals("Doe" + (i % 3), service.getContact(Integer.toString(i)).getLastName());
+            }
+            assertEquals(20000, store.size());
+        }
+    }
+
+    @Test
+    public void testTieringExpiresIdleContacts() throws IOException, InterruptedException {
+        // Test that contacts idle past the time to live are deleted through the service
+        try (TieredContactStore store = TieredContactStore.open(directory.resolve("cold.seg"), 1000)) {
+            ContactService service = new ContactService(store);
+            for (int i = 0; i < 5; i++) {
+                service.addContact(contact(i));
+            }
+            Thread.sleep(50);
+            service.getContact("1");
+            try (ContactTiering tiering = new ContactTiering(service, store, 3_600_000, 30, 3_600_000)) {
+                tiering.runOnce();
+                assertEquals(4, tiering.getExpiredCount());
+            }
+            assertEquals(1, service.size());
+            assertNotNull(service.getContact("1"));
+        }
+    }
+}
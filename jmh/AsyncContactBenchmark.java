@@ -0,0 +1,137 @@
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures throughput and latency with 1,000 concurrent callers (90% getContact, 10% updateContact,
+ * contact IDs drawn with Zipfian skew) for three ways of calling the service:
+ *   threads: one blocking thread per caller calling ContactService directly
+ *   pool:    each call hopped to a 64-thread pool with CompletableFuture.supplyAsync, as an
+ *            asynchronous handler does today
+ *   async:   AsyncContactService, one shard thread per core
+ * Each caller issues its next call when the previous one completes; latency runs from issue to
+ * completion, queueing included.
+ * Run with: java -cp target/benchmarks.jar AsyncContactBenchmark [callers] (defaults to 1,000)
+ */
+public class AsyncContactBenchmark {
+    private static final int BOOK_SIZE = 100_000;
+    private static final long RUN_MILLIS = 5_000;
+    private static final int POOL_THREADS = 64;
+    private static final int[] KEYS = new int[1 << 20];
+    private static final String[] IDS = new String[BOOK_SIZE];
+
+    private interface Caller {
+        CompletableFuture<?> call(String contactId, boolean update);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int callers = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 1_000;
+        ZipfianGenerator zipf = new ZipfianGenerator(BOOK_SIZE, 0.99);
+        Random random = new Random(42);
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = zipf.next(random);
+        }
+        ContactService service = new ContactService();
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            IDS[i] = Integer.toString(i);
+            service.addContact(new Contact(IDS[i], "First", "Last", "1234567890", "123 Main St"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(POOL_THREADS);
+        Caller hopped = (id, update) -> CompletableFuture.supplyAsync(() -> update
+                ? service.tryUpdate(id, null, null, "9876543210", null) : service.getContact(id), pool);
+        try (AsyncContactService async = new AsyncContactService(service)) {
+            Caller direct = (id, update) -> update
+                    ? async.updateContact(id, null, null, "9876543210", null) : async.getContact(id);
+            for (int round = 0; round < 2; round++) {
+                boolean print = round == 1;
+                long millis = print ? RUN_MILLIS : 1_000;
+                runThreads(service, callers, millis, print);
+                runChains("pool", hopped, callers, millis, print);
+                long coalescedBefore = async.getCoalescedCount();
+                runChains("async", direct, callers, millis, print);
+                if (print) {
+                    System.out.printf("        %,d gets shared a queued read%n", async.getCoalescedCount() - coalescedBefore);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Runs one blocking thread per caller
+     */
+    private static void runThreads(ContactService service, int callers, long millis, boolean print)
+            throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[callers];
+        long[] deadline = new long[1];
+        for (int c = 0; c < callers; c++) {
+            final int caller = c;
+            threads[c] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = caller * 7919; System.nanoTime() < deadline[0]; n++) {
+                    String id = IDS[KEYS[n & (KEYS.length - 1)]];
+                    long t = System.nanoTime();
+                    if (n % 10 == 0) {
+                        service.tryUpdate(id, null, null, "9876543210", null);
+                    } else {
+                        service.getContact(id);
+                    }
+                    latency.record(System.nanoTime() - t);
+                }
+            });
+            threads[c].start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + millis * 1_000_000;
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report("threads", latency, System.nanoTime() - begin, callers, print);
+    }
+
+    /**
+     * Runs each caller as a chain of futures, issuing its next call from the previous one's completion
+     */
+    private static void runChains(String name, Caller caller, int callers, long millis, boolean print)
+            throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        CountDownLatch done = new CountDownLatch(callers);
+        long begin = System.nanoTime();
+        long deadline = begin + millis * 1_000_000;
+        for (int c = 0; c < callers; c++) {
+            issue(caller, c * 7919, deadline, latency, done);
+        }
+        done.await();
+        report(name, latency, System.nanoTime() - begin, callers, print);
+    }
+
+    private static void issue(Caller caller, int n, long deadline, LatencyHistogram latency, CountDownLatch done) {
+        long t = System.nanoTime();
+        if (t >= deadline) {
+            done.countDown();
+            return;
+        }
+        caller.call(IDS[KEYS[n & (KEYS.length - 1)]], n % 10 == 0).whenComplete((result, error) -> {
+            latency.record(System.nanoTime() - t);
+            issue(caller, n + 1, deadline, latency, done);
+        });
+    }
+
+    private static void report(String name, LatencyHistogram latency, long elapsed, int callers, boolean print) {
+        if (print) {
+            System.out.printf("%-7s %,d callers: %,10.0f ops/s, p50 %,9.1f us, p99 %,9.1f us, p99.9 %,10.1f us%n",
+                    name, callers, latency.getCount() * 1e9 / elapsed, latency.getValueAtPercentile(50) / 1e3,
+                    latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures bytes allocated per operation for a mixed workload of 90% reads and 10% phone updates,
+ * as a caller that caches what it reads would run it:
+ *   before: getContact plus a defensive copy, since the stored Contact changes under later
+ *           updates; updates through updateContact(id, fields)
+ *   after:  getRecord, whose immutable record needs no copy; updates through
+ *           updateContact(record.withPhone(...))
+ * Run with: java -cp target/benchmarks.jar ContactAllocationBenchmark
+ */
+public class ContactAllocationBenchmark {
+    private static final int BOOK_SIZE = 100_000;
+    private static final int OPERATIONS = 5_000_000;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String[] IDS = new String[BOOK_SIZE];
+    private static final String[] PHONES = new String[1024];
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            IDS[i] = Integer.toString(i);
+        }
+        for (int i = 0; i < PHONES.length; i++) {
+            PHONES[i] = String.format("%010d", 4_155_550_000L + i);
+        }
+        ContactService service = new ContactService();
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            service.addContact(new Contact(IDS[i], "John", "Doe", PHONES[i & 1023], "123 Main St"));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            boolean print = round == 2;
+            measure("defensive copies (before)", print, i -> {
+                String id = IDS[(int) ((i * 2654435761L) % BOOK_SIZE)];
+                if (i % 10 == 0) {
+                    service.updateContact(id, null, null, PHONES[i & 1023], null);
+                    return 1;
+                }
+                Contact stored = service.getContact(id);
+                Contact copy = new Contact(stored.getContactId(), stored.getFirstName(), stored.getLastName(),
+                        stored.getPhone(), stored.getAddress());
+                return copy.getPhone().length();
+            });
+            measure("immutable records (after)", print, i -> {
+                String id = IDS[(int) ((i * 2654435761L) % BOOK_SIZE)];
+                if (i % 10 == 0) {
+                    service.updateContact(service.getRecord(id).withPhone(PHONES[i & 1023]));
+                    return 1;
+                }
+                return service.getRecord(id).getPhone().length();
+            });
+        }
+    }
+
+    private interface Operation {
+        int run(int i);
+    }
+
+    private static void measure(String name, boolean print, Operation operation) {
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int result = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            result += operation.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        sink += result;
+        if (print) {
+            System.out.printf("%-28s %6.1f ns/op %8.1f bytes/op %8.1f MB/s%n", name, (double) elapsed / OPERATIONS,
+                    (double) bytes / OPERATIONS, bytes / 1e6 / (elapsed / 1e9));
+        }
+    }
+}
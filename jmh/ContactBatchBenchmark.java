@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a per-call addContact/updateContact loop with a single applyBatch call.
+ * Run with: java -cp target/benchmarks.jar ContactBatchBenchmark [operations] (defaults to 100K adds followed by 100K updates).
+ */
+public class ContactBatchBenchmark {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 100_000;
+
+        // Warm up both paths, then measure
+        for (int round = 0; round < 5; round++) {
+            boolean print = round == 4;
+            long loop = timeLoop(count);
+            long batch = timeBatch(count, BatchMode.BEST_EFFORT);
+            long atomic = timeBatch(count, BatchMode.ALL_OR_NOTHING);
+            if (print) {
+                System.out.printf("%,d adds + %,d updates%n", count, count);
+                System.out.printf("  per-call loop         %,6d ms%n", loop / 1_000_000);
+                System.out.printf("  batch BEST_EFFORT     %,6d ms (%.1fx)%n", batch / 1_000_000, (double) loop / batch);
+                System.out.printf("  batch ALL_OR_NOTHING  %,6d ms (%.1fx)%n", atomic / 1_000_000, (double) loop / atomic);
+            }
+        }
+    }
+
+    private static Contact[] contacts(int count) {
+        Contact[] contacts = new Contact[count];
+        for (int i = 0; i < count; i++) {
+            contacts[i] = new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St");
+        }
+        return contacts;
+    }
+
+    private static long timeLoop(int count) {
+        Contact[] contacts = contacts(count);
+        ContactService service = new ContactService();
+        long start = System.nanoTime();
+        for (Contact contact : contacts) {
+            service.addContact(contact);
+        }
+        for (int i = 0; i < count; i++) {
+            service.updateContact(Integer.toString(i), null, null, "9876543210", null);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeBatch(int count, BatchMode mode) {
+        Contact[] contacts = contacts(count);
+        List<ContactOperation> operations = new ArrayList<>(count * 2);
+        for (Contact contact : contacts) {
+            operations.add(ContactOperation.add(contact));
+        }
+        for (int i = 0; i < count; i++) {
+            operations.add(ContactOperation.update(Integer.toString(i), null, null, "9876543210", null));
+        }
+        ContactService service = new ContactService();
+        long start = System.nanoTime();
+        service.applyBatch(operations, mode);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Measures CachingContactStore hit rate and getContact latency over a FileContactStore under a
+ * Zipfian workload (a few contacts get most reads), for each EvictionPolicy and without a cache.
+ * Run with: java -cp target/benchmarks.jar ContactCacheBenchmark [size] [cachePercent] [directory]
+ * Size defaults to 1M contacts and the cache to 5% of their estimated bytes; one read in twenty
+ * is an update.
+ */
+public class ContactCacheBenchmark {
+    private static final int OPERATIONS = 2_000_000;
+    private static final double THETA = 0.99;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 1_000_000;
+        int cachePercent = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path directory = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("contact-cache");
+        long cacheBytes = CachingContactStore.weigh(contact(size - 1).toRecord()) * size * cachePercent / 100;
+
+        int[] keys = new ZipfianGenerator(size, THETA).draw(OPERATIONS, 42);
+        System.out.printf("%,d contacts, %,d operations, cache %,d KB (%d%%)%n", size, OPERATIONS, cacheBytes >> 10, cachePercent);
+        for (String mode : new String[] {"file", "LRU", "TINY_LFU"}) {
+            Path file = Files.createTempFile(directory, "contacts", ".dat");
+            try (FileContactStore backend = FileContactStore.open(file)) {
+                ContactStore store = mode.equals("file") ? backend
+                        : new CachingContactStore(backend, EvictionPolicy.valueOf(mode), cacheBytes);
+                ContactService service = new ContactService(store);
+                for (int i = 0; i < size; i++) {
+                    service.addContact(contact(i));
+                }
+                run(mode, service, store, keys, size);
+            }
+            Files.delete(file);
+        }
+    }
+
+    private static void run(String mode, ContactService service, ContactStore store, int[] keys, int size) {
+        // Warm up on the first half, measure the second
+        int half = keys.length / 2;
+        for (int i = 0; i < half; i++) {
+            service.getContact(Integer.toString(keys[i]));
+        }
+        long hitsBefore = 0;
+        long missesBefore = 0;
+        if (store instanceof CachingContactStore) {
+            hitsBefore = ((CachingContactStore) store).getHitCount();
+            missesBefore = ((CachingContactStore) store).getMissCount();
+        }
+
+        long[] latencies = new long[keys.length - half];
+        long start = System.nanoTime();
+        for (int i = half; i < keys.length; i++) {
+            String contactId = Integer.toString(keys[i]);
+            long operationStart = System.nanoTime();
+            if (i % 20 == 0) {
+                service.updateContact(contactId, (i & 1) == 0 ? "Even" : "Odd", null, null, null);
+            } else {
+                service.getContact(contactId);
+            }
+            latencies[i - half] = System.nanoTime() - operationStart;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+
+        String hitRate = "   -";
+        if (store instanceof CachingContactStore) {
+            CachingContactStore cache = (CachingContactStore) store;
+            long hits = cache.getHitCount() - hitsBefore;
+            long misses = cache.getMissCount() - missesBefore;
+            hitRate = String.format("%5.1f%%", 100.0 * hits / (hits + misses));
+        }
+        System.out.printf("%-8s hit rate %s, %,9.0f ops/s, p50 %,6d ns, p99 %,7d ns, p99.9 %,8d ns%n",
+                mode, hitRate, latencies.length / seconds,
+                latencies[latencies.length / 2], latencies[(int) (latencies.length * 0.99)], latencies[(int) (latencies.length * 0.999)]);
+    }
+
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i), "First", "Last", Long.toString(2_000_000_000L + i), (i % 9_999) + " Main St");
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Measures what the change feed adds to a write: publishing one change on its own, and
+ * updateContact with no feed, with a feed nobody reads and with a subscriber draining it on
+ * another thread.
+ * Run with: java -cp target/benchmarks.jar ContactChangeFeedBenchmark [contacts] (defaults to 100K contacts).
+ */
+public class ContactChangeFeedBenchmark {
+    private static final int CALLS = 5_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 100_000;
+
+        ContactChangeFeed feed = new ContactChangeFeed(ContactChangeFeed.DEFAULT_CAPACITY, BackpressurePolicy.DROP_SLOW_SUBSCRIBERS);
+        ContactRecord record = new ContactRecord("1", "John", "Doe", "1234567890", "123 Main St");
+        for (int round = 0; round < 3; round++) {
+            publish(feed, record, CALLS / 10);
+        }
+        System.out.printf("publish:               %.1f ns per change%n", publish(feed, record, CALLS));
+
+        System.out.printf("update, no feed:       %.1f ns per call%n", updates(service(size), size, false));
+        System.out.printf("update, idle feed:     %.1f ns per call%n", updates(service(size), size, true));
+
+        ContactService drained = service(size);
+        ContactChangeFeed.Subscription subscription = drained.getChangeFeed().subscribe();
+        Thread reader = new Thread(() -> {
+            long read = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                read += subscription.poll(1024).size();
+                Thread.onSpinWait();
+            }
+            System.out.printf("reader drained %,d changes%n", read);
+        });
+        reader.setDaemon(true);
+        reader.start();
+        System.out.printf("update, drained feed:  %.1f ns per call%n", updates(drained, size, false));
+        reader.interrupt();
+        reader.join();
+    }
+
+    private static ContactService service(int size) {
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St"));
+        }
+        return service;
+    }
+
+    private static double publish(ContactChangeFeed feed, ContactRecord record, int calls) {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            feed.added(record);
+        }
+        return (double) (System.nanoTime() - start) / calls;
+    }
+
+    private static double updates(ContactService service, int size, boolean openFeed) {
+        if (openFeed) {
+            service.getChangeFeed();
+        }
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = Integer.toString(i);
+        }
+        String[] phones = {"1111111111", "2222222222"};
+        // Warm up, then measure; each update changes one field so every call publishes a change
+        for (int i = 0; i < CALLS / 5; i++) {
+            service.updateContact(ids[i % size], null, null, phones[(i / size) & 1], null);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            service.updateContact(ids[i % size], null, null, phones[(i / size) & 1], null);
+        }
+        return (double) (System.nanoTime() - start) / CALLS;
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures ContactImporter throughput on a generated export in which about 1 row in 1000 is
+ * invalid and 1 in 1000 repeats an earlier ID, against a single-threaded loop of new Contact
+ * and addContact over the same rows.
+ * Run with: java -cp target/benchmarks.jar -Xmx4g ContactImportBenchmark [csv|json] [rows] [heap|columnar] [directory]
+ * Defaults to a 10M-row CSV file loaded into a ColumnarContactStore in the working directory.
+ * The index build and the baseline need the secondary indexes in memory, so they only run for
+ * up to 3M rows in a 4 GB heap. Updates run while the indexes build, to time how long they stall.
+ */
+public class ContactImportBenchmark {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Michael", "Sarah", "David", "Emily", "James", "Laura"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Brown", "Jones", "Garcia", "Miller", "Davis", "Wilson"};
+    private static final int MAX_INDEXED_ROWS = 3_000_000;
+
+    public static void main(String[] args) throws IOException {
+        ImportFormat format = args.length > 0 && args[0].equalsIgnoreCase("json") ? ImportFormat.JSON : ImportFormat.CSV;
+        int rows = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : 10_000_000;
+        boolean heap = args.length > 2 && args[2].equals("heap");
+        Path directory = args.length > 3 ? Path.of(args[3]) : Path.of(".");
+        Path input = directory.resolve(format == ImportFormat.CSV ? "contacts-import.csv" : "contacts-import.jsonl");
+        Path rejects = directory.resolve("contacts-import-rejects.csv");
+
+        long start = System.nanoTime();
+        generate(input, format, rows);
+        System.out.printf("generated %,d rows, %,d MB, in %.1f s%n", rows, Files.size(input) >> 20, (System.nanoTime() - start) / 1e9);
+
+        ContactService service = new ContactService(heap ? new HeapContactStore() : new ColumnarContactStore());
+        ImportResult result = new ContactImporter(service).importFile(input, format, rejects);
+        System.out.printf("import:   %,d rows, %,d imported, %,d rejected in %.1f s = %,.0f rows/s (%d threads)%n",
+                result.getRowCount(), result.getImportedCount(), result.getRejectedCount(),
+                result.getElapsedNanos() / 1e9, result.getRowsPerSecond(), Runtime.getRuntime().availableProcessors());
+        if (rows > MAX_INDEXED_ROWS) {
+            Files.deleteIfExists(input);
+            return;
+        }
+        // Time updates made while the first search builds the indexes, to see how long writers stall
+        ContactService imported = service;
+        AtomicBoolean building = new AtomicBoolean(true);
+        LatencyHistogram updates = new LatencyHistogram();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; building.get(); i = (i + 1) % (rows / 2)) {
+                long t = System.nanoTime();
+                imported.tryUpdate(Integer.toString(i), FIRST_NAMES[i & 7], null, null, null);
+                updates.record(System.nanoTime() - t);
+            }
+        });
+        writer.start();
+        start = System.nanoTime();
+        service.findByLastName("Smith");
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+        building.set(false);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.printf("first search after import builds the indexes in %.1f s; %,d updates meanwhile, "
+                        + "p99 %,.1f us, longest %,.1f ms%n", buildSeconds, updates.getCount(),
+                updates.getValueAtPercentile(99) / 1e3, updates.getMax() / 1e6);
+        service = null;
+
+        if (format == ImportFormat.CSV) {
+            System.gc();
+            ContactService baseline = new ContactService(heap ? new HeapContactStore() : new ColumnarContactStore());
+            start = System.nanoTime();
+            long added = 0;
+            for (String line : (Iterable<String>) Files.lines(input)::iterator) {
+                String[] fields = line.split(",", -1);
+                try {
+                    baseline.addContact(new Contact(fields[0], fields[1], fields[2], fields[3], fields[4]));
+                    added++;
+                } catch (IllegalArgumentException e) {
+                    // Counted as rejected
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("baseline: %,d added one at a time in %.1f s = %,.0f rows/s%n", added, seconds, rows / seconds);
+        }
+        Files.deleteIfExists(input);
+    }
+
+    private static void generate(Path file, ImportFormat format, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (format == ImportFormat.CSV) {
+                out.write("contactId,firstName,lastName,phone,address\n");
+            }
+            for (int i = 0; i < rows; i++) {
+                String id = Integer.toString(i % 1000 == 999 ? i - 500 : i);
+                String phone = i % 1000 == 500 ? "555-1234" : String.format("%010d", (i * 2654435761L) % 10_000_000_000L);
+                String first = FIRST_NAMES[i % FIRST_NAMES.length];
+                String last = LAST_NAMES[(i / 8) % LAST_NAMES.length];
+                String address = (i % 9999) + " Main St";
+                if (format == ImportFormat.CSV) {
+                    out.write(id + "," + first + "," + last + "," + phone + "," + address + "\n");
+                } else {
+                    out.write("{\"contactId\":\"" + id + "\",\"firstName\":\"" + first + "\",\"lastName\":\"" + last
+                            + "\",\"phone\":\"" + phone + "\",\"address\":\"" + address + "\"}\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactLoadGenerator drives a ContactServer with many concurrent connections and reports
+ * throughput and latency percentiles. Each connection keeps a fixed number of requests in
+ * flight (1 unless pipelined), 90% getContact and 10% updateContact of random preloaded IDs by
+ * default. Connections are multiplexed over a few selector threads, so tens of thousands of
+ * them cost little on the client side; latency is measured from queuing a request to reading
+ * its whole response.
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar ContactLoadGenerator [-host localhost] [-port 8080] [-spawn] [-c 10000] [-keys 100000]
+ *                             [-protocol http|binary] [-reads 90] [-pipeline 1] [-warmup 5]
+ *                             [-time 20] [-threads n]
+ * -spawn starts a ContactServer preloaded with -keys contacts in a new JVM on a free port.
+ * Otherwise the server must already hold contacts with IDs 0 to keys - 1 (see ContactServer).
+ * Each side needs a file descriptor per connection; raise ulimit -n for large -c.
+ */
+public class ContactLoadGenerator {
+    private static final int BUFFER_BYTES = 2048;
+
+    private final String protocol;
+    private final int keys;
+    private final int readPercent;
+    private final int pipeline;
+    private final LatencyHistogram latency;
+    private final LongAdder completed;
+    private final LongAdder errors;
+    private final AtomicInteger connected;
+    private volatile boolean measuring;
+    private volatile boolean running;
+
+    /**
+     * One client connection and its requests in flight
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer out;
+        ByteBuffer in;
+        final long[] sentAt;          // Ring of send times for the requests in flight
+        final boolean[] sentRead;     // Ring of whether each request in flight is a read
+        int head;
+        int inFlight;
+        long seed;
+
+        Connection(SocketChannel channel, int pipeline, long seed) {
+            this.channel = channel;
+            this.out = ByteBuffer.allocate(BUFFER_BYTES);
+            this.in = ByteBuffer.allocate(BUFFER_BYTES);
+            this.sentAt = new long[pipeline];
+            this.sentRead = new boolean[pipeline];
+            this.seed = seed;
+        }
+    }
+
+    private ContactLoadGenerator(String protocol, int keys, int readPercent, int pipeline) {
+        this.protocol = protocol;
+        this.keys = keys;
+        this.readPercent = readPercent;
+        this.pipeline = pipeline;
+        this.latency = new LatencyHistogram();
+        this.completed = new LongAdder();
+        this.errors = new LongAdder();
+        this.connected = new AtomicInteger();
+        this.running = true;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 8080;
+        boolean spawn = false;
+        int connections = 10_000;
+        int keys = 100_000;
+        String protocol = "http";
+        int reads = 90;
+        int pipeline = 1;
+        double warmup = 5;
+        double seconds = 20;
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-host": host = args[++i]; break;
+                case "-port": port = Integer.parseInt(args[++i]); break;
+                case "-spawn": spawn = true; break;
+                case "-c": connections = Integer.parseInt(args[++i].replace("_", "")); break;
+                case "-keys": keys = Integer.parseInt(args[++i].replace("_", "")); break;
+                case "-protocol": protocol = args[++i]; break;
+                case "-reads": reads = Integer.parseInt(args[++i]); break;
+                case "-pipeline": pipeline = Integer.parseInt(args[++i]); break;
+                case "-warmup": warmup = Double.parseDouble(args[++i]); break;
+                case "-time": seconds = Double.parseDouble(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (!protocol.equals("http") && !protocol.equals("binary")) {
+            throw new IllegalArgumentException("Protocol must be http or binary");
+        }
+
+        Process server = null;
+        if (spawn) {
+            server = spawnServer(keys);
+            BufferedReader out = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+            String line = out.readLine();
+            if (line == null || !line.startsWith(ContactServer.READY_PREFIX)) {
+                server.destroyForcibly();
+                throw new IOException("Server did not start: " + line);
+            }
+            host = InetAddress.getLoopbackAddress().getHostAddress();
+            port = Integer.parseInt(line.substring(ContactServer.READY_PREFIX.length()).trim());
+        }
+        try {
+            new ContactLoadGenerator(protocol, keys, reads, pipeline).run(new InetSocketAddress(host, port),
+                    connections, threads, warmup, seconds);
+        } finally {
+            if (server != null) {
+                server.getOutputStream().close();
+                server.destroy();
+            }
+        }
+    }
+
+    private static Process spawnServer(int keys) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), ContactServer.class.getName(),
+                "0", Integer.toString(keys)));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private void run(InetSocketAddress address, int connections, int threads, double warmup, double seconds)
+            throws IOException, InterruptedException {
+        Thread[] loops = new Thread[threads];
+        List<IOException> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int share = connections / threads + (t < connections % threads ? 1 : 0);
+            int thread = t;
+            loops[t] = new Thread(() -> {
+                try {
+                    loop(address, share, thread);
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                    running = false;
+                }
+            }, "load-" + t);
+            loops[t].start();
+        }
+        long connectStart = System.nanoTime();
+        while (connected.get() < connections && running) {
+            Thread.sleep(100);
+            if (System.nanoTime() - connectStart > 120_000_000_000L) {
+                running = false;
+                throw new IOException("Only " + connected.get() + " of " + connections + " connections opened");
+            }
+        }
+        System.out.printf("%,d connections open in %.1f s (%s, %d%% reads, pipeline %d, %d selector threads)%n",
+                connected.get(), (System.nanoTime() - connectStart) / 1e9, protocol, readPercent, pipeline, threads);
+
+        Thread.sleep((long) (warmup * 1000));
+        long before = completed.sum();
+        long errorsBefore = errors.sum();
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep((long) (seconds * 1000));
+        measuring = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long done = completed.sum() - before;
+        running = false;
+        for (Thread loop : loops) {
+            loop.join();
+        }
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+        System.out.printf("throughput %,.0f requests/s  p50 %.2f ms  p99 %.2f ms  p999 %.2f ms  max %.2f ms  errors %d%n",
+                done / elapsed, latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                latency.getValueAtPercentile(99.9) / 1e6, latency.getMax() / 1e6, errors.sum() - errorsBefore);
+    }
+
+    /**
+     * Opens this thread's share of the connections and keeps each one's pipeline full until stopped
+     */
+    private void loop(InetSocketAddress address, int count, int thread) throws IOException {
+        try (Selector selector = Selector.open()) {
+            List<Connection> all = new ArrayList<>(count);
+            int opened = 0;
+            while (running) {
+                // Open connections a few hundred at a time so the server's accept backlog keeps up
+                for (int i = 0; i < 256 && opened < count; i++, opened++) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    Connection connection = new Connection(channel, pipeline, 0x9E3779B97F4A7C15L * (thread * 1_000_003L + opened + 1));
+                    all.add(connection);
+                    channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                    if (channel.connect(address)) {
+                        established(selector, connection);
+                    }
+                }
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isConnectable()) {
+                        if (connection.channel.finishConnect()) {
+                            established(selector, connection);
+                        }
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    send(connection);
+                    key.interestOps(connection.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                }
+                selector.selectedKeys().clear();
+            }
+            for (Connection connection : all) {
+                connection.channel.close();
+            }
+        }
+    }
+
+    private void established(Selector selector, Connection connection) throws IOException {
+        connected.incrementAndGet();
+        send(connection);
+        connection.channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, connection);
+    }
+
+    /**
+     * Queues requests until the pipeline is full, then writes as much as the socket takes
+     */
+    private void send(Connection connection) throws IOException {
+        while (connection.inFlight < pipeline) {
+            connection.seed = connection.seed * 6364136223846793005L + 1442695040888963407L;
+            String id = Integer.toString((int) ((connection.seed >>> 33) % keys));
+            boolean read = (connection.seed >>> 20) % 100 < readPercent;
+            byte[] request = read ? getRequest(id) : updateRequest(id, (connection.seed & 0x100000) == 0 ? "1234567890" : "9876543210");
+            if (connection.out.remaining() < request.length) {
+                break;
+            }
+            connection.out.put(request);
+            int slot = (connection.head + connection.inFlight) % pipeline;
+            connection.sentAt[slot] = System.nanoTime();
+            connection.sentRead[slot] = read;
+            connection.inFlight++;
+        }
+        connection.out.flip();
+        connection.channel.write(connection.out);
+        connection.out.compact();
+    }
+
+    /**
+     * Reads what has arrived and completes every whole response in it
+     */
+    private void read(Connection connection) throws IOException {
+        if (!connection.in.hasRemaining()) {
+            connection.in = ByteBuffer.allocate(connection.in.capacity() * 2).put(connection.in.flip());
+        }
+        if (connection.channel.read(connection.in) < 0) {
+            throw new IOException("Server closed a connection");
+        }
+        connection.in.flip();
+        while (connection.inFlight > 0) {
+            int length = protocol.equals("http") ? httpResponseLength(connection.in)
+                    : binaryResponseLength(connection.in, connection.sentRead[connection.head]);
+            if (length < 0) {
+                break;
+            }
+            connection.in.position(connection.in.position() + length);
+            long now = System.nanoTime();
+            if (measuring) {
+                latency.record(now - connection.sentAt[connection.head]);
+            }
+            completed.increment();
+            connection.head = (connection.head + 1) % pipeline;
+            connection.inFlight--;
+        }
+        connection.in.compact();
+    }
+
+    private byte[] getRequest(String id) throws IOException {
+        if (protocol.equals("http")) {
+            return ("GET /contacts/" + id + " HTTP/1.1\r\nHost: load\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ContactShardProtocol.GET);
+        ContactShardProtocol.writeString(out, id);
+        return bytes.toByteArray();
+    }
+
+    private byte[] updateRequest(String id, String phone) throws IOException {
+        if (protocol.equals("http")) {
+            String body = "{\"phone\":\"" + phone + "\"}";
+            return ("PUT /contacts/" + id + " HTTP/1.1\r\nHost: load\r\nContent-Type: application/json\r\nContent-Length: "
+                    + body.length() + "\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ContactShardProtocol.UPDATE);
+        ContactShardProtocol.writeString(out, id);
+        ContactShardProtocol.writeString(out, null);
+        ContactShardProtocol.writeString(out, null);
+        ContactShardProtocol.writeString(out, phone);
+        ContactShardProtocol.writeString(out, null);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Measures the HTTP response at the buffer's position
+     * @return Its length, or -1 if it has not fully arrived
+     */
+    private int httpResponseLength(ByteBuffer in) {
+        int start = in.position();
+        int limit = in.limit();
+        for (int i = start; i + 3 < limit; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                String head = StandardCharsets.US_ASCII.decode(in.duplicate().position(start).limit(i)).toString();
+                int at = head.toLowerCase(Locale.ROOT).indexOf("content-length:");
+                int bodyLength = 0;
+                if (at >= 0) {
+                    int end = head.indexOf('\r', at);
+                    bodyLength = Integer.parseInt(head.substring(at + 15, end < 0 ? head.length() : end).trim());
+                }
+                int total = i + 4 - start + bodyLength;
+                if (limit - start < total) {
+                    return -1;
+                }
+                if (head.length() < 12 || head.charAt(9) != '2') {
+                    errors.increment();
+                }
+                return total;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Measures the ContactShardProtocol response at the buffer's position
+     * @return Its length, or -1 if it has not fully arrived
+     */
+    private int binaryResponseLength(ByteBuffer in, boolean get) {
+        int start = in.position();
+        int at = start;
+        int limit = in.limit();
+        if (at >= limit) {
+            return -1;
+        }
+        byte status = in.get(at++);
+        if (status != ContactShardProtocol.OK) {
+            if (at + 2 > limit || at + 2 + (in.getShort(at) & 0xFFFF) > limit) {
+                return -1;
+            }
+            errors.increment();
+            return at + 2 + (in.getShort(at) & 0xFFFF) - start;
+        }
+        if (!get) {
+            return at - start;
+        }
+        if (at >= limit) {
+            return -1;
+        }
+        if (in.get(at++) == 0) {
+            return at - start;
+        }
+        for (int field = 0; field < 5; field++) {
+            if (at + 2 > limit) {
+                return -1;
+            }
+            at += 2 + (in.getShort(at) & 0xFFFF);
+        }
+        return at <= limit ? at - start : -1;
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures durable addContact throughput for each FsyncPolicy, with one writer and with many
+ * writers sharing group commits.
+ * Run with: java -cp target/benchmarks.jar ContactLogBenchmark [directory] (defaults to a temporary directory).
+ */
+public class ContactLogBenchmark {
+    private static final int OPERATIONS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("contact-log");
+
+        // Warm up once, then measure
+        run(directory, FsyncPolicy.NEVER, 4, false);
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            for (int threads : new int[] {1, 16}) {
+                run(directory, policy, threads, true);
+            }
+        }
+    }
+
+    private static void run(Path directory, FsyncPolicy policy, int threads, boolean print) throws IOException, InterruptedException {
+        Path logFile = Files.createTempFile(directory, "contacts", ".log");
+        Files.delete(logFile);
+        int perThread = OPERATIONS / threads;
+        long start;
+        try (ContactService service = ContactService.open(logFile, policy)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                final int base = t * perThread;
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        service.addContact(new Contact(Integer.toString(base + i), "First", "Last", "1234567890", "123 Main St"));
+                    }
+                });
+            }
+            start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Files.delete(logFile);
+        if (print) {
+            System.out.printf("%-8s %2d threads: %,10.0f adds/s%n", policy, threads, perThread * (double) threads * 1e9 / elapsed);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Measures what the built-in metrics cost: one recorded call on its own, a getContact that
+ * records, and taking a ContactMetricsSnapshot.
+ * Run with: java -cp target/benchmarks.jar ContactMetricsBenchmark [contacts] (defaults to 100K contacts).
+ */
+public class ContactMetricsBenchmark {
+    private static final int CALLS = 20_000_000;
+    private static final int SNAPSHOTS = 1_000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 100_000;
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St"));
+        }
+
+        // Warm up the JIT before measuring
+        for (int round = 0; round < 3; round++) {
+            measureRecord(CALLS / 10);
+            measureGet(service, size, CALLS / 10);
+        }
+        System.out.printf("record:      %.1f ns per call%n", measureRecord(CALLS));
+        System.out.printf("getContact:  %.1f ns per call, including record%n", measureGet(service, size, CALLS));
+
+        long start = System.nanoTime();
+        int lines = 0;
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            lines += service.getMetrics().toPrometheusText().length();
+        }
+        System.out.printf("snapshot:    %.1f us per Prometheus export (%d chars)%n",
+                (System.nanoTime() - start) / 1e3 / SNAPSHOTS, lines / SNAPSHOTS);
+    }
+
+    private static double measureRecord(int calls) {
+        ContactMetrics metrics = new ContactMetrics();
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            metrics.record(ContactMetrics.Operation.GET, System.nanoTime(), true);
+        }
+        return (double) (System.nanoTime() - start) / calls;
+    }
+
+    private static double measureGet(ContactService service, int size, int calls) {
+        long seed = 42;
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            if (service.getContact(Integer.toString((int) ((seed >>> 33) % size))) != null) {
+                found++;
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / calls;
+        if (found != calls) {
+            throw new IllegalStateException("Lookups missed contacts");
+        }
+        return nanos;
+    }
+}
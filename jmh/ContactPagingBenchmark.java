@@ -0,0 +1,82 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pages through every contact while another thread keeps updating contacts, comparing keyset
+ * pages from getContactsAfter with pages cut from a getAllContacts copy.
+ * Run with: java -cp target/benchmarks.jar -Xmx5g ContactPagingBenchmark [size] [pageSize]
+ * Size defaults to 10M contacts and page size to 1000. The copying approach is timed on a few
+ * pages only, since it copies the whole book for every page.
+ */
+public class ContactPagingBenchmark {
+    private static final int COPY_PAGES = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 10_000_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First", "Last", Long.toString(2_000_000_000L + i), "123 Main St"));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder updates = new LongAdder();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i = (i + 7919) % size) {
+                service.updateContact(Integer.toString(i), (i & 1) == 0 ? "Even" : "Odd", null, null, null);
+                updates.increment();
+            }
+        });
+        writer.start();
+
+        long start = System.nanoTime();
+        for (int page = 0; page < COPY_PAGES; page++) {
+            List<Contact> all = service.getAllContacts();
+            List<Contact> slice = all.subList(page * pageSize, Math.min(all.size(), (page + 1) * pageSize));
+            if (slice.isEmpty()) {
+                break;
+            }
+        }
+        double copyMillis = (System.nanoTime() - start) / 1e6 / COPY_PAGES;
+
+        long usedBefore = usedHeap();
+        long peakGrowth = 0;
+        long slowestPage = 0;
+        long updatesBefore = updates.sum();
+        int pages = 0;
+        int contacts = 0;
+        String position = null;
+        start = System.nanoTime();
+        while (true) {
+            long pageStart = System.nanoTime();
+            List<Contact> page = service.getContactsAfter(position, pageSize);
+            slowestPage = Math.max(slowestPage, System.nanoTime() - pageStart);
+            if (page.isEmpty()) {
+                break;
+            }
+            position = page.get(page.size() - 1).getContactId();
+            contacts += page.size();
+            if (++pages % 1000 == 0) {
+                peakGrowth = Math.max(peakGrowth, usedHeap() - usedBefore);
+            }
+        }
+        double keysetSeconds = (System.nanoTime() - start) / 1e9;
+        long updatesDuring = updates.sum() - updatesBefore;
+        running.set(false);
+        writer.join();
+
+        System.out.printf("%,d contacts, %,d per page%n", size, pageSize);
+        System.out.printf("getAllContacts copy: %,.1f ms per page%n", copyMillis);
+        System.out.printf("getContactsAfter:    %,.3f ms per page average, %,.3f ms slowest, %,d pages, %,d contacts in %.1f s%n",
+                keysetSeconds * 1000 / pages, slowestPage / 1e6, pages, contacts, keysetSeconds);
+        System.out.printf("concurrent updates while paging: %,.0f/s; peak heap growth while paging %,d MB%n",
+                updatesDuring / keysetSeconds, peakGrowth >> 20);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Compares ingest throughput of the throwing API (new Contact + addContact, catching
+ * IllegalArgumentException) with the non-throwing one (Contact.tryCreate + tryAdd) as the share
+ * of rejected records grows. Half of the rejected records have an invalid phone number and half
+ * repeat an ID already stored, so both the constructor and the service reject some. A second
+ * line times construction alone (new Contact against Contact.tryCreate), where the cost of
+ * creating exceptions is not diluted by index maintenance.
+ * Run with: java -cp target/benchmarks.jar ContactRejectionBenchmark [records] (defaults to 2M records per run).
+ */
+public class ContactRejectionBenchmark {
+    private static final int[] REJECT_PERCENTS = {0, 15, 50};
+
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 2_000_000;
+        String[][] rows = new String[records][];
+
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            for (int percent : REJECT_PERCENTS) {
+                generate(rows, percent);
+                double throwing = run(rows, true);
+                double trying = run(rows, false);
+                double constructing = construct(rows, true);
+                double creating = construct(rows, false);
+                if (print) {
+                    System.out.printf("%2d%% rejected: add   throwing %,12.0f records/s, try* %,12.0f records/s (%.2fx)%n",
+                            percent, throwing, trying, trying / throwing);
+                    System.out.printf("%2d%% rejected: build throwing %,12.0f records/s, try* %,12.0f records/s (%.2fx)%n",
+                            percent, constructing, creating, creating / constructing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills rows with records where the given percentage are rejected
+     */
+    private static void generate(String[][] rows, int percent) {
+        long seed = 17;
+        for (int i = 0; i < rows.length; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int roll = (int) ((seed >>> 33) % 200);
+            String id = Integer.toString(i);
+            String phone = String.format("%010d", 4_155_550_000L + i % 10_000);
+            if (roll < percent) {
+                phone = "555-0100";
+            } else if (roll < 2 * percent && i > 0) {
+                id = Integer.toString(i - 1);
+            }
+            rows[i] = new String[] {id, "John", "Doe", phone, "123 Main St"};
+        }
+    }
+
+    /**
+     * Creates a contact from every row without storing it
+     * @return Records per second
+     */
+    private static double construct(String[][] rows, boolean throwing) {
+        int created = 0;
+        long start = System.nanoTime();
+        for (String[] row : rows) {
+            if (throwing) {
+                try {
+                    created += new Contact(row[0], row[1], row[2], row[3], row[4]).getPhone().length();
+                } catch (IllegalArgumentException e) {
+                    created--;
+                }
+            } else {
+                ContactResult result = Contact.tryCreate(row[0], row[1], row[2], row[3], row[4]);
+                created += result.isOk() ? result.getContact().getPhone().length() : -1;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (created == Integer.MIN_VALUE) {
+            throw new AssertionError();
+        }
+        return rows.length / (elapsed / 1e9);
+    }
+
+    /**
+     * Loads every row into a new service
+     * @return Records per second
+     */
+    private static double run(String[][] rows, boolean throwing) {
+        ContactService service = new ContactService();
+        int rejected = 0;
+        long start = System.nanoTime();
+        for (String[] row : rows) {
+            if (throwing) {
+                try {
+                    service.addContact(new Contact(row[0], row[1], row[2], row[3], row[4]));
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                }
+            } else {
+                ContactResult result = Contact.tryCreate(row[0], row[1], row[2], row[3], row[4]);
+                if (!result.isOk() || !service.tryAdd(result.getContact()).isOk()) {
+                    rejected++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (rejected > rows.length) {
+            throw new AssertionError();
+        }
+        return rows.length / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Measures secondary-index search latency on a large contact book.
+ * Run with: java -cp target/benchmarks.jar -Xmx4g ContactSearchBenchmark [size] (defaults to 5M contacts).
+ */
+public class ContactSearchBenchmark {
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Wilson", "Brown", "Jones", "Garcia", "Miller", "Davis", "Lopez", "Moore"
+    };
+    private static final int QUERIES = 10_000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 5_000_000;
+
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            // 10,000 distinct surnames with 500 contacts each; phone numbers are unique
+            String lastName = LAST_NAMES[i % LAST_NAMES.length] + (i / LAST_NAMES.length) % 1000;
+            String phone = String.format("%010d", 2_000_000_000L + i * 7L);
+            service.addContact(new Contact(Integer.toString(i), "First" + (i % 100), lastName, phone, "123 Main St"));
+        }
+
+        // Warm up, then time each query type separately
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            time("findByLastName", print, q -> service.findByLastName(LAST_NAMES[q % 10] + (q % 1000)).size());
+            time("findByLastNamePrefix", print, q -> service.findByLastNamePrefix(LAST_NAMES[q % 10] + (q % 100 + 100)).size());
+            time("findByPhone", print, q -> service.findByPhone(String.format("%010d", 2_000_000_000L + (q * 7919L % size) * 7L)).size());
+            time("findByPhonePrefix", print, q -> service.findByPhonePrefix(String.format("%010d", 2_000_000_000L + (q * 7919L % size) * 7L).substring(0, 9)).size());
+            time("findByPhonePrefix (exchange)", print, q -> service.findByPhonePrefix(String.format("%010d", 2_000_000_000L + (q * 7919L % size) * 7L).substring(0, 6)).size());
+            time("countByPhonePrefix (exchange)", print, q -> service.countByPhonePrefix(String.format("%010d", 2_000_000_000L + (q * 7919L % size) * 7L).substring(0, 6)));
+            time("countByPhonePrefix (area code)", print, q -> service.countByPhonePrefix(String.format("%010d", 2_000_000_000L + (q * 7919L % size) * 7L).substring(0, 3)));
+        }
+    }
+
+    private interface Query {
+        int run(int q);
+    }
+
+    private static void time(String name, boolean print, Query query) {
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < QUERIES; q++) {
+            hits += query.run(q);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            System.out.printf("%-34s %,8d ns/query (%.1f hits avg)%n", name, elapsed / QUERIES, (double) hits / QUERIES);
+        }
+    }
+}
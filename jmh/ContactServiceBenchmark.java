@@ -0,0 +1,56 @@
+/**
+ * Simple timing harness for ContactService bulk loads and lookups.
+ * Run with: java -cp target/benchmarks.jar ContactServiceBenchmark [size ...] (defaults to 10K, 1M and 10M contacts).
+ * Large sizes need a big heap, e.g. -Xmx4g for 10M contacts.
+ */
+public class ContactServiceBenchmark {
+    private static final int LOOKUP_COUNT = 1_000_000;
+
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i].replace("_", ""));
+            }
+        }
+
+        // Warm up the JIT on a small book before measuring
+        run(10_000, false);
+        for (int size : sizes) {
+            run(size, true);
+        }
+    }
+
+    private static void run(int size, boolean print) {
+        Contact[] book = new Contact[size];
+        for (int i = 0; i < size; i++) {
+            book[i] = new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St");
+        }
+
+        ContactService service = new ContactService();
+        long start = System.nanoTime();
+        for (Contact contact : book) {
+            service.addContact(contact);
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        // Look up pseudo-random IDs so the access pattern is not sequential
+        long seed = 42;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int id = (int) ((seed >>> 33) % size);
+            if (service.getContact(Integer.toString(id)) != null) {
+                found++;
+            }
+        }
+        long lookupNanos = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%,12d contacts: bulk load %,8d ms (%,6d ns/add), lookup %,6d ns/get (%d found)%n",
+                    size, loadNanos / 1_000_000, loadNanos / size, lookupNanos / LOOKUP_COUNT, found);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures ContactService throughput under a mixed workload (90% getContact, 10% updateContact)
+ * with uniformly random contact IDs.
+ * Run with: java -cp target/benchmarks.jar ContactServiceConcurrencyBenchmark [threads ...] (defaults to 1, 4, 16 and 64 threads).
+ */
+public class ContactServiceConcurrencyBenchmark {
+    private static final int BOOK_SIZE = 1_000_000;
+    private static final long RUN_MILLIS = 3_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1, 4, 16, 64};
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ContactService service = new ContactService();
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St"));
+        }
+
+        // Warm up the JIT before measuring
+        run(service, 2, 1_000, false);
+        for (int threads : threadCounts) {
+            run(service, threads, RUN_MILLIS, true);
+        }
+    }
+
+    private static void run(ContactService service, int threads, long millis, boolean print) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        for (int t = 0; t < threads; t++) {
+            final long threadSeed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                long seed = threadSeed;
+                long done = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while ((done & 1023) != 0 || System.nanoTime() < deadline) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    String id = Integer.toString((int) ((seed >>> 33) % BOOK_SIZE));
+                    if ((seed >>> 20) % 10 == 0) {
+                        service.updateContact(id, null, null, (seed & 0x100000) == 0 ? "1234567890" : "9876543210", null);
+                    } else {
+                        service.getContact(id);
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        if (print) {
+            System.out.printf("%3d threads: %,12.0f ops/s%n", threads, operations.sum() * 1e9 / elapsed);
+        }
+    }
+}
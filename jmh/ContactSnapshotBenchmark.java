@@ -0,0 +1,62 @@
+/**
+ * Measures what snapshots cost: updateContact with no snapshot open and with one held open
+ * for the whole run, and a full iteration of a snapshot while a writer updates every contact.
+ * Run with: java -cp target/benchmarks.jar ContactSnapshotBenchmark [contacts] (defaults to 100K contacts).
+ */
+public class ContactSnapshotBenchmark {
+    private static final int CALLS = 2_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 100_000;
+
+        System.out.printf("update, no snapshot:   %.1f ns per call%n", updates(service(size), size));
+        ContactService held = service(size);
+        try (ContactSnapshot snapshot = held.snapshot()) {
+            System.out.printf("update, snapshot open: %.1f ns per call (%,d versions kept since version %,d)%n",
+                    updates(held, size), held.savedVersionCount(), snapshot.getVersion());
+        }
+        System.out.printf("versions after close:  %,d%n", held.savedVersionCount());
+
+        ContactService busy = service(size);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                busy.updateContact(Integer.toString(i % size), null, null, (i / size & 1) == 0 ? "1111111111" : "2222222222", null);
+            }
+        });
+        writer.setDaemon(true);
+        writer.start();
+        for (int round = 0; round < 5; round++) {
+            try (ContactSnapshot snapshot = busy.snapshot()) {
+                long start = System.nanoTime();
+                long count = snapshot.stream().count();
+                System.out.printf("iterate %,d under writes: %.1f ms%n", count, (System.nanoTime() - start) / 1e6);
+            }
+        }
+        writer.interrupt();
+        writer.join();
+    }
+
+    private static ContactService service(int size) {
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St"));
+        }
+        return service;
+    }
+
+    private static double updates(ContactService service, int size) {
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = Integer.toString(i);
+        }
+        String[] phones = {"1111111111", "2222222222"};
+        for (int i = 0; i < CALLS / 5; i++) {
+            service.updateContact(ids[i % size], null, null, phones[(i / size) & 1], null);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            service.updateContact(ids[i % size], null, null, phones[(i / size) & 1], null);
+        }
+        return (double) (System.nanoTime() - start) / CALLS;
+    }
+}
@@ -0,0 +1,146 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures heap bytes per contact and GC time for each storage layout.
+ * Run each layout in its own JVM so GC statistics do not mix:
+ *   java -cp target/benchmarks.jar -Xmx5g ContactStorageBenchmark list|heap|columnar|direct|service|interned [size]
+ * "list" is the original ArrayList of Contact objects; size defaults to 10M contacts.
+ * "service" and "interned" load a whole ContactService, indexes included, over a heap store,
+ * without and with an InternTable, from names and streets drawn with realistic skew.
+ */
+public class ContactStorageBenchmark {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Michael", "Sarah", "David", "Emily", "James", "Laura"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Brown", "Jones", "Garcia", "Miller", "Davis", "Wilson"};
+
+    private static final int FIRST_NAME_COUNT = 5_000;
+    private static final int LAST_NAME_COUNT = 50_000;
+    private static final int STREET_COUNT = 2_000;
+    private static final String[] SYLLABLES = {"an", "ber", "cal", "da", "el", "fin", "gar", "ho", "is", "jo",
+            "ka", "le", "mar", "no", "ol", "pe", "ri", "sa", "ton", "vi"};
+    private static final String[] STREET_TYPES = {" St", " Ave", " Rd", " Ln", " Dr"};
+
+    private static Object retained;
+
+    public static void main(String[] args) {
+        String layout = args.length > 0 ? args[0] : "columnar";
+        int size = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : 10_000_000;
+
+        long baseline = usedHeapAfterGc();
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        retained = load(layout, size);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long gcDuringLoad = gcMillis() - gcBefore;
+
+        long used = usedHeapAfterGc() - baseline;
+        long fullGcStart = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - fullGcStart) / 1_000_000;
+
+        System.out.printf("%-9s %,d contacts: %6.1f heap bytes/contact, %6.1f direct bytes/contact, "
+                        + "load %,d ms, GC during load %,d ms, full GC %,d ms%n",
+                layout, size, (double) used / size, (double) directBytes() / size, loadMillis, gcDuringLoad, fullGcMillis);
+    }
+
+    private static Object load(String layout, int size) {
+        if (layout.equals("service") || layout.equals("interned")) {
+            ContactService service = new ContactService(new HeapContactStore(),
+                    layout.equals("interned") ? InternTable.shared() : null);
+            List<Contact> batch = new ArrayList<>();
+            Random random = new Random(42);
+            ZipfianGenerator firstNames = new ZipfianGenerator(FIRST_NAME_COUNT, 0.99);
+            ZipfianGenerator lastNames = new ZipfianGenerator(LAST_NAME_COUNT, 0.99);
+            ZipfianGenerator streets = new ZipfianGenerator(STREET_COUNT, 0.99);
+            for (int i = 0; i < size; i++) {
+                batch.add(new Contact(Integer.toString(i),
+                        word(firstNames.next(random), 10),
+                        word(lastNames.next(random), 10),
+                        Long.toString(2_000_000_000L + i),
+                        (1 + random.nextInt(99)) + " " + word(streets.next(random), 20) + STREET_TYPES[random.nextInt(5)]));
+                if (batch.size() == 10_000) {
+                    service.addContacts(batch);
+                    batch.clear();
+                }
+            }
+            service.addContacts(batch);
+            return service;
+        }
+        if (layout.equals("list")) {
+            List<Contact> contacts = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                contacts.add(contact(i));
+            }
+            return contacts;
+        }
+        ContactStore store;
+        switch (layout) {
+            case "heap":
+                store = new HeapContactStore();
+                break;
+            case "direct":
+                store = new ColumnarContactStore(true);
+                break;
+            default:
+                store = new ColumnarContactStore(false);
+                break;
+        }
+        for (int i = 0; i < size; i++) {
+            store.insert(contact(i));
+        }
+        return store;
+    }
+
+    /**
+     * Builds a contact whose strings are fresh instances, as if parsed from an input file
+     */
+    private static Contact contact(int i) {
+        return new Contact(Integer.toString(i),
+                new String(FIRST_NAMES[i & 7].toCharArray()),
+                new String(LAST_NAMES[(i >>> 3) & 7].toCharArray()),
+                Long.toString(2_000_000_000L + i),
+                (i % 9_999) + " Main St");
+    }
+
+    /**
+     * Spells a pronounceable word for a rank, as a fresh instance like a parsed value
+     */
+    private static String word(int rank, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append(SYLLABLES[rank % SYLLABLES.length]);
+            rank /= SYLLABLES.length;
+        } while (rank > 0);
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.length() > maxLength ? word.substring(0, maxLength) : word.toString();
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures heap use and read latency when only a small share of the book is in use:
+ *   java -cp target/benchmarks.jar -Xmx5g ContactTieringBenchmark tiered|heap [size] [hotPercent]
+ * Loads size contacts (default 20M), then reads a fixed hot set of hotPercent of them (default
+ * 5%) 95% of the time and any other contact 5% of the time. "tiered" caps the hot tier at the
+ * hot set's size and keeps the rest in a segment file; "heap" keeps every contact resident.
+ * Cold reads are timed separately, since each one reads the segment file and promotes a contact.
+ * Heap is reported after the load, then again once a search has built the service's indexes,
+ * which hold every contact's fields whichever tier it is in.
+ */
+public class ContactTieringBenchmark {
+    private static final int READS = 2_000_000;
+    private static final int BATCH = 10_000;
+
+    private static Object retained;
+
+    public static void main(String[] args) throws IOException {
+        String layout = args.length > 0 ? args[0] : "tiered";
+        int size = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : 20_000_000;
+        int hotPercent = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int hotCount = (int) ((long) size * hotPercent / 100);
+        int stride = 100 / hotPercent;
+
+        Path segmentFile = Files.createTempFile("contacts", ".seg");
+        TieredContactStore tiered = layout.equals("tiered") ? TieredContactStore.open(segmentFile, hotCount) : null;
+        try {
+            long baseline = usedHeapAfterGc();
+            ContactService service = new ContactService(tiered != null ? tiered : new HeapContactStore());
+            long start = System.nanoTime();
+            List<Contact> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < size; i++) {
+                batch.add(new Contact(Integer.toString(i), "John", "Doe" + (i % 1000),
+                        Long.toString(2_000_000_000L + i), (i % 9_999) + " Main St"));
+                if (batch.size() == BATCH) {
+                    service.addContacts(batch);
+                    batch.clear();
+                }
+            }
+            service.addContacts(batch);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            retained = service;
+            long used = usedHeapAfterGc() - baseline;
+
+            // The first search builds the indexes; one phone hit promotes a single contact
+            start = System.nanoTime();
+            service.findByPhone(Long.toString(2_000_000_000L + size - 1));
+            long indexMillis = (System.nanoTime() - start) / 1_000_000;
+            // Touch the hot set, every stride-th contact, last so it is what the hot tier holds
+            for (int i = 0; i < size; i += stride) {
+                service.getContact(Integer.toString(i));
+            }
+            long usedIndexed = usedHeapAfterGc() - baseline;
+
+            Random random = new Random(42);
+            LatencyHistogram hot = new LatencyHistogram();
+            LatencyHistogram cold = new LatencyHistogram();
+            long readStart = System.nanoTime();
+            for (int n = 0; n < READS; n++) {
+                boolean hotRead = random.nextInt(100) < 95;
+                int i = hotRead ? random.nextInt(hotCount) * stride : coldIndex(random, size, stride);
+                String id = Integer.toString(i);
+                long t = System.nanoTime();
+                Contact contact = service.getContact(id);
+                long elapsed = System.nanoTime() - t;
+                if (contact == null) {
+                    throw new IllegalStateException("Contact " + id + " is unreachable");
+                }
+                (hotRead ? hot : cold).record(elapsed);
+            }
+            long readMillis = (System.nanoTime() - readStart) / 1_000_000;
+            long usedAfterReads = usedHeapAfterGc() - baseline;
+
+            System.out.printf("%-6s %,d contacts, %d%% hot: load %,d ms, heap %,d MB (%.1f bytes/contact) after load%n",
+                    layout, size, hotPercent, loadMillis, used >> 20, (double) used / size);
+            System.out.printf("       indexes built in %,d ms: heap %,d MB (%.1f bytes/contact), %,d MB after reads%n",
+                    indexMillis, usedIndexed >> 20, (double) usedIndexed / size, usedAfterReads >> 20);
+            if (tiered != null) {
+                System.out.printf("       hot tier %,d contacts, cold tier %,d contacts, segment file %,d MB%n",
+                        tiered.getHotCount(), tiered.getColdCount(), tiered.getSegmentBytes() >> 20);
+            }
+            System.out.printf("       %,d reads in %,d ms%n", READS, readMillis);
+            print("hot reads", hot);
+            print("cold reads", cold);
+        } finally {
+            if (tiered != null) {
+                tiered.close();
+            }
+            Files.deleteIfExists(segmentFile);
+        }
+    }
+
+    /**
+     * Picks a contact outside the hot set
+     */
+    private static int coldIndex(Random random, int size, int stride) {
+        int i;
+        do {
+            i = random.nextInt(size);
+        } while (i % stride == 0);
+        return i;
+    }
+
+    private static void print(String name, LatencyHistogram histogram) {
+        System.out.printf("       %-10s %,9d: p50 %,7.1f us, p99 %,7.1f us, p99.9 %,8.1f us, max %,9.1f us%n",
+                name, histogram.getCount(), histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures optimistic updates under contention. Each thread repeatedly reads a contact's version
+ * and phone number, then writes the next number with updateIfVersion, retrying on CONFLICT.
+ * The hot-key count sets the contention: 1 key means every thread edits the same contact.
+ * Reports successful updates per second and retries per successful update, next to plain
+ * updateContact throughput on the same keys as the baseline.
+ * Run with: java -cp target/benchmarks.jar ContactVersionBenchmark [threads ...] (defaults to 1, 4 and 16 threads).
+ */
+public class ContactVersionBenchmark {
+    private static final int[] HOT_KEYS = {1, 16, 100_000};
+    private static final long RUN_MILLIS = 2_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1, 4, 16};
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.printf("%d cores%n", Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 2; round++) {
+            for (int keys : HOT_KEYS) {
+                ContactService service = new ContactService();
+                for (int i = 0; i < keys; i++) {
+                    service.addContact(new Contact(Integer.toString(i), "John", "Doe", "1000000000", "123 Main St"));
+                }
+                for (int threads : threadCounts) {
+                    long[] plain = run(service, keys, threads, false);
+                    long[] versioned = run(service, keys, threads, true);
+                    if (round == 1) {
+                        System.out.printf("%,7d keys %2d threads: plain %,10.0f updates/s, updateIfVersion %,10.0f updates/s, %.3f retries/update%n",
+                                keys, threads, plain[0] * 1000.0 / RUN_MILLIS, versioned[0] * 1000.0 / RUN_MILLIS,
+                                versioned[0] == 0 ? 0 : (double) versioned[1] / versioned[0]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs update loops for a fixed time
+     * @return Successful updates and conflicts
+     */
+    private static long[] run(ContactService service, int keys, int threads, boolean versioned) throws InterruptedException {
+        LongAdder updates = new LongAdder();
+        LongAdder conflicts = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000;
+        for (int t = 0; t < threads; t++) {
+            final long threadSeed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                long seed = threadSeed;
+                long done = 0;
+                long retried = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while ((done & 63) != 0 || System.nanoTime() < deadline) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    String id = Integer.toString((int) ((seed >>> 33) % keys));
+                    if (!versioned) {
+                        long next = Long.parseLong(service.getContact(id).getPhone()) + 1;
+                        service.updateContact(id, null, null, Long.toString(next), null);
+                    } else {
+                        while (true) {
+                            long version = service.getVersion(id);
+                            long next = Long.parseLong(service.getContact(id).getPhone()) + 1;
+                            if (service.updateIfVersion(id, version, null, null, Long.toString(next), null).isOk()) {
+                                break;
+                            }
+                            retried++;
+                        }
+                    }
+                    done++;
+                }
+                updates.add(done);
+                conflicts.add(retried);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[] {updates.sum(), conflicts.sum()};
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.Random;
+
+import benchmarks.Workload;
+
+/**
+ * ContactWorkloads builds the operations the JMH benchmarks in the benchmarks package time.
+ * It lives in the unnamed package with the contact classes so it can use them directly.
+ */
+public final class ContactWorkloads {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Michael", "Sarah", "David", "Emily", "James", "Laura"};
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    private ContactWorkloads() {
+    }
+
+    /**
+     * Constructs contacts with varying IDs and first names
+     * @return The operation
+     */
+    public static Workload construct() {
+        String[] ids = ids(1024);
+        int[] next = new int[1];
+        return () -> {
+            int key = next[0]++;
+            return new Contact(ids[key & 1023], FIRST_NAMES[key & 7], "Doe", "1234567890", "123 Main St");
+        };
+    }
+
+    /**
+     * Calls each setter in turn on one contact
+     * @return The operation
+     */
+    public static Workload setters() {
+        Contact contact = new Contact("0", "John", "Doe", "1234567890", "123 Main St");
+        int[] next = new int[1];
+        return () -> {
+            int key = next[0]++;
+            switch (key & 3) {
+                case 0:
+                    contact.setFirstName(FIRST_NAMES[key & 7]);
+                    break;
+                case 1:
+                    contact.setLastName(FIRST_NAMES[(key >>> 3) & 7]);
+                    break;
+                case 2:
+                    contact.setPhone("1234567890");
+                    break;
+                default:
+                    contact.setAddress("123 Main St");
+                    break;
+            }
+            return contact;
+        };
+    }
+
+    /**
+     * Creates a service holding contacts with IDs 0 to size - 1
+     * @param size The number of contacts
+     * @return The service
+     */
+    public static Object service(int size) {
+        ContactService service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.addContact(new Contact(Integer.toString(i), FIRST_NAMES[i & 7], "Doe", "1234567890", "123 Main St"));
+        }
+        return service;
+    }
+
+    /**
+     * Builds one thread's operation on a service created by service(size)
+     * @param name getContact, updateContact, addContact, deleteAndAddContact or getAllContacts
+     * @param shared The service
+     * @param size The number of contacts it was created with
+     * @param distribution uniform or zipfian
+     * @param thread The calling thread's index
+     * @param threads The number of threads
+     * @return The operation
+     */
+    public static Workload serviceOperation(String name, Object shared, int size, String distribution, int thread, int threads) {
+        ContactService service = (ContactService) shared;
+        String[] ids = ids(size);
+        // Keys drawn ahead of time so measured calls only read an array
+        int[] keys = distribution.equals("zipfian")
+                ? new ZipfianGenerator(size, 0.99).draw(KEYS_PER_THREAD, thread)
+                : new Random(thread).ints(KEYS_PER_THREAD, 0, size).toArray();
+        int[] next = new int[1];
+        switch (name) {
+            case "getContact":
+                return () -> service.getContact(ids[keys[next[0]++ & (KEYS_PER_THREAD - 1)]]);
+            case "updateContact":
+                return () -> {
+                    int key = keys[next[0]++ & (KEYS_PER_THREAD - 1)];
+                    service.updateContact(ids[key], FIRST_NAMES[key & 7], null, null, null);
+                    return ids[key];
+                };
+            case "addContact": {
+                long[] added = new long[1];
+                return () -> {
+                    // New IDs past the loaded ones, interleaved by thread so threads never collide
+                    String id = Long.toString(size + added[0]++ * threads + thread);
+                    service.addContact(new Contact(id, "John", "Doe", "1234567890", "123 Main St"));
+                    return id;
+                };
+            }
+            case "deleteAndAddContact":
+                return () -> {
+                    // Each thread owns the keys congruent to its index, so threads never race on one contact
+                    int key = keys[next[0]++ & (KEYS_PER_THREAD - 1)];
+                    int own = key - key % threads + thread;
+                    if (own >= size) {
+                        own -= threads;
+                    }
+                    service.deleteContact(ids[own]);
+                    service.addContact(new Contact(ids[own], "John", "Doe", "1234567890", "123 Main St"));
+                    return ids[own];
+                };
+            case "getAllContacts":
+                return service::getAllContacts;
+            default:
+                throw new IllegalArgumentException("Unknown service operation " + name);
+        }
+    }
+
+    /**
+     * Validates a valid contact's fields the way Contact's constructor did before
+     * ContactValidator, with String.matches for the phone
+     * @return The operation
+     */
+    public static Workload regexValidation() {
+        String[] phones = phones();
+        int[] next = new int[1];
+        return () -> legacyValidate("123", "John", "Doe", phones[next[0]++ & 1023], "123 Main St");
+    }
+
+    /**
+     * Validates a valid contact's fields with ContactValidator
+     * @return The operation
+     */
+    public static Workload validator() {
+        String[] phones = phones();
+        int[] next = new int[1];
+        return () -> ContactValidator.firstViolation("123", "John", "Doe", phones[next[0]++ & 1023], "123 Main St") == null;
+    }
+
+    /**
+     * Constructs a valid contact, validation included
+     * @return The operation
+     */
+    public static Workload validatedConstruct() {
+        String[] phones = phones();
+        int[] next = new int[1];
+        return () -> new Contact("123", "John", "Doe", phones[next[0]++ & 1023], "123 Main St");
+    }
+
+    /**
+     * The checks Contact's constructor made before ContactValidator existed
+     */
+    private static boolean legacyValidate(String contactId, String firstName, String lastName, String phone, String address) {
+        return contactId != null && contactId.length() <= 10
+                && firstName != null && firstName.length() <= 10
+                && lastName != null && lastName.length() <= 10
+                && phone != null && phone.length() == 10 && phone.matches("\\d{10}")
+                && address != null && address.length() <= 30;
+    }
+
+    private static String[] phones() {
+        String[] phones = new String[1024];
+        for (int i = 0; i < phones.length; i++) {
+            phones[i] = String.format("%010d", 4_155_550_000L + i);
+        }
+        return phones;
+    }
+
+    private static String[] ids(int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = Integer.toString(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures fuzzySearch latency on a large contact book, against the scan of getAllContacts it
+ * replaces. Names and streets are built from syllables, so there are a few hundred first names,
+ * a few thousand last names and street names and 9,999 house numbers; queries are stored names
+ * or addresses with one typo per word.
+ * Run with: java -cp target/benchmarks.jar -Xmx4500m FuzzySearchBenchmark [size] (defaults to 5M contacts).
+ */
+public class FuzzySearchBenchmark {
+    private static final String[] SYLLABLES = {
+        "ja", "jo", "mi", "ka", "ro", "li", "an", "el", "sa", "de", "ni", "ta", "be", "mo", "ri"
+    };
+    private static final String[] STREET_TYPES = {"St", "Ave", "Rd", "Blvd", "Ln"};
+    private static final int QUERIES = 2_000;
+    private static final int SCANS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0].replace("_", "")) : 5_000_000;
+        Random random = new Random(42);
+
+        ContactService service = new ContactService();
+        List<Contact> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String address = (1 + random.nextInt(9999)) + " " + name(random, 3) + " " + STREET_TYPES[random.nextInt(5)];
+            batch.add(new Contact(Integer.toString(i), name(random, 2), name(random, 3), "1234567890", address));
+            if (batch.size() == 100_000) {
+                service.addContacts(batch);
+                batch.clear();
+            }
+        }
+        service.addContacts(batch);
+        long start = System.nanoTime();
+        service.fuzzySearch("warm", 10);
+        System.out.printf("%,d contacts indexed in %.1f s%n", size, (System.nanoTime() - start) / 1e9);
+
+        String[] nameQueries = new String[QUERIES];
+        String[] addressQueries = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            Contact contact = service.getContact(Integer.toString(random.nextInt(size)));
+            nameQueries[q] = typo(random, contact.getFirstName()) + " " + typo(random, contact.getLastName());
+            String[] address = contact.getAddress().split(" ");
+            addressQueries[q] = address[0] + " " + typo(random, address[1]).substring(0, 4);
+        }
+        for (int round = 0; round < 2; round++) {
+            time("fuzzySearch \"first last\" top 10", round == 1, service, nameQueries);
+            time("fuzzySearch \"number street\" top 10", round == 1, service, addressQueries);
+        }
+
+        // The loop call-center agents ran before: compare every contact's names with the query
+        start = System.nanoTime();
+        long hits = 0;
+        for (int q = 0; q < SCANS; q++) {
+            String[] words = nameQueries[q].toLowerCase().split(" ");
+            for (Contact contact : service.getAllContacts()) {
+                if (FuzzyIndex.distance(words[0], contact.getFirstName().toLowerCase(), 1) <= 1
+                        && FuzzyIndex.distance(words[1], contact.getLastName().toLowerCase(), 1) <= 1) {
+                    hits++;
+                }
+            }
+        }
+        System.out.printf("%-38s %,10.1f ms/query (%d hits)%n", "scan of getAllContacts", (System.nanoTime() - start) / 1e6 / SCANS, hits);
+    }
+
+    private static String name(Random random, int syllables) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    /**
+     * Applies one random deletion, substitution or transposition
+     */
+    private static String typo(Random random, String word) {
+        StringBuilder typed = new StringBuilder(word);
+        int at = 1 + random.nextInt(word.length() - 2);
+        switch (random.nextInt(3)) {
+            case 0:
+                typed.deleteCharAt(at);
+                break;
+            case 1:
+                typed.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                break;
+            default:
+                typed.setCharAt(at, word.charAt(at + 1));
+                typed.setCharAt(at + 1, word.charAt(at));
+        }
+        return typed.toString();
+    }
+
+    private static void time(String name, boolean print, ContactService service, String[] queries) {
+        LatencyHistogram latency = new LatencyHistogram();
+        long hits = 0;
+        for (String query : queries) {
+            long start = System.nanoTime();
+            hits += service.fuzzySearch(query, 10).size();
+            latency.record(System.nanoTime() - start);
+        }
+        if (print) {
+            System.out.printf("%-38s p50 %6.2f ms  p99 %6.2f ms  max %6.2f ms (%.1f hits avg)%n", name,
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getMax() / 1e6, (double) hits / queries.length);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures ShardedContactService throughput as shards are added, with each shard in its own
+ * local process (RemoteContactShard.launch) or, with -local, in this JVM. The workload is 90%
+ * getContact and 10% updateContact on uniformly random IDs from a fixed number of client threads.
+ * Shard processes inherit this JVM's options, so keep -Xmx modest.
+ * Run with: java -cp target/benchmarks.jar -Xmx512m ShardedContactBenchmark [-local] [shards ...] (defaults to 1, 2, 4 and 8 shards).
+ */
+public class ShardedContactBenchmark {
+    private static final int BOOK_SIZE = 200_000;
+    private static final int CLIENT_THREADS = 32;
+    private static final long RUN_MILLIS = 5_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean local = false;
+        List<Integer> shardCounts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-local")) {
+                local = true;
+            } else {
+                shardCounts.add(Integer.parseInt(arg));
+            }
+        }
+        if (shardCounts.isEmpty()) {
+            shardCounts.add(1);
+            shardCounts.add(2);
+            shardCounts.add(4);
+            shardCounts.add(8);
+        }
+        System.out.printf("%d cores, %d client threads, %,d contacts, %s shards%n",
+                Runtime.getRuntime().availableProcessors(), CLIENT_THREADS, BOOK_SIZE, local ? "in-process" : "process");
+
+        for (int shardCount : shardCounts) {
+            List<ContactShard> shards = new ArrayList<>();
+            for (int s = 0; s < shardCount; s++) {
+                shards.add(local ? new LocalContactShard("shard-" + s) : RemoteContactShard.launch("shard-" + s));
+            }
+            try (ShardedContactService service = new ShardedContactService(shards)) {
+                for (int i = 0; i < BOOK_SIZE; i++) {
+                    service.addContact(new Contact(Integer.toString(i), "First", "Last", "1234567890", "123 Main St"));
+                }
+                // Warm up the JIT in every process before measuring
+                run(service, 1_000, false, shardCount);
+                run(service, RUN_MILLIS, true, shardCount);
+            }
+        }
+    }
+
+    private static void run(ShardedContactService service, long millis, boolean print, int shardCount) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[CLIENT_THREADS];
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        for (int t = 0; t < CLIENT_THREADS; t++) {
+            final long threadSeed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                long seed = threadSeed;
+                long done = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while ((done & 63) != 0 || System.nanoTime() < deadline) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    String id = Integer.toString((int) ((seed >>> 33) % BOOK_SIZE));
+                    if ((seed >>> 20) % 10 == 0) {
+                        service.updateContact(id, null, null, (seed & 0x100000) == 0 ? "1234567890" : "9876543210", null);
+                    } else {
+                        service.getContact(id);
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        if (print) {
+            System.out.printf("%d shard(s): %,12.0f ops/s%n", shardCount, operations.sum() / seconds);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Random;
+
+/**
+ * ZipfianGenerator draws keys from 0 to size - 1 where a few keys are far more popular than the
+ * rest, as in real contact lookups. It uses Gray et al.'s method ("Quickly Generating
+ * Billion-Record Synthetic Databases"), and scatters ranks across the key space so popular keys
+ * are not adjacent. Used by the benchmarks.
+ */
+final class ZipfianGenerator {
+    private final int size;
+    private final double zetaN;
+    private final double zeta2;
+    private final double alpha;
+    private final double eta;
+
+    /**
+     * Constructor for ZipfianGenerator
+     * @param size The number of keys
+     * @param theta The skew, between 0 and 1; 0.99 is the usual choice
+     */
+    ZipfianGenerator(int size, double theta) {
+        this.size = size;
+        double zeta = 0;
+        for (int i = 1; i <= size; i++) {
+            zeta += 1 / Math.pow(i, theta);
+        }
+        this.zetaN = zeta;
+        this.zeta2 = 1 + 1 / Math.pow(2, theta);
+        this.alpha = 1 / (1 - theta);
+        this.eta = (1 - Math.pow(2.0 / size, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    /**
+     * Draws the next key
+     * @param random The source of randomness
+     * @return A key from 0 to size - 1
+     */
+    int next(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        long rank;
+        if (uz < 1) {
+            rank = 0;
+        } else if (uz < zeta2) {
+            rank = 1;
+        } else {
+            rank = (long) (size * Math.pow(eta * u - eta + 1, alpha));
+        }
+        return (int) Long.remainderUnsigned((rank + 1) * 0x9E3779B97F4A7C15L, size);
+    }
+
+    /**
+     * Draws many keys at once so measured loops only read an array
+     * @param count The number of keys to draw
+     * @param seed The random seed
+     * @return The keys
+     */
+    int[] draw(int count, long seed) {
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = next(random);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures ContactService throughput by number of stored contacts and key distribution:
+ * uniform, or zipfian (skewed toward a few popular contacts). All threads share one service;
+ * run with -t 1 and -t 4 (or more) to compare thread counts, and -rf json to keep results.
+ * Run with: java -jar target/benchmarks.jar ContactServiceThroughputBenchmark -t 4 -rf json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactServiceThroughputBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+
+    private Object service;
+
+    @Setup
+    public void setUp() {
+        service = Workloads.create("service", size);
+    }
+
+    /**
+     * Each thread's operations, with keys drawn from the distribution ahead of time
+     */
+    @State(Scope.Thread)
+    public static class Operations {
+        private Workload getContact;
+        private Workload updateContact;
+        private Workload addContact;
+        private Workload deleteAndAddContact;
+        private Workload getAllContacts;
+
+        @Setup
+        public void setUp(ContactServiceThroughputBenchmark benchmark, ThreadParams params) {
+            getContact = operation("getContact", benchmark, params);
+            updateContact = operation("updateContact", benchmark, params);
+            addContact = operation("addContact", benchmark, params);
+            deleteAndAddContact = operation("deleteAndAddContact", benchmark, params);
+            getAllContacts = operation("getAllContacts", benchmark, params);
+        }
+
+        private static Workload operation(String name, ContactServiceThroughputBenchmark benchmark, ThreadParams params) {
+            return Workloads.create("serviceOperation", name, benchmark.service, benchmark.size,
+                    benchmark.distribution, params.getThreadIndex(), params.getThreadCount());
+        }
+    }
+
+    @Benchmark
+    public Object getContact(Operations operations) {
+        return operations.getContact.run();
+    }
+
+    @Benchmark
+    public Object updateContact(Operations operations) {
+        return operations.updateContact.run();
+    }
+
+    @Benchmark
+    public Object addContact(Operations operations) {
+        return operations.addContact.run();
+    }
+
+    @Benchmark
+    public Object deleteAndAddContact(Operations operations) {
+        return operations.deleteAndAddContact.run();
+    }
+
+    @Benchmark
+    public Object getAllContacts(Operations operations) {
+        return operations.getAllContacts.run();
+    }
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Contact construction and setter throughput. Each thread has its own contact, so
+ * run with -t to see how the cost scales with threads.
+ * Run with: java -jar target/benchmarks.jar ContactThroughputBenchmark -rf json
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactThroughputBenchmark {
+    private Workload construct;
+    private Workload setters;
+
+    @Setup
+    public void setUp() {
+        construct = Workloads.create("construct");
+        setters = Workloads.create("setters");
+    }
+
+    @Benchmark
+    public Object construct() {
+        return construct.run();
+    }
+
+    @Benchmark
+    public Object setters() {
+        return setters.run();
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the old regex-based Contact validation with ContactValidator, and times a whole
+ * validated construction. Add -prof gc to report bytes allocated per operation.
+ * Run with: java -jar target/benchmarks.jar ContactValidationBenchmark -prof gc -rf json
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactValidationBenchmark {
+    private Workload regexValidation;
+    private Workload validator;
+    private Workload construct;
+
+    @Setup
+    public void setUp() {
+        regexValidation = Workloads.create("regexValidation");
+        validator = Workloads.create("validator");
+        construct = Workloads.create("validatedConstruct");
+    }
+
+    @Benchmark
+    public Object regexValidation() {
+        return regexValidation.run();
+    }
+
+    @Benchmark
+    public Object validator() {
+        return validator.run();
+    }
+
+    @Benchmark
+    public Object construct() {
+        return construct.run();
+    }
+}
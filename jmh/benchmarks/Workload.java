@@ -0,0 +1,16 @@
+package benchmarks;
+
+/**
+ * Workload is one timed operation of a benchmark. The contact classes live in the unnamed
+ * package, which JMH cannot generate code into and named packages cannot import, so each
+ * benchmark here asks ContactWorkloads for its operations once at setup and then only calls
+ * run. With a single implementation per call site the JIT inlines run, so the indirection
+ * does not show in the scores.
+ */
+public interface Workload {
+    /**
+     * Runs the operation once
+     * @return A value derived from the result, for JMH to consume
+     */
+    Object run();
+}
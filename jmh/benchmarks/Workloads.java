@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Workloads calls the factory methods of ContactWorkloads, in the unnamed package, by name
+ */
+final class Workloads {
+    private static final String FACTORY = "ContactWorkloads";
+
+    private Workloads() {
+    }
+
+    /**
+     * Calls a public static method of ContactWorkloads
+     * @param method The method name
+     * @param args The arguments
+     * @return The method's result
+     * @throws IllegalStateException if the method is missing or fails
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T create(String method, Object... args) {
+        try {
+            for (Method candidate : Class.forName(FACTORY).getMethods()) {
+                if (candidate.getName().equals(method) && candidate.getParameterCount() == args.length) {
+                    return (T) candidate.invoke(null, args);
+                }
+            }
+        } catch (ClassNotFoundException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot call " + FACTORY + "." + method, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(FACTORY + "." + method + " failed", e.getCause());
+        }
+        throw new IllegalStateException("No method " + FACTORY + "." + method + " with " + args.length + " arguments");
+    }
+}